@@ -0,0 +1,62 @@
+package de.presti.wrapper.tiktok.benchmark;
+
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares binding the entities from a materialized JSON tree with binding them from the token stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BindingBenchmark {
+
+    private static final String ELEMENT_ID = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+    private byte[] userPage;
+
+    private byte[] videoPage;
+
+    @Setup
+    public void setup() throws IOException {
+        userPage = Fixtures.load("user-profile.html");
+        videoPage = Fixtures.load("video.html");
+    }
+
+    @Benchmark
+    public TikTokUser userFromTree() throws IOException {
+        return TikTokUser.fromScraper(Fixtures.scope(userPage, ELEMENT_ID), true);
+    }
+
+    @Benchmark
+    public TikTokUser userFromStream() throws IOException {
+        return TikTokUser.fromScraper(ExtractionUtility.openReader(userPage, ELEMENT_ID), true);
+    }
+
+    @Benchmark
+    public TikTokVideo videoFromTree() throws IOException {
+        return TikTokVideo.fromScraper(Fixtures.scope(videoPage, ELEMENT_ID));
+    }
+
+    @Benchmark
+    public TikTokVideo videoFromStream() throws IOException {
+        return TikTokVideo.fromScraper(ExtractionUtility.openReader(videoPage, ELEMENT_ID));
+    }
+}
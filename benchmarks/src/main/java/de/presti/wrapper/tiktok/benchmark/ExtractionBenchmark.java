@@ -0,0 +1,74 @@
+package de.presti.wrapper.tiktok.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the jsoup based extraction of the rehydration data with the path of the Scrapper, both bind the entity of the page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    private static final String ELEMENT_ID = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+    @Param({"user-profile.html", "video.html"})
+    public String fixture;
+
+    private byte[] page;
+
+    @Setup
+    public void setup() throws IOException {
+        page = Fixtures.load(fixture);
+    }
+
+    /**
+     * The previous path, a full DOM plus a full JSON tree.
+     */
+    @Benchmark
+    public Object documentExtraction() {
+        Document document = Jsoup.parse(new String(page, StandardCharsets.UTF_8));
+        JsonObject scope = JsonParser.parseString(document.getElementById(ELEMENT_ID).data()).getAsJsonObject()
+                .getAsJsonObject(ExtractionUtility.DEFAULT_SCOPE);
+        return isUser() ? TikTokUser.fromScraper(scope, true) : TikTokVideo.fromScraper(scope);
+    }
+
+    /**
+     * The path of the Scrapper, the key of the entity is copied out of the raw page and bound from the token stream.
+     */
+    @Benchmark
+    public Object streamingExtraction() throws IOException {
+        byte[] payload = ExtractionUtility.extractPayload(page, ELEMENT_ID, isUser() ? "webapp.user-detail" : "webapp.video-detail");
+        JsonReader reader = ExtractionUtility.openPayload(payload);
+        return isUser() ? TikTokUser.fromScraper(reader, true) : TikTokVideo.fromScraper(reader);
+    }
+
+    private boolean isUser() {
+        return fixture.startsWith("user");
+    }
+}
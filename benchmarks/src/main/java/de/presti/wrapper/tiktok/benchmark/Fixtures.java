@@ -0,0 +1,51 @@
+package de.presti.wrapper.tiktok.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Utility to load the recorded pages used by the benchmarks.
+ */
+public class Fixtures {
+
+    /**
+     * Load a recorded fixture from the classpath.
+     *
+     * @param name the name of the fixture.
+     * @return the raw bytes of the fixture.
+     * @throws IOException if the fixture couldn't be read.
+     */
+    public static byte[] load(String name) throws IOException {
+        try (InputStream inputStream = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (inputStream == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Parse the whole default scope of a page into a JSON tree, the path before the entities were bound from the token stream.
+     *
+     * @param page      the raw bytes of the page.
+     * @param elementId the ID of the script element.
+     * @return the scope.
+     */
+    public static JsonObject scope(byte[] page, String elementId) {
+        return JsonParser.parseReader(ExtractionUtility.openReader(page, elementId)).getAsJsonObject()
+                .getAsJsonObject(ExtractionUtility.DEFAULT_SCOPE);
+    }
+}
@@ -0,0 +1,96 @@
+package de.presti.wrapper.tiktok.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonStreamParser;
+import com.google.gson.stream.JsonReader;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous JSON path of RequestUtility, which parsed the body as HTML first, with reading the raw body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonTransportBenchmark {
+
+    private static final String URL = "https://open.tiktokapis.com/v2/research/video/query/";
+
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        body = Fixtures.load("video-query.json");
+    }
+
+    @Benchmark
+    public JsonElement htmlRoundTrip() {
+        String content = Jsoup.parse(new String(body, StandardCharsets.UTF_8), URL).body().text();
+        return new JsonStreamParser(content).next();
+    }
+
+    @Benchmark
+    public JsonElement rawTree() throws IOException {
+        return JsonUtility.readJson(body);
+    }
+
+    @Benchmark
+    public List<String> rawStream() throws IOException {
+        List<String> ids = new ArrayList<>();
+
+        try (JsonReader reader = JsonUtility.openReader(body)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("data")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("videos")) {
+                        reader.skipValue();
+                        continue;
+                    }
+
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if (reader.nextName().equals("id")) {
+                                ids.add(JsonUtility.readString(reader, null));
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+
+        return ids;
+    }
+}
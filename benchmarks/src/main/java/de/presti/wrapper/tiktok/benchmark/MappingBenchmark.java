@@ -0,0 +1,79 @@
+package de.presti.wrapper.tiktok.benchmark;
+
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.research.VideoQueryPage;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping paths used after a Request, the Research API responses and the payloads kept by the Cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final String ELEMENT_ID = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+    private byte[] userPage;
+
+    private byte[] videoPage;
+
+    private byte[] userPayload;
+
+    private byte[] videoPayload;
+
+    private byte[] videoQuery;
+
+    @Setup
+    public void setup() throws IOException {
+        userPage = Fixtures.load("user-profile.html");
+        videoPage = Fixtures.load("video.html");
+        userPayload = ExtractionUtility.extractPayload(userPage, ELEMENT_ID, "webapp.user-detail");
+        videoPayload = ExtractionUtility.extractPayload(videoPage, ELEMENT_ID, "webapp.video-detail");
+        videoQuery = Fixtures.load("video-query.json");
+    }
+
+    /**
+     * The first lookup of a cached page, the payload is cut out of the page before it is stored.
+     */
+    @Benchmark
+    public byte[] userPayloadExtraction() throws IOException {
+        return ExtractionUtility.extractPayload(userPage, ELEMENT_ID, "webapp.user-detail");
+    }
+
+    /**
+     * Every further lookup of a cached page, only the stored payload is bound.
+     */
+    @Benchmark
+    public TikTokUser userFromPayload() throws IOException {
+        return TikTokUser.fromScraper(ExtractionUtility.openPayload(userPayload), true);
+    }
+
+    @Benchmark
+    public TikTokVideo videoFromPayload() throws IOException {
+        return TikTokVideo.fromScraper(ExtractionUtility.openPayload(videoPayload));
+    }
+
+    @Benchmark
+    public VideoQueryPage videoQueryFromResearch() throws IOException {
+        return VideoQueryPage.fromResearch(JsonUtility.openReader(videoQuery));
+    }
+}
@@ -0,0 +1,328 @@
+package de.presti.wrapper.tiktok;
+
+import de.presti.wrapper.tiktok.entities.BatchResult;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokUserDelta;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.repo.TikTokResearchAPI;
+import de.presti.wrapper.tiktok.repo.TikTokScrapper;
+import de.presti.wrapper.tiktok.routing.Backend;
+import de.presti.wrapper.tiktok.routing.BackendRouter;
+import de.presti.wrapper.tiktok.routing.ResearchBackend;
+import de.presti.wrapper.tiktok.store.Snapshot;
+import de.presti.wrapper.tiktok.store.SnapshotStore;
+import de.presti.wrapper.tiktok.utility.BatchUtility;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The non-blocking Wrapper to retrieve information from TikTok.
+ * Requests are sent without occupying a Thread, only the parsing of the responses runs on the given Executor.
+ * If a {@link SnapshotStore} is set with {@link TikTokWrapper#setSnapshotStore(SnapshotStore)}, every retrieved User and Video is stored
+ * and the stored snapshot is returned when the connection fails.
+ */
+@Slf4j
+@Getter
+public class TikTokAsyncWrapper {
+
+    /**
+     * The Executor used to parse the responses.
+     */
+    private final Executor executor;
+
+    /**
+     * Create a new Wrapper which parses the responses on the common pool.
+     */
+    public TikTokAsyncWrapper() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new Wrapper.
+     *
+     * @param executor The Executor used to parse the responses.
+     */
+    public TikTokAsyncWrapper(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Retrieve information about a User.
+     * @param name The name of the user.
+     * @return A future with the User.
+     */
+    public CompletableFuture<TikTokUser> getUser(String name) {
+        return getUser(name, true);
+    }
+
+    /**
+     * Retrieve information about a User.
+     * @param id The ID of the user.
+     * @return A future with the User.
+     */
+    public CompletableFuture<TikTokUser> getUser(long id) {
+        return getUser(id, true);
+    }
+
+    /**
+     * Retrieve information about a User.
+     * @param name The name of the user.
+     * @param parseVideos If the videos of the user should be loaded into the object (takes a lot of time if the users have a lot of them).
+     * @return A future with the User.
+     */
+    public CompletableFuture<TikTokUser> getUser(String name, boolean parseVideos) {
+        CompletableFuture<TikTokUser> lookup = route(backend -> backend.getUser(name, parseVideos, executor));
+
+        String plainName = name.startsWith("@") ? name.substring(1) : name;
+        return withSnapshot(lookup, SnapshotStore::put, store -> store.getUserByName(plainName));
+    }
+
+    /**
+     * Retrieve information about a User.
+     * @param id The ID of the user.
+     * @param parseVideos If the videos of the user should be loaded into the object (takes a lot of time, if the users has a lot of them).
+     * @return A future with the User.
+     */
+    public CompletableFuture<TikTokUser> getUser(long id, boolean parseVideos) {
+        CompletableFuture<TikTokUser> lookup = route(backend -> backend.getUser(id, parseVideos, executor));
+
+        return withSnapshot(lookup, SnapshotStore::put, store -> store.getUser(String.valueOf(id)));
+    }
+
+    /**
+     * Refresh the counters of a previously retrieved User, only its stats are read instead of the whole profile.
+     * @param previous The previous snapshot of the User.
+     * @return A future with the changes since the snapshot.
+     */
+    public CompletableFuture<TikTokUserDelta> refreshUser(TikTokUser previous) {
+        return refreshUser(previous, false);
+    }
+
+    /**
+     * Refresh the counters of a previously retrieved User, only its stats are read instead of the whole profile.
+     * If a {@link SnapshotStore} is set, the updated User is only stored if a counter changed.
+     * @param previous The previous snapshot of the User.
+     * @param videoStats If the counters of the videos of the user should be compared as well.
+     * @return A future with the changes since the snapshot.
+     */
+    public CompletableFuture<TikTokUserDelta> refreshUser(TikTokUser previous, boolean videoStats) {
+        if (previous.getName() == null || previous.getName().isEmpty()) {
+            throw new IllegalArgumentException("The previous User has no name!");
+        }
+
+        CompletableFuture<TikTokUserDelta> refresh = route(backend -> backend.getUserStats(previous.getName(), videoStats, executor))
+                .thenApply(stats -> TikTokUserDelta.between(previous, stats));
+
+        SnapshotStore snapshotStore = getSnapshotStore();
+
+        if (snapshotStore == null) return refresh;
+
+        return refresh.thenApplyAsync(delta -> {
+            if (delta.isChanged()) {
+                try {
+                    snapshotStore.put(delta.apply());
+                } catch (IOException exception) {
+                    log.warn("Couldn't store the snapshot!", exception);
+                }
+            }
+
+            return delta;
+        }, executor);
+    }
+
+    /**
+     * Retrieve information about a Video.
+     * @param id The ID of the Video.
+     * @return A future with the Video.
+     */
+    public CompletableFuture<TikTokVideo> getVideo(String id) {
+        CompletableFuture<TikTokVideo> lookup = route(backend -> backend.getVideo(id, executor));
+
+        return withSnapshot(lookup, SnapshotStore::put, store -> store.getVideo(id));
+    }
+
+    /**
+     * Retrieve information about a Video.
+     * @param id The ID of the Video.
+     * @return A future with the Video.
+     */
+    public CompletableFuture<TikTokVideo> getVideo(long id) {
+        return getVideo(String.valueOf(id));
+    }
+
+    /**
+     * Retrieve information about the videos of a User.
+     * The Scrapper collects every page of the item list of the User.
+     * @param username The Name of the User.
+     * @return A future with the Videos.
+     */
+    public CompletableFuture<List<TikTokVideo>> getVideos(String username) {
+        return route(backend -> backend.getVideos(username, executor));
+    }
+
+    /**
+     * Retrieve information about the videos of a User.
+     * The Scrapper collects every page of the item list of the User.
+     * @param id The ID of the User.
+     * @return A future with the Videos.
+     */
+    public CompletableFuture<List<TikTokVideo>> getVideos(long id) {
+        return route(backend -> backend.getVideos(id, executor));
+    }
+
+    /**
+     * Retrieve information about many Users, with at most {@link BatchUtility#DEFAULT_PARALLELISM} lookups in flight.
+     * @param names The names of the users.
+     * @return A future with the result of every user keyed by name, failed lookups do not fail the batch.
+     */
+    public CompletableFuture<Map<String, BatchResult<TikTokUser>>> getUsers(Collection<String> names) {
+        return getUsers(names, true, BatchUtility.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Retrieve information about many Users.
+     * The limit per host is configured with {@link RequestUtility#setHostConcurrencyLimit(String, int)}.
+     * @param names The names of the users.
+     * @param parseVideos If the videos of the users should be loaded into the objects.
+     * @param maxParallelism The maximum amount of lookups in flight.
+     * @return A future with the result of every user keyed by name, failed lookups do not fail the batch.
+     */
+    public CompletableFuture<Map<String, BatchResult<TikTokUser>>> getUsers(Collection<String> names, boolean parseVideos, int maxParallelism) {
+        return BatchUtility.run(names, name -> getUser(name, parseVideos), maxParallelism);
+    }
+
+    /**
+     * Retrieve information about many Users, every result is handed to the consumer as soon as it arrived.
+     * @param names The names of the users.
+     * @param parseVideos If the videos of the users should be loaded into the objects.
+     * @param maxParallelism The maximum amount of lookups in flight.
+     * @param consumer Receives the result of every user, it is never called concurrently.
+     * @return A future completing once every result has been handed to the consumer.
+     */
+    public CompletableFuture<Void> getUsers(Collection<String> names, boolean parseVideos, int maxParallelism, BiConsumer<String, BatchResult<TikTokUser>> consumer) {
+        return BatchUtility.forEach(names, name -> getUser(name, parseVideos), maxParallelism, consumer);
+    }
+
+    /**
+     * Retrieve information about many Videos, with at most {@link BatchUtility#DEFAULT_PARALLELISM} lookups in flight.
+     * @param ids The IDs of the videos.
+     * @return A future with the result of every video keyed by ID, failed lookups do not fail the batch.
+     */
+    public CompletableFuture<Map<String, BatchResult<TikTokVideo>>> getVideos(Collection<String> ids) {
+        return getVideos(ids, BatchUtility.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Retrieve information about many Videos.
+     * The limit per host is configured with {@link RequestUtility#setHostConcurrencyLimit(String, int)}.
+     * @param ids The IDs of the videos.
+     * @param maxParallelism The maximum amount of lookups in flight.
+     * @return A future with the result of every video keyed by ID, failed lookups do not fail the batch.
+     */
+    public CompletableFuture<Map<String, BatchResult<TikTokVideo>>> getVideos(Collection<String> ids, int maxParallelism) {
+        return BatchUtility.run(ids, this::getVideo, maxParallelism);
+    }
+
+    /**
+     * Send a call to the configured {@link BackendRouter}, or without one to the Research API if it is set and the Scrapper otherwise.
+     * @param call The call, invoked with the chosen backend.
+     * @return A future with the result.
+     * @param <T> The type of the result.
+     */
+    protected <T> CompletableFuture<T> route(Function<Backend, CompletableFuture<T>> call) {
+        BackendRouter backendRouter = TikTokWrapper.backendRouter;
+
+        if (backendRouter != null) {
+            return backendRouter.execute(call);
+        }
+
+        TikTokResearchAPI tikTokResearchAPI = TikTokWrapper.tikTokResearchAPI;
+        return call.apply(tikTokResearchAPI == null ? TikTokScrapper.getBackend() : new ResearchBackend(tikTokResearchAPI));
+    }
+
+    /**
+     * Get the store the retrieved Users and Videos are written to.
+     * @return The {@link SnapshotStore} set with {@link TikTokWrapper#setSnapshotStore(SnapshotStore)}, or null.
+     */
+    protected SnapshotStore getSnapshotStore() {
+        return TikTokWrapper.snapshotStore;
+    }
+
+    /**
+     * Store the result of a lookup, or fall back to the stored snapshot if the connection failed.
+     * @param lookup The lookup.
+     * @param writer Stores the result.
+     * @param reader Reads the stored snapshot.
+     * @return A future with the result or the stored snapshot.
+     * @param <T> The type of the result.
+     */
+    private <T> CompletableFuture<T> withSnapshot(CompletableFuture<T> lookup, SnapshotWriter<T> writer, SnapshotReader<T> reader) {
+        SnapshotStore snapshotStore = getSnapshotStore();
+
+        if (snapshotStore == null) return lookup;
+
+        // The snapshot is written and read on the Executor, not on the Thread completing the Request.
+        return lookup.handleAsync((value, throwable) -> {
+            if (throwable == null) {
+                if (value != null) {
+                    try {
+                        writer.write(snapshotStore, value);
+                    } catch (IOException exception) {
+                        log.warn("Couldn't store the snapshot!", exception);
+                    }
+                }
+
+                return CompletableFuture.completedFuture(value);
+            }
+
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+            if (cause instanceof IOException || (cause instanceof MissingDataInfoException && cause.getCause() instanceof IOException)) {
+                try {
+                    Snapshot<T> snapshot = reader.read(snapshotStore);
+
+                    if (snapshot != null) {
+                        log.debug("Using the snapshot stored at {} as the connection failed.", snapshot.getStoredAt());
+                        return CompletableFuture.completedFuture(snapshot.getValue());
+                    }
+                } catch (IOException exception) {
+                    cause.addSuppressed(exception);
+                }
+            }
+
+            return CompletableFuture.<T>failedFuture(cause);
+        }, executor).thenCompose(Function.identity());
+    }
+
+    /**
+     * Stores a retrieved Entity.
+     * @param <T> The type of the Entity.
+     */
+    @FunctionalInterface
+    private interface SnapshotWriter<T> {
+        void write(SnapshotStore store, T value) throws IOException;
+    }
+
+    /**
+     * Reads the stored snapshot of an Entity.
+     * @param <T> The type of the Entity.
+     */
+    @FunctionalInterface
+    private interface SnapshotReader<T> {
+        Snapshot<T> read(SnapshotStore store) throws IOException;
+    }
+
+}
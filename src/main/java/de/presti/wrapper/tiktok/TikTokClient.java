@@ -0,0 +1,487 @@
+package de.presti.wrapper.tiktok;
+
+import de.presti.wrapper.tiktok.cache.ResponseCache;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.repo.TikTokResearchAPI;
+import de.presti.wrapper.tiktok.research.ShardConfig;
+import de.presti.wrapper.tiktok.research.ShardedVideoIterator;
+import de.presti.wrapper.tiktok.research.VideoQuery;
+import de.presti.wrapper.tiktok.research.VideoQueryIterator;
+import de.presti.wrapper.tiktok.routing.Backend;
+import de.presti.wrapper.tiktok.routing.BackendRouter;
+import de.presti.wrapper.tiktok.routing.ResearchBackend;
+import de.presti.wrapper.tiktok.routing.ResearchPool;
+import de.presti.wrapper.tiktok.routing.ScraperBackend;
+import de.presti.wrapper.tiktok.store.SnapshotStore;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.throttle.ProxyPool;
+import de.presti.wrapper.tiktok.throttle.RateLimiter;
+import de.presti.wrapper.tiktok.utility.HttpClientConfig;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import de.presti.wrapper.tiktok.utility.ThreadUtility;
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A non-blocking client which owns its Transport, Cache and Access Tokens, unlike the static {@link TikTokWrapper}.
+ * Several clients with different credentials, Urls and limits can be used in one JVM without affecting each other.
+ * The calls are routed between the Research API and the Website, Research calls are spread over all credentials.
+ * A client running on virtual Threads owns their Executor, it has to be closed once it is no longer used.
+ */
+public class TikTokClient extends TikTokAsyncWrapper implements AutoCloseable {
+
+    /**
+     * The Transport all Requests of this client are sent with.
+     */
+    @Getter
+    private final HttpTransport transport;
+
+    /**
+     * The Website, or null if it is not used.
+     */
+    @Getter
+    private final ScraperBackend scraper;
+
+    /**
+     * The Research API credentials, or null if none have been added.
+     */
+    @Getter
+    private final ResearchPool researchPool;
+
+    /**
+     * Routes the calls between the Research API and the Website.
+     */
+    @Getter
+    private final BackendRouter router;
+
+    /**
+     * The store the retrieved Users and Videos are written to, or null.
+     */
+    private final SnapshotStore snapshotStore;
+
+    /**
+     * The Executor created for this client, or null if it was given to the builder.
+     */
+    private final ExecutorService ownExecutor;
+
+    private TikTokClient(ClientBuilder builder) {
+        this(builder, builder.virtualThreads ? ThreadUtility.newVirtualThreadExecutor() : null);
+    }
+
+    private TikTokClient(ClientBuilder builder, ExecutorService ownExecutor) {
+        super(ownExecutor != null ? ownExecutor : builder.executor);
+        this.ownExecutor = ownExecutor;
+
+        if (builder.transport != null) {
+            this.transport = builder.transport;
+        } else {
+            this.transport = new HttpTransport(builder.virtualThreads ? builder.clientConfig.toBuilder().executor(ownExecutor).build() : builder.clientConfig);
+        }
+        this.snapshotStore = builder.snapshotStore;
+
+        BackendRouter.RouterBuilder routerBuilder = BackendRouter.builder().hedgePercentile(builder.hedgePercentile);
+
+        if (builder.credentials.isEmpty()) {
+            this.researchPool = null;
+        } else {
+            List<ResearchBackend> members = new ArrayList<>();
+
+            for (String[] credential : builder.credentials) {
+                TikTokResearchAPI api = new TikTokResearchAPI(credential[0], credential[1], "client_credentials");
+                api.setApiUrl(builder.apiUrl);
+                api.setTransport(transport);
+                api.setPolicy(builder.credentialPolicy.get());
+
+                String name = builder.credentials.size() == 1 ? "research" : "research-" + (members.size() + 1);
+                members.add(new ResearchBackend(name, api));
+            }
+
+            this.researchPool = new ResearchPool(members, builder.distribution);
+            routerBuilder.backend(researchPool);
+        }
+
+        if (builder.instrumentation != null) {
+            transport.setInstrumentation(builder.instrumentation);
+        }
+
+        if (builder.proxyPool != null) {
+            transport.setProxyPool(URI.create(builder.websiteUrl).getHost(), builder.proxyPool);
+        }
+
+        if (builder.scraper) {
+            this.scraper = ScraperBackend.builder().baseUrl(builder.websiteUrl).transport(transport).responseCache(builder.responseCache).build();
+            routerBuilder.backend(scraper);
+        } else {
+            this.scraper = null;
+        }
+
+        this.router = routerBuilder.build();
+    }
+
+    /**
+     * Create a new Client builder.
+     *
+     * @return a new Client builder.
+     */
+    public static ClientBuilder builder() {
+        return new ClientBuilder();
+    }
+
+    @Override
+    protected <T> CompletableFuture<T> route(Function<Backend, CompletableFuture<T>> call) {
+        return router.execute(call);
+    }
+
+    @Override
+    protected SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+
+    /**
+     * Retrieve the Videos matching a Query, the pages are requested lazily while the Iterator is consumed.
+     *
+     * @param query The Query.
+     * @return An Iterator over the Videos, closing it cancels the page in flight.
+     */
+    public VideoQueryIterator queryVideos(VideoQuery query) {
+        return requireResearch().queryVideos(query);
+    }
+
+    /**
+     * Retrieve the Videos matching a Query, its date range is split into windows which are walked in parallel
+     * and spread over all credentials.
+     *
+     * @param query  The Query.
+     * @param config The configuration of the windows.
+     * @return An Iterator over the Videos without duplicates, closing it cancels the pages in flight.
+     */
+    public ShardedVideoIterator queryVideos(VideoQuery query, ShardConfig config) {
+        return requireResearch().queryVideos(query, config);
+    }
+
+    /**
+     * Retrieve every Video a User posted on the Website, the pages are requested lazily while the Stream is consumed.
+     *
+     * @param username The name of the user.
+     * @return A sequential Stream over the Videos, closing it cancels the page in flight.
+     */
+    public Stream<TikTokVideo> streamVideos(String username) {
+        if (scraper == null) {
+            throw new IllegalStateException("This Client does not use the Website!");
+        }
+
+        return scraper.streamVideos(username, getExecutor());
+    }
+
+    /**
+     * Shut down the Executor this client created for its virtual Threads, tasks already submitted are still run.
+     * An Executor given to the builder is left running, as it may be shared.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    private ResearchPool requireResearch() {
+        if (researchPool == null) {
+            throw new IllegalStateException("This Client has no Research API credentials!");
+        }
+
+        return researchPool;
+    }
+
+    /**
+     * Builder class for a TikTokClient.
+     */
+    public static class ClientBuilder {
+
+        /**
+         * The Executor used to parse the responses.
+         */
+        protected Executor executor = ForkJoinPool.commonPool();
+
+        /**
+         * If the responses should be parsed and the Requests completed on virtual Threads.
+         */
+        protected boolean virtualThreads;
+
+        /**
+         * The configuration of the HTTP Client of the own Transport.
+         */
+        protected HttpClientConfig clientConfig = HttpClientConfig.builder().build();
+
+        /**
+         * A Transport shared with other clients, instead of an own one.
+         */
+        protected HttpTransport transport;
+
+        /**
+         * If the Website should be used.
+         */
+        protected boolean scraper = true;
+
+        /**
+         * The Base Url of the TikTok Website.
+         */
+        protected String websiteUrl = "https://www.tiktok.com/";
+
+        /**
+         * The Cache in front of the Website.
+         */
+        protected ResponseCache responseCache;
+
+        /**
+         * The proxies the Website Requests are spread over.
+         */
+        protected ProxyPool proxyPool;
+
+        /**
+         * Receives the timings and sizes of the calls.
+         */
+        protected Instrumentation instrumentation;
+
+        /**
+         * The base Url of the Research API.
+         */
+        protected String apiUrl = "https://open.tiktokapis.com/v2";
+
+        /**
+         * The client key and secret of every Research API credential.
+         */
+        protected final List<String[]> credentials = new ArrayList<>();
+
+        /**
+         * Creates the throttling of every credential.
+         */
+        protected Supplier<EndpointPolicy> credentialPolicy = () -> EndpointPolicy.builder().rateLimiter(new RateLimiter(10, 10)).build();
+
+        /**
+         * How the Research calls are spread over the credentials.
+         */
+        protected ResearchPool.Distribution distribution = ResearchPool.Distribution.ROUND_ROBIN;
+
+        /**
+         * The latency percentile after which a call is hedged, or 0 to never hedge.
+         */
+        protected double hedgePercentile = 0;
+
+        /**
+         * The store the retrieved Users and Videos are written to.
+         */
+        protected SnapshotStore snapshotStore;
+
+        /**
+         * Change the Executor used to parse the responses.
+         *
+         * @param executor the new Executor.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Change if the responses should be parsed and the Requests of the own Transport completed on virtual Threads,
+         * instead of the Executor and the Thread pool of the HTTP Client. Blocking calls then only occupy a virtual Thread.
+         * Requires Java 21 or newer, see {@link ThreadUtility#isVirtualThreadSupported()}.
+         *
+         * @param virtualThreads true, to use a new virtual Thread per task.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Change the configuration of the HTTP Client of the own Transport.
+         *
+         * @param clientConfig the new configuration.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder clientConfig(HttpClientConfig clientConfig) {
+            this.clientConfig = clientConfig;
+            return this;
+        }
+
+        /**
+         * Use a Transport shared with other clients, their Requests share its connections and endpoint policies.
+         * Its Instrumentation and proxy pools are shared as well, they have to be set on the Transport itself.
+         *
+         * @param transport the Transport, null for an own one.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Change if the Website should be used.
+         *
+         * @param scraper true, to fall back to the Website or to use it without credentials.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder scraper(boolean scraper) {
+            this.scraper = scraper;
+            return this;
+        }
+
+        /**
+         * Change the Base Url of the Website.
+         *
+         * @param websiteUrl the new Url.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder websiteUrl(String websiteUrl) {
+            this.websiteUrl = websiteUrl;
+            return this;
+        }
+
+        /**
+         * Change the Cache in front of the Website.
+         *
+         * @param responseCache the new Cache, null if every call should go to the network.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder responseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Spread the Website Requests over a pool of proxies, the Research API is called directly.
+         * Only available with an own Transport.
+         *
+         * @param proxyPool the pool, null to call the Website directly.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder proxyPool(ProxyPool proxyPool) {
+            this.proxyPool = proxyPool;
+            return this;
+        }
+
+        /**
+         * Change the Instrumentation receiving the timings and sizes of the calls, it is set on the Transport of the client.
+         * Only available with an own Transport.
+         *
+         * @param instrumentation the Instrumentation, null to keep the one of the Transport.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder instrumentation(Instrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            return this;
+        }
+
+        /**
+         * Change the base Url of the Research API.
+         *
+         * @param apiUrl the new Url.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder apiUrl(String apiUrl) {
+            this.apiUrl = apiUrl;
+            return this;
+        }
+
+        /**
+         * Add a Research API credential.
+         *
+         * @param clientKey    the client key.
+         * @param clientSecret the client secret.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder credential(String clientKey, String clientSecret) {
+            this.credentials.add(new String[]{clientKey, clientSecret});
+            return this;
+        }
+
+        /**
+         * Change the throttling of every credential, each one gets its own policy.
+         *
+         * @param credentialPolicy creates a new policy per credential.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder credentialPolicy(Supplier<EndpointPolicy> credentialPolicy) {
+            this.credentialPolicy = credentialPolicy;
+            return this;
+        }
+
+        /**
+         * Change how the Research calls are spread over the credentials.
+         *
+         * @param distribution the new distribution.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder distribution(ResearchPool.Distribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        /**
+         * Hedge calls still running after a percentile of the recent latency of their backend.
+         *
+         * @param hedgePercentile the percentile between 0 and 1, e.g. 0.95, or 0 to never hedge.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder hedgePercentile(double hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /**
+         * Change the store the retrieved Users and Videos are written to.
+         *
+         * @param snapshotStore the new store, null to not store them.
+         * @return the ClientBuilder.
+         */
+        public ClientBuilder snapshotStore(SnapshotStore snapshotStore) {
+            this.snapshotStore = snapshotStore;
+            return this;
+        }
+
+        /**
+         * Build the Client.
+         *
+         * @return the Client.
+         */
+        public TikTokClient build() {
+            if (!scraper && credentials.isEmpty()) {
+                throw new IllegalStateException("A Client needs the Website or at least one Research API credential!");
+            }
+
+            if (executor == null || (transport == null && clientConfig == null)) {
+                throw new IllegalStateException("The Executor and the Transport or its configuration are required!");
+            }
+
+            // A shared Transport would apply them to every client using it.
+            if (transport != null && (instrumentation != null || proxyPool != null)) {
+                throw new IllegalStateException("The Instrumentation and the proxy pool of a shared Transport have to be set on the Transport!");
+            }
+
+            if (virtualThreads && !ThreadUtility.isVirtualThreadSupported()) {
+                throw new IllegalStateException("Virtual Threads require Java 21 or newer!");
+            }
+
+            if (credentialPolicy == null || distribution == null) {
+                throw new IllegalStateException("The credential policy and the distribution are required!");
+            }
+
+            return new TikTokClient(this);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package de.presti.wrapper.tiktok;
 
+import de.presti.wrapper.tiktok.entities.BatchResult;
 import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokUserDelta;
 import de.presti.wrapper.tiktok.entities.TikTokVideo;
 import de.presti.wrapper.tiktok.repo.TikTokResearchAPI;
-import de.presti.wrapper.tiktok.repo.TikTokScrapper;
+import de.presti.wrapper.tiktok.routing.BackendRouter;
+import de.presti.wrapper.tiktok.store.SnapshotStore;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The Wrapper to retrieve information from TikTok.
@@ -19,6 +25,23 @@ public class TikTokWrapper {
     @Setter
     protected static TikTokResearchAPI tikTokResearchAPI;
 
+    /**
+     * Routes the calls between several backends, if set the Research API above is only used through it.
+     */
+    @Setter
+    protected static BackendRouter backendRouter;
+
+    /**
+     * The store the retrieved Users and Videos are written to, used as a fallback if the connection fails.
+     */
+    @Setter
+    protected static SnapshotStore snapshotStore;
+
+    /**
+     * The non-blocking Wrapper the blocking calls are joined on, parsing happens on the Thread completing the Request.
+     */
+    private static final TikTokAsyncWrapper ASYNC = new TikTokAsyncWrapper(Runnable::run);
+
     /**
      * Retrieve information about a User.
      * @param name The name of the user.
@@ -26,10 +49,7 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokUser getUser(String name) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getUser(name);
-
-        return tikTokResearchAPI.getUser(name);
+        return RequestUtility.join(ASYNC.getUser(name, true));
     }
 
     /**
@@ -39,10 +59,7 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokUser getUser(long id) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getUser(id);
-
-        return tikTokResearchAPI.getUser(String.valueOf(id));
+        return RequestUtility.join(ASYNC.getUser(id, true));
     }
 
     /**
@@ -53,10 +70,7 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokUser getUser(String name, boolean parseVideos) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getUser(name, parseVideos);
-
-        return tikTokResearchAPI.getUser(name);
+        return RequestUtility.join(ASYNC.getUser(name, parseVideos));
     }
 
     /**
@@ -67,10 +81,18 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokUser getUser(long id, boolean parseVideos) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getUser(id, parseVideos);
+        return RequestUtility.join(ASYNC.getUser(id, parseVideos));
+    }
 
-        return tikTokResearchAPI.getUser(String.valueOf(id));
+    /**
+     * Refresh the counters of a previously retrieved User, only its stats are read instead of the whole profile.
+     * @param previous The previous snapshot of the User.
+     * @param videoStats If the counters of the videos of the user should be compared as well.
+     * @return The changes since the snapshot.
+     * @throws IOException If the connection to the website fails.
+     */
+    public static TikTokUserDelta refreshUser(TikTokUser previous, boolean videoStats) throws IOException {
+        return RequestUtility.join(ASYNC.refreshUser(previous, videoStats));
     }
 
     /**
@@ -80,10 +102,7 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokVideo getVideo(String id) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getVideo(id);
-
-        return null;
+        return RequestUtility.join(ASYNC.getVideo(id));
     }
 
     /**
@@ -93,10 +112,7 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokVideo getVideo(long id) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getVideo(String.valueOf(id));
-
-        return null;
+        return RequestUtility.join(ASYNC.getVideo(id));
     }
 
     /**
@@ -106,10 +122,7 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static List<TikTokVideo> getVideos(String username) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getVideos(username);
-
-        return tikTokResearchAPI.getVideos(username);
+        return RequestUtility.join(ASYNC.getVideos(username));
     }
 
     /**
@@ -119,10 +132,50 @@ public class TikTokWrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static List<TikTokVideo> getVideos(long id) throws IOException {
-        if (tikTokResearchAPI == null)
-            return TikTokScrapper.getVideos(id);
+        return RequestUtility.join(ASYNC.getVideos(id));
+    }
+
+    /**
+     * Retrieve information about many Users, failed lookups do not fail the batch.
+     * @param names The names of the users.
+     * @return The result of every user keyed by name.
+     * @throws IOException If the batch couldn't be completed.
+     */
+    public static Map<String, BatchResult<TikTokUser>> getUsers(Collection<String> names) throws IOException {
+        return RequestUtility.join(ASYNC.getUsers(names));
+    }
+
+    /**
+     * Retrieve information about many Users, failed lookups do not fail the batch.
+     * @param names The names of the users.
+     * @param parseVideos If the videos of the users should be loaded into the objects.
+     * @param maxParallelism The maximum amount of lookups in flight.
+     * @return The result of every user keyed by name.
+     * @throws IOException If the batch couldn't be completed.
+     */
+    public static Map<String, BatchResult<TikTokUser>> getUsers(Collection<String> names, boolean parseVideos, int maxParallelism) throws IOException {
+        return RequestUtility.join(ASYNC.getUsers(names, parseVideos, maxParallelism));
+    }
 
-        return tikTokResearchAPI.getVideos(String.valueOf(id));
+    /**
+     * Retrieve information about many Videos, failed lookups do not fail the batch.
+     * @param ids The IDs of the videos.
+     * @return The result of every video keyed by ID.
+     * @throws IOException If the batch couldn't be completed.
+     */
+    public static Map<String, BatchResult<TikTokVideo>> getVideos(Collection<String> ids) throws IOException {
+        return RequestUtility.join(ASYNC.getVideos(ids));
+    }
+
+    /**
+     * Retrieve information about many Videos, failed lookups do not fail the batch.
+     * @param ids The IDs of the videos.
+     * @param maxParallelism The maximum amount of lookups in flight.
+     * @return The result of every video keyed by ID.
+     * @throws IOException If the batch couldn't be completed.
+     */
+    public static Map<String, BatchResult<TikTokVideo>> getVideos(Collection<String> ids, int maxParallelism) throws IOException {
+        return RequestUtility.join(ASYNC.getVideos(ids, maxParallelism));
     }
 
 }
@@ -0,0 +1,59 @@
+package de.presti.wrapper.tiktok.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A snapshot of the counters of a {@link ResponseCache}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CacheStats {
+
+    /**
+     * The amount of requests served from the cache.
+     */
+    long hits;
+
+    /**
+     * The amount of requests which had to be loaded.
+     */
+    long misses;
+
+    /**
+     * The amount of requests which joined a load already in flight.
+     */
+    long collapsed;
+
+    /**
+     * The amount of entries removed to stay within the limits.
+     */
+    long evictions;
+
+    /**
+     * The amount of entries removed because their time to live passed.
+     */
+    long expirations;
+
+    /**
+     * The amount of entries currently cached.
+     */
+    long size;
+
+    /**
+     * The summed up weight of the entries currently cached, in bytes.
+     */
+    long weight;
+
+    /**
+     * Get the ratio of requests served from the cache.
+     *
+     * @return the hit ratio between 0 and 1.
+     */
+    public double getHitRatio() {
+        long requests = hits + misses + collapsed;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,334 @@
+package de.presti.wrapper.tiktok.cache;
+
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.metrics.Outcome;
+import de.presti.wrapper.tiktok.utility.SingleFlight;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ResponseCache} bounded by entries and weight, evicting the least recently used entries first.
+ * The weight of an entry is the size of its data in bytes.
+ * The cached data is shared between all callers and must not be modified.
+ */
+public class LruResponseCache implements ResponseCache {
+
+    /**
+     * The maximum amount of entries.
+     */
+    private final long maxEntries;
+
+    /**
+     * The maximum summed up weight of all entries, in bytes.
+     */
+    private final long maxWeight;
+
+    /**
+     * The time to live of User data, in nanoseconds.
+     */
+    private final long userTtl;
+
+    /**
+     * The time to live of Video data, in nanoseconds.
+     */
+    private final long videoTtl;
+
+    /**
+     * The source of the current time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * The entries in access order, guarded by itself.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The loads currently in flight.
+     */
+    private final SingleFlight<String, byte[]> loads = new SingleFlight<>();
+
+    /**
+     * The summed up weight of all entries, guarded by {@link #entries}.
+     */
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    private LruResponseCache(CacheBuilder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.maxWeight = builder.maxWeight;
+        this.userTtl = builder.userTtl.toNanos();
+        this.videoTtl = builder.videoTtl.toNanos();
+        this.ticker = builder.ticker;
+    }
+
+    /**
+     * Create a new Cache builder.
+     *
+     * @return a new Cache builder.
+     */
+    public static CacheBuilder builder() {
+        return new CacheBuilder();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> get(String path, Kind kind, Supplier<CompletableFuture<byte[]>> loader) {
+        return get(path, kind, loader, Instrumentation.NOOP, null);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> get(String path, Kind kind, Supplier<CompletableFuture<byte[]>> loader,
+                                         Instrumentation instrumentation, String source) {
+        byte[] cached = lookup(path);
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            instrumentation.recordOutcome(Outcome.CACHE_HIT, source);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // The flight runs the load on the calling Thread, a call which did not run it joined a load in flight.
+        boolean[] executed = {false};
+
+        CompletableFuture<byte[]> future = loads.execute(path, () -> {
+            executed[0] = true;
+
+            // A load could have finished between the lookup and claiming the flight.
+            byte[] loaded = lookup(path);
+
+            if (loaded != null) {
+                hits.incrementAndGet();
+                instrumentation.recordOutcome(Outcome.CACHE_HIT, source);
+                return CompletableFuture.completedFuture(loaded);
+            }
+
+            misses.incrementAndGet();
+            instrumentation.recordOutcome(Outcome.CACHE_MISS, source);
+
+            return loader.get().thenApply(value -> {
+                if (value != null) {
+                    put(path, kind, value);
+                }
+
+                return value;
+            });
+        });
+
+        if (!executed[0]) {
+            instrumentation.recordOutcome(Outcome.COALESCED, source);
+        }
+
+        return future;
+    }
+
+    /**
+     * Get the data of a path if it is cached and still alive.
+     *
+     * @param path the normalized request path.
+     * @return the data or null.
+     */
+    private byte[] lookup(String path) {
+        synchronized (entries) {
+            Entry entry = entries.get(path);
+
+            if (entry == null) return null;
+
+            if (ticker.getAsLong() - entry.expiresAt >= 0) {
+                entries.remove(path);
+                weight -= entry.data.length;
+                expirations.incrementAndGet();
+                return null;
+            }
+
+            return entry.data;
+        }
+    }
+
+    /**
+     * Store the data of a path and evict the least recently used entries if a limit is exceeded.
+     *
+     * @param path the normalized request path.
+     * @param kind the kind of the data.
+     * @param data the data.
+     */
+    private void put(String path, Kind kind, byte[] data) {
+        long ttl = kind == Kind.USER ? userTtl : videoTtl;
+
+        if (ttl <= 0) return;
+
+        synchronized (entries) {
+            Entry previous = entries.put(path, new Entry(data, ticker.getAsLong() + ttl));
+
+            if (previous != null) {
+                weight -= previous.data.length;
+            }
+
+            weight += data.length;
+
+            Iterator<Entry> iterator = entries.values().iterator();
+            while ((entries.size() > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                weight -= eldest.data.length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(String path) {
+        synchronized (entries) {
+            Entry entry = entries.remove(path);
+
+            if (entry != null) {
+                weight -= entry.data.length;
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        long size, currentWeight;
+
+        synchronized (entries) {
+            size = entries.size();
+            currentWeight = weight;
+        }
+
+        return new CacheStats(hits.get(), misses.get(), loads.getCoalesced(), evictions.get(), expirations.get(), size, currentWeight);
+    }
+
+    /**
+     * A cached entry.
+     */
+    private static class Entry {
+
+        /**
+         * The cached data.
+         */
+        final byte[] data;
+
+        /**
+         * The time the entry expires at, in nanoseconds of the ticker.
+         */
+        final long expiresAt;
+
+        Entry(byte[] data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Builder class for a LruResponseCache.
+     */
+    public static class CacheBuilder {
+
+        /**
+         * The maximum amount of entries.
+         */
+        protected long maxEntries = 10_000;
+
+        /**
+         * The maximum summed up weight of all entries, in bytes.
+         */
+        protected long maxWeight = 64L * 1024 * 1024;
+
+        /**
+         * The time to live of User data.
+         */
+        protected Duration userTtl = Duration.ofMinutes(5);
+
+        /**
+         * The time to live of Video data.
+         */
+        protected Duration videoTtl = Duration.ofMinutes(15);
+
+        /**
+         * The source of the current time, in nanoseconds.
+         */
+        protected LongSupplier ticker = System::nanoTime;
+
+        /**
+         * Change the maximum amount of entries.
+         *
+         * @param maxEntries the new maximum.
+         * @return the CacheBuilder.
+         */
+        public CacheBuilder maxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Change the maximum summed up weight of all entries.
+         *
+         * @param maxWeight the new maximum, in bytes.
+         * @return the CacheBuilder.
+         */
+        public CacheBuilder maxWeight(long maxWeight) {
+            this.maxWeight = maxWeight;
+            return this;
+        }
+
+        /**
+         * Change the time to live of User data, zero disables caching them.
+         *
+         * @param userTtl the new time to live.
+         * @return the CacheBuilder.
+         */
+        public CacheBuilder userTtl(Duration userTtl) {
+            this.userTtl = userTtl;
+            return this;
+        }
+
+        /**
+         * Change the time to live of Video data, zero disables caching them.
+         *
+         * @param videoTtl the new time to live.
+         * @return the CacheBuilder.
+         */
+        public CacheBuilder videoTtl(Duration videoTtl) {
+            this.videoTtl = videoTtl;
+            return this;
+        }
+
+        /**
+         * Change the source of the current time.
+         *
+         * @param ticker the new source, in nanoseconds.
+         * @return the CacheBuilder.
+         */
+        public CacheBuilder ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * Build the Cache.
+         *
+         * @return the Cache.
+         */
+        public LruResponseCache build() {
+            return new LruResponseCache(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package de.presti.wrapper.tiktok.cache;
+
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.metrics.Outcome;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A cache in front of the Scrapper, storing the extracted page data by the normalized request path
+ * (e.g. {@code @name}, {@code share/user/<id>} or {@code share/video/<id>}).
+ */
+public interface ResponseCache {
+
+    /**
+     * Get the cached data of a path or load it.
+     * Concurrent calls missing the same path share a single load.
+     *
+     * @param path   the normalized request path.
+     * @param kind   the kind of the data, used to decide the time to live.
+     * @param loader the loader used on a miss.
+     * @return a future with the data.
+     */
+    CompletableFuture<byte[]> get(String path, Kind kind, Supplier<CompletableFuture<byte[]>> loader);
+
+    /**
+     * Get the cached data of a path or load it, and record how the lookup was answered.
+     * Caches which share loads should override this to record the calls joining a load as {@link Outcome#COALESCED}.
+     *
+     * @param path            the normalized request path.
+     * @param kind            the kind of the data, used to decide the time to live.
+     * @param loader          the loader used on a miss.
+     * @param instrumentation receives the {@link Outcome} of the lookup.
+     * @param source          the name of the lookups, e.g. scraper.user.
+     * @return a future with the data.
+     */
+    default CompletableFuture<byte[]> get(String path, Kind kind, Supplier<CompletableFuture<byte[]>> loader,
+                                          Instrumentation instrumentation, String source) {
+        AtomicBoolean loaded = new AtomicBoolean();
+
+        return get(path, kind, () -> {
+            loaded.set(true);
+            instrumentation.recordOutcome(Outcome.CACHE_MISS, source);
+            return loader.get();
+        }).whenComplete((value, throwable) -> {
+            if (!loaded.get()) {
+                instrumentation.recordOutcome(Outcome.CACHE_HIT, source);
+            }
+        });
+    }
+
+    /**
+     * Remove the data of a path.
+     *
+     * @param path the normalized request path.
+     */
+    void invalidate(String path);
+
+    /**
+     * Remove all data.
+     */
+    void invalidateAll();
+
+    /**
+     * Get the counters of the cache.
+     *
+     * @return a snapshot of the counters.
+     */
+    CacheStats getStats();
+
+    /**
+     * The kinds of cached data.
+     */
+    enum Kind {
+        /**
+         * The data of a User page.
+         */
+        USER,
+
+        /**
+         * The data of a Video page.
+         */
+        VIDEO
+    }
+}
@@ -0,0 +1,58 @@
+package de.presti.wrapper.tiktok.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Represents the outcome of a single lookup inside a batch, either a value or the failure.
+ *
+ * @param <T> the type of the value.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BatchResult<T> {
+
+    /**
+     * The value of the lookup, null if it failed.
+     */
+    T value;
+
+    /**
+     * The failure of the lookup, null if it succeeded.
+     */
+    Throwable error;
+
+    /**
+     * Create a successful result.
+     *
+     * @param value the value.
+     * @param <T>   the type of the value.
+     * @return the result.
+     */
+    public static <T> BatchResult<T> success(T value) {
+        return new BatchResult<>(value, null);
+    }
+
+    /**
+     * Create a failed result.
+     *
+     * @param error the failure.
+     * @param <T>   the type of the value.
+     * @return the result.
+     */
+    public static <T> BatchResult<T> failure(Throwable error) {
+        return new BatchResult<>(null, error);
+    }
+
+    /**
+     * Check if the lookup succeeded.
+     *
+     * @return true if there was no failure.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -3,12 +3,16 @@ package de.presti.wrapper.tiktok.entities;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -86,6 +90,13 @@ public class TikTokUser {
      */
     List<TikTokVideo> posts = new ArrayList<>();
 
+    /**
+     * Create a User from the extracted scope of the Website.
+     *
+     * @param jsonObject  the extracted scope.
+     * @param parseVideos if the videos of the item list should be parsed.
+     * @return the User.
+     */
     public static TikTokUser fromScraper(JsonObject jsonObject, boolean parseVideos) {
         if (jsonObject == null) throw new MissingDataInfoException("Received null JsonObject for User!");
 
@@ -131,7 +142,7 @@ public class TikTokUser {
 
                     if (!itemModule.isEmpty()) {
                         for (JsonElement key : itemModule) {
-                            tiktokUser.posts.add(TikTokVideo.fromScraper(key.getAsJsonObject()));
+                            tiktokUser.posts.add(TikTokVideo.fromStructure(key.getAsJsonObject()));
                         }
                     }
                 }
@@ -144,4 +155,227 @@ public class TikTokUser {
 
         return tiktokUser;
     }
+
+    /**
+     * Create a User directly from the token stream of the Website data, without building a JSON tree.
+     *
+     * @param reader      the reader positioned before the root object of the Website data.
+     * @param parseVideos if the videos of the item list should be parsed.
+     * @return the User.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static TikTokUser fromScraper(JsonReader reader, boolean parseVideos) throws IOException {
+        if (reader == null) throw new MissingDataInfoException("Received null JsonReader for User!");
+
+        if (!JsonUtility.moveToScopeKey(reader, "webapp.user-detail")) {
+            throw new MissingDataInfoException("User not found");
+        }
+
+        TikTokUser tiktokUser = new TikTokUser();
+        boolean hasUserInfo = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "statusCode":
+                    if (JsonUtility.readLong(reader, 0) != 0) {
+                        throw new MissingDataInfoException("User not found");
+                    }
+                    break;
+
+                case "userInfo":
+                    hasUserInfo = true;
+                    tiktokUser.readUserInfo(reader, parseVideos);
+                    break;
+
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasUserInfo) {
+            throw new MissingDataInfoException("User not found");
+        }
+
+        return tiktokUser;
+    }
+
+    /**
+     * Create a User directly from the token stream of a Research API user/info response.
+     * The response does not contain the name, id or secUID of the User, only the name is known from the Request.
+     *
+     * @param reader   the reader positioned before the response.
+     * @param username the name the User has been requested with.
+     * @return the User.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static TikTokUser fromResearch(JsonReader reader, String username) throws IOException {
+        TikTokUser tiktokUser = new TikTokUser();
+        tiktokUser.id = tiktokUser.displayName = tiktokUser.bio = tiktokUser.region = tiktokUser.secUID = "";
+        tiktokUser.name = username;
+
+        boolean hasData = false;
+        String errorCode = "ok";
+        String errorMessage = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                hasData = true;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "display_name":
+                            tiktokUser.displayName = JsonUtility.readString(reader, "");
+                            break;
+                        case "bio_description":
+                            tiktokUser.bio = JsonUtility.readString(reader, "");
+                            break;
+                        case "avatar_url":
+                            String avatarUrl = JsonUtility.readString(reader, null);
+                            tiktokUser.avatar = avatarUrl != null ? new TikTokThumbnail(avatarUrl, avatarUrl, avatarUrl) : null;
+                            break;
+                        case "is_verified":
+                            tiktokUser.verified = JsonUtility.readBoolean(reader);
+                            break;
+                        case "follower_count":
+                            tiktokUser.followers = JsonUtility.readLong(reader, 0);
+                            break;
+                        case "following_count":
+                            tiktokUser.following = JsonUtility.readLong(reader, 0);
+                            break;
+                        case "likes_count":
+                            tiktokUser.likes = JsonUtility.readLong(reader, 0);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (name.equals("error") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "code":
+                            errorCode = JsonUtility.readString(reader, "ok");
+                            break;
+                        case "message":
+                            errorMessage = JsonUtility.readString(reader, "");
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!errorCode.equals("ok")) {
+            throw new MissingDataInfoException("Couldn't get the User! " + errorCode + ": " + errorMessage);
+        }
+
+        if (!hasData) {
+            throw new MissingDataInfoException("User not found");
+        }
+
+        return tiktokUser;
+    }
+
+    private void readUserInfo(JsonReader reader, boolean parseVideos) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("user") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readUser(reader);
+            } else if (name.equals("stats") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readStats(reader);
+            } else if (name.equals("itemList") && parseVideos && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    posts.add(TikTokVideo.fromStructure(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readUser(JsonReader reader) throws IOException {
+        id = displayName = name = bio = region = secUID = "";
+        String avatarLarger = null, avatarMedium = null, avatarThumb = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = JsonUtility.readString(reader, "");
+                    break;
+                case "nickname":
+                    displayName = JsonUtility.readString(reader, "");
+                    break;
+                case "uniqueId":
+                    name = JsonUtility.readString(reader, "");
+                    break;
+                case "signature":
+                    bio = JsonUtility.readString(reader, "");
+                    break;
+                case "avatarLarger":
+                    avatarLarger = JsonUtility.readString(reader, null);
+                    break;
+                case "avatarMedium":
+                    avatarMedium = JsonUtility.readString(reader, null);
+                    break;
+                case "avatarThumb":
+                    avatarThumb = JsonUtility.readString(reader, null);
+                    break;
+                case "verified":
+                    verified = JsonUtility.readBoolean(reader);
+                    break;
+                case "region":
+                    region = JsonUtility.readString(reader, "");
+                    break;
+                case "privateAccount":
+                    isPrivate = JsonUtility.readBoolean(reader);
+                    break;
+                case "secUid":
+                    secUID = JsonUtility.readString(reader, "");
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        avatar = avatarLarger != null ? new TikTokThumbnail(avatarLarger, avatarMedium, avatarThumb) : null;
+    }
+
+    private void readStats(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "followerCount":
+                    followers = JsonUtility.readLong(reader, 0);
+                    break;
+                case "followingCount":
+                    following = JsonUtility.readLong(reader, 0);
+                    break;
+                case "heartCount":
+                    likes = JsonUtility.readLong(reader, 0);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
 }
@@ -0,0 +1,147 @@
+package de.presti.wrapper.tiktok.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the changes of the counters of a TikTok User since a previous snapshot.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TikTokUserDelta {
+
+    /**
+     * The previous snapshot of the User.
+     */
+    @ToString.Exclude
+    TikTokUser previous;
+
+    /**
+     * The current counters of the User.
+     */
+    @ToString.Exclude
+    TikTokUserStats stats;
+
+    /**
+     * The change of the Followers of the User.
+     */
+    long followersChange;
+
+    /**
+     * The change of the Following of the User.
+     */
+    long followingChange;
+
+    /**
+     * The change of the Likes of the User.
+     */
+    long likesChange;
+
+    /**
+     * The current counters of the Posts of the previous snapshot whose counters changed.
+     */
+    List<TikTokVideoStats> changedPosts;
+
+    /**
+     * The current counters of the Posts which are not part of the previous snapshot.
+     */
+    List<TikTokVideoStats> newPosts;
+
+    /**
+     * Compare the current counters of a User with a previous snapshot.
+     * If the counters of the Posts have not been requested, only the counters of the User are compared.
+     *
+     * @param previous the previous snapshot.
+     * @param stats    the current counters.
+     * @return the changes.
+     */
+    public static TikTokUserDelta between(TikTokUser previous, TikTokUserStats stats) {
+        List<TikTokVideoStats> changedPosts = new ArrayList<>();
+        List<TikTokVideoStats> newPosts = new ArrayList<>();
+
+        if (!stats.posts.isEmpty()) {
+            Map<String, TikTokVideo> previousPosts = new HashMap<>(previous.posts.size() * 2);
+
+            for (TikTokVideo post : previous.posts) {
+                previousPosts.put(post.id, post);
+            }
+
+            for (TikTokVideoStats post : stats.posts) {
+                TikTokVideo previousPost = previousPosts.get(post.id);
+
+                if (previousPost == null) {
+                    newPosts.add(post);
+                } else if (post.differsFrom(previousPost)) {
+                    changedPosts.add(post);
+                }
+            }
+        }
+
+        return new TikTokUserDelta(previous, stats, stats.followers - previous.followers, stats.following - previous.following,
+                stats.likes - previous.likes, changedPosts, newPosts);
+    }
+
+    /**
+     * Check if any counter of the User or of its Posts changed, or if the User posted new Videos.
+     *
+     * @return true if the previous snapshot is outdated.
+     */
+    public boolean isChanged() {
+        return followersChange != 0 || followingChange != 0 || likesChange != 0 || !changedPosts.isEmpty() || !newPosts.isEmpty();
+    }
+
+    /**
+     * Apply the changes to the previous snapshot.
+     * New Posts are added in front of the previous ones as Videos which only carry their ID, author and counters,
+     * so the next refresh against the result does not report them again.
+     * Posts whose counters did not change are shared with the previous snapshot.
+     *
+     * @return the previous snapshot if nothing changed, otherwise an updated copy of it.
+     */
+    public TikTokUser apply() {
+        if (!isChanged()) return previous;
+
+        List<TikTokVideo> posts = previous.posts;
+
+        if (!changedPosts.isEmpty() || !newPosts.isEmpty()) {
+            Map<String, TikTokVideoStats> changes = new HashMap<>(changedPosts.size() * 2);
+
+            for (TikTokVideoStats post : changedPosts) {
+                changes.put(post.id, post);
+            }
+
+            posts = new ArrayList<>(newPosts.size() + previous.posts.size());
+
+            for (TikTokVideoStats post : newPosts) {
+                posts.add(fromStats(post, previous.name));
+            }
+
+            for (TikTokVideo post : previous.posts) {
+                TikTokVideoStats change = changes.get(post.id);
+                posts.add(change == null ? post : withStats(post, change));
+            }
+        }
+
+        return new TikTokUser(previous.id, previous.displayName, previous.name, stats.followers, stats.following, stats.likes,
+                previous.bio, previous.avatar, previous.verified, previous.region, previous.isPrivate, previous.secUID, posts);
+    }
+
+    private static TikTokVideo fromStats(TikTokVideoStats stats, String author) {
+        return new TikTokVideo(stats.id, null, author, 0, false, false, false, false, false, false, false, false, null,
+                stats.playCount, stats.likeCount, stats.shareCount, stats.commentCount, 0, null, null);
+    }
+
+    private static TikTokVideo withStats(TikTokVideo video, TikTokVideoStats stats) {
+        return new TikTokVideo(video.id, video.description, video.author, video.creationTime, video.original, video.official,
+                video.secret, video.forFriend, video.isPrivate, video.canDuet, video.canStitch, video.canShare, video.location,
+                stats.playCount, stats.likeCount, stats.shareCount, stats.commentCount, video.duration, video.resolution, video.cover);
+    }
+}
@@ -0,0 +1,160 @@
+package de.presti.wrapper.tiktok.entities;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the counters of a TikTok User, without the profile and the Videos.
+ */
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class TikTokUserStats {
+
+    /**
+     * The Name of the User.
+     */
+    String name;
+
+    /**
+     * The Followers of the User.
+     */
+    long followers;
+
+    /**
+     * The Following of the User.
+     */
+    long following;
+
+    /**
+     * The Likes of the User.
+     */
+    long likes;
+
+    /**
+     * The counters of the Posts of the User, empty if they have not been requested.
+     */
+    List<TikTokVideoStats> posts = new ArrayList<>();
+
+    /**
+     * Take the counters of a User.
+     *
+     * @param user the User.
+     * @return the counters.
+     */
+    public static TikTokUserStats of(TikTokUser user) {
+        List<TikTokVideoStats> posts = new ArrayList<>(user.posts.size());
+
+        for (TikTokVideo post : user.posts) {
+            posts.add(TikTokVideoStats.of(post));
+        }
+
+        return new TikTokUserStats(user.name, user.followers, user.following, user.likes, posts);
+    }
+
+    /**
+     * Read the counters directly from the token stream of the Website data.
+     * Only the stats of the user info and, if requested, the stats of the item list are read, the profile and the rest
+     * of every Video are skipped without being mapped.
+     *
+     * @param reader     the reader positioned before the root object of the Website data.
+     * @param videoStats if the counters of the Videos of the item list should be read.
+     * @return the counters.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static TikTokUserStats fromScraper(JsonReader reader, boolean videoStats) throws IOException {
+        if (reader == null) throw new MissingDataInfoException("Received null JsonReader for User!");
+
+        if (!JsonUtility.moveToScopeKey(reader, "webapp.user-detail")) {
+            throw new MissingDataInfoException("User not found");
+        }
+
+        TikTokUserStats userStats = new TikTokUserStats();
+        userStats.name = "";
+        boolean hasUserInfo = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("statusCode")) {
+                if (JsonUtility.readLong(reader, 0) != 0) {
+                    throw new MissingDataInfoException("User not found");
+                }
+            } else if (name.equals("userInfo") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                hasUserInfo = true;
+                userStats.readUserInfo(reader, videoStats);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasUserInfo) {
+            throw new MissingDataInfoException("User not found");
+        }
+
+        return userStats;
+    }
+
+    private void readUserInfo(JsonReader reader, boolean videoStats) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+
+            if (key.equals("user") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("uniqueId")) {
+                        name = JsonUtility.readString(reader, "");
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (key.equals("stats") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readStats(reader);
+            } else if (key.equals("itemList") && videoStats && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    posts.add(TikTokVideoStats.fromStructure(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readStats(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "followerCount":
+                    followers = JsonUtility.readLong(reader, 0);
+                    break;
+                case "followingCount":
+                    following = JsonUtility.readLong(reader, 0);
+                    break;
+                case "heartCount":
+                    likes = JsonUtility.readLong(reader, 0);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
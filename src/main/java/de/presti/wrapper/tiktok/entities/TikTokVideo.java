@@ -1,12 +1,17 @@
 package de.presti.wrapper.tiktok.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.io.IOException;
+
 /**
  * Represents a TikTok Video.
  */
@@ -116,6 +121,12 @@ public class TikTokVideo {
      */
     TikTokThumbnail cover;
 
+    /**
+     * Create a Video from the extracted scope of the Website.
+     *
+     * @param item the extracted scope.
+     * @return the Video.
+     */
     public static TikTokVideo fromScraper(JsonObject item) {
         if (item == null) {
             throw new MissingDataInfoException("Received null JsonObject for Video!");
@@ -144,6 +155,22 @@ public class TikTokVideo {
         return tikTokVideo;
     }
 
+    /**
+     * Create a Video from an item structure, as used by the item list of a User.
+     *
+     * @param item the item structure.
+     * @return the Video.
+     */
+    public static TikTokVideo fromStructure(JsonObject item) {
+        if (item == null) {
+            throw new MissingDataInfoException("Received null JsonObject for Video!");
+        }
+
+        TikTokVideo tikTokVideo = new TikTokVideo();
+        tikTokVideo.parseFromStructure(item);
+        return tikTokVideo;
+    }
+
     private void parseFromStructure(JsonObject item) {
         id = item.has("id") ? item.getAsJsonPrimitive("id").getAsString() : "";
 
@@ -184,4 +211,266 @@ public class TikTokVideo {
             }
         }
     }
+
+    /**
+     * Create a Video directly from the token stream of the Website data, without building a JSON tree.
+     *
+     * @param reader the reader positioned before the root object of the Website data.
+     * @return the Video.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static TikTokVideo fromScraper(JsonReader reader) throws IOException {
+        if (reader == null) {
+            throw new MissingDataInfoException("Received null JsonReader for Video!");
+        }
+
+        TikTokVideo tikTokVideo = new TikTokVideo();
+
+        if (JsonUtility.moveToScopeKey(reader, "webapp.video-detail")) {
+            boolean hasItemInfo = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if (name.equals("statusCode")) {
+                    if (JsonUtility.readLong(reader, 0) != 0) {
+                        throw new MissingDataInfoException("Video not found");
+                    }
+                } else if (name.equals("itemInfo") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    hasItemInfo = true;
+
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("itemStruct") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            tikTokVideo.readStructure(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (!hasItemInfo) {
+                throw new MissingDataInfoException("Video not found");
+            }
+        }
+
+        return tikTokVideo;
+    }
+
+    /**
+     * Create a Video directly from the token stream of an item structure.
+     *
+     * @param reader the reader positioned before the item structure.
+     * @return the Video.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static TikTokVideo fromStructure(JsonReader reader) throws IOException {
+        TikTokVideo tikTokVideo = new TikTokVideo();
+        tikTokVideo.readStructure(reader);
+        return tikTokVideo;
+    }
+
+    /**
+     * Create a Video directly from the token stream of a Research API video object.
+     * The Research API does not provide the privacy settings and covers of a Video.
+     *
+     * @param reader the reader positioned before the video object.
+     * @return the Video.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static TikTokVideo fromResearch(JsonReader reader) throws IOException {
+        TikTokVideo tikTokVideo = new TikTokVideo();
+        tikTokVideo.id = tikTokVideo.description = tikTokVideo.author = tikTokVideo.location = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    tikTokVideo.id = JsonUtility.readString(reader, "");
+                    break;
+                case "video_description":
+                    tikTokVideo.description = JsonUtility.readString(reader, "");
+                    break;
+                case "username":
+                    tikTokVideo.author = JsonUtility.readString(reader, "");
+                    break;
+                case "create_time":
+                    tikTokVideo.creationTime = JsonUtility.readLong(reader, 0);
+                    break;
+                case "region_code":
+                    tikTokVideo.location = JsonUtility.readString(reader, "");
+                    break;
+                case "view_count":
+                    tikTokVideo.playCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "like_count":
+                    tikTokVideo.likeCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "share_count":
+                    tikTokVideo.shareCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "comment_count":
+                    tikTokVideo.commentCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "video_duration":
+                    tikTokVideo.duration = JsonUtility.readLong(reader, 0);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return tikTokVideo;
+    }
+
+    private void readStructure(JsonReader reader) throws IOException {
+        id = description = location = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = JsonUtility.readString(reader, "");
+                    break;
+                case "desc":
+                    description = JsonUtility.readString(reader, "");
+                    break;
+                case "author":
+                    author = readAuthor(reader);
+                    break;
+                case "createTime":
+                    creationTime = JsonUtility.readLong(reader, 0);
+                    break;
+                case "originalItem":
+                    original = JsonUtility.readBoolean(reader);
+                    break;
+                case "officialItem":
+                    official = JsonUtility.readBoolean(reader);
+                    break;
+                case "secret":
+                    secret = JsonUtility.readBoolean(reader);
+                    break;
+                case "forFriend":
+                    forFriend = JsonUtility.readBoolean(reader);
+                    break;
+                case "privateItem":
+                    isPrivate = JsonUtility.readBoolean(reader);
+                    break;
+                case "duetEnabled":
+                    canDuet = JsonUtility.readBoolean(reader);
+                    break;
+                case "stitchEnabled":
+                    canStitch = JsonUtility.readBoolean(reader);
+                    break;
+                case "shareEnabled":
+                    canShare = JsonUtility.readBoolean(reader);
+                    break;
+                case "locationCreated":
+                    location = JsonUtility.readString(reader, "");
+                    break;
+                case "stats":
+                    readStats(reader);
+                    break;
+                case "video":
+                    readVideo(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String readAuthor(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return JsonUtility.readString(reader, "");
+        }
+
+        String uniqueId = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("uniqueId")) {
+                uniqueId = JsonUtility.readString(reader, "");
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return uniqueId;
+    }
+
+    private void readStats(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "playCount":
+                    playCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "shareCount":
+                    shareCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "commentCount":
+                    commentCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "diggCount":
+                    likeCount = JsonUtility.readLong(reader, 0);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readVideo(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        resolution = "";
+        String coverUrl = null, originCover = null, dynamicCover = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "duration":
+                    duration = JsonUtility.readLong(reader, 0);
+                    break;
+                case "ratio":
+                    resolution = JsonUtility.readString(reader, "");
+                    break;
+                case "cover":
+                    coverUrl = JsonUtility.readString(reader, null);
+                    break;
+                case "originCover":
+                    originCover = JsonUtility.readString(reader, null);
+                    break;
+                case "dynamicCover":
+                    dynamicCover = JsonUtility.readString(reader, null);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (coverUrl != null) {
+            cover = new TikTokThumbnail(coverUrl, originCover, dynamicCover);
+        }
+    }
 }
@@ -0,0 +1,703 @@
+package de.presti.wrapper.tiktok.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Holds many TikTok Videos in primitive columns instead of one object graph per Video, for analytics over large datasets.
+ * The IDs and counters are kept in long arrays, the eight flags of a Video are packed into one byte, the author, location
+ * and resolution are dictionary encoded and the description and cover Urls are stored as UTF-8 in shared chunks of bytes.
+ * A batch is not thread-safe, Videos must not be added while it is read from another Thread.
+ */
+public class TikTokVideoBatch implements Iterable<TikTokVideoBatch.Row> {
+
+    private static final int ORIGINAL = 1;
+    private static final int OFFICIAL = 1 << 1;
+    private static final int SECRET = 1 << 2;
+    private static final int FOR_FRIEND = 1 << 3;
+    private static final int PRIVATE = 1 << 4;
+    private static final int CAN_DUET = 1 << 5;
+    private static final int CAN_STITCH = 1 << 6;
+    private static final int CAN_SHARE = 1 << 7;
+
+    /**
+     * The largest ID which can be stored as a long.
+     */
+    private static final String MAX_ID = String.valueOf(Long.MAX_VALUE);
+
+    /**
+     * The most Videos a batch can hold, as every Video has four texts in int indexed arrays.
+     */
+    private static final int MAX_SIZE = (Integer.MAX_VALUE - 8) / 4;
+
+    /**
+     * The size of a chunk of text bytes is 1 MiB, texts may span several chunks.
+     */
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The code of a missing String in the dictionary and text columns.
+     */
+    private static final int NULL = -1;
+
+    /**
+     * The code of the first cover Url of a Video without covers.
+     */
+    private static final int NO_COVER = -2;
+
+    /**
+     * The amount of Videos in the batch.
+     */
+    private int size;
+
+    private long[] ids;
+    private long[] creationTimes;
+    private long[] playCounts;
+    private long[] likeCounts;
+    private long[] shareCounts;
+    private long[] commentCounts;
+    private long[] durations;
+    private byte[] flags;
+    private int[] authors;
+    private int[] locations;
+    private int[] resolutions;
+
+    /**
+     * The text of the description of every Video, followed by the three Urls of its cover.
+     */
+    private int[] texts;
+
+    /**
+     * The IDs which are not a plain decimal number, keyed by their row.
+     */
+    private final Map<Integer, String> irregularIds = new HashMap<>();
+
+    /**
+     * The distinct authors, locations and resolutions, indexed by their code.
+     */
+    private final List<String> dictionary = new ArrayList<>();
+
+    /**
+     * The code of every String in the dictionary.
+     */
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * The UTF-8 bytes of every text, every chunk but the last one is full.
+     */
+    private byte[][] textChunks;
+
+    /**
+     * The start of every text in the text bytes, the end of a text is the start of the next one.
+     */
+    private long[] textStarts;
+
+    /**
+     * The amount of texts.
+     */
+    private int textCount;
+
+    /**
+     * Create an empty batch.
+     */
+    public TikTokVideoBatch() {
+        this(64);
+    }
+
+    /**
+     * Create an empty batch.
+     *
+     * @param capacity the amount of Videos the batch holds before it grows.
+     */
+    public TikTokVideoBatch(int capacity) {
+        if (capacity < 1 || capacity > MAX_SIZE) {
+            throw new IllegalArgumentException("A batch needs a capacity between one and " + MAX_SIZE + " Videos!");
+        }
+
+        ids = new long[capacity];
+        creationTimes = new long[capacity];
+        playCounts = new long[capacity];
+        likeCounts = new long[capacity];
+        shareCounts = new long[capacity];
+        commentCounts = new long[capacity];
+        durations = new long[capacity];
+        flags = new byte[capacity];
+        authors = new int[capacity];
+        locations = new int[capacity];
+        resolutions = new int[capacity];
+        texts = new int[capacity * 4];
+        textChunks = new byte[][]{new byte[(int) Math.min(CHUNK_SIZE, capacity * 64L)]};
+        textStarts = new long[capacity * 4 + 1];
+    }
+
+    /**
+     * Create a batch of Videos.
+     *
+     * @param videos the Videos.
+     * @return the batch.
+     */
+    public static TikTokVideoBatch of(Iterable<TikTokVideo> videos) {
+        TikTokVideoBatch batch = new TikTokVideoBatch();
+        batch.addAll(videos);
+        return batch;
+    }
+
+    /**
+     * Add a Video to the batch, the Video itself is not referenced afterwards.
+     *
+     * @param video the Video.
+     * @throws IllegalStateException if the batch already holds the most Videos it can.
+     */
+    public void add(TikTokVideo video) {
+        if (size == ids.length) {
+            if (size == MAX_SIZE) {
+                throw new IllegalStateException("A batch can't hold more than " + MAX_SIZE + " Videos!");
+            }
+
+            grow((int) Math.min(MAX_SIZE, size * 2L));
+        }
+
+        int row = size;
+
+        if (isRegularId(video.id)) {
+            ids[row] = Long.parseLong(video.id);
+        } else {
+            irregularIds.put(row, video.id);
+        }
+
+        creationTimes[row] = video.creationTime;
+        playCounts[row] = video.playCount;
+        likeCounts[row] = video.likeCount;
+        shareCounts[row] = video.shareCount;
+        commentCounts[row] = video.commentCount;
+        durations[row] = video.duration;
+
+        flags[row] = (byte) ((video.original ? ORIGINAL : 0)
+                | (video.official ? OFFICIAL : 0)
+                | (video.secret ? SECRET : 0)
+                | (video.forFriend ? FOR_FRIEND : 0)
+                | (video.isPrivate ? PRIVATE : 0)
+                | (video.canDuet ? CAN_DUET : 0)
+                | (video.canStitch ? CAN_STITCH : 0)
+                | (video.canShare ? CAN_SHARE : 0));
+
+        authors[row] = encode(video.author);
+        locations[row] = encode(video.location);
+        resolutions[row] = encode(video.resolution);
+
+        TikTokThumbnail cover = video.cover;
+        texts[row * 4] = append(video.description);
+        texts[row * 4 + 1] = cover == null ? NO_COVER : append(cover.smallUrl);
+        texts[row * 4 + 2] = cover == null ? NULL : append(cover.mediumUrl);
+        texts[row * 4 + 3] = cover == null ? NULL : append(cover.largeUrl);
+
+        size++;
+    }
+
+    /**
+     * Add Videos to the batch, e.g. the Videos of a Query while it is walked.
+     *
+     * @param videos the Videos.
+     */
+    public void addAll(Iterable<TikTokVideo> videos) {
+        for (TikTokVideo video : videos) {
+            add(video);
+        }
+    }
+
+    /**
+     * Get the amount of Videos in the batch.
+     *
+     * @return the amount.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the amount of distinct authors, locations and resolutions.
+     *
+     * @return the size of the dictionary.
+     */
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    /**
+     * Get a view of a Video, it reads the columns of the batch without copying them.
+     *
+     * @param index the index of the Video.
+     * @return the view.
+     */
+    public Row get(int index) {
+        checkIndex(index);
+        return new Row(index);
+    }
+
+    /**
+     * Create a Video from the columns.
+     *
+     * @param index the index of the Video.
+     * @return a new Video.
+     */
+    public TikTokVideo toVideo(int index) {
+        checkIndex(index);
+
+        int flag = flags[index];
+        int text = index * 4;
+        TikTokThumbnail cover = texts[text + 1] == NO_COVER ? null :
+                new TikTokThumbnail(text(texts[text + 1]), text(texts[text + 2]), text(texts[text + 3]));
+
+        return new TikTokVideo(getId(index), text(texts[text]), decode(authors[index]), creationTimes[index],
+                (flag & ORIGINAL) != 0, (flag & OFFICIAL) != 0, (flag & SECRET) != 0, (flag & FOR_FRIEND) != 0,
+                (flag & PRIVATE) != 0, (flag & CAN_DUET) != 0, (flag & CAN_STITCH) != 0, (flag & CAN_SHARE) != 0,
+                decode(locations[index]), playCounts[index], likeCounts[index], shareCounts[index], commentCounts[index],
+                durations[index], decode(resolutions[index]), cover);
+    }
+
+    /**
+     * Create a Video from the columns for every Video of the batch.
+     *
+     * @return new Videos.
+     */
+    public List<TikTokVideo> toVideos() {
+        List<TikTokVideo> videos = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            videos.add(toVideo(i));
+        }
+
+        return videos;
+    }
+
+    /**
+     * Shrink the columns to the amount of Videos, once no more Videos are added.
+     */
+    public void trimToSize() {
+        grow(Math.max(1, size));
+
+        long length = textStarts[textCount];
+        int chunks = Math.max(1, (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT));
+        textChunks = Arrays.copyOf(textChunks, chunks);
+        textChunks[chunks - 1] = Arrays.copyOf(textChunks[chunks - 1], (int) (length - ((long) (chunks - 1) << CHUNK_SHIFT)));
+        textStarts = Arrays.copyOf(textStarts, textCount + 1);
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return new Row(next++);
+            }
+        };
+    }
+
+    /**
+     * Get the ID of a Video.
+     *
+     * @param index the index of the Video.
+     * @return the ID.
+     */
+    private String getId(int index) {
+        if (!irregularIds.isEmpty() && irregularIds.containsKey(index)) {
+            return irregularIds.get(index);
+        }
+
+        return String.valueOf(ids[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size + " Videos");
+        }
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+        playCounts = Arrays.copyOf(playCounts, capacity);
+        likeCounts = Arrays.copyOf(likeCounts, capacity);
+        shareCounts = Arrays.copyOf(shareCounts, capacity);
+        commentCounts = Arrays.copyOf(commentCounts, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        resolutions = Arrays.copyOf(resolutions, capacity);
+        texts = Arrays.copyOf(texts, capacity * 4);
+    }
+
+    /**
+     * Check if an ID survives being stored as a long, i.e. it is a decimal number without leading zeros.
+     *
+     * @param id the ID.
+     * @return true if it can be stored as a long.
+     */
+    private static boolean isRegularId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_ID.length() || (id.charAt(0) == '0' && id.length() > 1) || !isNumber(id)) {
+            return false;
+        }
+
+        // Numbers of the same length compare like their Strings.
+        return id.length() < MAX_ID.length() || id.compareTo(MAX_ID) <= 0;
+    }
+
+    private static boolean isNumber(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c < '0' || c > '9') return false;
+        }
+
+        return true;
+    }
+
+    private int encode(String value) {
+        if (value == null) return NULL;
+
+        Integer code = codes.get(value);
+
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codes.put(value, code);
+        }
+
+        return code;
+    }
+
+    private String decode(int code) {
+        return code == NULL ? null : dictionary.get(code);
+    }
+
+    /**
+     * Append a text to the text bytes.
+     *
+     * @param value the text.
+     * @return the index of the text, or {@link #NULL} if it is null.
+     */
+    private int append(String value) {
+        if (value == null) return NULL;
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long start = textStarts[textCount];
+
+        if (textCount + 1 == textStarts.length) {
+            textStarts = Arrays.copyOf(textStarts, (int) Math.min(MAX_SIZE * 4L + 1, textStarts.length * 2L));
+        }
+
+        ensureTextCapacity(start + bytes.length);
+
+        for (int copied = 0; copied < bytes.length; ) {
+            long position = start + copied;
+            int length = Math.min(bytes.length - copied, CHUNK_SIZE - (int) (position & CHUNK_MASK));
+            System.arraycopy(bytes, copied, textChunks[(int) (position >>> CHUNK_SHIFT)], (int) (position & CHUNK_MASK), length);
+            copied += length;
+        }
+
+        textStarts[textCount + 1] = start + bytes.length;
+        return textCount++;
+    }
+
+    /**
+     * Make room for the text bytes up to an end, the full chunks are never copied again.
+     *
+     * @param end the end of the text bytes.
+     */
+    private void ensureTextCapacity(long end) {
+        if (end == 0) return;
+
+        int last = (int) ((end - 1) >>> CHUNK_SHIFT);
+        int current = textChunks.length - 1;
+
+        if (last > current) {
+            textChunks[current] = Arrays.copyOf(textChunks[current], CHUNK_SIZE);
+            textChunks = Arrays.copyOf(textChunks, last + 1);
+
+            for (int chunk = current + 1; chunk <= last; chunk++) {
+                textChunks[chunk] = new byte[chunk < last ? CHUNK_SIZE : 0];
+            }
+        }
+
+        int needed = (int) ((end - 1) & CHUNK_MASK) + 1;
+        byte[] chunk = textChunks[last];
+
+        if (needed > chunk.length) {
+            textChunks[last] = Arrays.copyOf(chunk, Math.min(CHUNK_SIZE, Math.max(needed, chunk.length * 2)));
+        }
+    }
+
+    private String text(int index) {
+        if (index == NULL) return null;
+
+        long start = textStarts[index];
+        int length = (int) (textStarts[index + 1] - start);
+        int offset = (int) (start & CHUNK_MASK);
+        byte[] chunk = textChunks[(int) (start >>> CHUNK_SHIFT)];
+
+        if (offset + length <= CHUNK_SIZE) {
+            return new String(chunk, offset, length, StandardCharsets.UTF_8);
+        }
+
+        // The text spans several chunks.
+        byte[] bytes = new byte[length];
+
+        for (int copied = 0; copied < length; ) {
+            long position = start + copied;
+            int part = Math.min(length - copied, CHUNK_SIZE - (int) (position & CHUNK_MASK));
+            System.arraycopy(textChunks[(int) (position >>> CHUNK_SHIFT)], (int) (position & CHUNK_MASK), bytes, copied, part);
+            copied += part;
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A view of a Video of the batch, the counters, flags and dictionary encoded Strings are read without allocating.
+     */
+    public class Row {
+
+        /**
+         * The index of the Video.
+         */
+        private final int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Get the index of the Video in the batch.
+         *
+         * @return the index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get the ID of the Video.
+         *
+         * @return the ID.
+         */
+        public String getId() {
+            return TikTokVideoBatch.this.getId(index);
+        }
+
+        /**
+         * Get the ID of the Video as number.
+         *
+         * @return the ID, or 0 if it is not a decimal number.
+         */
+        public long getIdAsLong() {
+            return ids[index];
+        }
+
+        /**
+         * Get the Description of the Video, it is decoded on every call.
+         *
+         * @return the Description.
+         */
+        public String getDescription() {
+            return text(texts[index * 4]);
+        }
+
+        /**
+         * Get the Author of the Video.
+         *
+         * @return the Author.
+         */
+        public String getAuthor() {
+            return decode(authors[index]);
+        }
+
+        /**
+         * Get the Creation Time of the Video.
+         *
+         * @return the Creation Time.
+         */
+        public long getCreationTime() {
+            return creationTimes[index];
+        }
+
+        /**
+         * Check if the Video is original.
+         *
+         * @return the flag.
+         */
+        public boolean isOriginal() {
+            return (flags[index] & ORIGINAL) != 0;
+        }
+
+        /**
+         * Check if the Video is officially posted by TikTok or distributed.
+         *
+         * @return the flag.
+         */
+        public boolean isOfficial() {
+            return (flags[index] & OFFICIAL) != 0;
+        }
+
+        /**
+         * Check if the Video is a secret.
+         *
+         * @return the flag.
+         */
+        public boolean isSecret() {
+            return (flags[index] & SECRET) != 0;
+        }
+
+        /**
+         * Check if the Video is for friends only.
+         *
+         * @return the flag.
+         */
+        public boolean isForFriend() {
+            return (flags[index] & FOR_FRIEND) != 0;
+        }
+
+        /**
+         * Check if the Video is private.
+         *
+         * @return the flag.
+         */
+        public boolean isPrivate() {
+            return (flags[index] & PRIVATE) != 0;
+        }
+
+        /**
+         * Check if the Video can be used for Duets.
+         *
+         * @return the flag.
+         */
+        public boolean isCanDuet() {
+            return (flags[index] & CAN_DUET) != 0;
+        }
+
+        /**
+         * Check if the Video can be used for Stitches.
+         *
+         * @return the flag.
+         */
+        public boolean isCanStitch() {
+            return (flags[index] & CAN_STITCH) != 0;
+        }
+
+        /**
+         * Check if the Video can be shared.
+         *
+         * @return the flag.
+         */
+        public boolean isCanShare() {
+            return (flags[index] & CAN_SHARE) != 0;
+        }
+
+        /**
+         * Get the Location of the Video.
+         *
+         * @return the Location.
+         */
+        public String getLocation() {
+            return decode(locations[index]);
+        }
+
+        /**
+         * Get the amount of Views of the Video.
+         *
+         * @return the amount.
+         */
+        public long getPlayCount() {
+            return playCounts[index];
+        }
+
+        /**
+         * Get the amount of Likes of the Video.
+         *
+         * @return the amount.
+         */
+        public long getLikeCount() {
+            return likeCounts[index];
+        }
+
+        /**
+         * Get the amount of Shares of the Video.
+         *
+         * @return the amount.
+         */
+        public long getShareCount() {
+            return shareCounts[index];
+        }
+
+        /**
+         * Get the amount of Comments of the Video.
+         *
+         * @return the amount.
+         */
+        public long getCommentCount() {
+            return commentCounts[index];
+        }
+
+        /**
+         * Get the duration of the Video.
+         *
+         * @return the duration.
+         */
+        public long getDuration() {
+            return durations[index];
+        }
+
+        /**
+         * Get the resolution/ratio of the Video.
+         *
+         * @return the resolution.
+         */
+        public String getResolution() {
+            return decode(resolutions[index]);
+        }
+
+        /**
+         * Get the covers of the Video, they are decoded on every call.
+         *
+         * @return the covers, or null if the Video has none.
+         */
+        public TikTokThumbnail getCover() {
+            int text = index * 4;
+            return texts[text + 1] == NO_COVER ? null : new TikTokThumbnail(text(texts[text + 1]), text(texts[text + 2]), text(texts[text + 3]));
+        }
+
+        /**
+         * Create a Video from the columns.
+         *
+         * @return a new Video.
+         */
+        public TikTokVideo toVideo() {
+            return TikTokVideoBatch.this.toVideo(index);
+        }
+
+        @Override
+        public String toString() {
+            return "TikTokVideoBatch.Row(index=" + index + ", id=" + getId() + ", author=" + getAuthor() + ", playCount=" + getPlayCount() + ")";
+        }
+    }
+}
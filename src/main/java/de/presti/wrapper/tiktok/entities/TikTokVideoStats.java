@@ -0,0 +1,117 @@
+package de.presti.wrapper.tiktok.entities;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.IOException;
+
+/**
+ * Represents the counters of a TikTok Video, without the rest of the Video.
+ */
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class TikTokVideoStats {
+
+    /**
+     * The ID of the Video.
+     */
+    String id;
+
+    /**
+     * The amount of Views of the Video.
+     */
+    long playCount;
+
+    /**
+     * The amount of Likes of the Video.
+     */
+    long likeCount;
+
+    /**
+     * The amount of Shares of the Video.
+     */
+    long shareCount;
+
+    /**
+     * The amount of Comments of the Video.
+     */
+    long commentCount;
+
+    /**
+     * Take the counters of a Video.
+     *
+     * @param video the Video.
+     * @return the counters.
+     */
+    public static TikTokVideoStats of(TikTokVideo video) {
+        return new TikTokVideoStats(video.id, video.playCount, video.likeCount, video.shareCount, video.commentCount);
+    }
+
+    /**
+     * Read the counters directly from the token stream of an item structure, every other field is skipped.
+     *
+     * @param reader the reader positioned before the item structure.
+     * @return the counters.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static TikTokVideoStats fromStructure(JsonReader reader) throws IOException {
+        TikTokVideoStats videoStats = new TikTokVideoStats();
+        videoStats.id = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("id")) {
+                videoStats.id = JsonUtility.readString(reader, "");
+            } else if (name.equals("stats") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                videoStats.readStats(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return videoStats;
+    }
+
+    /**
+     * Check if the counters differ from the ones of a Video.
+     *
+     * @param video the Video.
+     * @return true if at least one counter changed.
+     */
+    public boolean differsFrom(TikTokVideo video) {
+        return playCount != video.playCount || likeCount != video.likeCount || shareCount != video.shareCount || commentCount != video.commentCount;
+    }
+
+    private void readStats(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "playCount":
+                    playCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "diggCount":
+                    likeCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "shareCount":
+                    shareCount = JsonUtility.readLong(reader, 0);
+                    break;
+                case "commentCount":
+                    commentCount = JsonUtility.readLong(reader, 0);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
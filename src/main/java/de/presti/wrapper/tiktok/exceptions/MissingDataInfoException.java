@@ -16,4 +16,13 @@ public class MissingDataInfoException extends IllegalStateException {
         super(message);
     }
 
+    /**
+     * Constructor to create the Exception with a message and the cause.
+     * @param message The message of the Exception.
+     * @param cause The cause of the Exception.
+     */
+    public MissingDataInfoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
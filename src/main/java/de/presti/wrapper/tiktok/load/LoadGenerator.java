@@ -0,0 +1,255 @@
+package de.presti.wrapper.tiktok.load;
+
+import de.presti.wrapper.tiktok.utility.LatencyHistogram;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Starts calls at a fixed rate, independent of how fast they complete, and reports their throughput and latencies.
+ * Combined with a {@link de.presti.wrapper.tiktok.replay.ReplaySender} it load-tests the Wrapper without touching TikTok.
+ * <pre>{@code
+ * TikTokAsyncWrapper wrapper = new TikTokAsyncWrapper();
+ * LoadReport report = LoadGenerator.builder().qps(200).duration(Duration.ofSeconds(30))
+ *         .call(i -> wrapper.getUser(names.get((int) (i % names.size())), false)).build().run();
+ * }</pre>
+ */
+public class LoadGenerator {
+
+    /**
+     * The calls per second.
+     */
+    @Getter
+    private final double qps;
+
+    /**
+     * The time calls are started for.
+     */
+    @Getter
+    private final Duration duration;
+
+    /**
+     * The maximum amount of calls in flight, further calls are dropped.
+     */
+    @Getter
+    private final int maxInFlight;
+
+    /**
+     * Starts the call with the given number.
+     */
+    private final LongFunction<CompletableFuture<?>> call;
+
+    private LoadGenerator(LoadBuilder builder) {
+        this.qps = builder.qps;
+        this.duration = builder.duration;
+        this.maxInFlight = builder.maxInFlight;
+        this.call = builder.call;
+    }
+
+    /**
+     * Create a new Load builder.
+     *
+     * @return a new Load builder.
+     */
+    public static LoadBuilder builder() {
+        return new LoadBuilder();
+    }
+
+    /**
+     * Run the load and wait until every call completed.
+     *
+     * @return the report.
+     */
+    public LoadReport run() {
+        return start().join();
+    }
+
+    /**
+     * Start the load.
+     *
+     * @return a future completing with the report once every call completed.
+     */
+    public CompletableFuture<LoadReport> start() {
+        long total = Math.max(1, (long) (qps * duration.toNanos() / 1_000_000_000d));
+        double interval = 1_000_000_000d / qps;
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        LongAdder succeeded = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        AtomicInteger inFlight = new AtomicInteger();
+        // The calls not completed yet, plus one for the scheduling itself.
+        AtomicLong pending = new AtomicLong(total + 1);
+
+        CompletableFuture<LoadReport> report = new CompletableFuture<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TikTokWrapper-LoadGenerator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long[] next = {0};
+
+        Runnable complete = () -> {
+            if (pending.decrementAndGet() != 0) return;
+
+            long elapsed = System.nanoTime() - start;
+            Map<String, Long> errorCounts = new TreeMap<>();
+            errors.forEach((name, count) -> errorCounts.put(name, count.sum()));
+
+            report.complete(new LoadReport(qps, total - dropped.sum(), succeeded.sum(), failed.sum(), dropped.sum(), Duration.ofNanos(elapsed),
+                    succeeded.sum() / (elapsed / 1_000_000_000d), histogram.getPercentile(0.5), histogram.getPercentile(0.9),
+                    histogram.getPercentile(0.99), histogram.getMax(), histogram, Collections.unmodifiableMap(errorCounts)));
+        };
+
+        // Every tick starts all calls which are due, so rates above the tick rate are still reached.
+        scheduler.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+
+            while (next[0] < total) {
+                long scheduled = start + (long) (next[0] * interval);
+                if (scheduled > now) return;
+
+                long number = next[0]++;
+
+                if (inFlight.get() >= maxInFlight) {
+                    dropped.increment();
+                    complete.run();
+                    continue;
+                }
+
+                inFlight.incrementAndGet();
+                CompletableFuture<?> future;
+
+                try {
+                    future = call.apply(number);
+                } catch (RuntimeException exception) {
+                    future = CompletableFuture.failedFuture(exception);
+                }
+
+                future.whenComplete((value, throwable) -> {
+                    long latency = System.nanoTime() - scheduled;
+                    inFlight.decrementAndGet();
+
+                    if (throwable == null) {
+                        succeeded.increment();
+                        histogram.record(latency);
+                    } else {
+                        failed.increment();
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                        errors.computeIfAbsent(cause.getClass().getSimpleName(), name -> new LongAdder()).increment();
+                    }
+
+                    complete.run();
+                });
+            }
+
+            scheduler.shutdown();
+            complete.run();
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        return report;
+    }
+
+    /**
+     * Builder class for a LoadGenerator.
+     */
+    public static class LoadBuilder {
+
+        /**
+         * The calls per second.
+         */
+        protected double qps = 10;
+
+        /**
+         * The time calls are started for.
+         */
+        protected Duration duration = Duration.ofSeconds(10);
+
+        /**
+         * The maximum amount of calls in flight.
+         */
+        protected int maxInFlight = 10_000;
+
+        /**
+         * Starts the call with the given number.
+         */
+        protected LongFunction<CompletableFuture<?>> call;
+
+        /**
+         * Change the calls per second.
+         *
+         * @param qps the calls per second.
+         * @return the LoadBuilder.
+         */
+        public LoadBuilder qps(double qps) {
+            this.qps = qps;
+            return this;
+        }
+
+        /**
+         * Change the time calls are started for.
+         *
+         * @param duration the time.
+         * @return the LoadBuilder.
+         */
+        public LoadBuilder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * Change the maximum amount of calls in flight, calls due while it is reached are dropped and reported.
+         *
+         * @param maxInFlight the maximum amount of calls.
+         * @return the LoadBuilder.
+         */
+        public LoadBuilder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Change the call, it receives the number of the call, starting at 0.
+         *
+         * @param call starts the call and returns its future.
+         * @return the LoadBuilder.
+         */
+        public LoadBuilder call(LongFunction<CompletableFuture<?>> call) {
+            this.call = call;
+            return this;
+        }
+
+        /**
+         * Build the LoadGenerator.
+         *
+         * @return the LoadGenerator.
+         */
+        public LoadGenerator build() {
+            if (call == null || duration == null) {
+                throw new IllegalStateException("The call and the duration are required!");
+            }
+
+            if (qps <= 0 || maxInFlight < 1 || duration.isNegative() || duration.isZero()) {
+                throw new IllegalStateException("The rate, the duration and the maximum in flight must be positive!");
+            }
+
+            return new LoadGenerator(this);
+        }
+    }
+}
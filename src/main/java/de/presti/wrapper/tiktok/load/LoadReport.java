@@ -0,0 +1,85 @@
+package de.presti.wrapper.tiktok.load;
+
+import de.presti.wrapper.tiktok.utility.LatencyHistogram;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The outcome of a run of a {@link LoadGenerator}.
+ * Latencies are measured from the time a call was scheduled, so a call delayed by a stalled client counts its delay.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LoadReport {
+
+    /**
+     * The calls per second the generator aimed for.
+     */
+    double targetQps;
+
+    /**
+     * The amount of calls started.
+     */
+    long sent;
+
+    /**
+     * The amount of calls which completed successfully.
+     */
+    long succeeded;
+
+    /**
+     * The amount of calls which failed.
+     */
+    long failed;
+
+    /**
+     * The amount of calls not started, because too many calls were in flight.
+     */
+    long dropped;
+
+    /**
+     * The time from the first call until the last call completed.
+     */
+    Duration elapsed;
+
+    /**
+     * The successful calls per second.
+     */
+    double throughput;
+
+    /**
+     * The median latency of the successful calls, or null if there were none.
+     */
+    Duration p50;
+
+    /**
+     * The 90th percentile latency of the successful calls, or null if there were none.
+     */
+    Duration p90;
+
+    /**
+     * The 99th percentile latency of the successful calls, or null if there were none.
+     */
+    Duration p99;
+
+    /**
+     * The latency of the slowest successful call, or null if there were none.
+     */
+    Duration max;
+
+    /**
+     * The latencies of all successful calls.
+     */
+    @ToString.Exclude
+    LatencyHistogram histogram;
+
+    /**
+     * The amount of failed calls keyed by the simple name of their exception.
+     */
+    Map<String, Long> errors;
+}
@@ -0,0 +1,43 @@
+package de.presti.wrapper.tiktok.metrics;
+
+/**
+ * Receives the timings, sizes and outcomes of every call, set on a {@link de.presti.wrapper.tiktok.utility.HttpTransport}.
+ * Implementations are called on the Threads completing the Requests and have to be thread-safe and fast.
+ * The arguments are primitives, enums and constant Strings, so {@link #NOOP} records nothing without allocating.
+ */
+public interface Instrumentation {
+
+    /**
+     * Records nothing, used if no Instrumentation is set.
+     */
+    Instrumentation NOOP = new Instrumentation() {
+    };
+
+    /**
+     * Record the time spent in a stage of a call.
+     *
+     * @param stage  the stage.
+     * @param source the host for the network stages, the backend for the parsing stages.
+     * @param nanos  the time in nanoseconds.
+     */
+    default void recordStage(Stage stage, String source, long nanos) {
+    }
+
+    /**
+     * Record the size of a response body as it was received, before it was decompressed.
+     *
+     * @param host  the host.
+     * @param bytes the size in bytes.
+     */
+    default void recordBytes(String host, long bytes) {
+    }
+
+    /**
+     * Record how a lookup in a Cache or of a deduplicated call was answered.
+     *
+     * @param outcome the outcome.
+     * @param source  the looked up kind, e.g. scraper.user.
+     */
+    default void recordOutcome(Outcome outcome, String source) {
+    }
+}
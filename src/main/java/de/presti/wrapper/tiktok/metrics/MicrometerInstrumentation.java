@@ -0,0 +1,122 @@
+package de.presti.wrapper.tiktok.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records into a Micrometer {@link MeterRegistry}, Micrometer is an optional dependency and has to be added to use this.
+ * <ul>
+ *     <li>{@code tiktok.stage} timer, tagged with {@code stage} and {@code source}.</li>
+ *     <li>{@code tiktok.received} counter in bytes, tagged with {@code host}.</li>
+ *     <li>{@code tiktok.outcome} counter, tagged with {@code outcome} and {@code source}.</li>
+ * </ul>
+ * The meters are looked up once per tag combination, recording afterwards only updates them.
+ */
+public class MicrometerInstrumentation implements Instrumentation {
+
+    /**
+     * The registry the meters are registered in.
+     */
+    private final MeterRegistry registry;
+
+    /**
+     * The prefix of the meter names.
+     */
+    private final String prefix;
+
+    private final Map<Stage, Map<String, Timer>> stageTimers = new EnumMap<>(Stage.class);
+
+    private final Map<Outcome, Map<String, Counter>> outcomeCounters = new EnumMap<>(Outcome.class);
+
+    private final Map<String, Counter> byteCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new Instrumentation with meters prefixed by tiktok.
+     *
+     * @param registry the registry the meters are registered in.
+     */
+    public MicrometerInstrumentation(MeterRegistry registry) {
+        this(registry, "tiktok");
+    }
+
+    /**
+     * Create a new Instrumentation.
+     *
+     * @param registry the registry the meters are registered in.
+     * @param prefix   the prefix of the meter names.
+     */
+    public MicrometerInstrumentation(MeterRegistry registry, String prefix) {
+        if (registry == null || prefix == null) {
+            throw new IllegalArgumentException("The registry and the prefix are required!");
+        }
+
+        this.registry = registry;
+        this.prefix = prefix;
+
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, new ConcurrentHashMap<>());
+        }
+
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounters.put(outcome, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void recordStage(Stage stage, String source, long nanos) {
+        Map<String, Timer> timers = stageTimers.get(stage);
+        Timer timer = timers.get(source);
+
+        if (timer == null) {
+            timer = timers.computeIfAbsent(source, key -> Timer.builder(prefix + ".stage")
+                    .description("The time spent in a stage of a call")
+                    .tag("stage", tagValue(stage)).tag("source", key).register(registry));
+        }
+
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordBytes(String host, long bytes) {
+        Counter counter = byteCounters.get(host);
+
+        if (counter == null) {
+            counter = byteCounters.computeIfAbsent(host, key -> Counter.builder(prefix + ".received")
+                    .description("The size of the received response bodies").baseUnit("bytes")
+                    .tag("host", key).register(registry));
+        }
+
+        counter.increment(bytes);
+    }
+
+    @Override
+    public void recordOutcome(Outcome outcome, String source) {
+        Map<String, Counter> counters = outcomeCounters.get(outcome);
+        Counter counter = counters.get(source);
+
+        if (counter == null) {
+            counter = counters.computeIfAbsent(source, key -> Counter.builder(prefix + ".outcome")
+                    .description("How the lookups in a Cache or of a deduplicated call were answered")
+                    .tag("outcome", tagValue(outcome)).tag("source", key).register(registry));
+        }
+
+        counter.increment();
+    }
+
+    /**
+     * Convert an enum constant into a tag value, e.g. first_byte.
+     *
+     * @param constant the constant.
+     * @return the tag value.
+     */
+    private static String tagValue(Enum<?> constant) {
+        return constant.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,27 @@
+package de.presti.wrapper.tiktok.metrics;
+
+/**
+ * How a lookup in a Cache or of a deduplicated call was answered.
+ */
+public enum Outcome {
+
+    /**
+     * The Cache answered without loading the page.
+     */
+    CACHE_HIT,
+
+    /**
+     * The Cache loaded the page.
+     */
+    CACHE_MISS,
+
+    /**
+     * The call was executed, no identical call was in flight.
+     */
+    EXECUTED,
+
+    /**
+     * The call joined an identical call already in flight.
+     */
+    COALESCED
+}
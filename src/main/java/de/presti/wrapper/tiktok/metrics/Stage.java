@@ -0,0 +1,33 @@
+package de.presti.wrapper.tiktok.metrics;
+
+/**
+ * The stages a call passes, from sending the Request to the mapped entity.
+ */
+public enum Stage {
+
+    /**
+     * From sending the Request until the response headers arrived, including DNS, connect and TLS,
+     * which the JDK HTTP Client does not report separately.
+     */
+    FIRST_BYTE,
+
+    /**
+     * From the response headers until the whole body arrived.
+     */
+    DOWNLOAD,
+
+    /**
+     * Decoding a gzip or deflate encoded body.
+     */
+    DECOMPRESSION,
+
+    /**
+     * Locating the Website data in the page, or copying the needed part of it for the Cache.
+     */
+    EXTRACTION,
+
+    /**
+     * Parsing the JSON and mapping it into the entity, both happen in one pass over the token stream.
+     */
+    BINDING
+}
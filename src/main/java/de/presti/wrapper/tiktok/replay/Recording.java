@@ -0,0 +1,343 @@
+package de.presti.wrapper.tiktok.replay;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Recorded responses keyed by their Request, the method, the Url and a hash of the body.
+ * On disk a recording is a directory with an index.json and the raw body of every response in its own file,
+ * so captured pages can be inspected or replaced by hand.
+ */
+public class Recording {
+
+    /**
+     * The name of the index file in a recording directory.
+     */
+    public static final String INDEX_FILE = "index.json";
+
+    /**
+     * The responses keyed by {@link #key(String, URI, byte[])}.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * A recorded response.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+
+        /**
+         * The method of the Request.
+         */
+        String method;
+
+        /**
+         * The Url of the Request.
+         */
+        URI uri;
+
+        /**
+         * The hash of the Request body, or null if it had none.
+         */
+        String bodyHash;
+
+        /**
+         * The status of the response.
+         */
+        int status;
+
+        /**
+         * The headers of the response.
+         */
+        Map<String, List<String>> headers;
+
+        /**
+         * The raw body of the response, still encoded if it was sent compressed.
+         */
+        byte[] body;
+    }
+
+    /**
+     * Load a recording from a directory.
+     *
+     * @param directory the directory written by {@link #save(Path)}.
+     * @return the recording.
+     * @throws IOException if the index or a body couldn't be read.
+     */
+    public static Recording load(Path directory) throws IOException {
+        Recording recording = new Recording();
+
+        try (Reader fileReader = Files.newBufferedReader(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8);
+             JsonReader reader = new JsonReader(fileReader)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String method = null;
+                URI uri = null;
+                String bodyHash = null;
+                int status = 200;
+                Map<String, List<String>> headers = new LinkedHashMap<>();
+                byte[] body = new byte[0];
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "method":
+                            method = reader.nextString();
+                            break;
+                        case "url":
+                            uri = URI.create(reader.nextString());
+                            break;
+                        case "bodyHash":
+                            bodyHash = reader.nextString();
+                            break;
+                        case "status":
+                            status = reader.nextInt();
+                            break;
+                        case "headers":
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                String name = reader.nextName();
+                                List<String> values = new ArrayList<>();
+                                reader.beginArray();
+                                while (reader.hasNext()) {
+                                    values.add(reader.nextString());
+                                }
+                                reader.endArray();
+                                headers.put(name, values);
+                            }
+                            reader.endObject();
+                            break;
+                        case "file":
+                            body = Files.readAllBytes(directory.resolve(reader.nextString()));
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                if (method == null || uri == null) {
+                    throw new IOException("Recorded response without method or Url in " + directory);
+                }
+
+                recording.add(new Entry(method, uri, bodyHash, status, headers, body));
+            }
+            reader.endArray();
+        }
+
+        return recording;
+    }
+
+    /**
+     * Write the recording to a directory, replacing a previous recording in it.
+     *
+     * @param directory the directory, created if needed.
+     * @throws IOException if a file couldn't be written.
+     */
+    public void save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        try (Writer fileWriter = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(fileWriter)) {
+            writer.setIndent("  ");
+            writer.beginArray();
+
+            int index = 0;
+            for (Entry entry : entries.values()) {
+                String file = String.format("%04d.body", ++index);
+                Files.write(directory.resolve(file), entry.getBody());
+
+                writer.beginObject();
+                writer.name("method").value(entry.getMethod());
+                writer.name("url").value(entry.getUri().toString());
+                if (entry.getBodyHash() != null) {
+                    writer.name("bodyHash").value(entry.getBodyHash());
+                }
+                writer.name("status").value(entry.getStatus());
+                writer.name("headers").beginObject();
+                for (Map.Entry<String, List<String>> header : entry.getHeaders().entrySet()) {
+                    writer.name(header.getKey()).beginArray();
+                    for (String value : header.getValue()) {
+                        writer.value(value);
+                    }
+                    writer.endArray();
+                }
+                writer.endObject();
+                writer.name("file").value(file);
+                writer.endObject();
+            }
+
+            writer.endArray();
+        }
+    }
+
+    /**
+     * Add a recorded response, replacing the previous response to the same Request.
+     *
+     * @param entry the response.
+     */
+    public void add(Entry entry) {
+        entries.put(key(entry.getMethod(), entry.getUri(), entry.getBodyHash()), entry);
+    }
+
+    /**
+     * Add a successful GET response, e.g. a captured page.
+     *
+     * @param url         the Url of the Request.
+     * @param contentType the Content-Type of the body.
+     * @param body        the body.
+     */
+    public void add(String url, String contentType, byte[] body) {
+        add(new Entry("GET", URI.create(url), null, 200, Collections.singletonMap("content-type", Collections.singletonList(contentType)), body));
+    }
+
+    /**
+     * Add a successful POST response, e.g. of the Research API.
+     *
+     * @param url         the Url of the Request.
+     * @param requestBody the body of the Request.
+     * @param contentType the Content-Type of the response body.
+     * @param body        the response body.
+     */
+    public void add(String url, String requestBody, String contentType, byte[] body) {
+        add(new Entry("POST", URI.create(url), hash(requestBody.getBytes(StandardCharsets.UTF_8)), 200,
+                Collections.singletonMap("content-type", Collections.singletonList(contentType)), body));
+    }
+
+    /**
+     * Record the response to a Request.
+     *
+     * @param request  the Request.
+     * @param response the response.
+     */
+    public void record(HttpRequest request, HttpResponse<byte[]> response) {
+        byte[] requestBody = readBody(request);
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        // HTTP/2 responses list their status as a pseudo header.
+        response.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":")) headers.put(name, values);
+        });
+
+        add(new Entry(request.method(), request.uri(), requestBody.length == 0 ? null : hash(requestBody),
+                response.statusCode(), headers, response.body()));
+    }
+
+    /**
+     * Find the recorded response to a Request.
+     *
+     * @param request the Request.
+     * @return the response, or null if it was not recorded.
+     */
+    public Entry find(HttpRequest request) {
+        byte[] requestBody = readBody(request);
+        return entries.get(key(request.method(), request.uri(), requestBody.length == 0 ? null : hash(requestBody)));
+    }
+
+    /**
+     * Get all recorded responses.
+     *
+     * @return the responses.
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Build the key of a Request.
+     *
+     * @param method   the method.
+     * @param uri      the Url.
+     * @param bodyHash the hash of the body, or null.
+     * @return the key.
+     */
+    private static String key(String method, URI uri, String bodyHash) {
+        return method + " " + uri + (bodyHash == null ? "" : " " + bodyHash);
+    }
+
+    /**
+     * Hash a Request body, only the hash is stored so credentials in a body are not written to disk.
+     *
+     * @param body the body.
+     * @return the first 16 hex digits of its SHA-256.
+     */
+    static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                builder.append(String.format("%02x", digest[i]));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available!", exception);
+        }
+    }
+
+    /**
+     * Read the body of a prepared Request, the publishers of the JDK emit it right away.
+     *
+     * @param request the Request.
+     * @return the body, empty if it has none.
+     */
+    static byte[] readBody(HttpRequest request) {
+        Optional<HttpRequest.BodyPublisher> publisher = request.bodyPublisher();
+
+        if (publisher.isEmpty() || publisher.get().contentLength() == 0) return new byte[0];
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompletableFuture<byte[]> body = new CompletableFuture<>();
+
+        publisher.get().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                outputStream.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                body.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                body.complete(outputStream.toByteArray());
+            }
+        });
+
+        return body.join();
+    }
+}
@@ -0,0 +1,56 @@
+package de.presti.wrapper.tiktok.replay;
+
+import de.presti.wrapper.tiktok.utility.HttpSender;
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends the Requests with another sender and records every response, to replay them later with a {@link ReplaySender}.
+ * <pre>{@code
+ * Recording recording = new Recording();
+ * HttpTransport transport = RequestUtility.getTransport();
+ * transport.setSender(new RecordingSender(transport.getSender(), recording));
+ * // run the calls to capture
+ * recording.save(Path.of("recordings/profile"));
+ * }</pre>
+ */
+public class RecordingSender implements HttpSender {
+
+    /**
+     * The sender actually sending the Requests.
+     */
+    private final HttpSender delegate;
+
+    /**
+     * The recording the responses are added to.
+     */
+    @Getter
+    private final Recording recording;
+
+    /**
+     * Create a new RecordingSender.
+     *
+     * @param delegate  the sender actually sending the Requests.
+     * @param recording the recording the responses are added to.
+     */
+    public RecordingSender(HttpSender delegate, Recording recording) {
+        if (delegate == null || recording == null) {
+            throw new IllegalArgumentException("The sender and the recording are required!");
+        }
+
+        this.delegate = delegate;
+        this.recording = recording;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, InetSocketAddress proxy) {
+        return delegate.send(request, proxy).thenApply(response -> {
+            recording.record(request, response);
+            return response;
+        });
+    }
+}
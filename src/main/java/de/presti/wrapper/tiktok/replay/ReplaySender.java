@@ -0,0 +1,289 @@
+package de.presti.wrapper.tiktok.replay;
+
+import de.presti.wrapper.tiktok.utility.HttpSender;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the responses of a {@link Recording} instead of sending the Requests, with a simulated latency and injected errors.
+ * Requests which were not recorded are answered with the status 404.
+ * <pre>{@code
+ * RequestUtility.setSender(ReplaySender.builder().recording(Recording.load(Path.of("recordings/profile")))
+ *         .latency(Duration.ofMillis(40), Duration.ofMillis(120)).errorRate(0.01).build());
+ * }</pre>
+ */
+public class ReplaySender implements HttpSender {
+
+    /**
+     * The recorded responses.
+     */
+    private final Recording recording;
+
+    /**
+     * The minimum latency in nanoseconds.
+     */
+    private final long minLatency;
+
+    /**
+     * The maximum latency in nanoseconds.
+     */
+    private final long maxLatency;
+
+    /**
+     * The share of Requests failing as if the connection failed, between 0 and 1.
+     */
+    private final double errorRate;
+
+    /**
+     * The status of the injected error responses.
+     */
+    private final int injectedStatus;
+
+    /**
+     * The share of Requests answered with the injected status, between 0 and 1.
+     */
+    private final double statusRate;
+
+    /**
+     * Decides the latency and the injected errors, seeded to make a run repeatable.
+     */
+    private final Random random;
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong injected = new AtomicLong();
+
+    private ReplaySender(ReplayBuilder builder) {
+        this.recording = builder.recording;
+        this.minLatency = builder.minLatency.toNanos();
+        this.maxLatency = builder.maxLatency.toNanos();
+        this.errorRate = builder.errorRate;
+        this.injectedStatus = builder.injectedStatus;
+        this.statusRate = builder.statusRate;
+        this.random = new Random(builder.seed);
+    }
+
+    /**
+     * Create a new Replay builder.
+     *
+     * @return a new Replay builder.
+     */
+    public static ReplayBuilder builder() {
+        return new ReplayBuilder();
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, InetSocketAddress proxy) {
+        long latency;
+        double outcome;
+
+        synchronized (random) {
+            latency = maxLatency == minLatency ? minLatency : minLatency + (long) (random.nextDouble() * (maxLatency - minLatency));
+            outcome = random.nextDouble();
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> response = new CompletableFuture<>();
+        Runnable answer = () -> {
+            if (outcome < errorRate) {
+                injected.incrementAndGet();
+                response.completeExceptionally(new IOException("Injected connection failure, URL=" + request.uri()));
+                return;
+            }
+
+            if (outcome < errorRate + statusRate) {
+                injected.incrementAndGet();
+                response.complete(new ReplayResponse(request, injectedStatus, Collections.emptyMap(), new byte[0]));
+                return;
+            }
+
+            Recording.Entry entry = recording.find(request);
+
+            if (entry == null) {
+                missed.incrementAndGet();
+                response.complete(new ReplayResponse(request, 404, Collections.singletonMap("content-type", List.of("text/plain")),
+                        ("No recorded response to " + request.method() + " " + request.uri()).getBytes(StandardCharsets.UTF_8)));
+                return;
+            }
+
+            replayed.incrementAndGet();
+            response.complete(new ReplayResponse(request, entry.getStatus(), entry.getHeaders(), entry.getBody()));
+        };
+
+        if (latency <= 0) {
+            answer.run();
+        } else {
+            CompletableFuture.delayedExecutor(latency, TimeUnit.NANOSECONDS).execute(answer);
+        }
+
+        return response;
+    }
+
+    /**
+     * Get the amount of Requests answered with a recorded response.
+     *
+     * @return the amount of Requests.
+     */
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    /**
+     * Get the amount of Requests which were not recorded.
+     *
+     * @return the amount of Requests.
+     */
+    public long getMissed() {
+        return missed.get();
+    }
+
+    /**
+     * Get the amount of Requests answered with an injected error.
+     *
+     * @return the amount of Requests.
+     */
+    public long getInjected() {
+        return injected.get();
+    }
+
+    /**
+     * Builder class for a ReplaySender.
+     */
+    public static class ReplayBuilder {
+
+        /**
+         * The recorded responses.
+         */
+        protected Recording recording;
+
+        /**
+         * The minimum latency.
+         */
+        protected Duration minLatency = Duration.ZERO;
+
+        /**
+         * The maximum latency.
+         */
+        protected Duration maxLatency = Duration.ZERO;
+
+        /**
+         * The share of Requests failing as if the connection failed.
+         */
+        protected double errorRate;
+
+        /**
+         * The status of the injected error responses.
+         */
+        protected int injectedStatus = 429;
+
+        /**
+         * The share of Requests answered with the injected status.
+         */
+        protected double statusRate;
+
+        /**
+         * The seed of the latency and the injected errors.
+         */
+        protected long seed = 1;
+
+        /**
+         * Change the recorded responses.
+         *
+         * @param recording the recording.
+         * @return the ReplayBuilder.
+         */
+        public ReplayBuilder recording(Recording recording) {
+            this.recording = recording;
+            return this;
+        }
+
+        /**
+         * Answer every Request after the same latency.
+         *
+         * @param latency the latency.
+         * @return the ReplayBuilder.
+         */
+        public ReplayBuilder latency(Duration latency) {
+            return latency(latency, latency);
+        }
+
+        /**
+         * Answer every Request after a latency spread evenly between a minimum and a maximum.
+         *
+         * @param minLatency the minimum latency.
+         * @param maxLatency the maximum latency.
+         * @return the ReplayBuilder.
+         */
+        public ReplayBuilder latency(Duration minLatency, Duration maxLatency) {
+            this.minLatency = minLatency;
+            this.maxLatency = maxLatency;
+            return this;
+        }
+
+        /**
+         * Change the share of Requests failing as if the connection failed.
+         *
+         * @param errorRate the share, between 0 and 1.
+         * @return the ReplayBuilder.
+         */
+        public ReplayBuilder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Answer a share of the Requests with an error status, e.g. 429 to simulate throttling or 503 for an outage.
+         *
+         * @param status the status.
+         * @param rate   the share, between 0 and 1.
+         * @return the ReplayBuilder.
+         */
+        public ReplayBuilder statusRate(int status, double rate) {
+            this.injectedStatus = status;
+            this.statusRate = rate;
+            return this;
+        }
+
+        /**
+         * Change the seed of the latency and the injected errors.
+         *
+         * @param seed the seed.
+         * @return the ReplayBuilder.
+         */
+        public ReplayBuilder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Build the ReplaySender.
+         *
+         * @return the ReplaySender.
+         */
+        public ReplaySender build() {
+            if (recording == null) {
+                throw new IllegalStateException("The recording is required!");
+            }
+
+            if (minLatency == null || maxLatency == null || minLatency.isNegative() || maxLatency.compareTo(minLatency) < 0) {
+                throw new IllegalStateException("The latency must be positive and the maximum at least the minimum!");
+            }
+
+            if (errorRate < 0 || statusRate < 0 || errorRate + statusRate > 1) {
+                throw new IllegalStateException("The error rates must be positive and at most 1 together!");
+            }
+
+            return new ReplaySender(this);
+        }
+    }
+}
@@ -1,22 +1,48 @@
 package de.presti.wrapper.tiktok.repo;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import de.presti.wrapper.tiktok.entities.BatchResult;
 import de.presti.wrapper.tiktok.entities.TikTokUser;
 import de.presti.wrapper.tiktok.entities.TikTokVideo;
 import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.metrics.Stage;
+import de.presti.wrapper.tiktok.research.AccessToken;
+import de.presti.wrapper.tiktok.research.AccessTokenManager;
+import de.presti.wrapper.tiktok.research.ShardConfig;
+import de.presti.wrapper.tiktok.research.ShardedVideoIterator;
+import de.presti.wrapper.tiktok.research.VideoQuery;
+import de.presti.wrapper.tiktok.research.VideoQueryIterator;
+import de.presti.wrapper.tiktok.research.VideoQueryPage;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.utility.BatchUtility;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import de.presti.wrapper.tiktok.utility.JsonBinder;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
 import de.presti.wrapper.tiktok.utility.RequestUtility;
+import de.presti.wrapper.tiktok.utility.SingleFlight;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.util.Collections;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The API to retrieve information from TikTok.
@@ -24,8 +50,32 @@ import java.util.List;
 @NoArgsConstructor
 public class TikTokResearchAPI {
 
-    private final String BASE_URL = "https://open.tiktokapis.com/v2/research";
-    private final String OAUTH_URL = "https://open.tiktokapis.com/v2/oauth/token/";
+    /**
+     * The fields requested from the user/info endpoint.
+     */
+    public static final String USER_FIELDS = "display_name,bio_description,avatar_url,is_verified,follower_count,following_count,likes_count,video_count";
+
+    /**
+     * The base Url of the API, the research and oauth endpoints are below it.
+     */
+    @Getter
+    @Setter
+    private String apiUrl = "https://open.tiktokapis.com/v2";
+
+    /**
+     * The Transport the Requests are sent with.
+     */
+    @Getter
+    @Setter
+    private HttpTransport transport = RequestUtility.getTransport();
+
+    /**
+     * The throttling of the research Requests of this credential, null to use the policy of the Transport for the Url.
+     * Every credential has its own quota, an own policy lets several credentials be used at their full rate.
+     */
+    @Getter
+    @Setter
+    private EndpointPolicy policy;
 
     @Setter
     private String client_key;
@@ -36,11 +86,29 @@ public class TikTokResearchAPI {
     @Setter
     private String grant_type;
 
+    /**
+     * Keeps the Access Token valid, refreshing it ahead of its expiry.
+     */
+    @Getter
+    private final AccessTokenManager tokenManager = new AccessTokenManager(this::fetchAccessToken);
+
+    /**
+     * Deduplicates identical User lookups in flight.
+     */
     @Getter
-    private String access_token;
+    private final SingleFlight<String, TikTokUser> userFlight = new SingleFlight<>();
 
+    /**
+     * Deduplicates identical Video lookups in flight.
+     */
     @Getter
-    private long expires;
+    private final SingleFlight<String, List<TikTokVideo>> videosFlight = new SingleFlight<>();
+
+    /**
+     * Deduplicates identical single Video lookups in flight.
+     */
+    @Getter
+    private final SingleFlight<String, TikTokVideo> videoFlight = new SingleFlight<>();
 
     public TikTokResearchAPI(String client_key, String client_secret, String grant_type) {
         this.client_key = client_key;
@@ -48,100 +116,273 @@ public class TikTokResearchAPI {
         this.grant_type = grant_type;
     }
 
-    private void checkAccessToken() throws UnsupportedEncodingException {
-        if (expires < System.currentTimeMillis()) {
-            requestAccessToken();
-        }
+    /**
+     * Get the current Access Token.
+     *
+     * @return the Token, or null if none has been requested yet.
+     */
+    public String getAccess_token() {
+        AccessToken token = tokenManager.getToken();
+        return token == null ? null : token.getValue();
     }
 
-    public void requestAccessToken() throws UnsupportedEncodingException {
+    /**
+     * Get the time the current Access Token expires at.
+     *
+     * @return the time in milliseconds since the epoch, or 0 if no Token has been requested yet.
+     */
+    public long getExpires() {
+        AccessToken token = tokenManager.getToken();
+        return token == null ? 0 : token.getExpiresAt();
+    }
+
+    /**
+     * Request a new Access Token and wait for it, a refresh already in flight is joined instead.
+     *
+     * @throws IOException if the Token couldn't be requested.
+     */
+    public void requestAccessToken() throws IOException {
+        RequestUtility.join(tokenManager.refresh());
+    }
+
+    /**
+     * Request a new Access Token without storing it, the {@link #getTokenManager() Token Manager} stores it.
+     *
+     * @return a future with the Token.
+     */
+    public CompletableFuture<AccessToken> fetchAccessToken() {
         RequestUtility.Request request = RequestUtility.Request.builder()
-                .url(OAUTH_URL)
-                .body("client_key=" + URLEncoder.encode(client_key, StandardCharsets.UTF_8.name()) + "&client_secret=" + URLEncoder.encode(client_secret, StandardCharsets.UTF_8.name()) + "&grant_type=" + URLEncoder.encode(grant_type, StandardCharsets.UTF_8.name()))
+                .url(apiUrl + "/oauth/token/")
+                .body("client_key=" + URLEncoder.encode(client_key, StandardCharsets.UTF_8) + "&client_secret=" + URLEncoder.encode(client_secret, StandardCharsets.UTF_8) + "&grant_type=" + URLEncoder.encode(grant_type, StandardCharsets.UTF_8))
                 .header(new String[]{"Content-Type", "application/x-www-form-urlencoded"})
                 .POST()
                 .build();
-        JsonElement jsonElement = RequestUtility.requestJson(request);
-        if (!jsonElement.isJsonNull()) {
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            if (jsonObject.has("error") || (jsonObject.has("success") && !jsonObject.getAsJsonPrimitive("success").getAsBoolean())) {
-                throw new MissingDataInfoException("Couldn't get the Access Token!");
-            }
 
-            access_token = jsonObject.getAsJsonPrimitive("access_token").getAsString();
-            expires = System.currentTimeMillis() + Duration.ofSeconds(jsonObject.getAsJsonPrimitive("expires_in").getAsInt()).toMillis();
-        }
+        long issuedAt = System.currentTimeMillis();
+        return transport.requestBytesAsync(request).thenApply(body -> bind(body, reader -> AccessToken.fromOAuth(reader, issuedAt), "Access Token"));
+    }
+
+    public TikTokUser getUser(String username) throws IOException {
+        return RequestUtility.join(getUserAsync(username, Runnable::run));
     }
 
-    public TikTokUser getUser(String username) throws UnsupportedEncodingException {
-        checkAccessToken();
-        JsonObject requestObject = new JsonObject();
-        requestObject.addProperty("username", username);
+    /**
+     * Retrieve information about a User without blocking the calling Thread.
+     *
+     * @param username The name of the user.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the User.
+     */
+    public CompletableFuture<TikTokUser> getUserAsync(String username, Executor executor) {
+        return userFlight.execute(username, () -> requestUser(username, executor), transport.getInstrumentation(), "research.user");
+    }
 
-        RequestUtility.Request request = RequestUtility.Request.builder()
-                .url(BASE_URL + "/user/info/?fields=display_name,bio_description,avatar_url,is_verified,follower_count,following_count,likes_count,video_count")
-                .bearerAuth(access_token)
-                .header(new String[]{"Content-Type", "text/plain"})
-                .body(requestObject.toString())
-                .POST()
-                .build();
+    private CompletableFuture<TikTokUser> requestUser(String username, Executor executor) {
+        return tokenManager.getTokenAsync().thenCompose(token -> {
+            JsonObject requestObject = new JsonObject();
+            requestObject.addProperty("username", username);
 
-        JsonElement jsonElement = RequestUtility.requestJson(request);
+            RequestUtility.Request request = RequestUtility.Request.builder()
+                    .url(apiUrl + "/research/user/info/?fields=" + USER_FIELDS)
+                    .bearerAuth(token)
+                    .header(new String[]{"Content-Type", "application/json"})
+                    .body(requestObject.toString())
+                    .POST()
+                    .build();
 
-        if (!jsonElement.isJsonNull()) {
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            if (jsonObject.has("error") || (jsonObject.has("success") && !jsonObject.getAsJsonPrimitive("success").getAsBoolean())) {
-                throw new MissingDataInfoException("Couldn't get the User!");
-            }
+            return transport.requestBytesAsync(request, policy);
+        }).thenApplyAsync(body -> bind(body, reader -> TikTokUser.fromResearch(reader, username), "User"), executor);
+    }
 
-            return null;
+    /**
+     * Retrieve information about many Users without blocking the calling Thread, every result is handed to the consumer
+     * as soon as it arrived.
+     * The Requests still pass the rate limit of the API, configured with {@link #setPolicy(EndpointPolicy)} or the Transport.
+     *
+     * @param usernames      The names of the users.
+     * @param maxParallelism The maximum amount of Requests in flight.
+     * @param executor       The Executor used to parse the responses.
+     * @param consumer       Receives the result of every user, a failed lookup does not fail the others.
+     * @return A future completing once every result has been handed to the consumer.
+     */
+    public CompletableFuture<Void> getUsersAsync(Collection<String> usernames, int maxParallelism, Executor executor,
+                                                 BiConsumer<String, BatchResult<TikTokUser>> consumer) {
+        return BatchUtility.forEach(usernames, username -> getUserAsync(username, executor), maxParallelism, consumer);
+    }
+
+    public TikTokVideo getVideo(String id) throws IOException {
+        return RequestUtility.join(getVideoAsync(id, Runnable::run));
+    }
+
+    /**
+     * Retrieve information about a Video without blocking the calling Thread.
+     * The API has no lookup by id, the Video is queried around the day of its creation, which is encoded in its id.
+     *
+     * @param id       The ID of the Video.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Video.
+     */
+    public CompletableFuture<TikTokVideo> getVideoAsync(String id, Executor executor) {
+        return videoFlight.execute(id, () -> requestVideo(id, executor), transport.getInstrumentation(), "research.video");
+    }
+
+    private CompletableFuture<TikTokVideo> requestVideo(String id, Executor executor) {
+        LocalDate created;
+
+        try {
+            created = getCreationDate(id);
+        } catch (NumberFormatException exception) {
+            return CompletableFuture.failedFuture(new MissingDataInfoException("Invalid Video ID " + id, exception));
         }
-        return null;
+
+        VideoQuery query = VideoQuery.builder().and("EQ", "video_id", id).startDate(created.minusDays(1)).endDate(created.plusDays(1)).pageSize(1).build();
+
+        return queryVideosPage(query, 0, null, executor).thenApply(page -> page.getVideos().stream()
+                .filter(video -> id.equals(video.getId()))
+                .findFirst()
+                .orElseThrow(() -> new MissingDataInfoException("Video not found")));
     }
 
-    public List<TikTokVideo> getVideos(String username) throws UnsupportedEncodingException {
-        checkAccessToken();
+    /**
+     * Get the day a Video has been created on, the upper 32 bits of its id are the creation time in seconds.
+     *
+     * @param id The ID of the Video.
+     * @return The day in UTC.
+     */
+    static LocalDate getCreationDate(String id) {
+        long seconds = Long.parseUnsignedLong(id) >>> 32;
+        return Instant.ofEpochSecond(seconds).atZone(ZoneOffset.UTC).toLocalDate();
+    }
 
-        JsonObject requestObject = getUserQueryObject(username);
+    public List<TikTokVideo> getVideos(String username) throws IOException {
+        return RequestUtility.join(getVideosAsync(username, Runnable::run));
+    }
 
-        RequestUtility.Request request = RequestUtility.Request.builder()
-                .url(BASE_URL + "/video/query/?fields=display_name,bio_description,avatar_url,is_verified,follower_count,following_count,likes_count,video_count")
-                .bearerAuth(access_token)
-                .body(requestObject.toString())
-                .POST()
-                .build();
+    /**
+     * Retrieve information about the videos a User posted in the last 30 days without blocking the calling Thread.
+     * Use {@link #streamVideos(VideoQuery)} for larger queries, this collects every page into one List.
+     *
+     * @param username The name of the user.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Videos.
+     */
+    public CompletableFuture<List<TikTokVideo>> getVideosAsync(String username, Executor executor) {
+        return videosFlight.execute(username, () -> requestVideos(username, executor), transport.getInstrumentation(), "research.videos");
+    }
+
+    private CompletableFuture<List<TikTokVideo>> requestVideos(String username, Executor executor) {
+        List<TikTokVideo> videos = new ArrayList<>();
+        return collectVideos(VideoQuery.byUsername(username, LocalDate.now().minusDays(30), LocalDate.now()), 0, null, videos, executor)
+                .thenApply(unused -> videos);
+    }
 
-        JsonElement jsonElement = RequestUtility.requestJson(request);
+    private CompletableFuture<Void> collectVideos(VideoQuery query, long cursor, String searchId, List<TikTokVideo> videos, Executor executor) {
+        return queryVideosPage(query, cursor, searchId, executor).thenCompose(page -> {
+            videos.addAll(page.getVideos());
 
-        if (!jsonElement.isJsonNull()) {
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            if (jsonObject.has("error") || (jsonObject.has("success") && !jsonObject.getAsJsonPrimitive("success").getAsBoolean())) {
-                throw new MissingDataInfoException("Couldn't get the Videos!");
+            if (!page.isHasMore() || page.getCursor() <= cursor) {
+                return CompletableFuture.completedFuture(null);
             }
 
-            return Collections.emptyList();
-        }
-        return Collections.emptyList();
+            return collectVideos(query, page.getCursor(), page.getSearchId(), videos, executor);
+        });
     }
 
-    private static JsonObject getUserQueryObject(String username) {
-        JsonObject requestObject = new JsonObject();
-        JsonObject queryObject = new JsonObject();
-        JsonArray andObject = new JsonArray();
-        JsonObject operationObject = new JsonObject();
+    /**
+     * Retrieve the Videos matching a Query, the pages are requested lazily while the Iterator is consumed.
+     *
+     * @param query The Query.
+     * @return An Iterator over the Videos, closing it cancels the page in flight.
+     */
+    public VideoQueryIterator queryVideos(VideoQuery query) {
+        return new VideoQueryIterator((cursor, searchId) -> queryVideosPage(query, cursor, searchId, Runnable::run));
+    }
 
-        JsonArray fieldValues = new JsonArray();
-        fieldValues.add(username);
+    /**
+     * Retrieve the Videos matching a Query, the pages are requested lazily while the Stream is consumed.
+     * Only the current and the next page are held in memory, no matter how many Videos match.
+     *
+     * @param query The Query.
+     * @return A sequential Stream over the Videos, closing it cancels the page in flight.
+     */
+    public Stream<TikTokVideo> streamVideos(VideoQuery query) {
+        VideoQueryIterator iterator = queryVideos(query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
 
-        operationObject.addProperty("operation", "EQ");
-        operationObject.addProperty("field_name", "username");
-        operationObject.add("field_values", fieldValues);
+    /**
+     * Retrieve the Videos matching a Query, its date range is split into windows which are walked in parallel.
+     *
+     * @param query  The Query.
+     * @param config The configuration of the windows.
+     * @return An Iterator over the Videos without duplicates, closing it cancels the pages in flight.
+     */
+    public ShardedVideoIterator queryVideos(VideoQuery query, ShardConfig config) {
+        return new ShardedVideoIterator(query, config, (window, cursor, searchId) -> queryVideosPage(window, cursor, searchId, Runnable::run));
+    }
 
-        andObject.add(operationObject);
-        queryObject.add("and", andObject);
+    /**
+     * Retrieve the Videos matching a Query, its date range is split into windows which are walked in parallel.
+     * At most one page per walked window is held in memory, plus the ids of the returned Videos.
+     *
+     * @param query  The Query.
+     * @param config The configuration of the windows.
+     * @return A sequential Stream over the Videos without duplicates, closing it cancels the pages in flight.
+     */
+    public Stream<TikTokVideo> streamVideos(VideoQuery query, ShardConfig config) {
+        ShardedVideoIterator iterator = queryVideos(query, config);
+        int characteristics = Spliterator.NONNULL | Spliterator.DISTINCT | (config.isOrdered() ? Spliterator.ORDERED : 0);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Retrieve a single page of a Query without blocking the calling Thread.
+     *
+     * @param query    The Query.
+     * @param cursor   The cursor of the page.
+     * @param searchId The search id returned by the first page, or null for the first page.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the page.
+     */
+    public CompletableFuture<VideoQueryPage> queryVideosPage(VideoQuery query, long cursor, String searchId, Executor executor) {
+        return tokenManager.getTokenAsync().thenCompose(token -> {
+            RequestUtility.Request request = RequestUtility.Request.builder()
+                    .url(apiUrl + "/research/video/query/?fields=" + query.getFields())
+                    .bearerAuth(token)
+                    .header(new String[]{"Content-Type", "application/json"})
+                    .body(query.toJson(cursor, searchId).toString())
+                    .POST()
+                    .build();
+
+            return transport.requestBytesAsync(request, policy);
+        }).thenApplyAsync(body -> bind(body, VideoQueryPage::fromResearch, "Videos"), executor);
+    }
+
+    /**
+     * Bind an entity from the raw body of a response.
+     *
+     * @param body   The body.
+     * @param binder The binder reading the entity.
+     * @param entity The name of the entity, used in the error message.
+     * @param <T>    The type of the entity.
+     * @return The entity.
+     */
+    private <T> T bind(byte[] body, JsonBinder<T> binder, String entity) {
+        long start = System.nanoTime();
 
-        requestObject.addProperty("query", username);
-        return requestObject;
+        try (JsonReader reader = JsonUtility.openReader(body)) {
+            T value = binder.bind(reader);
+            transport.getInstrumentation().recordStage(Stage.BINDING, "research", System.nanoTime() - start);
+            return value;
+        } catch (MissingDataInfoException exception) {
+            throw exception;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException exception) {
+            throw new MissingDataInfoException("Couldn't parse the " + entity + "!", exception);
+        } catch (IOException exception) {
+            throw new CompletionException(exception);
+        }
     }
 
 }
@@ -1,38 +1,73 @@
 package de.presti.wrapper.tiktok.repo;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import de.presti.wrapper.tiktok.cache.ResponseCache;
 import de.presti.wrapper.tiktok.entities.TikTokUser;
 import de.presti.wrapper.tiktok.entities.TikTokVideo;
-import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.routing.ScraperBackend;
 import de.presti.wrapper.tiktok.utility.RequestUtility;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
+import de.presti.wrapper.tiktok.utility.SingleFlight;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * The Scrapper to retrieve information from TikTok.
+ * It uses one shared {@link ScraperBackend}, build another one to use a different Url, Transport or Cache.
  */
 public class TikTokScrapper {
 
     /**
-     * The ID of the element which contains all the information.
+     * The shared Scraper, sending its Requests with the Transport of {@link RequestUtility}.
      */
-    static String elementId = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+    private static final ScraperBackend BACKEND = ScraperBackend.builder().build();
 
     /**
-     * The ID of the element which contains the list of videos.
+     * Get the shared Scraper.
+     *
+     * @return the {@link ScraperBackend}.
+     */
+    public static ScraperBackend getBackend() {
+        return BACKEND;
+    }
+
+    /**
+     * Get the Cache in front of the Website.
+     *
+     * @return the {@link ResponseCache}, null if every call goes to the network.
+     */
+    public static ResponseCache getResponseCache() {
+        return BACKEND.getResponseCache();
+    }
+
+    /**
+     * Change the Cache in front of the Website.
+     *
+     * @param responseCache the new Cache, null if every call should go to the network.
+     */
+    public static void setResponseCache(ResponseCache responseCache) {
+        BACKEND.setResponseCache(responseCache);
+    }
+
+    /**
+     * Get the deduplication of identical User lookups in flight.
+     *
+     * @return the {@link SingleFlight}.
      */
-    static String videoListElementId = "user-post-item-list";
+    public static SingleFlight<String, TikTokUser> getUserFlight() {
+        return BACKEND.getUserFlight();
+    }
 
     /**
-     * The Base Url of the TikTok Website.
+     * Get the deduplication of identical Video lookups in flight.
+     *
+     * @return the {@link SingleFlight}.
      */
-    static String baseUrl = "https://www.tiktok.com/";
+    public static SingleFlight<String, TikTokVideo> getVideoFlight() {
+        return BACKEND.getVideoFlight();
+    }
 
     /**
      * Retrieve information about a User.
@@ -43,11 +78,19 @@ public class TikTokScrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokUser getUser(String name, boolean parseVideos) throws IOException {
-        if (!name.startsWith("@")) {
-            name = "@" + name;
-        }
+        return RequestUtility.join(getUserAsync(name, parseVideos, Runnable::run));
+    }
 
-        return TikTokUser.fromScraper(parseElement(name), parseVideos);
+    /**
+     * Retrieve information about a User without blocking the calling Thread.
+     *
+     * @param name        The name of the user.
+     * @param parseVideos If the videos of the user should be loaded into the object (takes a lot of time if the users have a lot of them).
+     * @param executor    The Executor used to parse the response.
+     * @return A future with the User.
+     */
+    public static CompletableFuture<TikTokUser> getUserAsync(String name, boolean parseVideos, Executor executor) {
+        return BACKEND.getUser(name, parseVideos, executor);
     }
 
     /**
@@ -70,7 +113,19 @@ public class TikTokScrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokUser getUser(long id, boolean parseVideos) throws IOException {
-        return TikTokUser.fromScraper(parseElement("share/user/" + id), parseVideos);
+        return RequestUtility.join(getUserAsync(id, parseVideos, Runnable::run));
+    }
+
+    /**
+     * Retrieve information about a User without blocking the calling Thread.
+     *
+     * @param id          The ID of the user.
+     * @param parseVideos If the videos of the user should be loaded into the object (takes a lot of time, if the users has a lot of them).
+     * @param executor    The Executor used to parse the response.
+     * @return A future with the User.
+     */
+    public static CompletableFuture<TikTokUser> getUserAsync(long id, boolean parseVideos, Executor executor) {
+        return BACKEND.getUser(id, parseVideos, executor);
     }
 
     /**
@@ -85,27 +140,21 @@ public class TikTokScrapper {
     }
 
     public static List<TikTokVideo> getVideos(String name) throws IOException {
-        if (!name.startsWith("@")) {
-            name = "@" + name;
-        }
-
-        return parseVideos(name);
+        return RequestUtility.join(BACKEND.getVideos(name, Runnable::run));
     }
 
     public static List<TikTokVideo> getVideos(long id) throws IOException {
-        return parseVideos("share/user/" + id);
+        return RequestUtility.join(BACKEND.getVideos(id, Runnable::run));
     }
 
-    private static List<TikTokVideo> parseVideos(String path) throws IOException {
-        Connection connection = Jsoup.connect(baseUrl + path + "?lang=en");
-        Document document = connection.get();
-        Element data = document.getElementsByAttributeValue("data-e2e", videoListElementId).first();
-
-        if (data == null) {
-            throw new MissingDataInfoException("Page does not contain the " + videoListElementId + " element! Maybe updated their website? Open a Issue if this continues!");
-        }
-
-        return null;
+    /**
+     * Retrieve every Video a User posted, the pages are requested lazily while the Stream is consumed.
+     *
+     * @param name The name of the user.
+     * @return A sequential Stream over the Videos, closing it cancels the page in flight.
+     */
+    public static Stream<TikTokVideo> streamVideos(String name) {
+        return BACKEND.streamVideos(name, Runnable::run);
     }
 
     /**
@@ -117,11 +166,7 @@ public class TikTokScrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokVideo getVideo(String user, String id) throws IOException {
-        if (!user.startsWith("@")) {
-            user = "@" + user;
-        }
-
-        return TikTokVideo.fromScraper(parseElement(user + "/video/" + id));
+        return RequestUtility.join(BACKEND.getVideo(user, id, Runnable::run));
     }
 
     /**
@@ -132,46 +177,17 @@ public class TikTokScrapper {
      * @throws IOException If the connection to the website fails.
      */
     public static TikTokVideo getVideo(String id) throws IOException {
-        return TikTokVideo.fromScraper(parseElement("share/video/" + id));
+        return RequestUtility.join(getVideoAsync(id, Runnable::run));
     }
 
     /**
-     * Extract results from the Website into a JsonObject usable.
+     * Retrieve information about a Video without blocking the calling Thread.
      *
-     * @param path The path related to the wanted Object.
-     * @return The JsonObject.
+     * @param id       The ID of the video.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Video.
      */
-    private static JsonObject parseElement(String path) {
-        RequestUtility.Request request = RequestUtility.Request.builder()
-                .url(baseUrl + path + "?lang=en")
-                .GET()
-                .build();
-
-        Document document = RequestUtility.request(request);
-
-        if (document == null) {
-            throw new MissingDataInfoException("Couldn't retrieve the data from the website!");
-        }
-
-        Element data = document.getElementById(elementId);
-
-        if (data == null) {
-            throw new MissingDataInfoException("Page does not contain the " + elementId + " element! Maybe updated their website? Open a Issue if this continues!");
-        }
-
-        JsonObject jsonObject = JsonParser.parseString(data.data()).getAsJsonObject();
-
-        if (jsonObject.has("__DEFAULT_SCOPE__")) {
-            jsonObject = jsonObject.getAsJsonObject("__DEFAULT_SCOPE__");
-
-            // Remove unnecessary data
-            jsonObject.remove("webapp.app-context");
-            jsonObject.remove("webapp.biz-context");
-            jsonObject.remove("webapp.i18n-translation");
-            jsonObject.remove("webapp.a-b");
-            jsonObject.remove("seo.abtest");
-        }
-
-        return jsonObject;
+    public static CompletableFuture<TikTokVideo> getVideoAsync(String id, Executor executor) {
+        return BACKEND.getVideo(id, executor);
     }
 }
@@ -0,0 +1,77 @@
+package de.presti.wrapper.tiktok.research;
+
+import com.google.gson.stream.JsonReader;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+
+/**
+ * An Access Token of the Research API.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class AccessToken {
+
+    /**
+     * The Token itself.
+     */
+    @ToString.Exclude
+    String value;
+
+    /**
+     * The time the Token has been issued at, in milliseconds since the epoch.
+     */
+    long issuedAt;
+
+    /**
+     * The time the Token expires at, in milliseconds since the epoch.
+     */
+    long expiresAt;
+
+    /**
+     * Create a Token directly from the token stream of an oauth/token response.
+     *
+     * @param reader   the reader positioned before the response.
+     * @param issuedAt the time the Token has been requested at, in milliseconds since the epoch.
+     * @return the Token.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static AccessToken fromOAuth(JsonReader reader, long issuedAt) throws IOException {
+        String value = null;
+        long expiresIn = 0;
+        String error = null;
+        String errorDescription = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "access_token":
+                    value = JsonUtility.readString(reader, null);
+                    break;
+                case "expires_in":
+                    expiresIn = JsonUtility.readLong(reader, 0);
+                    break;
+                case "error":
+                    error = JsonUtility.readString(reader, null);
+                    break;
+                case "error_description":
+                    errorDescription = JsonUtility.readString(reader, "");
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (error != null || value == null || value.isEmpty()) {
+            throw new MissingDataInfoException("Couldn't get the Access Token! " + (error == null ? "" : error + ": " + errorDescription));
+        }
+
+        return new AccessToken(value, issuedAt, issuedAt + expiresIn * 1000);
+    }
+}
@@ -0,0 +1,185 @@
+package de.presti.wrapper.tiktok.research;
+
+import de.presti.wrapper.tiktok.utility.SingleFlight;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the Access Token of the Research API valid.
+ * Reading a valid Token never locks, at most one refresh is in flight and every caller needing a new Token waits for it.
+ * A Token close to its expiry is still handed out while a refresh runs in the background, so no Request has to wait
+ * for a refresh unless the Token already expired.
+ */
+@Slf4j
+public class AccessTokenManager {
+
+    /**
+     * Requests a new Access Token.
+     */
+    @FunctionalInterface
+    public interface TokenFetcher {
+
+        /**
+         * Request a new Token.
+         *
+         * @return a future with the Token.
+         */
+        CompletableFuture<AccessToken> fetch();
+    }
+
+    /**
+     * The time before the expiry a Token is refreshed at by default.
+     */
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofMinutes(5);
+
+    /**
+     * Requests the Tokens.
+     */
+    private final TokenFetcher fetcher;
+
+    /**
+     * The time before the expiry a Token is refreshed at, at most half of its lifetime.
+     */
+    @Getter
+    private final Duration refreshAhead;
+
+    /**
+     * The clock, in milliseconds since the epoch.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Coalesces the refreshes in flight.
+     */
+    private final SingleFlight<Boolean, AccessToken> refreshFlight = new SingleFlight<>();
+
+    /**
+     * The amount of Tokens received.
+     */
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /**
+     * The current Token, or null if none has been received yet.
+     */
+    private volatile AccessToken token;
+
+    /**
+     * Create a new Manager.
+     *
+     * @param fetcher requests the Tokens.
+     */
+    public AccessTokenManager(TokenFetcher fetcher) {
+        this(fetcher, DEFAULT_REFRESH_AHEAD, System::currentTimeMillis);
+    }
+
+    /**
+     * Create a new Manager.
+     *
+     * @param fetcher      requests the Tokens.
+     * @param refreshAhead the time before the expiry a Token is refreshed at.
+     * @param clock        the clock, in milliseconds since the epoch.
+     */
+    public AccessTokenManager(TokenFetcher fetcher, Duration refreshAhead, LongSupplier clock) {
+        this.fetcher = fetcher;
+        this.refreshAhead = refreshAhead;
+        this.clock = clock;
+    }
+
+    /**
+     * Get a valid Token.
+     * A valid Token is returned right away, an expired one waits for the refresh.
+     *
+     * @return a future with the Token.
+     */
+    public CompletableFuture<String> getTokenAsync() {
+        AccessToken current = token;
+        long now = clock.getAsLong();
+
+        if (current != null && now < current.getExpiresAt()) {
+            if (now >= refreshAt(current)) {
+                refresh(current).whenComplete((refreshed, throwable) -> {
+                    if (throwable != null) {
+                        log.warn("Couldn't refresh the Access Token ahead of its expiry!", throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                    }
+                });
+            }
+
+            return CompletableFuture.completedFuture(current.getValue());
+        }
+
+        return refresh(current).thenApply(AccessToken::getValue);
+    }
+
+    /**
+     * Request a new Token, or join the refresh already in flight.
+     *
+     * @return a future with the new Token.
+     */
+    public CompletableFuture<AccessToken> refresh() {
+        return refresh(token);
+    }
+
+    /**
+     * Replace a Token, or join the refresh already in flight.
+     *
+     * @param replaced the Token the caller saw.
+     * @return a future with the new Token.
+     */
+    private CompletableFuture<AccessToken> refresh(AccessToken replaced) {
+        return refreshFlight.execute(Boolean.TRUE, () -> {
+            // A refresh may have completed since the caller read the Token.
+            AccessToken latest = token;
+            if (latest != replaced && latest != null && clock.getAsLong() < refreshAt(latest)) {
+                return CompletableFuture.completedFuture(latest);
+            }
+
+            return fetcher.fetch().thenApply(refreshed -> {
+                token = refreshed;
+                refreshes.incrementAndGet();
+                return refreshed;
+            });
+        });
+    }
+
+    /**
+     * Drop the current Token, the next call requests a new one.
+     */
+    public void invalidate() {
+        token = null;
+    }
+
+    /**
+     * Get the time a Token is refreshed at, the configured time before its expiry but no earlier than half its lifetime.
+     *
+     * @param accessToken the Token.
+     * @return the time, in milliseconds since the epoch.
+     */
+    private long refreshAt(AccessToken accessToken) {
+        long lifetime = accessToken.getExpiresAt() - accessToken.getIssuedAt();
+        return accessToken.getExpiresAt() - Math.min(refreshAhead.toMillis(), lifetime / 2);
+    }
+
+    /**
+     * Get the current Token without refreshing it.
+     *
+     * @return the Token, or null if none has been received yet.
+     */
+    public AccessToken getToken() {
+        return token;
+    }
+
+    /**
+     * Get the amount of Tokens received.
+     *
+     * @return the amount of refreshes.
+     */
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+}
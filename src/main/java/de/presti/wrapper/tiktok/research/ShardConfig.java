@@ -0,0 +1,164 @@
+package de.presti.wrapper.tiktok.research;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The configuration of a sharded {@link VideoQuery}.
+ * The date range is split into windows which are walked in parallel, each with its own cursor.
+ */
+@Getter
+@ToString
+public class ShardConfig {
+
+    /**
+     * The amount of days per window before any adaptive split.
+     */
+    private final int windowDays;
+
+    /**
+     * The maximum amount of windows walked at the same time.
+     */
+    private final int parallelism;
+
+    /**
+     * If the Videos are returned in the order of their windows, instead of the order the pages arrive in.
+     */
+    private final boolean ordered;
+
+    /**
+     * If a dense window is split in half.
+     */
+    private final boolean adaptive;
+
+    /**
+     * The amount of pages after which a window which still has more pages is dense.
+     */
+    private final int splitPages;
+
+    private ShardConfig(ShardBuilder builder) {
+        this.windowDays = builder.windowDays;
+        this.parallelism = builder.parallelism;
+        this.ordered = builder.ordered;
+        this.adaptive = builder.adaptive;
+        this.splitPages = builder.splitPages;
+    }
+
+    /**
+     * Create a new Config builder.
+     *
+     * @return a new Config builder.
+     */
+    public static ShardBuilder builder() {
+        return new ShardBuilder();
+    }
+
+    /**
+     * Builder class for a ShardConfig.
+     */
+    public static class ShardBuilder {
+
+        /**
+         * The amount of days per window.
+         */
+        protected int windowDays = 7;
+
+        /**
+         * The maximum amount of windows walked at the same time.
+         */
+        protected int parallelism = 4;
+
+        /**
+         * If the Videos are returned in the order of their windows.
+         */
+        protected boolean ordered = true;
+
+        /**
+         * If dense windows are split in half.
+         */
+        protected boolean adaptive = true;
+
+        /**
+         * The amount of pages after which a window which still has more pages is dense.
+         */
+        protected int splitPages = 3;
+
+        /**
+         * Change the amount of days per window.
+         *
+         * @param windowDays the new amount, at least 1.
+         * @return the ShardBuilder.
+         */
+        public ShardBuilder windowDays(int windowDays) {
+            this.windowDays = windowDays;
+            return this;
+        }
+
+        /**
+         * Change the maximum amount of windows walked at the same time.
+         *
+         * @param parallelism the new maximum, at least 1.
+         * @return the ShardBuilder.
+         */
+        public ShardBuilder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Change if the Videos are returned in the order of their windows.
+         *
+         * @param ordered false, to return the Videos as soon as their page arrives.
+         * @return the ShardBuilder.
+         */
+        public ShardBuilder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Change if dense windows are split in half.
+         *
+         * @param adaptive true, to split windows which still have more pages after {@link #splitPages(int)} pages.
+         * @return the ShardBuilder.
+         */
+        public ShardBuilder adaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        /**
+         * Change the amount of pages after which a window which still has more pages is split.
+         * Every page received before the split is requested again by the halves, so a low amount costs Quota on
+         * windows which are only slightly larger than the amount.
+         *
+         * @param splitPages the new amount, at least 1.
+         * @return the ShardBuilder.
+         */
+        public ShardBuilder splitPages(int splitPages) {
+            this.splitPages = splitPages;
+            return this;
+        }
+
+        /**
+         * Build the Config.
+         *
+         * @return the Config.
+         */
+        public ShardConfig build() {
+            if (windowDays < 1) {
+                throw new IllegalStateException("A window has to span at least one day!");
+            }
+
+            if (parallelism < 1) {
+                throw new IllegalStateException("The parallelism has to be at least 1!");
+            }
+
+            if (splitPages < 1) {
+                throw new IllegalStateException("A window has to be walked for at least one page before it is split!");
+            }
+
+            return new ShardConfig(this);
+        }
+    }
+}
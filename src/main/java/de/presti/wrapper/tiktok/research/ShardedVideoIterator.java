@@ -0,0 +1,311 @@
+package de.presti.wrapper.tiktok.research;
+
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.utility.ConcurrencyLimiter;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Walks a {@link VideoQuery} split into date windows, several windows are walked in parallel with their own cursor.
+ * Every window holds at most one page in flight, so at most one page per active window is kept in memory.
+ * A window which still has more pages after {@link ShardConfig#getSplitPages()} pages is dense, the rest of it is walked
+ * as two halves instead, until the windows are a single day. The Videos of the pages received before the split are
+ * returned, the halves request them again and skip them as duplicates.
+ * Videos returned by more than one page are only returned once, which needs the ids of every returned Video.
+ * A failed page is thrown from {@link #hasNext()} as {@link UncheckedIOException} or {@link RuntimeException}.
+ */
+public class ShardedVideoIterator implements Iterator<TikTokVideo>, AutoCloseable {
+
+    /**
+     * Requests a page of a window.
+     */
+    @FunctionalInterface
+    public interface WindowFetcher {
+
+        /**
+         * Request a page.
+         *
+         * @param query    the Query of the window.
+         * @param cursor   the cursor of the page.
+         * @param searchId the search id returned by the first page, or null for the first page.
+         * @return a future with the page.
+         */
+        CompletableFuture<VideoQueryPage> fetch(VideoQuery query, long cursor, String searchId);
+    }
+
+    /**
+     * A window which is currently walked.
+     */
+    private static class Shard {
+
+        /**
+         * The Query of the window.
+         */
+        final VideoQuery query;
+
+        /**
+         * The page in flight.
+         */
+        CompletableFuture<VideoQueryPage> next;
+
+        /**
+         * The cursor of the page in flight.
+         */
+        long cursor;
+
+        /**
+         * The amount of pages received.
+         */
+        int pages;
+
+        Shard(VideoQuery query) {
+            this.query = query;
+        }
+
+        long days() {
+            return ChronoUnit.DAYS.between(query.getStartDate(), query.getEndDate()) + 1;
+        }
+    }
+
+    /**
+     * Requests the pages.
+     */
+    private final WindowFetcher fetcher;
+
+    /**
+     * The configuration.
+     */
+    private final ShardConfig config;
+
+    /**
+     * Limits the pages in flight to the parallelism.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * The windows which are not walked yet, in order.
+     */
+    private final Deque<VideoQuery> pending = new ArrayDeque<>();
+
+    /**
+     * The windows which are walked, in order.
+     */
+    private final List<Shard> active = new ArrayList<>();
+
+    /**
+     * The ids of the returned Videos.
+     */
+    private final Set<String> seen = new HashSet<>();
+
+    /**
+     * The Videos of the current page.
+     */
+    private Iterator<TikTokVideo> current = Collections.emptyIterator();
+
+    /**
+     * The next Video, already checked against the returned ids.
+     */
+    private TikTokVideo upcoming;
+
+    /**
+     * The amount of pages received.
+     */
+    private int pages;
+
+    /**
+     * The amount of windows split in half.
+     */
+    private int splits;
+
+    /**
+     * The amount of Videos skipped as duplicates.
+     */
+    private int duplicates;
+
+    /**
+     * Create a new Iterator, the first windows are requested right away.
+     *
+     * @param query   the Query, its date range is split into windows.
+     * @param config  the configuration.
+     * @param fetcher requests the pages.
+     */
+    public ShardedVideoIterator(VideoQuery query, ShardConfig config, WindowFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.config = config;
+        this.limiter = new ConcurrencyLimiter(config.getParallelism());
+
+        for (LocalDate start = query.getStartDate(); !start.isAfter(query.getEndDate()); start = start.plusDays(config.getWindowDays())) {
+            LocalDate end = start.plusDays(config.getWindowDays() - 1L);
+            pending.add(query.withDates(start, end.isAfter(query.getEndDate()) ? query.getEndDate() : end));
+        }
+
+        fill();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (upcoming == null) {
+            while (!current.hasNext()) {
+                if (!advance()) return false;
+            }
+
+            TikTokVideo video = current.next();
+
+            if (video.getId() == null || seen.add(video.getId())) {
+                upcoming = video;
+            } else {
+                duplicates++;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public TikTokVideo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        TikTokVideo video = upcoming;
+        upcoming = null;
+        return video;
+    }
+
+    /**
+     * Wait for the next page and make it the current one.
+     *
+     * @return false, if every window has been walked.
+     */
+    private boolean advance() {
+        fill();
+
+        if (active.isEmpty()) return false;
+
+        int index = config.isOrdered() ? 0 : awaitAny();
+        Shard shard = active.get(index);
+        VideoQueryPage page;
+
+        try {
+            page = RequestUtility.join(shard.next);
+        } catch (IOException exception) {
+            close();
+            throw new UncheckedIOException(exception);
+        } catch (RuntimeException exception) {
+            close();
+            throw exception;
+        }
+
+        pages++;
+        shard.pages++;
+        current = page.getVideos().iterator();
+
+        // A cursor which does not advance would request the same page forever.
+        boolean hasMore = page.isHasMore() && page.getCursor() > shard.cursor;
+
+        if (hasMore && config.isAdaptive() && shard.pages >= config.getSplitPages() && shard.days() > 1) {
+            LocalDate start = shard.query.getStartDate();
+            LocalDate middle = start.plusDays(shard.days() / 2 - 1);
+
+            active.set(index, start(shard.query.withDates(start, middle)));
+            active.add(index + 1, start(shard.query.withDates(middle.plusDays(1), shard.query.getEndDate())));
+            splits++;
+        } else if (hasMore) {
+            shard.cursor = page.getCursor();
+            shard.next = request(shard.query, shard.cursor, page.getSearchId());
+        } else {
+            active.remove(index);
+        }
+
+        return true;
+    }
+
+    /**
+     * Wait until any window has received its page.
+     *
+     * @return the index of the window.
+     */
+    private int awaitAny() {
+        while (true) {
+            for (int i = 0; i < active.size(); i++) {
+                if (active.get(i).next.isDone()) return i;
+            }
+
+            CompletableFuture.anyOf(active.stream().map(shard -> shard.next).toArray(CompletableFuture[]::new))
+                    .handle((value, throwable) -> null)
+                    .join();
+        }
+    }
+
+    /**
+     * Start pending windows while fewer windows than the parallelism are walked.
+     */
+    private void fill() {
+        while (active.size() < config.getParallelism() && !pending.isEmpty()) {
+            active.add(start(pending.poll()));
+        }
+    }
+
+    private Shard start(VideoQuery query) {
+        Shard shard = new Shard(query);
+        shard.next = request(query, 0, null);
+        return shard;
+    }
+
+    private CompletableFuture<VideoQueryPage> request(VideoQuery query, long cursor, String searchId) {
+        return limiter.submit(() -> fetcher.fetch(query, cursor, searchId));
+    }
+
+    /**
+     * Get the amount of pages received so far.
+     *
+     * @return the amount of pages.
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * Get the amount of windows split in half so far.
+     *
+     * @return the amount of splits.
+     */
+    public int getSplits() {
+        return splits;
+    }
+
+    /**
+     * Get the amount of Videos skipped as duplicates so far.
+     *
+     * @return the amount of duplicates.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Stop walking the windows, the pages in flight are cancelled.
+     */
+    @Override
+    public void close() {
+        active.forEach(shard -> shard.next.cancel(true));
+        active.clear();
+        pending.clear();
+        current = Collections.emptyIterator();
+        upcoming = null;
+    }
+}
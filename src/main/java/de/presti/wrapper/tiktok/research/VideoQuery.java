@@ -0,0 +1,327 @@
+package de.presti.wrapper.tiktok.research;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A query of the Research API video/query endpoint.
+ * The conditions are grouped into and, or and not clauses, the date range is inclusive on both ends.
+ */
+@Getter
+@ToString
+public class VideoQuery {
+
+    /**
+     * The fields requested by default, every field the Video binding reads.
+     */
+    public static final String DEFAULT_FIELDS = "id,video_description,create_time,region_code,share_count,view_count,like_count,comment_count,username,video_duration";
+
+    /**
+     * The maximum amount of Videos the Research API returns per page.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    /**
+     * Conditions which all have to match.
+     */
+    private final List<Condition> and;
+
+    /**
+     * Conditions of which at least one has to match.
+     */
+    private final List<Condition> or;
+
+    /**
+     * Conditions which must not match.
+     */
+    private final List<Condition> not;
+
+    /**
+     * The first day of the query.
+     */
+    private final LocalDate startDate;
+
+    /**
+     * The last day of the query.
+     */
+    private final LocalDate endDate;
+
+    /**
+     * The amount of Videos per page.
+     */
+    private final int pageSize;
+
+    /**
+     * The requested fields.
+     */
+    private final String fields;
+
+    private VideoQuery(List<Condition> and, List<Condition> or, List<Condition> not, LocalDate startDate, LocalDate endDate, int pageSize, String fields) {
+        this.and = and;
+        this.or = or;
+        this.not = not;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.pageSize = pageSize;
+        this.fields = fields;
+    }
+
+    /**
+     * Create a new Query builder.
+     *
+     * @return a new Query builder.
+     */
+    public static QueryBuilder builder() {
+        return new QueryBuilder();
+    }
+
+    /**
+     * Create a Query for the Videos of a User.
+     *
+     * @param username  the name of the User.
+     * @param startDate the first day.
+     * @param endDate   the last day.
+     * @return the Query.
+     */
+    public static VideoQuery byUsername(String username, LocalDate startDate, LocalDate endDate) {
+        return builder().and("EQ", "username", username).startDate(startDate).endDate(endDate).build();
+    }
+
+    /**
+     * Create a copy of this Query with another date range.
+     *
+     * @param startDate the first day.
+     * @param endDate   the last day.
+     * @return the Query.
+     */
+    public VideoQuery withDates(LocalDate startDate, LocalDate endDate) {
+        return new VideoQuery(and, or, not, startDate, endDate, pageSize, fields);
+    }
+
+    /**
+     * Create the body of a Request for a page of this Query.
+     *
+     * @param cursor   the cursor of the page.
+     * @param searchId the search id returned by the first page, or null for the first page.
+     * @return the body.
+     */
+    public JsonObject toJson(long cursor, String searchId) {
+        JsonObject queryObject = new JsonObject();
+        addConditions(queryObject, "and", and);
+        addConditions(queryObject, "or", or);
+        addConditions(queryObject, "not", not);
+
+        JsonObject requestObject = new JsonObject();
+        requestObject.add("query", queryObject);
+        requestObject.addProperty("start_date", DATE_FORMAT.format(startDate));
+        requestObject.addProperty("end_date", DATE_FORMAT.format(endDate));
+        requestObject.addProperty("max_count", pageSize);
+        requestObject.addProperty("cursor", cursor);
+
+        if (searchId != null) {
+            requestObject.addProperty("search_id", searchId);
+        }
+
+        return requestObject;
+    }
+
+    private static void addConditions(JsonObject queryObject, String clause, List<Condition> conditions) {
+        if (conditions.isEmpty()) return;
+
+        JsonArray clauseArray = new JsonArray();
+
+        for (Condition condition : conditions) {
+            JsonArray fieldValues = new JsonArray();
+            condition.getValues().forEach(fieldValues::add);
+
+            JsonObject operationObject = new JsonObject();
+            operationObject.addProperty("operation", condition.getOperation());
+            operationObject.addProperty("field_name", condition.getField());
+            operationObject.add("field_values", fieldValues);
+
+            clauseArray.add(operationObject);
+        }
+
+        queryObject.add(clause, clauseArray);
+    }
+
+    /**
+     * A single condition of a Query.
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Condition {
+
+        /**
+         * The operation, e.g. EQ, IN, GT or LT.
+         */
+        String operation;
+
+        /**
+         * The name of the field, e.g. username, hashtag_name or region_code.
+         */
+        String field;
+
+        /**
+         * The values to compare with.
+         */
+        List<String> values;
+    }
+
+    /**
+     * Builder class for a VideoQuery.
+     */
+    public static class QueryBuilder {
+
+        /**
+         * Conditions which all have to match.
+         */
+        protected final List<Condition> and = new ArrayList<>();
+
+        /**
+         * Conditions of which at least one has to match.
+         */
+        protected final List<Condition> or = new ArrayList<>();
+
+        /**
+         * Conditions which must not match.
+         */
+        protected final List<Condition> not = new ArrayList<>();
+
+        /**
+         * The first day of the Query, 30 days before the last day by default.
+         */
+        protected LocalDate startDate;
+
+        /**
+         * The last day of the Query, today by default.
+         */
+        protected LocalDate endDate;
+
+        /**
+         * The amount of Videos per page.
+         */
+        protected int pageSize = MAX_PAGE_SIZE;
+
+        /**
+         * The requested fields.
+         */
+        protected String fields = DEFAULT_FIELDS;
+
+        /**
+         * Add a condition which has to match.
+         *
+         * @param operation the operation.
+         * @param field     the name of the field.
+         * @param values    the values to compare with.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder and(String operation, String field, String... values) {
+            and.add(new Condition(operation, field, List.of(values)));
+            return this;
+        }
+
+        /**
+         * Add a condition of which at least one has to match.
+         *
+         * @param operation the operation.
+         * @param field     the name of the field.
+         * @param values    the values to compare with.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder or(String operation, String field, String... values) {
+            or.add(new Condition(operation, field, List.of(values)));
+            return this;
+        }
+
+        /**
+         * Add a condition which must not match.
+         *
+         * @param operation the operation.
+         * @param field     the name of the field.
+         * @param values    the values to compare with.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder not(String operation, String field, String... values) {
+            not.add(new Condition(operation, field, List.of(values)));
+            return this;
+        }
+
+        /**
+         * Change the first day of the Query.
+         *
+         * @param startDate the first day.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder startDate(LocalDate startDate) {
+            this.startDate = startDate;
+            return this;
+        }
+
+        /**
+         * Change the last day of the Query.
+         *
+         * @param endDate the last day.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder endDate(LocalDate endDate) {
+            this.endDate = endDate;
+            return this;
+        }
+
+        /**
+         * Change the amount of Videos per page.
+         *
+         * @param pageSize the amount, at most {@link #MAX_PAGE_SIZE}.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Change the requested fields.
+         *
+         * @param fields the comma separated fields.
+         * @return the QueryBuilder.
+         */
+        public QueryBuilder fields(String fields) {
+            this.fields = fields;
+            return this;
+        }
+
+        /**
+         * Build the Query.
+         *
+         * @return the Query.
+         */
+        public VideoQuery build() {
+            if (and.isEmpty() && or.isEmpty()) {
+                throw new IllegalStateException("A Query needs at least one and or or condition!");
+            }
+
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalStateException("The page size has to be between 1 and " + MAX_PAGE_SIZE + "!");
+            }
+
+            LocalDate end = endDate == null ? LocalDate.now() : endDate;
+            LocalDate start = startDate == null ? end.minusDays(30) : startDate;
+
+            return new VideoQuery(Collections.unmodifiableList(new ArrayList<>(and)), Collections.unmodifiableList(new ArrayList<>(or)),
+                    Collections.unmodifiableList(new ArrayList<>(not)), start, end, pageSize, fields);
+        }
+    }
+}
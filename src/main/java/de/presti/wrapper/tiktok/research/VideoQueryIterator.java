@@ -0,0 +1,134 @@
+package de.presti.wrapper.tiktok.research;
+
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Walks the pages of a {@link VideoQuery} lazily, following the cursor and search id.
+ * The next page is requested while the current one is consumed, so at most two pages are held in memory.
+ * A failed page is thrown from {@link #hasNext()} as {@link UncheckedIOException} or {@link RuntimeException}.
+ */
+public class VideoQueryIterator implements Iterator<TikTokVideo>, AutoCloseable {
+
+    /**
+     * Requests a page of a Query.
+     */
+    @FunctionalInterface
+    public interface PageFetcher {
+
+        /**
+         * Request a page.
+         *
+         * @param cursor   the cursor of the page.
+         * @param searchId the search id returned by the first page, or null for the first page.
+         * @return a future with the page.
+         */
+        CompletableFuture<VideoQueryPage> fetch(long cursor, String searchId);
+    }
+
+    /**
+     * Requests the pages.
+     */
+    private final PageFetcher fetcher;
+
+    /**
+     * The Videos of the current page.
+     */
+    private Iterator<TikTokVideo> current = Collections.emptyIterator();
+
+    /**
+     * The next page in flight, or null if there is none.
+     */
+    private CompletableFuture<VideoQueryPage> next;
+
+    /**
+     * The cursor of the page in flight.
+     */
+    private long nextCursor;
+
+    /**
+     * The amount of pages received.
+     */
+    private int pages;
+
+    /**
+     * Create a new Iterator, the first page is requested right away.
+     *
+     * @param fetcher requests the pages.
+     */
+    public VideoQueryIterator(PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.next = fetcher.fetch(0, null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (next == null) return false;
+
+            VideoQueryPage page;
+
+            try {
+                page = RequestUtility.join(next);
+            } catch (IOException exception) {
+                next = null;
+                throw new UncheckedIOException(exception);
+            } catch (RuntimeException exception) {
+                next = null;
+                throw exception;
+            }
+
+            pages++;
+
+            // A cursor which does not advance would request the same page forever.
+            if (page.isHasMore() && page.getCursor() > nextCursor) {
+                nextCursor = page.getCursor();
+                next = fetcher.fetch(nextCursor, page.getSearchId());
+            } else {
+                next = null;
+            }
+
+            current = page.getVideos().iterator();
+        }
+
+        return true;
+    }
+
+    @Override
+    public TikTokVideo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    /**
+     * Get the amount of pages received so far.
+     *
+     * @return the amount of pages.
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * Stop walking the pages, the page in flight is cancelled.
+     */
+    @Override
+    public void close() {
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+
+        current = Collections.emptyIterator();
+    }
+}
@@ -0,0 +1,120 @@
+package de.presti.wrapper.tiktok.research;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of the results of a {@link VideoQuery}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class VideoQueryPage {
+
+    /**
+     * The Videos of the page.
+     */
+    List<TikTokVideo> videos;
+
+    /**
+     * The cursor of the next page.
+     */
+    long cursor;
+
+    /**
+     * If there are more pages.
+     */
+    boolean hasMore;
+
+    /**
+     * The id of the search, needed to request the next pages.
+     */
+    String searchId;
+
+    /**
+     * Create a page directly from the token stream of a video/query response.
+     *
+     * @param reader the reader positioned before the response.
+     * @return the page.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static VideoQueryPage fromResearch(JsonReader reader) throws IOException {
+        List<TikTokVideo> videos = new ArrayList<>();
+        long cursor = 0;
+        boolean hasMore = false;
+        String searchId = null;
+        String errorCode = "ok";
+        String errorMessage = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "videos":
+                            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                                reader.skipValue();
+                                break;
+                            }
+
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                videos.add(TikTokVideo.fromResearch(reader));
+                            }
+                            reader.endArray();
+                            break;
+                        case "cursor":
+                            cursor = JsonUtility.readLong(reader, 0);
+                            break;
+                        case "has_more":
+                            hasMore = JsonUtility.readBoolean(reader);
+                            break;
+                        case "search_id":
+                            searchId = JsonUtility.readString(reader, null);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (name.equals("error") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "code":
+                            errorCode = JsonUtility.readString(reader, "ok");
+                            break;
+                        case "message":
+                            errorMessage = JsonUtility.readString(reader, "");
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!errorCode.equals("ok")) {
+            throw new MissingDataInfoException("Couldn't query the Videos! " + errorCode + ": " + errorMessage);
+        }
+
+        return new VideoQueryPage(videos, cursor, hasMore, searchId);
+    }
+}
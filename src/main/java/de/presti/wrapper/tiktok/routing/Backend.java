@@ -0,0 +1,93 @@
+package de.presti.wrapper.tiktok.routing;
+
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokUserStats;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A source of Users and Videos, e.g. the Website or the Research API.
+ * Every call must fail with {@link de.presti.wrapper.tiktok.exceptions.MissingDataInfoException} or an
+ * {@link java.io.IOException} if the backend couldn't answer it, so the {@link BackendRouter} can fail over.
+ */
+public interface Backend {
+
+    /**
+     * Get the name of the backend, used in the stats and logs.
+     *
+     * @return the name.
+     */
+    String getName();
+
+    /**
+     * Retrieve information about a User.
+     *
+     * @param name        The name of the user.
+     * @param parseVideos If the videos of the user should be loaded into the object.
+     * @param executor    The Executor used to parse the response.
+     * @return A future with the User.
+     */
+    CompletableFuture<TikTokUser> getUser(String name, boolean parseVideos, Executor executor);
+
+    /**
+     * Retrieve information about a User.
+     *
+     * @param id          The ID of the user.
+     * @param parseVideos If the videos of the user should be loaded into the object.
+     * @param executor    The Executor used to parse the response.
+     * @return A future with the User.
+     */
+    CompletableFuture<TikTokUser> getUser(long id, boolean parseVideos, Executor executor);
+
+    /**
+     * Retrieve only the counters of a User, e.g. to refresh a previous snapshot.
+     * Backends which can not read the counters on their own retrieve the whole User.
+     *
+     * @param name       The name of the user.
+     * @param videoStats If the counters of the videos of the user should be loaded as well.
+     * @param executor   The Executor used to parse the response.
+     * @return A future with the counters.
+     */
+    default CompletableFuture<TikTokUserStats> getUserStats(String name, boolean videoStats, Executor executor) {
+        return getUser(name, videoStats, executor).thenApply(TikTokUserStats::of);
+    }
+
+    /**
+     * Retrieve information about a Video.
+     *
+     * @param id       The ID of the Video.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Video.
+     */
+    CompletableFuture<TikTokVideo> getVideo(String id, Executor executor);
+
+    /**
+     * Retrieve information about the videos of a User.
+     *
+     * @param username The Name of the User.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Videos.
+     */
+    CompletableFuture<List<TikTokVideo>> getVideos(String username, Executor executor);
+
+    /**
+     * Retrieve information about the videos of a User.
+     *
+     * @param id       The ID of the User.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Videos.
+     */
+    CompletableFuture<List<TikTokVideo>> getVideos(long id, Executor executor);
+
+    /**
+     * Get the Requests this backend has left until its quota resets.
+     *
+     * @return the amount, or -1 if it is unknown or there is no quota.
+     */
+    default long getRemainingQuota() {
+        return -1;
+    }
+}
@@ -0,0 +1,93 @@
+package de.presti.wrapper.tiktok.routing;
+
+import de.presti.wrapper.tiktok.utility.LatencyWindow;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the latency and errors of a {@link Backend}.
+ */
+class BackendHealth {
+
+    /**
+     * The weight of a new call in the error rate.
+     */
+    private static final double ERROR_WEIGHT = 0.1;
+
+    /**
+     * The time after which the error rate halves while no calls are sent, so a failed backend is tried again.
+     */
+    private static final long ERROR_HALF_LIFE = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * The tracked backend.
+     */
+    @Getter
+    private final Backend backend;
+
+    /**
+     * The latencies of the recent successful calls.
+     */
+    @Getter
+    private final LatencyWindow latencies = new LatencyWindow();
+
+    private long calls;
+    private long failures;
+    private double errorRate;
+    private long errorUpdated = System.nanoTime();
+
+    BackendHealth(Backend backend) {
+        this.backend = backend;
+    }
+
+    synchronized void onSuccess(long nanos) {
+        latencies.record(nanos);
+        calls++;
+        updateErrorRate(0);
+    }
+
+    synchronized void onFailure() {
+        calls++;
+        failures++;
+        updateErrorRate(1);
+    }
+
+    private void updateErrorRate(double sample) {
+        errorRate = getErrorRate() * (1 - ERROR_WEIGHT) + sample * ERROR_WEIGHT;
+        errorUpdated = System.nanoTime();
+    }
+
+    /**
+     * Get the error rate, decayed by the time since the last call.
+     *
+     * @return the error rate between 0 and 1.
+     */
+    synchronized double getErrorRate() {
+        double halfLives = (double) (System.nanoTime() - errorUpdated) / ERROR_HALF_LIFE;
+        return errorRate * Math.pow(0.5, halfLives);
+    }
+
+    /**
+     * Get the score of the backend, lower is healthier.
+     * A backend without a known latency scores 0, so new backends are tried first.
+     *
+     * @return the score.
+     */
+    double getScore() {
+        if (backend.getRemainingQuota() == 0) return Double.MAX_VALUE;
+
+        Duration median = latencies.getPercentile(0.5);
+        double latency = median == null ? 0 : median.toNanos();
+        double error = getErrorRate();
+
+        // An error costs as much as a slow call, so a fast but failing backend loses against a slow but working one.
+        return (latency + TimeUnit.SECONDS.toNanos(1) * error) * (1 + 4 * error);
+    }
+
+    synchronized BackendStats getStats() {
+        return new BackendStats(backend.getName(), calls, failures, getErrorRate(), latencies.getPercentile(0.5),
+                latencies.getPercentile(0.95), latencies.getPercentile(0.99), backend.getRemainingQuota());
+    }
+}
@@ -0,0 +1,327 @@
+package de.presti.wrapper.tiktok.routing;
+
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.throttle.HedgeBudget;
+import de.presti.wrapper.tiktok.throttle.HedgeStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends every call to the currently healthiest {@link Backend} and fails over to the next one if it couldn't answer.
+ * The backends are ranked by their recent median latency and error rate, a backend without quota left is tried last.
+ * Optionally a call still running after a percentile of the recent latency of its backend is hedged: the next backend
+ * is called as well, the first answer is used and the other call is cancelled. The hedges are paid from a {@link HedgeBudget}.
+ */
+@Slf4j
+public class BackendRouter {
+
+    /**
+     * The backends, in the order they have been added.
+     */
+    private final List<BackendHealth> backends;
+
+    /**
+     * The latency percentile after which a call is hedged, or 0 to never hedge.
+     */
+    private final double hedgePercentile;
+
+    /**
+     * The minimum amount of samples before a call of a backend is hedged.
+     */
+    private final int hedgeMinSamples;
+
+    /**
+     * Sends the calls of the next backend and pays for the hedges.
+     */
+    private final HedgeBudget hedgeBudget;
+
+    private final AtomicLong failovers = new AtomicLong();
+
+    private BackendRouter(RouterBuilder builder) {
+        this.backends = builder.backends.stream().map(BackendHealth::new).collect(Collectors.toList());
+        this.hedgePercentile = builder.hedgePercentile;
+        this.hedgeMinSamples = builder.hedgeMinSamples;
+        this.hedgeBudget = new HedgeBudget(builder.hedgeMaxRatio, builder.hedgeMaxBurst);
+    }
+
+    /**
+     * Create a new Router builder.
+     *
+     * @return a new Router builder.
+     */
+    public static RouterBuilder builder() {
+        return new RouterBuilder();
+    }
+
+    /**
+     * Send a call to the healthiest backend, failing over to the others.
+     *
+     * @param call the call, invoked with the chosen backend.
+     * @param <T>  the type of the result.
+     * @return a future with the first successful result, or the failure of the last backend.
+     */
+    public <T> CompletableFuture<T> execute(Function<Backend, CompletableFuture<T>> call) {
+        return attempt(rank(), 0, call);
+    }
+
+    /**
+     * Get the backends ordered from the healthiest to the least healthy.
+     *
+     * @return the ranked backends.
+     */
+    public List<Backend> getRanking() {
+        return rank().stream().map(BackendHealth::getBackend).collect(Collectors.toList());
+    }
+
+    private List<BackendHealth> rank() {
+        // The scores change while calls complete, they are read once so the sort sees a consistent order.
+        double[] scores = new double[backends.size()];
+        Integer[] order = new Integer[backends.size()];
+
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = backends.get(i).getScore();
+            order[i] = i;
+        }
+
+        // The sort is stable, so backends with the same score keep the order they have been added in.
+        Arrays.sort(order, Comparator.comparingDouble(i -> scores[i]));
+
+        List<BackendHealth> ranked = new ArrayList<>(order.length);
+        for (int i : order) {
+            ranked.add(backends.get(i));
+        }
+
+        return ranked;
+    }
+
+    private <T> CompletableFuture<T> attempt(List<BackendHealth> ranked, int index, Function<Backend, CompletableFuture<T>> call) {
+        BackendHealth health = ranked.get(index);
+
+        if (index + 1 == ranked.size()) return invoke(health, call);
+
+        return hedgeBudget.execute(() -> invoke(health, call), getHedgeDelay(health), cause -> {
+            if (!isFailover(cause)) return false;
+
+            failovers.incrementAndGet();
+            log.debug("Backend {} failed, failing over.", health.getBackend().getName(), cause);
+            return true;
+        }, () -> attempt(ranked, index + 1, call));
+    }
+
+    private <T> CompletableFuture<T> invoke(BackendHealth health, Function<Backend, CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+
+        try {
+            future = call.apply(health.getBackend());
+        } catch (RuntimeException exception) {
+            future = CompletableFuture.failedFuture(exception);
+        }
+
+        future.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                health.onSuccess(System.nanoTime() - start);
+            } else if (!(unwrap(throwable) instanceof CancellationException)) {
+                health.onFailure();
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Get the time after which a call of a backend is hedged.
+     *
+     * @param health the backend.
+     * @return the delay, or null if the call is not hedged.
+     */
+    private Duration getHedgeDelay(BackendHealth health) {
+        if (hedgePercentile <= 0 || health.getLatencies().getCount() < hedgeMinSamples) return null;
+
+        return health.getLatencies().getPercentile(hedgePercentile);
+    }
+
+    /**
+     * Check if a failure means the backend couldn't answer, instead of a bug in the call.
+     *
+     * @param cause the failure.
+     * @return true, if the next backend should be tried.
+     */
+    static boolean isFailover(Throwable cause) {
+        return cause instanceof MissingDataInfoException || cause instanceof IOException || cause instanceof UncheckedIOException;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * Get the health of every backend.
+     *
+     * @return the {@link BackendStats}, in the order the backends have been added.
+     */
+    public List<BackendStats> getStats() {
+        return Collections.unmodifiableList(backends.stream().map(BackendHealth::getStats).collect(Collectors.toList()));
+    }
+
+    /**
+     * Get the amount of calls which failed over to another backend.
+     *
+     * @return the amount of failovers.
+     */
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+    /**
+     * Get the amount of calls which have been hedged.
+     *
+     * @return the amount of hedges.
+     */
+    public long getHedges() {
+        return hedgeBudget.getStats().getHedges();
+    }
+
+    /**
+     * Get the amount of hedged calls answered by the hedge first.
+     *
+     * @return the amount of won hedges.
+     */
+    public long getHedgeWins() {
+        return hedgeBudget.getStats().getWins();
+    }
+
+    /**
+     * Get the counters of the hedges and failovers paid from the hedge budget.
+     *
+     * @return the {@link HedgeStats}.
+     */
+    public HedgeStats getHedgeStats() {
+        return hedgeBudget.getStats();
+    }
+
+    /**
+     * Builder class for a BackendRouter.
+     */
+    public static class RouterBuilder {
+
+        /**
+         * The backends, ties in health are broken by this order.
+         */
+        protected final List<Backend> backends = new ArrayList<>();
+
+        /**
+         * The latency percentile after which a call is hedged, or 0 to never hedge.
+         */
+        protected double hedgePercentile = 0;
+
+        /**
+         * The minimum amount of samples before a call of a backend is hedged.
+         */
+        protected int hedgeMinSamples = 20;
+
+        /**
+         * The maximum share of calls which are hedged.
+         */
+        protected double hedgeMaxRatio = 0.05;
+
+        /**
+         * The maximum amount of hedges the budget can save up.
+         */
+        protected double hedgeMaxBurst = 10;
+
+        /**
+         * Add a backend.
+         *
+         * @param backend the backend.
+         * @return the RouterBuilder.
+         */
+        public RouterBuilder backend(Backend backend) {
+            backends.add(backend);
+            return this;
+        }
+
+        /**
+         * Hedge calls still running after a percentile of the recent latency of their backend.
+         *
+         * @param hedgePercentile the percentile between 0 and 1, e.g. 0.95, or 0 to never hedge.
+         * @return the RouterBuilder.
+         */
+        public RouterBuilder hedgePercentile(double hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /**
+         * Change the minimum amount of samples before a call of a backend is hedged.
+         *
+         * @param hedgeMinSamples the new minimum.
+         * @return the RouterBuilder.
+         */
+        public RouterBuilder hedgeMinSamples(int hedgeMinSamples) {
+            this.hedgeMinSamples = hedgeMinSamples;
+            return this;
+        }
+
+        /**
+         * Change the maximum share of calls which are hedged.
+         *
+         * @param hedgeMaxRatio the share between 0 and 1, e.g. 0.05 for at most 5% extra calls.
+         * @return the RouterBuilder.
+         */
+        public RouterBuilder hedgeMaxRatio(double hedgeMaxRatio) {
+            this.hedgeMaxRatio = hedgeMaxRatio;
+            return this;
+        }
+
+        /**
+         * Change the maximum amount of hedges the budget can save up.
+         *
+         * @param hedgeMaxBurst the new maximum, at least 1.
+         * @return the RouterBuilder.
+         */
+        public RouterBuilder hedgeMaxBurst(double hedgeMaxBurst) {
+            this.hedgeMaxBurst = hedgeMaxBurst;
+            return this;
+        }
+
+        /**
+         * Build the Router.
+         *
+         * @return the Router.
+         */
+        public BackendRouter build() {
+            if (backends.isEmpty()) {
+                throw new IllegalStateException("A Router needs at least one backend!");
+            }
+
+            if (hedgePercentile < 0 || hedgePercentile > 1) {
+                throw new IllegalStateException("The hedge percentile has to be between 0 and 1!");
+            }
+
+            if (hedgeMaxRatio <= 0 || hedgeMaxRatio > 1) {
+                throw new IllegalStateException("The hedge ratio has to be between 0 and 1!");
+            }
+
+            if (hedgeMaxBurst < 1) {
+                throw new IllegalStateException("The hedge burst has to be at least 1!");
+            }
+
+            return new BackendRouter(this);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.presti.wrapper.tiktok.routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * The health of a {@link Backend} as seen by the {@link BackendRouter}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BackendStats {
+
+    /**
+     * The name of the backend.
+     */
+    String name;
+
+    /**
+     * The amount of calls sent to the backend.
+     */
+    long calls;
+
+    /**
+     * The amount of calls which failed.
+     */
+    long failures;
+
+    /**
+     * The recent error rate, between 0 and 1, it decays while no calls are sent.
+     */
+    double errorRate;
+
+    /**
+     * The median latency of the recent successful calls, or null if there were none.
+     */
+    Duration p50;
+
+    /**
+     * The 95th percentile latency of the recent successful calls, or null if there were none.
+     */
+    Duration p95;
+
+    /**
+     * The 99th percentile latency of the recent successful calls, or null if there were none.
+     */
+    Duration p99;
+
+    /**
+     * The Requests left until the quota resets, or -1 if unknown.
+     */
+    long remainingQuota;
+}
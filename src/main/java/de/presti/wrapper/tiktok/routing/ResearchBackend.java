@@ -0,0 +1,71 @@
+package de.presti.wrapper.tiktok.routing;
+
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.repo.TikTokResearchAPI;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The Research API, its remaining quota is taken from the {@link EndpointPolicy} of its credential or of its Url.
+ */
+@Getter
+@AllArgsConstructor
+public class ResearchBackend implements Backend {
+
+    /**
+     * The name of the backend, used in the stats and logs.
+     */
+    private final String name;
+
+    /**
+     * The API.
+     */
+    private final TikTokResearchAPI api;
+
+    /**
+     * Create a new Backend named research.
+     *
+     * @param api the API.
+     */
+    public ResearchBackend(TikTokResearchAPI api) {
+        this("research", api);
+    }
+
+    @Override
+    public CompletableFuture<TikTokUser> getUser(String name, boolean parseVideos, Executor executor) {
+        return api.getUserAsync(name, executor);
+    }
+
+    @Override
+    public CompletableFuture<TikTokUser> getUser(long id, boolean parseVideos, Executor executor) {
+        return api.getUserAsync(String.valueOf(id), executor);
+    }
+
+    @Override
+    public CompletableFuture<TikTokVideo> getVideo(String id, Executor executor) {
+        return api.getVideoAsync(id, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TikTokVideo>> getVideos(String username, Executor executor) {
+        return api.getVideosAsync(username, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TikTokVideo>> getVideos(long id, Executor executor) {
+        return api.getVideosAsync(String.valueOf(id), executor);
+    }
+
+    @Override
+    public long getRemainingQuota() {
+        EndpointPolicy policy = api.getPolicy() != null ? api.getPolicy() : api.getTransport().resolvePolicy(URI.create(api.getApiUrl() + "/research/"));
+        return policy == null ? -1 : policy.getStats().getRemaining();
+    }
+}
@@ -0,0 +1,267 @@
+package de.presti.wrapper.tiktok.routing;
+
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.research.ShardConfig;
+import de.presti.wrapper.tiktok.research.ShardedVideoIterator;
+import de.presti.wrapper.tiktok.research.VideoQuery;
+import de.presti.wrapper.tiktok.research.VideoQueryIterator;
+import de.presti.wrapper.tiktok.research.VideoQueryPage;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Several credentials of the Research API used as one backend, every call is sent with one of them.
+ * Each credential has its own quota, spreading the calls over them multiplies the Requests which can be sent.
+ * A credential without quota left is only used if every other one is exhausted as well.
+ */
+public class ResearchPool implements Backend {
+
+    /**
+     * The credentials, each one as its own backend.
+     */
+    @Getter
+    private final List<ResearchBackend> members;
+
+    /**
+     * How the calls are spread over the credentials.
+     */
+    @Getter
+    private final Distribution distribution;
+
+    /**
+     * The calls in flight per credential.
+     */
+    private final AtomicInteger[] inFlight;
+
+    /**
+     * The calls sent per credential.
+     */
+    private final AtomicLong[] calls;
+
+    /**
+     * The position the next search for a credential starts at, so ties are spread over all of them.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Create a new Pool.
+     *
+     * @param members      the credentials.
+     * @param distribution how the calls are spread over the credentials.
+     */
+    public ResearchPool(List<ResearchBackend> members, Distribution distribution) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A Pool needs at least one credential!");
+        }
+
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+        this.distribution = distribution;
+        this.inFlight = new AtomicInteger[members.size()];
+        this.calls = new AtomicLong[members.size()];
+
+        for (int i = 0; i < members.size(); i++) {
+            inFlight[i] = new AtomicInteger();
+            calls[i] = new AtomicLong();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "research";
+    }
+
+    @Override
+    public CompletableFuture<TikTokUser> getUser(String name, boolean parseVideos, Executor executor) {
+        return call(choose(), member -> member.getUser(name, parseVideos, executor));
+    }
+
+    @Override
+    public CompletableFuture<TikTokUser> getUser(long id, boolean parseVideos, Executor executor) {
+        return call(choose(), member -> member.getUser(id, parseVideos, executor));
+    }
+
+    @Override
+    public CompletableFuture<TikTokVideo> getVideo(String id, Executor executor) {
+        return call(choose(), member -> member.getVideo(id, executor));
+    }
+
+    @Override
+    public CompletableFuture<List<TikTokVideo>> getVideos(String username, Executor executor) {
+        return call(choose(), member -> member.getVideos(username, executor));
+    }
+
+    @Override
+    public CompletableFuture<List<TikTokVideo>> getVideos(long id, Executor executor) {
+        return call(choose(), member -> member.getVideos(id, executor));
+    }
+
+    /**
+     * Retrieve the Videos matching a Query, the pages are requested lazily while the Iterator is consumed.
+     * Every page of the Query is requested with the credential it was started with.
+     *
+     * @param query The Query.
+     * @return An Iterator over the Videos, closing it cancels the page in flight.
+     */
+    public VideoQueryIterator queryVideos(VideoQuery query) {
+        Map<String, Integer> searches = new ConcurrentHashMap<>();
+        return new VideoQueryIterator((cursor, searchId) -> queryVideosPage(query, cursor, searchId, searches));
+    }
+
+    /**
+     * Retrieve the Videos matching a Query, its date range is split into windows which are walked in parallel.
+     * The windows are spread over the credentials, every page of a window is requested with the credential it was started with.
+     *
+     * @param query  The Query.
+     * @param config The configuration of the windows.
+     * @return An Iterator over the Videos without duplicates, closing it cancels the pages in flight.
+     */
+    public ShardedVideoIterator queryVideos(VideoQuery query, ShardConfig config) {
+        Map<String, Integer> searches = new ConcurrentHashMap<>();
+        return new ShardedVideoIterator(query, config, (window, cursor, searchId) -> queryVideosPage(window, cursor, searchId, searches));
+    }
+
+    /**
+     * Retrieve a single page of a Query without blocking the calling Thread.
+     * The first page is requested with the chosen credential, the following ones with the same credential.
+     * The credentials are tracked per Iterator, so a closed or failed walk leaves nothing behind once the Iterator is gone.
+     *
+     * @param query    The Query.
+     * @param cursor   The cursor of the page.
+     * @param searchId The search id returned by the first page, or null for the first page.
+     * @param searches The credential every unfinished search of the Iterator was started with, keyed by its search id.
+     * @return A future with the page.
+     */
+    private CompletableFuture<VideoQueryPage> queryVideosPage(VideoQuery query, long cursor, String searchId, Map<String, Integer> searches) {
+        Integer owner = searchId == null ? null : searches.remove(searchId);
+        int index = owner == null ? choose() : owner;
+
+        CompletableFuture<VideoQueryPage> page = call(index, member -> member.getApi().queryVideosPage(query, cursor, searchId, Runnable::run));
+        CompletableFuture<VideoQueryPage> result = page.thenApply(value -> {
+            if (value.isHasMore() && value.getSearchId() != null) {
+                searches.put(value.getSearchId(), index);
+            }
+
+            return value;
+        });
+
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled()) page.cancel(true);
+        });
+
+        return result;
+    }
+
+    /**
+     * Choose the credential for the next call.
+     *
+     * @return the index of the credential.
+     */
+    private int choose() {
+        int size = members.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        int best = -1;
+
+        for (int offset = 0; offset < size; offset++) {
+            int index = (start + offset) % size;
+
+            if (best == -1 || compare(index, best) < 0) {
+                best = index;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Compare two credentials, the one sorting first is preferred.
+     *
+     * @param first  the index of the first credential.
+     * @param second the index of the second credential.
+     * @return a negative number if the first credential is preferred, 0 if both are equal.
+     */
+    private int compare(int first, int second) {
+        int exhausted = Boolean.compare(members.get(first).getRemainingQuota() == 0, members.get(second).getRemainingQuota() == 0);
+
+        if (exhausted != 0 || distribution == Distribution.ROUND_ROBIN) return exhausted;
+
+        return Integer.compare(inFlight[first].get(), inFlight[second].get());
+    }
+
+    private <T> CompletableFuture<T> call(int index, Function<ResearchBackend, CompletableFuture<T>> call) {
+        inFlight[index].incrementAndGet();
+        calls[index].incrementAndGet();
+
+        CompletableFuture<T> future;
+
+        try {
+            future = call.apply(members.get(index));
+        } catch (RuntimeException exception) {
+            future = CompletableFuture.failedFuture(exception);
+        }
+
+        future.whenComplete((value, throwable) -> inFlight[index].decrementAndGet());
+        return future;
+    }
+
+    /**
+     * Get the amount of calls sent with every credential.
+     *
+     * @return the amount of calls keyed by the name of the credential, in the order they have been added.
+     */
+    public Map<String, Long> getCalls() {
+        Map<String, Long> result = new LinkedHashMap<>();
+
+        for (int i = 0; i < members.size(); i++) {
+            result.put(members.get(i).getName(), calls[i].get());
+        }
+
+        return result;
+    }
+
+    /**
+     * The remaining quota of all credentials together.
+     *
+     * @return the sum, or -1 if the quota of any credential is unknown.
+     */
+    @Override
+    public long getRemainingQuota() {
+        long remaining = 0;
+
+        for (ResearchBackend member : members) {
+            long quota = member.getRemainingQuota();
+
+            if (quota < 0) return -1;
+
+            remaining += quota;
+        }
+
+        return remaining;
+    }
+
+    /**
+     * How the calls are spread over the credentials.
+     */
+    public enum Distribution {
+        /**
+         * Every credential is used in turn.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * The credential with the fewest calls in flight is used, ties are used in turn.
+         */
+        LEAST_LOADED
+    }
+}
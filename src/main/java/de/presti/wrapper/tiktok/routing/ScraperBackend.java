@@ -0,0 +1,580 @@
+package de.presti.wrapper.tiktok.routing;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import de.presti.wrapper.tiktok.cache.ResponseCache;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokUserStats;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.metrics.Stage;
+import de.presti.wrapper.tiktok.repo.TikTokScrapper;
+import de.presti.wrapper.tiktok.scraper.PostIterator;
+import de.presti.wrapper.tiktok.scraper.PostPage;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import de.presti.wrapper.tiktok.utility.JsonBinder;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+import de.presti.wrapper.tiktok.utility.SingleFlight;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The Website, every instance has its own Url, Transport, Cache and deduplication of lookups.
+ * The static {@link TikTokScrapper} uses a shared instance.
+ */
+@Slf4j
+@Getter
+public class ScraperBackend implements Backend {
+
+    /**
+     * The Base Url of the TikTok Website.
+     */
+    private final String baseUrl;
+
+    /**
+     * The ID of the element which contains all the information.
+     */
+    private final String elementId;
+
+    /**
+     * The amount of Videos requested per page of the item list.
+     */
+    private final int postPageSize;
+
+    /**
+     * The Transport the Requests are sent with.
+     */
+    private final HttpTransport transport;
+
+    /**
+     * The Cache in front of the Website, null if every call should go to the network.
+     */
+    @Setter
+    private volatile ResponseCache responseCache;
+
+    /**
+     * Deduplicates identical User lookups in flight, callers of the same lookup share the returned User.
+     */
+    private final SingleFlight<String, TikTokUser> userFlight = new SingleFlight<>();
+
+    /**
+     * Deduplicates identical counter lookups in flight, callers of the same lookup share the returned counters.
+     */
+    private final SingleFlight<String, TikTokUserStats> statsFlight = new SingleFlight<>();
+
+    /**
+     * Deduplicates identical Video lookups in flight, callers of the same lookup share the returned Video.
+     */
+    private final SingleFlight<String, TikTokVideo> videoFlight = new SingleFlight<>();
+
+    /**
+     * Deduplicates identical lookups of every Video of a User in flight, callers of the same lookup share the returned Videos.
+     */
+    private final SingleFlight<String, List<TikTokVideo>> postsFlight = new SingleFlight<>();
+
+    private ScraperBackend(ScraperBuilder builder) {
+        this.baseUrl = builder.baseUrl.endsWith("/") ? builder.baseUrl : builder.baseUrl + "/";
+        this.elementId = builder.elementId;
+        this.postPageSize = builder.postPageSize;
+        this.transport = builder.transport;
+        this.responseCache = builder.responseCache;
+    }
+
+    /**
+     * Create a new Scraper builder.
+     *
+     * @return a new Scraper builder.
+     */
+    public static ScraperBuilder builder() {
+        return new ScraperBuilder();
+    }
+
+    @Override
+    public String getName() {
+        return "scraper";
+    }
+
+    /**
+     * The Videos are read from every page of the item list, like {@link #getVideos(String, Executor)} they skip the Cache.
+     */
+    @Override
+    public CompletableFuture<TikTokUser> getUser(String name, boolean parseVideos, Executor executor) {
+        if (!name.startsWith("@")) {
+            name = "@" + name;
+        }
+
+        String path = name;
+        return userFlight.execute(parseVideos ? path + "#videos" : path,
+                () -> parseVideos ? parseUserWithPosts(path, executor)
+                        : parseElement(path, ResponseCache.Kind.USER, reader -> TikTokUser.fromScraper(reader, false), executor),
+                transport.getInstrumentation(), "scraper.user");
+    }
+
+    /**
+     * The Videos are read from every page of the item list, like {@link #getVideos(long, Executor)} they skip the Cache.
+     */
+    @Override
+    public CompletableFuture<TikTokUser> getUser(long id, boolean parseVideos, Executor executor) {
+        String path = "share/user/" + id;
+        return userFlight.execute(parseVideos ? path + "#videos" : path,
+                () -> parseVideos ? parseUserWithPosts(path, executor)
+                        : parseElement(path, ResponseCache.Kind.USER, reader -> TikTokUser.fromScraper(reader, false), executor),
+                transport.getInstrumentation(), "scraper.user");
+    }
+
+    /**
+     * The page is the same as for the User, but only the stats are read from it, the profile and Videos are skipped.
+     */
+    @Override
+    public CompletableFuture<TikTokUserStats> getUserStats(String name, boolean videoStats, Executor executor) {
+        String path = name.startsWith("@") ? name : "@" + name;
+        return statsFlight.execute(videoStats ? path + "#videos" : path,
+                () -> parseElement(path, ResponseCache.Kind.USER, reader -> TikTokUserStats.fromScraper(reader, videoStats), executor),
+                transport.getInstrumentation(), "scraper.stats");
+    }
+
+    @Override
+    public CompletableFuture<TikTokVideo> getVideo(String id, Executor executor) {
+        String path = "share/video/" + id;
+        return videoFlight.execute(path, () -> parseElement(path, ResponseCache.Kind.VIDEO, TikTokVideo::fromScraper, executor),
+                transport.getInstrumentation(), "scraper.video");
+    }
+
+    /**
+     * Retrieve information about a Video of a User without blocking the calling Thread.
+     *
+     * @param user     The name of the user.
+     * @param id       The ID of the video.
+     * @param executor The Executor used to parse the response.
+     * @return A future with the Video.
+     */
+    public CompletableFuture<TikTokVideo> getVideo(String user, String id, Executor executor) {
+        if (!user.startsWith("@")) {
+            user = "@" + user;
+        }
+
+        String path = user + "/video/" + id;
+        return videoFlight.execute(path, () -> parseElement(path, ResponseCache.Kind.VIDEO, TikTokVideo::fromScraper, executor),
+                transport.getInstrumentation(), "scraper.video");
+    }
+
+    /**
+     * Every page of the item list is collected into one List, use {@link #streamVideos(String, Executor)} for Users with many Videos.
+     */
+    @Override
+    public CompletableFuture<List<TikTokVideo>> getVideos(String username, Executor executor) {
+        String path = username.startsWith("@") ? username : "@" + username;
+        return postsFlight.execute(path, () -> collectPosts(path, executor), transport.getInstrumentation(), "scraper.posts");
+    }
+
+    /**
+     * Every page of the item list is collected into one List, use {@link #streamVideos(String, Executor)} for Users with many Videos.
+     */
+    @Override
+    public CompletableFuture<List<TikTokVideo>> getVideos(long id, Executor executor) {
+        String path = "share/user/" + id;
+        return postsFlight.execute(path, () -> collectPosts(path, executor), transport.getInstrumentation(), "scraper.posts");
+    }
+
+    /**
+     * Retrieve every Video a User posted, the pages of the item list are requested lazily while the Iterator is consumed.
+     * The first page is the item list of the profile, every following page is requested as soon as the previous one arrived.
+     *
+     * @param username The name of the user.
+     * @param executor The Executor used to parse the pages.
+     * @return An Iterator over the Videos, closing it cancels the page in flight.
+     */
+    public PostIterator iterateVideos(String username, Executor executor) {
+        String path = username.startsWith("@") ? username : "@" + username;
+        return new PostIterator(fetchFirstPosts(path, executor), page -> fetchNextPosts(page, executor));
+    }
+
+    /**
+     * Retrieve every Video a User posted, the pages of the item list are requested lazily while the Stream is consumed.
+     * Only the current and the next page are held in memory, no matter how many Videos the User posted.
+     *
+     * @param username The name of the user.
+     * @param executor The Executor used to parse the pages.
+     * @return A sequential Stream over the Videos, closing it cancels the page in flight.
+     */
+    public Stream<TikTokVideo> streamVideos(String username, Executor executor) {
+        PostIterator iterator = iterateVideos(username, executor);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Request the profile of a User once, read the User and the first page of its Videos from it and walk the
+     * following pages of the item list.
+     *
+     * @param path     The path of the profile.
+     * @param executor The Executor used to parse the profile and the pages.
+     * @return A future with the User holding every Video.
+     */
+    private CompletableFuture<TikTokUser> parseUserWithPosts(String path, Executor executor) {
+        Instrumentation instrumentation = transport.getInstrumentation();
+
+        return fetchPage(path).thenComposeAsync(page -> {
+            TikTokUser user = bind(openPage(page, instrumentation), reader -> TikTokUser.fromScraper(reader, false), instrumentation);
+            PostPage first = bind(openPage(page, instrumentation), PostPage::fromScraper, instrumentation);
+            List<TikTokVideo> videos = new ArrayList<>();
+
+            return collectPosts(first, null, videos, executor).thenApply(unused -> new TikTokUser(user.getId(), user.getDisplayName(),
+                    user.getName(), user.getFollowers(), user.getFollowing(), user.getLikes(), user.getBio(), user.getAvatar(),
+                    user.isVerified(), user.getRegion(), user.isPrivate(), user.getSecUID(), videos));
+        }, executor);
+    }
+
+    private CompletableFuture<List<TikTokVideo>> collectPosts(String path, Executor executor) {
+        List<TikTokVideo> videos = new ArrayList<>();
+        return fetchFirstPosts(path, executor).thenCompose(page -> collectPosts(page, null, videos, executor))
+                .thenApply(unused -> videos);
+    }
+
+    private CompletableFuture<Void> collectPosts(PostPage page, String cursor, List<TikTokVideo> videos, Executor executor) {
+        videos.addAll(page.getVideos());
+
+        if (!page.hasNextPage(cursor)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return fetchNextPosts(page, executor)
+                .thenCompose(next -> collectPosts(next, page.getCursor(), videos, executor));
+    }
+
+    /**
+     * Request the page of the item list after a page.
+     * If the cursor of the page was only derived from its Videos, a failed page ends the walk as truncated instead of
+     * failing it, so the Videos already read are kept.
+     *
+     * @param page     The previous page.
+     * @param executor The Executor used to parse the page.
+     * @return A future with the next page.
+     */
+    private CompletableFuture<PostPage> fetchNextPosts(PostPage page, Executor executor) {
+        CompletableFuture<PostPage> next = fetchPosts(page.getSecUID(), page.getCursor(), executor);
+
+        if (!page.isGuessed()) return next;
+
+        return next.exceptionally(throwable -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+            if (!BackendRouter.isFailover(cause)) {
+                throw new CompletionException(cause);
+            }
+
+            log.warn("The Website refused the derived cursor {}, the Videos after it are missing.", page.getCursor(), cause);
+            return PostPage.truncated();
+        });
+    }
+
+    /**
+     * Request the profile of a User and read the first page of its Videos from it.
+     *
+     * @param path     The path of the profile.
+     * @param executor The Executor used to parse the profile.
+     * @return A future with the first page.
+     */
+    private CompletableFuture<PostPage> fetchFirstPosts(String path, Executor executor) {
+        Instrumentation instrumentation = transport.getInstrumentation();
+        return fetchPage(path).thenApplyAsync(page -> bind(openPage(page, instrumentation), PostPage::fromScraper, instrumentation), executor);
+    }
+
+    /**
+     * Request a page of the item list of a User.
+     *
+     * @param secUID   The Second User ID of the User.
+     * @param cursor   The cursor of the page.
+     * @param executor The Executor used to parse the page.
+     * @return A future with the page.
+     */
+    private CompletableFuture<PostPage> fetchPosts(String secUID, String cursor, Executor executor) {
+        Instrumentation instrumentation = transport.getInstrumentation();
+        String url = baseUrl + "api/post/item_list/?aid=1988&count=" + postPageSize + "&cursor=" + cursor
+                + "&secUid=" + URLEncoder.encode(secUID, StandardCharsets.UTF_8);
+
+        return fetch(url).thenApplyAsync(body -> {
+            if (body == null || body.length == 0) {
+                throw new MissingDataInfoException("The Website returned an empty page of Videos! It may require a signed Request.");
+            }
+
+            return bind(JsonUtility.openReader(body), reader -> PostPage.fromItemList(reader, secUID), instrumentation);
+        }, executor);
+    }
+
+    /**
+     * Extract results from the Website and bind them directly into an entity.
+     * If a {@link ResponseCache} is set, only the needed part of the Website data is fetched through it.
+     *
+     * @param path     The path related to the wanted Object.
+     * @param kind     The kind of the wanted Object.
+     * @param binder   The binder reading the entity from the Website data.
+     * @param executor The Executor used to run the binder.
+     * @param <T>      The type of the entity.
+     * @return A future with the entity.
+     */
+    private <T> CompletableFuture<T> parseElement(String path, ResponseCache.Kind kind, JsonBinder<T> binder, Executor executor) {
+        ResponseCache cache = responseCache;
+        Instrumentation instrumentation = transport.getInstrumentation();
+
+        if (cache == null) {
+            return fetchPage(path).thenApplyAsync(page -> bind(openPage(page, instrumentation), binder, instrumentation), executor);
+        }
+
+        String source = kind == ResponseCache.Kind.USER ? "scraper.user" : "scraper.video";
+
+        return cache.get(path, kind, () -> fetchPage(path).thenApplyAsync(page -> extractPayload(page, kind, instrumentation), executor),
+                        instrumentation, source)
+                .thenApplyAsync(payload -> bind(ExtractionUtility.openPayload(payload), binder, instrumentation), executor);
+    }
+
+    /**
+     * Fetch the raw page of the Website.
+     *
+     * @param path The path related to the wanted Object.
+     * @return A future with the raw page.
+     */
+    private CompletableFuture<byte[]> fetchPage(String path) {
+        return fetch(baseUrl + path + "?lang=en");
+    }
+
+    /**
+     * Fetch a raw response of the Website.
+     *
+     * @param url The Url of the response.
+     * @return A future with the raw response.
+     */
+    private CompletableFuture<byte[]> fetch(String url) {
+        RequestUtility.Request request = RequestUtility.Request.builder()
+                .url(url)
+                .GET()
+                .build();
+
+        return transport.requestBytesAsync(request)
+                .handle((page, throwable) -> {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                        log.error("Couldn't send a Request!", cause);
+                        throw new MissingDataInfoException("Couldn't retrieve the data from the website!", cause);
+                    }
+
+                    return page;
+                });
+    }
+
+    /**
+     * Open a reader on the Website data of the raw page.
+     *
+     * @param page            The raw page.
+     * @param instrumentation Receives the time spent locating the Website data.
+     * @return The reader.
+     */
+    private JsonReader openPage(byte[] page, Instrumentation instrumentation) {
+        if (page == null) {
+            throw new MissingDataInfoException("Couldn't retrieve the data from the website!");
+        }
+
+        long start = System.nanoTime();
+        JsonReader reader = ExtractionUtility.openReader(page, elementId);
+        instrumentation.recordStage(Stage.EXTRACTION, "scraper", System.nanoTime() - start);
+
+        if (reader == null) {
+            throw new MissingDataInfoException("Page does not contain the " + elementId + " element! Maybe updated their website? Open a Issue if this continues!");
+        }
+
+        return reader;
+    }
+
+    /**
+     * Copy the part of the Website data needed for the kind out of the raw page.
+     *
+     * @param page            The raw page.
+     * @param kind            The kind of the wanted Object.
+     * @param instrumentation Receives the time spent copying the payload.
+     * @return The compact payload.
+     */
+    private byte[] extractPayload(byte[] page, ResponseCache.Kind kind, Instrumentation instrumentation) {
+        if (page == null) {
+            throw new MissingDataInfoException("Couldn't retrieve the data from the website!");
+        }
+
+        byte[] payload;
+        long start = System.nanoTime();
+
+        try {
+            payload = ExtractionUtility.extractPayload(page, elementId, kind == ResponseCache.Kind.USER ? "webapp.user-detail" : "webapp.video-detail");
+            instrumentation.recordStage(Stage.EXTRACTION, "scraper", System.nanoTime() - start);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException exception) {
+            throw new MissingDataInfoException("Couldn't parse the " + elementId + " element! Maybe updated their website? Open a Issue if this continues!");
+        } catch (IOException exception) {
+            throw new CompletionException(exception);
+        }
+
+        if (payload == null) {
+            throw new MissingDataInfoException("Page does not contain the " + elementId + " element! Maybe updated their website? Open a Issue if this continues!");
+        }
+
+        return payload;
+    }
+
+    /**
+     * Bind an entity from the Website data.
+     *
+     * @param reader          The reader positioned before the Website data.
+     * @param binder          The binder reading the entity from the Website data.
+     * @param instrumentation Receives the time spent binding.
+     * @param <T>             The type of the entity.
+     * @return The entity.
+     */
+    private <T> T bind(JsonReader reader, JsonBinder<T> binder, Instrumentation instrumentation) {
+        long start = System.nanoTime();
+
+        try (reader) {
+            T entity = binder.bind(reader);
+            instrumentation.recordStage(Stage.BINDING, "scraper", System.nanoTime() - start);
+            return entity;
+        } catch (MissingDataInfoException exception) {
+            throw exception;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException exception) {
+            throw new MissingDataInfoException("Couldn't parse the " + elementId + " element! Maybe updated their website? Open a Issue if this continues!");
+        } catch (IOException exception) {
+            throw new CompletionException(exception);
+        }
+    }
+
+    /**
+     * Builder class for a ScraperBackend.
+     */
+    public static class ScraperBuilder {
+
+        /**
+         * The Base Url of the TikTok Website.
+         */
+        protected String baseUrl = "https://www.tiktok.com/";
+
+        /**
+         * The ID of the element which contains all the information.
+         */
+        protected String elementId = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+        /**
+         * The amount of Videos requested per page of the item list.
+         */
+        protected int postPageSize = 35;
+
+        /**
+         * The Transport the Requests are sent with.
+         */
+        protected HttpTransport transport = RequestUtility.getTransport();
+
+        /**
+         * The Cache in front of the Website.
+         */
+        protected ResponseCache responseCache;
+
+        /**
+         * Change the Base Url of the Website.
+         *
+         * @param baseUrl the new Url.
+         * @return the ScraperBuilder.
+         */
+        public ScraperBuilder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * Change the ID of the element which contains all the information.
+         *
+         * @param elementId the new ID.
+         * @return the ScraperBuilder.
+         */
+        public ScraperBuilder elementId(String elementId) {
+            this.elementId = elementId;
+            return this;
+        }
+
+        /**
+         * Change the ID of the element which contains the list of videos.
+         *
+         * @param videoListElementId the new ID.
+         * @return the ScraperBuilder.
+         * @deprecated the Videos are read from the Website data and the item list, the element is not used anymore.
+         */
+        @Deprecated
+        public ScraperBuilder videoListElementId(String videoListElementId) {
+            return this;
+        }
+
+        /**
+         * Change the amount of Videos requested per page of the item list.
+         *
+         * @param postPageSize the new amount.
+         * @return the ScraperBuilder.
+         */
+        public ScraperBuilder postPageSize(int postPageSize) {
+            this.postPageSize = postPageSize;
+            return this;
+        }
+
+        /**
+         * Change the Transport the Requests are sent with.
+         *
+         * @param transport the new Transport.
+         * @return the ScraperBuilder.
+         */
+        public ScraperBuilder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Change the Cache in front of the Website.
+         *
+         * @param responseCache the new Cache, null if every call should go to the network.
+         * @return the ScraperBuilder.
+         */
+        public ScraperBuilder responseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Build the Scraper.
+         *
+         * @return the Scraper.
+         */
+        public ScraperBackend build() {
+            if (baseUrl == null || elementId == null) {
+                throw new IllegalStateException("The Url and the element ID are required!");
+            }
+
+            if (transport == null) {
+                throw new IllegalStateException("A Scraper needs a Transport!");
+            }
+
+            if (postPageSize < 1) {
+                throw new IllegalStateException("A page of the item list needs at least one Video!");
+            }
+
+            return new ScraperBackend(this);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de.presti.wrapper.tiktok.scraper;
+
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Walks the pages of the Videos a User posted on the Website lazily, following the cursor of every page.
+ * The next page is requested as soon as the current one arrived, before its Videos are consumed, so at most two pages are held in memory.
+ * A failed page is thrown from {@link #hasNext()} as {@link UncheckedIOException} or {@link RuntimeException}.
+ */
+public class PostIterator implements Iterator<TikTokVideo>, AutoCloseable {
+
+    /**
+     * Requests a page of the Videos of a User.
+     */
+    @FunctionalInterface
+    public interface PageFetcher {
+
+        /**
+         * Request the page after a page.
+         *
+         * @param page the previous page, holding the Second User ID of the User and the cursor.
+         * @return a future with the next page.
+         */
+        CompletableFuture<PostPage> fetch(PostPage page);
+    }
+
+    /**
+     * Requests the pages after the first one.
+     */
+    private final PageFetcher fetcher;
+
+    /**
+     * The Videos of the current page.
+     */
+    private Iterator<TikTokVideo> current = Collections.emptyIterator();
+
+    /**
+     * The next page in flight, or null if there is none.
+     */
+    private CompletableFuture<PostPage> next;
+
+    /**
+     * The cursor of the page in flight, null for the first page.
+     */
+    private String nextCursor;
+
+    /**
+     * The amount of pages received.
+     */
+    private int pages;
+
+    /**
+     * If the walk ended early.
+     */
+    private boolean truncated;
+
+    /**
+     * Create a new Iterator.
+     *
+     * @param first   the first page, e.g. the profile of the User.
+     * @param fetcher requests the pages after the first one.
+     */
+    public PostIterator(CompletableFuture<PostPage> first, PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.next = first;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (next == null) return false;
+
+            PostPage page;
+
+            try {
+                page = RequestUtility.join(next);
+            } catch (IOException exception) {
+                next = null;
+                throw new UncheckedIOException(exception);
+            } catch (RuntimeException exception) {
+                next = null;
+                throw exception;
+            }
+
+            pages++;
+            truncated |= page.isTruncated();
+
+            if (page.hasNextPage(nextCursor)) {
+                nextCursor = page.getCursor();
+                next = fetcher.fetch(page);
+            } else {
+                next = null;
+            }
+
+            current = page.getVideos().iterator();
+        }
+
+        return true;
+    }
+
+    @Override
+    public TikTokVideo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    /**
+     * Get the amount of pages received so far.
+     *
+     * @return the amount of pages.
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * Check if the walk ended before the last page, as the Website refused a cursor derived from the profile.
+     *
+     * @return true if Videos may be missing.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Stop walking the pages, the page in flight is cancelled.
+     */
+    @Override
+    public void close() {
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+
+        current = Collections.emptyIterator();
+    }
+}
@@ -0,0 +1,264 @@
+package de.presti.wrapper.tiktok.scraper;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of the Videos a User posted on the Website.
+ */
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostPage {
+
+    /**
+     * The Videos of the page, the newest first.
+     */
+    List<TikTokVideo> videos = new ArrayList<>();
+
+    /**
+     * The Second User ID of the User, needed to request the next pages.
+     */
+    String secUID = "";
+
+    /**
+     * The cursor of the next page.
+     */
+    String cursor = "0";
+
+    /**
+     * If there are more pages.
+     */
+    boolean hasMore;
+
+    /**
+     * If the cursor was derived from the Videos of the profile instead of read from the Website.
+     */
+    boolean guessed;
+
+    /**
+     * If the walk ended early, as the page after a guessed cursor couldn't be loaded.
+     */
+    boolean truncated;
+
+    /**
+     * Create the first page from the Website data of a profile.
+     * The cursor is taken from the "user-post" entry of the ItemList if the page has one, otherwise it is derived from the
+     * oldest Video of the item list, as the cursor of the Website is the creation time of the last Video in milliseconds.
+     *
+     * @param reader the reader positioned before the root object of the Website data.
+     * @return the page.
+     * @throws IOException if the data is not valid JSON.
+     */
+    public static PostPage fromScraper(JsonReader reader) throws IOException {
+        if (reader == null) throw new MissingDataInfoException("Received null JsonReader for User!");
+
+        PostPage page = new PostPage();
+        page.cursor = null;
+        boolean hasUserDetail = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals(ExtractionUtility.DEFAULT_SCOPE) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    hasUserDetail |= page.readScopeKey(reader, reader.nextName());
+                }
+                reader.endObject();
+            } else {
+                hasUserDetail |= page.readScopeKey(reader, name);
+            }
+        }
+        reader.endObject();
+
+        if (!hasUserDetail) {
+            throw new MissingDataInfoException("User not found");
+        }
+
+        if (page.cursor == null) {
+            long oldest = Long.MAX_VALUE;
+
+            for (TikTokVideo video : page.videos) {
+                oldest = Math.min(oldest, video.getCreationTime());
+            }
+
+            page.cursor = page.videos.isEmpty() ? "0" : String.valueOf(oldest * 1000);
+            page.hasMore = !page.videos.isEmpty();
+            page.guessed = true;
+        }
+
+        return page;
+    }
+
+    /**
+     * Create the empty last page of a walk which ended early, as the page after a guessed cursor couldn't be loaded.
+     *
+     * @return the page.
+     */
+    public static PostPage truncated() {
+        PostPage page = new PostPage();
+        page.truncated = true;
+        return page;
+    }
+
+    /**
+     * Create a page from the token stream of an item_list response of the Website.
+     *
+     * @param reader the reader positioned before the response.
+     * @param secUID the Second User ID the page has been requested with.
+     * @return the page.
+     * @throws IOException if the response is not valid JSON.
+     */
+    public static PostPage fromItemList(JsonReader reader, String secUID) throws IOException {
+        PostPage page = new PostPage();
+        page.secUID = secUID;
+        long statusCode = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("itemList") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    page.videos.add(TikTokVideo.fromStructure(reader));
+                }
+                reader.endArray();
+            } else if (name.equals("cursor")) {
+                page.cursor = JsonUtility.readString(reader, "0");
+            } else if (name.equals("hasMore")) {
+                page.hasMore = JsonUtility.readBoolean(reader);
+            } else if (name.equals("statusCode")) {
+                statusCode = JsonUtility.readLong(reader, 0);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (statusCode != 0) {
+            throw new MissingDataInfoException("Couldn't load the Videos! Status code: " + statusCode);
+        }
+
+        return page;
+    }
+
+    /**
+     * Check if the page after this one should be requested.
+     * A page without Videos or a cursor which did not move would request the same page forever.
+     *
+     * @param requestedCursor the cursor this page has been requested with, or null for the first page.
+     * @return true if there is a next page.
+     */
+    public boolean hasNextPage(String requestedCursor) {
+        return hasMore && !videos.isEmpty() && !secUID.isEmpty() && !cursor.equals(requestedCursor);
+    }
+
+    private boolean readScopeKey(JsonReader reader, String name) throws IOException {
+        if (name.equals("webapp.user-detail") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            readUserDetail(reader);
+            return true;
+        } else if (name.equals("ItemList") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("user-post") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readPaging(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } else {
+            reader.skipValue();
+        }
+
+        return false;
+    }
+
+    private void readUserDetail(JsonReader reader) throws IOException {
+        boolean hasUserInfo = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("statusCode")) {
+                if (JsonUtility.readLong(reader, 0) != 0) {
+                    throw new MissingDataInfoException("User not found");
+                }
+            } else if (name.equals("userInfo") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                hasUserInfo = true;
+                readUserInfo(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasUserInfo) {
+            throw new MissingDataInfoException("User not found");
+        }
+    }
+
+    private void readUserInfo(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals("user") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("secUid")) {
+                        secUID = JsonUtility.readString(reader, "");
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (name.equals("itemList") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    videos.add(TikTokVideo.fromStructure(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readPaging(JsonReader reader) throws IOException {
+        cursor = "0";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "cursor":
+                    cursor = JsonUtility.readString(reader, "0");
+                    break;
+                case "hasMore":
+                    hasMore = JsonUtility.readBoolean(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
@@ -0,0 +1,26 @@
+package de.presti.wrapper.tiktok.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A stored copy of an Entity.
+ *
+ * @param <T> the type of the Entity.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class Snapshot<T> {
+
+    /**
+     * The stored Entity.
+     */
+    T value;
+
+    /**
+     * The time the Entity has been stored at, in milliseconds since the epoch.
+     */
+    long storedAt;
+}
@@ -0,0 +1,223 @@
+package de.presti.wrapper.tiktok.store;
+
+import de.presti.wrapper.tiktok.entities.TikTokThumbnail;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The compact binary encoding of the snapshots.
+ * Numbers are written as variable length integers, booleans are packed into flag bytes.
+ */
+class SnapshotCodec {
+
+    /**
+     * Write a User including its posts.
+     *
+     * @param output the output.
+     * @param user   the User.
+     * @throws IOException if the output couldn't be written.
+     */
+    static void writeUser(DataOutput output, TikTokUser user) throws IOException {
+        output.writeByte((user.isVerified() ? 1 : 0) | (user.isPrivate() ? 2 : 0));
+        writeString(output, user.getId());
+        writeString(output, user.getDisplayName());
+        writeString(output, user.getName());
+        writeVarLong(output, user.getFollowers());
+        writeVarLong(output, user.getFollowing());
+        writeVarLong(output, user.getLikes());
+        writeString(output, user.getBio());
+        writeThumbnail(output, user.getAvatar());
+        writeString(output, user.getRegion());
+        writeString(output, user.getSecUID());
+
+        List<TikTokVideo> posts = user.getPosts();
+        writeVarLong(output, posts == null ? 0 : posts.size());
+
+        if (posts != null) {
+            for (TikTokVideo post : posts) {
+                writeVideo(output, post);
+            }
+        }
+    }
+
+    /**
+     * Read a User including its posts.
+     *
+     * @param input the input.
+     * @return the User.
+     * @throws IOException if the input couldn't be read.
+     */
+    static TikTokUser readUser(DataInput input) throws IOException {
+        int flags = input.readUnsignedByte();
+        String id = readString(input);
+        String displayName = readString(input);
+        String name = readString(input);
+        long followers = readVarLong(input);
+        long following = readVarLong(input);
+        long likes = readVarLong(input);
+        String bio = readString(input);
+        TikTokThumbnail avatar = readThumbnail(input);
+        String region = readString(input);
+        String secUID = readString(input);
+
+        int postCount = (int) readVarLong(input);
+        List<TikTokVideo> posts = new ArrayList<>(postCount);
+        for (int i = 0; i < postCount; i++) {
+            posts.add(readVideo(input));
+        }
+
+        return new TikTokUser(id, displayName, name, followers, following, likes, bio, avatar,
+                (flags & 1) != 0, region, (flags & 2) != 0, secUID, posts);
+    }
+
+    /**
+     * Write a Video.
+     *
+     * @param output the output.
+     * @param video  the Video.
+     * @throws IOException if the output couldn't be written.
+     */
+    static void writeVideo(DataOutput output, TikTokVideo video) throws IOException {
+        output.writeByte((video.isOriginal() ? 1 : 0) | (video.isOfficial() ? 2 : 0) | (video.isSecret() ? 4 : 0)
+                | (video.isForFriend() ? 8 : 0) | (video.isPrivate() ? 16 : 0) | (video.isCanDuet() ? 32 : 0)
+                | (video.isCanStitch() ? 64 : 0) | (video.isCanShare() ? 128 : 0));
+        writeString(output, video.getId());
+        writeString(output, video.getDescription());
+        writeString(output, video.getAuthor());
+        writeVarLong(output, video.getCreationTime());
+        writeString(output, video.getLocation());
+        writeVarLong(output, video.getPlayCount());
+        writeVarLong(output, video.getLikeCount());
+        writeVarLong(output, video.getShareCount());
+        writeVarLong(output, video.getCommentCount());
+        writeVarLong(output, video.getDuration());
+        writeString(output, video.getResolution());
+        writeThumbnail(output, video.getCover());
+    }
+
+    /**
+     * Read a Video.
+     *
+     * @param input the input.
+     * @return the Video.
+     * @throws IOException if the input couldn't be read.
+     */
+    static TikTokVideo readVideo(DataInput input) throws IOException {
+        int flags = input.readUnsignedByte();
+        String id = readString(input);
+        String description = readString(input);
+        String author = readString(input);
+        long creationTime = readVarLong(input);
+        String location = readString(input);
+        long playCount = readVarLong(input);
+        long likeCount = readVarLong(input);
+        long shareCount = readVarLong(input);
+        long commentCount = readVarLong(input);
+        long duration = readVarLong(input);
+        String resolution = readString(input);
+        TikTokThumbnail cover = readThumbnail(input);
+
+        return new TikTokVideo(id, description, author, creationTime, (flags & 1) != 0, (flags & 2) != 0,
+                (flags & 4) != 0, (flags & 8) != 0, (flags & 16) != 0, (flags & 32) != 0, (flags & 64) != 0,
+                (flags & 128) != 0, location, playCount, likeCount, shareCount, commentCount, duration, resolution, cover);
+    }
+
+    private static void writeThumbnail(DataOutput output, TikTokThumbnail thumbnail) throws IOException {
+        output.writeBoolean(thumbnail != null);
+
+        if (thumbnail != null) {
+            writeString(output, thumbnail.getSmallUrl());
+            writeString(output, thumbnail.getMediumUrl());
+            writeString(output, thumbnail.getLargeUrl());
+        }
+    }
+
+    private static TikTokThumbnail readThumbnail(DataInput input) throws IOException {
+        if (!input.readBoolean()) return null;
+
+        return new TikTokThumbnail(readString(input), readString(input), readString(input));
+    }
+
+    /**
+     * Write a nullable String as length prefixed UTF-8, the length is shifted by one so 0 marks null.
+     *
+     * @param output the output.
+     * @param value  the String.
+     * @throws IOException if the output couldn't be written.
+     */
+    static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(output, 0);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length + 1L);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a String written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param input the input.
+     * @return the String.
+     * @throws IOException if the input couldn't be read.
+     */
+    static String readString(DataInput input) throws IOException {
+        long length = readVarLong(input);
+
+        if (length == 0) return null;
+
+        byte[] bytes = new byte[(int) (length - 1)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a long using 7 bits per byte, negative values are zigzag encoded.
+     *
+     * @param output the output.
+     * @param value  the long.
+     * @throws IOException if the output couldn't be written.
+     */
+    static void writeVarLong(DataOutput output, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+
+        output.writeByte((int) zigzag);
+    }
+
+    /**
+     * Read a long written by {@link #writeVarLong(DataOutput, long)}.
+     *
+     * @param input the input.
+     * @return the long.
+     * @throws IOException if the input couldn't be read.
+     */
+    static long readVarLong(DataInput input) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        int current;
+
+        do {
+            if (shift > 63) throw new IOException("Malformed variable length integer!");
+
+            current = input.readUnsignedByte();
+            zigzag |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
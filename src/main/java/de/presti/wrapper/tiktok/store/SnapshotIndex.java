@@ -0,0 +1,259 @@
+package de.presti.wrapper.tiktok.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory mapped open addressing hash table from keys to offsets in the snapshot log.
+ * Keys are only stored as 64 bit hashes, callers have to verify the record an offset points to.
+ * The index is marked dirty while it is open, a dirty index is rebuilt from the log on the next open.
+ */
+class SnapshotIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x54545349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The channel of the index file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapping of the whole index file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * The amount of slots, always a power of two.
+     */
+    private int capacity;
+
+    /**
+     * The amount of used slots.
+     */
+    private int size;
+
+    /**
+     * If the index was closed cleanly and matches the log up to {@link #getCoveredLength()}.
+     */
+    private final boolean clean;
+
+    /**
+     * Open or create an index.
+     *
+     * @param file the index file.
+     * @throws IOException if the file couldn't be opened.
+     */
+    SnapshotIndex(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long fileSize = channel.size();
+        boolean valid = false;
+
+        if (fileSize >= HEADER_SIZE) {
+            map(fileSize);
+            capacity = buffer.getInt(8);
+            // The file is never shrunk, a smaller index after clear() leaves unused slots behind it.
+            valid = buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                    && capacity > 0 && Integer.bitCount(capacity) == 1
+                    && fileSize >= HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        }
+
+        if (valid) {
+            map(HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            size = buffer.getInt(12);
+            clean = buffer.getInt(24) == 1;
+        } else {
+            resize(INITIAL_CAPACITY);
+            clean = false;
+        }
+
+        buffer.putInt(24, 0);
+    }
+
+    /**
+     * Check if the index can be trusted without rebuilding it.
+     *
+     * @return true, if the index was closed cleanly.
+     */
+    boolean isClean() {
+        return clean;
+    }
+
+    /**
+     * Get the length of the log which is covered by the index.
+     *
+     * @return the length in bytes.
+     */
+    long getCoveredLength() {
+        return buffer.getLong(16);
+    }
+
+    /**
+     * Change the length of the log which is covered by the index.
+     *
+     * @param length the length in bytes.
+     */
+    void setCoveredLength(long length) {
+        buffer.putLong(16, length);
+    }
+
+    /**
+     * Find the offset of a key.
+     *
+     * @param key the key.
+     * @return the offset or -1.
+     */
+    long get(String key) {
+        long hash = hash(key);
+
+        for (int slot = (int) hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long stored = buffer.getLong(position + 8);
+
+            if (stored == 0) return -1;
+
+            if (buffer.getLong(position) == hash) return stored - 1;
+        }
+    }
+
+    /**
+     * Point a key to an offset, replacing its previous offset.
+     *
+     * @param key    the key.
+     * @param offset the offset.
+     */
+    void put(String key, long offset) {
+        if ((size + 1) * 10L > capacity * 6L) {
+            resize(capacity * 2);
+        }
+
+        if (insert(hash(key), offset + 1)) {
+            size++;
+            buffer.putInt(12, size);
+        }
+    }
+
+    /**
+     * Remove every key and reset the covered length.
+     */
+    void clear() {
+        size = 0;
+        resize(INITIAL_CAPACITY);
+        setCoveredLength(0);
+    }
+
+    /**
+     * Write the changes to the disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.putInt(24, 1);
+        buffer.force();
+        channel.close();
+    }
+
+    private boolean insert(long hash, long stored) {
+        for (int slot = (int) hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long existing = buffer.getLong(position + 8);
+
+            if (existing == 0 || buffer.getLong(position) == hash) {
+                buffer.putLong(position, hash);
+                buffer.putLong(position + 8, stored);
+                return existing == 0;
+            }
+        }
+    }
+
+    /**
+     * Resize the index file and reinsert every slot.
+     * The covered length is reset first, so an interrupted resize results in a rebuild.
+     *
+     * @param newCapacity the new amount of slots.
+     */
+    private void resize(int newCapacity) {
+        long[] hashes = new long[size];
+        long[] offsets = new long[size];
+        long covered = buffer != null ? getCoveredLength() : 0;
+
+        if (buffer != null) {
+            int found = 0;
+
+            for (int slot = 0; slot < capacity && found < size; slot++) {
+                int position = HEADER_SIZE + slot * SLOT_SIZE;
+                long stored = buffer.getLong(position + 8);
+
+                if (stored != 0) {
+                    hashes[found] = buffer.getLong(position);
+                    offsets[found++] = stored;
+                }
+            }
+
+            setCoveredLength(0);
+        }
+
+        try {
+            long fileSize = HEADER_SIZE + (long) newCapacity * SLOT_SIZE;
+
+            // A mapped file can't be truncated on every platform, it is only extended and the slots are zeroed below.
+            if (channel.size() < fileSize) {
+                channel.write(ByteBuffer.allocate(1), fileSize - 1);
+            }
+
+            map(fileSize);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Couldn't resize the snapshot index!", exception);
+        }
+
+        for (int position = HEADER_SIZE; position < buffer.capacity(); position += 8) {
+            buffer.putLong(position, 0);
+        }
+
+        capacity = newCapacity;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, capacity);
+        buffer.putInt(24, 0);
+
+        for (int i = 0; i < hashes.length; i++) {
+            insert(hashes[i], offsets[i]);
+        }
+
+        buffer.putInt(12, size);
+        setCoveredLength(covered);
+    }
+
+    private void map(long fileSize) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    }
+
+    /**
+     * Hash a key with 64 bit FNV-1a.
+     *
+     * @param key the key.
+     * @return the hash.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte current : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= current & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,587 @@
+package de.presti.wrapper.tiktok.store;
+
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * An embedded append-only store for snapshots of Users and Videos.
+ * Every snapshot is appended to a log file as a checksummed record, a memory mapped index points to the latest
+ * snapshot of every User id, secUID, name and Video id.
+ * Records of an interrupted write are cut off when the store is opened, superseded records are removed by {@link #compact()}.
+ * The log is only forced to the disk by {@link #sync()} and {@link #close()}.
+ */
+@Slf4j
+public class SnapshotStore implements AutoCloseable {
+
+    private static final String LOG_FILE = "snapshots.log";
+    private static final String INDEX_FILE = "snapshots.idx";
+    private static final String COMPACT_FILE = "snapshots.log.compact";
+
+    private static final byte TYPE_USER = 1;
+    private static final byte TYPE_VIDEO = 2;
+
+    /**
+     * The size of the record header, the length and the checksum of the body.
+     */
+    private static final int RECORD_HEADER = 8;
+
+    /**
+     * The directory of the store.
+     */
+    private final Path directory;
+
+    /**
+     * The index of the latest records.
+     */
+    private final SnapshotIndex index;
+
+    /**
+     * Guards the log and the index, lookups share it while appends and compactions own it.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The channel of the log file.
+     */
+    private FileChannel logChannel;
+
+    /**
+     * The length of the valid part of the log.
+     */
+    private long logLength;
+
+    private SnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.logChannel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = new SnapshotIndex(directory.resolve(INDEX_FILE));
+
+        try {
+            recover();
+        } catch (IOException | RuntimeException exception) {
+            close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Open or create a store.
+     *
+     * @param directory the directory of the store, created if missing.
+     * @return the store.
+     * @throws IOException if the store couldn't be opened.
+     */
+    public static SnapshotStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new SnapshotStore(directory);
+    }
+
+    /**
+     * Index the records the index does not know yet and cut off the records of an interrupted write.
+     * A cleanly closed index only needs the records after its covered length, otherwise the whole log is scanned.
+     *
+     * @throws IOException if the log couldn't be read.
+     */
+    private void recover() throws IOException {
+        long size = logChannel.size();
+        long start = index.getCoveredLength();
+
+        if (!index.isClean() || start > size) {
+            index.clear();
+            start = 0;
+        }
+
+        logLength = scan(start, size, (offset, type, storedAt, body) -> indexRecord(offset, type, body));
+
+        if (logLength < size) {
+            log.warn("Cutting off {} bytes of incomplete snapshot records.", size - logLength);
+            logChannel.truncate(logLength);
+        }
+
+        index.setCoveredLength(logLength);
+    }
+
+    /**
+     * Store a snapshot of a User.
+     *
+     * @param user the User.
+     * @throws IOException if the snapshot couldn't be written.
+     */
+    public void put(TikTokUser user) throws IOException {
+        append(TYPE_USER, userKey(user), output -> SnapshotCodec.writeUser(output, user));
+    }
+
+    /**
+     * Store a snapshot of a Video.
+     *
+     * @param video the Video.
+     * @throws IOException if the snapshot couldn't be written.
+     */
+    public void put(TikTokVideo video) throws IOException {
+        append(TYPE_VIDEO, videoKey(video.getId()), output -> SnapshotCodec.writeVideo(output, video));
+    }
+
+    /**
+     * Get the latest snapshot of a User.
+     *
+     * @param id the ID of the User.
+     * @return the snapshot or null.
+     * @throws IOException if the snapshot couldn't be read.
+     */
+    public Snapshot<TikTokUser> getUser(String id) throws IOException {
+        if (id.isEmpty()) return null;
+
+        Snapshot<TikTokUser> snapshot = lookupUser(userKey(id));
+        return snapshot != null && id.equals(snapshot.getValue().getId()) ? snapshot : null;
+    }
+
+    /**
+     * Get the latest snapshot of a User.
+     *
+     * @param secUID the secUID of the User.
+     * @return the snapshot or null.
+     * @throws IOException if the snapshot couldn't be read.
+     */
+    public Snapshot<TikTokUser> getUserBySecUID(String secUID) throws IOException {
+        if (secUID.isEmpty()) return null;
+
+        Snapshot<TikTokUser> snapshot = lookupUser(secUIDKey(secUID));
+        return snapshot != null && secUID.equals(snapshot.getValue().getSecUID()) ? getLatest(snapshot.getValue()) : null;
+    }
+
+    /**
+     * Get the latest snapshot of a User, if the User still has the name.
+     *
+     * @param name the name of the User.
+     * @return the snapshot or null.
+     * @throws IOException if the snapshot couldn't be read.
+     */
+    public Snapshot<TikTokUser> getUserByName(String name) throws IOException {
+        Snapshot<TikTokUser> snapshot = lookupUser(nameKey(name));
+
+        if (snapshot == null || !name.equalsIgnoreCase(snapshot.getValue().getName())) return null;
+
+        Snapshot<TikTokUser> latest = getLatest(snapshot.getValue());
+        return latest != null && name.equalsIgnoreCase(latest.getValue().getName()) ? latest : null;
+    }
+
+    /**
+     * Get the latest snapshot of a Video.
+     *
+     * @param id the ID of the Video.
+     * @return the snapshot or null.
+     * @throws IOException if the snapshot couldn't be read.
+     */
+    public Snapshot<TikTokVideo> getVideo(String id) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            long offset = index.get(videoKey(id));
+            if (offset < 0) return null;
+
+            Record record = read(offset);
+            if (record.type != TYPE_VIDEO) return null;
+
+            TikTokVideo video = SnapshotCodec.readVideo(record.entity());
+            return id.equals(video.getId()) ? new Snapshot<>(video, record.storedAt) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read the latest snapshot of every User with a single sequential scan of the log.
+     *
+     * @return the snapshots in the order they were stored.
+     * @throws IOException if the log couldn't be read.
+     */
+    public List<Snapshot<TikTokUser>> getUsers() throws IOException {
+        List<Snapshot<TikTokUser>> users = new ArrayList<>();
+
+        scanLatest((type, storedAt, entity) -> {
+            if (type == TYPE_USER) users.add(new Snapshot<>(SnapshotCodec.readUser(entity), storedAt));
+        });
+
+        return users;
+    }
+
+    /**
+     * Read the latest snapshot of every Video with a single sequential scan of the log.
+     *
+     * @return the snapshots in the order they were stored.
+     * @throws IOException if the log couldn't be read.
+     */
+    public List<Snapshot<TikTokVideo>> getVideos() throws IOException {
+        List<Snapshot<TikTokVideo>> videos = new ArrayList<>();
+
+        scanLatest((type, storedAt, entity) -> {
+            if (type == TYPE_VIDEO) videos.add(new Snapshot<>(SnapshotCodec.readVideo(entity), storedAt));
+        });
+
+        return videos;
+    }
+
+    /**
+     * Rewrite the log with only the latest snapshot of every User and Video and rebuild the index from the new log.
+     * The new log replaces the old one atomically, an interrupted or failed compaction leaves the old log in place.
+     *
+     * @throws IOException if the log couldn't be rewritten.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            Path compactFile = directory.resolve(COMPACT_FILE);
+            long[] length = {0};
+
+            try (FileChannel compacted = FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                scan(0, logLength, (offset, type, storedAt, body) -> {
+                    if (index.get(primaryKey(body)) == offset) {
+                        length[0] += writeRecord(compacted, length[0], body);
+                    }
+                });
+
+                compacted.force(true);
+            }
+
+            logChannel.close();
+
+            try {
+                Files.move(compactFile, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // If the move failed the old log is still in place and matches the index.
+                logChannel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+
+            index.clear();
+            logLength = scan(0, length[0], (offset, type, storedAt, body) -> indexRecord(offset, type, body));
+            index.setCoveredLength(logLength);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the size of the log.
+     *
+     * @return the size in bytes.
+     */
+    public long getLogSize() {
+        lock.readLock().lock();
+
+        try {
+            return logLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Force the log and the index to the disk.
+     *
+     * @throws IOException if the data couldn't be written.
+     */
+    public void sync() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            logChannel.force(false);
+            index.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            logChannel.force(false);
+            logChannel.close();
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the latest snapshot of the User a secondary key pointed to.
+     *
+     * @param user the User the secondary key pointed to.
+     * @return the latest snapshot or null.
+     * @throws IOException if the snapshot couldn't be read.
+     */
+    private Snapshot<TikTokUser> getLatest(TikTokUser user) throws IOException {
+        String key = userKey(user);
+        Snapshot<TikTokUser> latest = lookupUser(key);
+        return latest != null && key.equals(userKey(latest.getValue())) ? latest : null;
+    }
+
+    private Snapshot<TikTokUser> lookupUser(String key) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            long offset = index.get(key);
+            if (offset < 0) return null;
+
+            Record record = read(offset);
+            if (record.type != TYPE_USER) return null;
+
+            return new Snapshot<>(SnapshotCodec.readUser(record.entity()), record.storedAt);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(byte type, String key, EntityWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(type);
+        output.writeLong(System.currentTimeMillis());
+        SnapshotCodec.writeString(output, key);
+        writer.write(output);
+
+        byte[] body = bytes.toByteArray();
+
+        lock.writeLock().lock();
+
+        try {
+            long offset = logLength;
+            logLength += writeRecord(logChannel, offset, body);
+            indexRecord(offset, type, body);
+            index.setCoveredLength(logLength);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int writeRecord(FileChannel channel, long offset, byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + body.length);
+        buffer.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        return RECORD_HEADER + body.length;
+    }
+
+    private Record read(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        readFully(header, offset);
+
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(body, offset + RECORD_HEADER);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        if ((int) crc.getValue() != header.getInt(4)) {
+            throw new IOException("Snapshot record at " + offset + " is corrupted!");
+        }
+
+        return new Record(body.array());
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = logChannel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * Point the keys of a record to its offset.
+     *
+     * @param offset the offset of the record.
+     * @param type   the type of the record.
+     * @param body   the body of the record.
+     * @throws IOException if the record couldn't be decoded.
+     */
+    private void indexRecord(long offset, byte type, byte[] body) throws IOException {
+        Record record = new Record(body);
+        index.put(record.key, offset);
+
+        if (type == TYPE_USER) {
+            TikTokUser user = SnapshotCodec.readUser(record.entity());
+
+            if (!isEmpty(user.getSecUID())) index.put(secUIDKey(user.getSecUID()), offset);
+            if (!isEmpty(user.getName())) index.put(nameKey(user.getName()), offset);
+        }
+    }
+
+    /**
+     * Visit the latest record of every key in log order.
+     *
+     * @param visitor the visitor.
+     * @throws IOException if the log couldn't be read.
+     */
+    private void scanLatest(EntityVisitor visitor) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            scan(0, logLength, (offset, type, storedAt, body) -> {
+                Record record = new Record(body);
+
+                if (index.get(record.key) == offset) {
+                    visitor.visit(type, storedAt, record.entity());
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read the log sequentially and stop at the first incomplete or corrupted record.
+     *
+     * @param start   the offset to start at.
+     * @param end     the offset to stop at.
+     * @param visitor the visitor of every valid record.
+     * @return the offset after the last valid record.
+     * @throws IOException if the log couldn't be read.
+     */
+    private long scan(long start, long end, RecordVisitor visitor) throws IOException {
+        long offset = start;
+
+        try (InputStream stream = Files.newInputStream(directory.resolve(LOG_FILE))) {
+            long skipped = 0;
+            while (skipped < start) {
+                long current = stream.skip(start - skipped);
+                if (current <= 0) return offset;
+                skipped += current;
+            }
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+            CRC32 crc = new CRC32();
+
+            while (offset + RECORD_HEADER <= end) {
+                int length = input.readInt();
+                int checksum = input.readInt();
+
+                if (length < 9 || offset + RECORD_HEADER + length > end) break;
+
+                byte[] body = new byte[length];
+                input.readFully(body);
+
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) break;
+
+                Record record = new Record(body);
+                visitor.visit(offset, record.type, record.storedAt, body);
+                offset += RECORD_HEADER + length;
+            }
+        } catch (EOFException ignore) {
+            // The last record is incomplete.
+        }
+
+        return offset;
+    }
+
+    private static String primaryKey(byte[] body) throws IOException {
+        return new Record(body).key;
+    }
+
+    /**
+     * Get the primary key of a User.
+     * Users of the Research API have no ID, they are keyed by their secUID or their name instead.
+     *
+     * @param user the User.
+     * @return the key.
+     */
+    private static String userKey(TikTokUser user) {
+        if (!isEmpty(user.getId())) return userKey(user.getId());
+        if (!isEmpty(user.getSecUID())) return secUIDKey(user.getSecUID());
+        return nameKey(user.getName() == null ? "" : user.getName());
+    }
+
+    private static String userKey(String id) {
+        return "u:" + id;
+    }
+
+    private static String secUIDKey(String secUID) {
+        return "s:" + secUID;
+    }
+
+    private static String videoKey(String id) {
+        return "v:" + id;
+    }
+
+    private static String nameKey(String name) {
+        return "n:" + name.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * A decoded record body.
+     */
+    private static class Record {
+
+        final byte type;
+        final long storedAt;
+        final String key;
+        final byte[] body;
+        final int entityOffset;
+
+        Record(byte[] body) throws IOException {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+            DataInputStream input = new DataInputStream(bytes);
+
+            this.type = input.readByte();
+            this.storedAt = input.readLong();
+            this.key = SnapshotCodec.readString(input);
+            this.body = body;
+            this.entityOffset = body.length - bytes.available();
+        }
+
+        DataInputStream entity() {
+            return new DataInputStream(new ByteArrayInputStream(body, entityOffset, body.length - entityOffset));
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntityWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long offset, byte type, long storedAt, byte[] body) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface EntityVisitor {
+        void visit(byte type, long storedAt, DataInputStream entity) throws IOException;
+    }
+}
@@ -0,0 +1,138 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending Requests to an endpoint after consecutive failures.
+ * Once the open duration passed, a single trial Request decides if the endpoint is used again.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a CircuitBreaker.
+     */
+    public enum State {
+        /**
+         * Requests are sent.
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected.
+         */
+        OPEN,
+
+        /**
+         * A single trial Request is sent.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The amount of consecutive failures opening the breaker.
+     */
+    private final int failureThreshold;
+
+    /**
+     * The time the breaker stays open, in nanoseconds.
+     */
+    private final long openNanos;
+
+    /**
+     * The source of the current time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    private int failures;
+    private boolean open;
+    private boolean trialInFlight;
+    private long openedAt;
+    private long rejected;
+
+    /**
+     * Create a new CircuitBreaker.
+     *
+     * @param failureThreshold the amount of consecutive failures opening the breaker.
+     * @param openDuration     the time the breaker stays open before a trial Request is sent.
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    /**
+     * Create a new CircuitBreaker.
+     *
+     * @param failureThreshold the amount of consecutive failures opening the breaker.
+     * @param openDuration     the time the breaker stays open before a trial Request is sent.
+     * @param ticker           the source of the current time, in nanoseconds.
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier ticker) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("The failure threshold must be at least 1!");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Check if a Request may be sent, every permitted Request has to report its outcome.
+     *
+     * @return true, if the Request may be sent.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!open) return true;
+
+        if (!trialInFlight && ticker.getAsLong() - openedAt >= openNanos) {
+            trialInFlight = true;
+            return true;
+        }
+
+        rejected++;
+        return false;
+    }
+
+    /**
+     * Report a successful Request, the breaker is closed.
+     */
+    public synchronized void onSuccess() {
+        failures = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    /**
+     * Report a failed Request, the breaker opens once the threshold is reached or the trial Request failed.
+     */
+    public synchronized void onFailure() {
+        failures++;
+
+        if (trialInFlight || failures >= failureThreshold) {
+            open = true;
+            trialInFlight = false;
+            openedAt = ticker.getAsLong();
+        }
+    }
+
+    /**
+     * Get the current state.
+     *
+     * @return the {@link State}.
+     */
+    public synchronized State getState() {
+        if (!open) return State.CLOSED;
+
+        return trialInFlight || ticker.getAsLong() - openedAt >= openNanos ? State.HALF_OPEN : State.OPEN;
+    }
+
+    /**
+     * Get the amount of rejected Requests.
+     *
+     * @return the amount of rejected Requests.
+     */
+    synchronized long getRejected() {
+        return rejected;
+    }
+}
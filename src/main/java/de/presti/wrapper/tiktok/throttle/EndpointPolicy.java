@@ -0,0 +1,354 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The throttling applied to the Requests of an endpoint: a rate limiter, a retry policy, a circuit breaker and a hedge policy, each optional.
+ * Responses with the status 429 or a captcha page count as throttled, they slow down the rate limiter and
+ * the Retry-After and x-ratelimit headers of the server pause it.
+ */
+@Slf4j
+public class EndpointPolicy {
+
+    /**
+     * Captcha pages are small, the recorded profile and video pages are hundreds of kilobytes.
+     */
+    private static final int CAPTCHA_PAGE_LIMIT = 32 * 1024;
+
+    /**
+     * The rate limiter, or null.
+     */
+    @Getter
+    private final RateLimiter rateLimiter;
+
+    /**
+     * The retry policy, or null.
+     */
+    @Getter
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * The circuit breaker, or null.
+     */
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * The hedge policy, or null.
+     */
+    @Getter
+    private final HedgePolicy hedgePolicy;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * The Requests left until the next reset as last reported by the server, -1 if it never reported them.
+     */
+    private final AtomicLong remaining = new AtomicLong(-1);
+
+    private EndpointPolicy(PolicyBuilder builder) {
+        this.rateLimiter = builder.rateLimiter;
+        this.retryPolicy = builder.retryPolicy;
+        this.circuitBreaker = builder.circuitBreaker;
+        this.hedgePolicy = builder.hedgePolicy;
+    }
+
+    /**
+     * Create a new EndpointPolicy builder.
+     *
+     * @return a new EndpointPolicy builder.
+     */
+    public static PolicyBuilder builder() {
+        return new PolicyBuilder();
+    }
+
+    /**
+     * Send a Request under this policy.
+     * The future completes with the last response, or fails if the Request couldn't be sent, was rejected or
+     * only received captcha pages.
+     *
+     * @param sender sends one attempt of the Request.
+     * @return a future with the response.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> execute(Supplier<CompletableFuture<HttpResponse<byte[]>>> sender) {
+        return attempt(sender, 1);
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> attempt(Supplier<CompletableFuture<HttpResponse<byte[]>>> sender, int attempt) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new IOException("The circuit breaker is open, the Request was not sent!"));
+        }
+
+        return send(sender).handle((response, throwable) -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            Duration retryAfter = null;
+            boolean captcha = false;
+
+            if (response != null) {
+                applyRateLimitHeaders(response.headers());
+
+                captcha = isCaptcha(response);
+                boolean isThrottled = response.statusCode() == 429 || captcha;
+
+                if (isThrottled) {
+                    throttled.incrementAndGet();
+                    retryAfter = parseRetryAfter(response.headers());
+
+                    if (rateLimiter != null) {
+                        rateLimiter.onThrottled();
+
+                        if (retryAfter != null) {
+                            rateLimiter.pause(retryAfter);
+                        }
+                    }
+                } else if (response.statusCode() < 500) {
+                    if (circuitBreaker != null) circuitBreaker.onSuccess();
+                    if (rateLimiter != null) rateLimiter.onSuccess();
+
+                    return CompletableFuture.completedFuture(response);
+                }
+            }
+
+            if (circuitBreaker != null) circuitBreaker.onFailure();
+
+            boolean retryable = retryPolicy != null && (response == null ? cause instanceof IOException : captcha || retryPolicy.isRetryable(response.statusCode()));
+            Duration delay = retryable ? retryPolicy.nextDelay(attempt, retryAfter) : null;
+
+            if (delay == null) {
+                if (response == null) return CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+
+                if (captcha) {
+                    return CompletableFuture.<HttpResponse<byte[]>>failedFuture(new IOException("Received a captcha page, URL=" + response.uri()));
+                }
+
+                return CompletableFuture.completedFuture(response);
+            }
+
+            retries.incrementAndGet();
+            log.debug("Retrying a Request in {} ms, attempt {} failed.", delay.toMillis(), attempt);
+
+            Executor delayed = CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS, Runnable::run);
+            return CompletableFuture.runAsync(() -> {
+            }, delayed).thenCompose(unused -> attempt(sender, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Send one attempt of a Request once the rate limiter permits it, hedged if a hedge policy is set.
+     * The duplicate of a hedged Request needs its own permit.
+     *
+     * @param sender sends one attempt of the Request.
+     * @return a future with the response.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(Supplier<CompletableFuture<HttpResponse<byte[]>>> sender) {
+        Supplier<CompletableFuture<HttpResponse<byte[]>>> permitted = () -> {
+            CompletableFuture<Void> permit = rateLimiter == null ? CompletableFuture.completedFuture(null) : rateLimiter.acquire();
+
+            AtomicReference<CompletableFuture<HttpResponse<byte[]>>> sent = new AtomicReference<>();
+            CompletableFuture<HttpResponse<byte[]>> response = permit.thenCompose(unused -> {
+                attempts.incrementAndGet();
+                sent.set(sender.get());
+                return sent.get();
+            });
+
+            // Cancelling the dependent future alone would leave the Request of a lost hedge running.
+            response.whenComplete((value, throwable) -> {
+                CompletableFuture<HttpResponse<byte[]>> request = sent.get();
+                if (response.isCancelled() && request != null) request.cancel(true);
+            });
+
+            return response;
+        };
+
+        if (hedgePolicy == null) return permitted.get();
+
+        return hedgePolicy.execute(permitted, permitted);
+    }
+
+    /**
+     * Record the Requests left and pause the rate limiter if the server reports that none are left until a reset.
+     *
+     * @param headers the headers of the response.
+     */
+    private void applyRateLimitHeaders(HttpHeaders headers) {
+        long remaining = parseLong(headers.firstValue("x-ratelimit-remaining").orElse(null));
+        long reset = parseLong(headers.firstValue("x-ratelimit-reset").orElse(null));
+
+        if (remaining >= 0) {
+            this.remaining.set(remaining);
+        }
+
+        if (rateLimiter == null || remaining != 0 || reset <= 0) return;
+
+        // The reset is either an epoch second or the seconds until the reset.
+        long seconds = reset > 1_000_000_000L ? reset - System.currentTimeMillis() / 1000 : reset;
+
+        if (seconds > 0) {
+            rateLimiter.pause(Duration.ofSeconds(seconds));
+        }
+    }
+
+    /**
+     * Parse the Retry-After header, which is either a delay in seconds or an HTTP date.
+     *
+     * @param headers the headers of the response.
+     * @return the delay, or null if the header is missing or invalid.
+     */
+    static Duration parseRetryAfter(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").map(String::trim).orElse(null);
+
+        if (value == null || value.isEmpty()) return null;
+
+        long seconds = parseLong(value);
+        if (seconds >= 0) return Duration.ofSeconds(seconds);
+
+        try {
+            Duration duration = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return duration.isNegative() ? Duration.ZERO : duration;
+        } catch (DateTimeParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if a response is a captcha page instead of the requested content.
+     *
+     * @param response the response.
+     * @return true, if the response is a captcha page.
+     */
+    static boolean isCaptcha(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+
+        if (body == null || body.length > CAPTCHA_PAGE_LIMIT) return false;
+
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (!contentType.contains("html")) return false;
+
+        return new String(body, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT).contains("captcha");
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) return -1;
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the counters of this policy.
+     *
+     * @return the {@link EndpointStats}.
+     */
+    public EndpointStats getStats() {
+        return new EndpointStats(attempts.get(), retries.get(), throttled.get(),
+                circuitBreaker == null ? 0 : circuitBreaker.getRejected(),
+                rateLimiter == null ? 0 : rateLimiter.getDelayed(),
+                rateLimiter == null ? 0 : rateLimiter.getWaitNanos(),
+                rateLimiter == null ? 0 : rateLimiter.getMaxWaitNanos(),
+                rateLimiter == null ? 0 : rateLimiter.getRate(),
+                remaining.get());
+    }
+
+    /**
+     * Builder class for an EndpointPolicy.
+     */
+    public static class PolicyBuilder {
+
+        /**
+         * The rate limiter, or null.
+         */
+        protected RateLimiter rateLimiter;
+
+        /**
+         * The retry policy, or null.
+         */
+        protected RetryPolicy retryPolicy = RetryPolicy.builder().build();
+
+        /**
+         * The circuit breaker, or null.
+         */
+        protected CircuitBreaker circuitBreaker;
+
+        /**
+         * The hedge policy, or null.
+         */
+        protected HedgePolicy hedgePolicy;
+
+        /**
+         * Change the rate limiter.
+         *
+         * @param rateLimiter the new rate limiter, null for no limit.
+         * @return the PolicyBuilder.
+         */
+        public PolicyBuilder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Change the retry policy.
+         *
+         * @param retryPolicy the new retry policy, null to disable retries.
+         * @return the PolicyBuilder.
+         */
+        public PolicyBuilder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Change the circuit breaker.
+         *
+         * @param circuitBreaker the new circuit breaker, null to disable it.
+         * @return the PolicyBuilder.
+         */
+        public PolicyBuilder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * Change the hedge policy.
+         *
+         * @param hedgePolicy the new hedge policy, null to disable hedging.
+         * @return the PolicyBuilder.
+         */
+        public PolicyBuilder hedgePolicy(HedgePolicy hedgePolicy) {
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+
+        /**
+         * Build the EndpointPolicy.
+         *
+         * @return the EndpointPolicy.
+         */
+        public EndpointPolicy build() {
+            return new EndpointPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the counters of an {@link EndpointPolicy}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EndpointStats {
+
+    /**
+     * The amount of attempts sent, including retries.
+     */
+    long attempts;
+
+    /**
+     * The amount of attempts which were retries.
+     */
+    long retries;
+
+    /**
+     * The amount of responses which signaled throttling, like 429 or a captcha page.
+     */
+    long throttled;
+
+    /**
+     * The amount of Requests rejected by the open circuit breaker.
+     */
+    long rejected;
+
+    /**
+     * The amount of attempts which had to wait for the rate limiter.
+     */
+    long delayed;
+
+    /**
+     * The summed up time attempts waited for the rate limiter, in nanoseconds.
+     */
+    long waitNanos;
+
+    /**
+     * The longest time an attempt waited for the rate limiter, in nanoseconds.
+     */
+    long maxWaitNanos;
+
+    /**
+     * The current rate of the rate limiter, in permits per second.
+     */
+    double rate;
+
+    /**
+     * The Requests left until the next reset as last reported by the server, -1 if it never reported them.
+     */
+    long remaining;
+
+    /**
+     * Get the average time an attempt waited for the rate limiter.
+     *
+     * @return the average wait over all attempts.
+     */
+    public Duration getAverageWait() {
+        return attempts == 0 ? Duration.ZERO : Duration.ofNanos(waitNanos / attempts);
+    }
+}
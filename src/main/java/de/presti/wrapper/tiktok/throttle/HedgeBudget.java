@@ -0,0 +1,211 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Races a call against a second one, the first answer is used and the other call is cancelled.
+ * The second call is sent right away if the first one failed with a failure worth another try, or as a hedge if the
+ * first one is still running after a delay.
+ * Hedges are paid from a budget which every call adds a share of a call to, so the extra load never exceeds that share.
+ */
+public class HedgeBudget {
+
+    /**
+     * The maximum share of calls which are hedged.
+     */
+    private final double maxRatio;
+
+    /**
+     * The maximum amount of hedges the budget can save up.
+     */
+    private final double maxBurst;
+
+    /**
+     * The hedges which can be sent right now.
+     */
+    private double budget;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong wins = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+    private final AtomicLong winnerNanos = new AtomicLong();
+
+    /**
+     * Create a new budget.
+     *
+     * @param maxRatio the maximum share of calls which are hedged, between 0 and 1.
+     * @param maxBurst the maximum amount of hedges the budget can save up, at least 1.
+     */
+    public HedgeBudget(double maxRatio, double maxBurst) {
+        if (maxRatio <= 0 || maxRatio > 1) {
+            throw new IllegalArgumentException("The ratio has to be between 0 and 1!");
+        }
+
+        if (maxBurst < 1) {
+            throw new IllegalArgumentException("The burst has to be at least 1!");
+        }
+
+        this.maxRatio = maxRatio;
+        this.maxBurst = maxBurst;
+    }
+
+    /**
+     * Send a call, and a second one if the first failed or is still running after the hedge delay.
+     *
+     * @param first   sends the call.
+     * @param delay   the time after which the call is hedged, or null to never hedge.
+     * @param retryOn accepts the failures of the first call after which the second one is sent, or null to never send it after a failure.
+     * @param second  sends the second call.
+     * @param <T>     the type of the result.
+     * @return a future with the first answer, it only fails once every sent call failed.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> first, Duration delay,
+                                            Predicate<Throwable> retryOn, Supplier<CompletableFuture<T>> second) {
+        requests.incrementAndGet();
+        deposit();
+
+        long start = System.nanoTime();
+        CompletableFuture<T> primary = invoke(first);
+
+        if (delay == null && retryOn == null) return primary;
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> secondary = new AtomicReference<>();
+        AtomicBoolean secondaryStarted = new AtomicBoolean();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // The last failed call fails the result, unless another call is still pending.
+        Runnable release = () -> {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(failure.get());
+            }
+        };
+
+        // The caller counts the second call as pending before it is started.
+        Runnable startSecondary = () -> {
+            CompletableFuture<T> next = invoke(second);
+            secondary.set(next);
+
+            next.whenComplete((value, throwable) -> {
+                if (throwable == null) {
+                    // The slower first call is cancelled before the result is visible to the caller.
+                    if (!primary.isDone()) {
+                        wins.incrementAndGet();
+                        winnerNanos.addAndGet(System.nanoTime() - start);
+                        primary.cancel(true);
+                    }
+
+                    result.complete(value);
+                } else {
+                    failure.set(unwrap(throwable));
+                    release.run();
+                }
+            });
+        };
+
+        primary.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                CompletableFuture<T> hedge = secondary.get();
+
+                if (result.complete(value) && hedge != null) {
+                    hedge.cancel(true);
+                }
+
+                return;
+            }
+
+            Throwable cause = unwrap(throwable);
+            failure.set(cause);
+
+            if (retryOn != null && retryOn.test(cause) && secondaryStarted.compareAndSet(false, true)) {
+                pending.incrementAndGet();
+                startSecondary.run();
+            }
+
+            release.run();
+        });
+
+        // A cancelled result, e.g. a lost hedge, cancels the calls it is waiting for.
+        result.whenComplete((value, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                primary.cancel(true);
+
+                CompletableFuture<T> hedge = secondary.get();
+                if (hedge != null) hedge.cancel(true);
+            }
+        });
+
+        if (delay != null && !primary.isDone()) {
+            CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (primary.isDone() || secondaryStarted.get()) return;
+
+                if (!withdraw()) {
+                    overBudget.incrementAndGet();
+                    return;
+                }
+
+                // The hedge is pending before it is claimed, so a first call failing meanwhile leaves the result open for it.
+                pending.incrementAndGet();
+
+                if (!secondaryStarted.compareAndSet(false, true) || result.isDone()) {
+                    refund();
+                    release.run();
+                    return;
+                }
+
+                hedges.incrementAndGet();
+                startSecondary.run();
+            });
+        }
+
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> invoke(Supplier<CompletableFuture<T>> sender) {
+        try {
+            return sender.get();
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(maxBurst, budget + maxRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) return false;
+
+        budget--;
+        return true;
+    }
+
+    private synchronized void refund() {
+        budget = Math.min(maxBurst, budget + 1);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * Get the counters of this budget.
+     *
+     * @return the {@link HedgeStats}.
+     */
+    public HedgeStats getStats() {
+        return new HedgeStats(requests.get(), hedges.get(), wins.get(), overBudget.get(), winnerNanos.get());
+    }
+}
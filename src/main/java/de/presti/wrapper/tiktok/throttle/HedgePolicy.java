@@ -0,0 +1,220 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import de.presti.wrapper.tiktok.utility.LatencyWindow;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Sends a duplicate of a Request still running after a percentile of the recent latency, the first answer is used
+ * and the other Request is cancelled.
+ * The duplicates are paid from a {@link HedgeBudget}, so the extra load never exceeds a share of the Requests.
+ */
+public class HedgePolicy {
+
+    /**
+     * The latency percentile after which a Request is hedged.
+     */
+    @Getter
+    private final double percentile;
+
+    /**
+     * The minimum amount of samples before a Request is hedged.
+     */
+    @Getter
+    private final int minSamples;
+
+    /**
+     * The maximum share of Requests which are hedged.
+     */
+    @Getter
+    private final double maxRatio;
+
+    /**
+     * The maximum amount of hedges the budget can save up.
+     */
+    @Getter
+    private final double maxBurst;
+
+    /**
+     * The latencies of the recent answered Requests.
+     */
+    private final LatencyWindow latencies;
+
+    /**
+     * Sends the duplicates and pays for them.
+     */
+    private final HedgeBudget budget;
+
+    private HedgePolicy(HedgeBuilder builder) {
+        this.percentile = builder.percentile;
+        this.minSamples = builder.minSamples;
+        this.maxRatio = builder.maxRatio;
+        this.maxBurst = builder.maxBurst;
+        this.latencies = new LatencyWindow(builder.windowSize);
+        this.budget = new HedgeBudget(builder.maxRatio, builder.maxBurst);
+    }
+
+    /**
+     * Create a new HedgePolicy builder.
+     *
+     * @return a new HedgePolicy builder.
+     */
+    public static HedgeBuilder builder() {
+        return new HedgeBuilder();
+    }
+
+    /**
+     * Send a Request, and its duplicate if it is still running after the hedge delay.
+     *
+     * @param primary sends the Request.
+     * @param hedge   sends the duplicate.
+     * @param <T>     the type of the response.
+     * @return a future with the first answer, it only fails once every sent Request failed.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> primary, Supplier<CompletableFuture<T>> hedge) {
+        return budget.execute(() -> invoke(primary), getDelay(), null, () -> invoke(hedge));
+    }
+
+    private <T> CompletableFuture<T> invoke(Supplier<CompletableFuture<T>> sender) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future = sender.get();
+
+        future.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                latencies.record(System.nanoTime() - start);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Get the time after which a Request is hedged.
+     *
+     * @return the delay, or null if there are not enough samples yet.
+     */
+    public Duration getDelay() {
+        if (latencies.getCount() < minSamples) return null;
+
+        return latencies.getPercentile(percentile);
+    }
+
+    /**
+     * Get the counters of this policy.
+     *
+     * @return the {@link HedgeStats}.
+     */
+    public HedgeStats getStats() {
+        return budget.getStats();
+    }
+
+    /**
+     * Builder class for a HedgePolicy.
+     */
+    public static class HedgeBuilder {
+
+        /**
+         * The latency percentile after which a Request is hedged.
+         */
+        protected double percentile = 0.95;
+
+        /**
+         * The minimum amount of samples before a Request is hedged.
+         */
+        protected int minSamples = 20;
+
+        /**
+         * The maximum share of Requests which are hedged.
+         */
+        protected double maxRatio = 0.05;
+
+        /**
+         * The maximum amount of hedges the budget can save up.
+         */
+        protected double maxBurst = 10;
+
+        /**
+         * The amount of recent latencies the percentile is taken from.
+         */
+        protected int windowSize = LatencyWindow.DEFAULT_SIZE;
+
+        /**
+         * Change the latency percentile after which a Request is hedged.
+         *
+         * @param percentile the percentile between 0 and 1, e.g. 0.95.
+         * @return the HedgeBuilder.
+         */
+        public HedgeBuilder percentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Change the minimum amount of samples before a Request is hedged.
+         *
+         * @param minSamples the new minimum.
+         * @return the HedgeBuilder.
+         */
+        public HedgeBuilder minSamples(int minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * Change the maximum share of Requests which are hedged.
+         *
+         * @param maxRatio the share between 0 and 1, e.g. 0.05 for at most 5% extra Requests.
+         * @return the HedgeBuilder.
+         */
+        public HedgeBuilder maxRatio(double maxRatio) {
+            this.maxRatio = maxRatio;
+            return this;
+        }
+
+        /**
+         * Change the maximum amount of hedges the budget can save up.
+         *
+         * @param maxBurst the new maximum, at least 1.
+         * @return the HedgeBuilder.
+         */
+        public HedgeBuilder maxBurst(double maxBurst) {
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        /**
+         * Change the amount of recent latencies the percentile is taken from.
+         *
+         * @param windowSize the new amount.
+         * @return the HedgeBuilder.
+         */
+        public HedgeBuilder windowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Build the HedgePolicy.
+         *
+         * @return the HedgePolicy.
+         */
+        public HedgePolicy build() {
+            if (percentile <= 0 || percentile > 1) {
+                throw new IllegalStateException("The percentile has to be between 0 and 1!");
+            }
+
+            if (maxRatio <= 0 || maxRatio > 1) {
+                throw new IllegalStateException("The ratio has to be between 0 and 1!");
+            }
+
+            if (maxBurst < 1) {
+                throw new IllegalStateException("The burst has to be at least 1!");
+            }
+
+            return new HedgePolicy(this);
+        }
+    }
+}
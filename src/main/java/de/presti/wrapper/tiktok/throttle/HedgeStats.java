@@ -0,0 +1,59 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * The counters of a {@link HedgeBudget}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class HedgeStats {
+
+    /**
+     * The amount of Requests sent under the policy, without the hedges.
+     */
+    long requests;
+
+    /**
+     * The amount of duplicate Requests sent.
+     */
+    long hedges;
+
+    /**
+     * The amount of Requests answered by their duplicate first.
+     */
+    long wins;
+
+    /**
+     * The amount of Requests which would have been hedged, but the budget was used up.
+     */
+    long overBudget;
+
+    /**
+     * The summed latency of the Requests answered by their duplicate first, in nanoseconds.
+     */
+    long winnerNanos;
+
+    /**
+     * Get the share of Requests which have been hedged.
+     *
+     * @return the hedge rate between 0 and 1.
+     */
+    public double getHedgeRate() {
+        return requests == 0 ? 0 : (double) hedges / requests;
+    }
+
+    /**
+     * Get the mean latency of the Requests answered by their duplicate first, measured from the original Request.
+     *
+     * @return the mean latency, or zero if no hedge won yet.
+     */
+    public Duration getMeanWinnerLatency() {
+        return Duration.ofNanos(wins == 0 ? 0 : winnerNanos / wins);
+    }
+}
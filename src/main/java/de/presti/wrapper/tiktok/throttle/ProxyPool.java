@@ -0,0 +1,505 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import de.presti.wrapper.tiktok.utility.LatencyWindow;
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketAddress;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads Requests over several HTTP proxies, so the per IP throttling of a server applies to each proxy on its own.
+ * Every Request uses the available proxy with the lowest load weighted by its recent latency and error rate.
+ * A proxy answered with the status 429 or a captcha page cools down and is not used until the cool-down passed,
+ * the cool-down doubles with every consecutive throttled Request. Requests exceeding the concurrency of all
+ * available proxies wait without blocking a Thread.
+ */
+public class ProxyPool {
+
+    /**
+     * The weight of a new sample in the error rate.
+     */
+    private static final double ERROR_WEIGHT = 0.1;
+
+    /**
+     * The proxies, in the order they have been added.
+     */
+    private final List<Entry> proxies;
+
+    /**
+     * The maximum amount of concurrent Requests per proxy.
+     */
+    @Getter
+    private final int maxConcurrency;
+
+    /**
+     * The cool-down after the first throttled Request.
+     */
+    @Getter
+    private final Duration coolDown;
+
+    /**
+     * The longest cool-down.
+     */
+    @Getter
+    private final Duration maxCoolDown;
+
+    /**
+     * The amount of consecutive failed Requests after which a proxy cools down.
+     */
+    @Getter
+    private final int failureThreshold;
+
+    /**
+     * Requests waiting for an available proxy.
+     */
+    private final Deque<CompletableFuture<Entry>> waiting = new ArrayDeque<>();
+
+    /**
+     * The position the next search for a proxy starts at, so ties are spread over all of them.
+     */
+    private int next;
+
+    /**
+     * The time a dispatch of the waiting Requests is scheduled at, or 0 if none is scheduled.
+     */
+    private long wakeAt;
+
+    private ProxyPool(ProxyBuilder builder) {
+        this.proxies = builder.proxies.stream().map(Entry::new).collect(Collectors.toList());
+        this.maxConcurrency = builder.maxConcurrency;
+        this.coolDown = builder.coolDown;
+        this.maxCoolDown = builder.maxCoolDown;
+        this.failureThreshold = builder.failureThreshold;
+    }
+
+    /**
+     * Create a new ProxyPool builder.
+     *
+     * @return a new ProxyPool builder.
+     */
+    public static ProxyBuilder builder() {
+        return new ProxyBuilder();
+    }
+
+    /**
+     * Send a Request through the best available proxy.
+     * Cancelling the returned future cancels the Request, or stops waiting for a proxy.
+     *
+     * @param sender sends the Request through the proxy with the given address.
+     * @return a future with the response.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> execute(Function<InetSocketAddress, CompletableFuture<HttpResponse<byte[]>>> sender) {
+        CompletableFuture<Entry> lease = acquire();
+        AtomicReference<CompletableFuture<HttpResponse<byte[]>>> sent = new AtomicReference<>();
+
+        CompletableFuture<HttpResponse<byte[]>> result = lease.thenCompose(entry -> {
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse<byte[]>> future;
+
+            try {
+                future = sender.apply(entry.address);
+            } catch (RuntimeException exception) {
+                future = CompletableFuture.failedFuture(exception);
+            }
+
+            sent.set(future);
+            return future.whenComplete((response, throwable) -> release(entry, response, throwable, System.nanoTime() - start));
+        });
+
+        result.whenComplete((value, throwable) -> {
+            if (!result.isCancelled()) return;
+
+            CompletableFuture<HttpResponse<byte[]>> request = sent.get();
+
+            if (request != null) {
+                request.cancel(true);
+            } else {
+                lease.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    private CompletableFuture<Entry> acquire() {
+        CompletableFuture<Entry> waiter = new CompletableFuture<>();
+
+        synchronized (this) {
+            waiting.add(waiter);
+        }
+
+        dispatch();
+        return waiter;
+    }
+
+    /**
+     * Hand the available proxies to the waiting Requests, and schedule another dispatch for the end of the
+     * shortest cool-down if Requests are left waiting.
+     */
+    private void dispatch() {
+        while (true) {
+            CompletableFuture<Entry> waiter;
+            Entry entry;
+
+            synchronized (this) {
+                if (waiting.isEmpty()) return;
+
+                long now = System.nanoTime();
+                entry = choose(now);
+
+                if (entry == null) {
+                    scheduleWake(now);
+                    return;
+                }
+
+                waiter = waiting.poll();
+                entry.inFlight++;
+                entry.requests++;
+
+                if (entry.firstRequestAt == 0) entry.firstRequestAt = now;
+            }
+
+            // A Request cancelled while waiting gives its proxy back.
+            if (!waiter.complete(entry)) {
+                synchronized (this) {
+                    entry.inFlight--;
+                    entry.requests--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Choose the available proxy with the lowest score.
+     *
+     * @param now the current time in nanoseconds.
+     * @return the proxy, or null if every proxy is cooling down or at its concurrency limit.
+     */
+    private Entry choose(long now) {
+        Entry best = null;
+        double bestScore = Double.MAX_VALUE;
+        int start = Math.floorMod(next++, proxies.size());
+
+        for (int offset = 0; offset < proxies.size(); offset++) {
+            Entry entry = proxies.get((start + offset) % proxies.size());
+
+            if (entry.inFlight >= maxConcurrency || entry.coolDownUntil - now > 0) continue;
+
+            double score = entry.getScore();
+
+            if (score < bestScore) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Schedule a dispatch for the end of the shortest cool-down, a proxy in flight dispatches on its own once it is released.
+     *
+     * @param now the current time in nanoseconds.
+     */
+    private void scheduleWake(long now) {
+        long earliest = 0;
+        boolean found = false;
+
+        for (Entry entry : proxies) {
+            if (entry.inFlight >= maxConcurrency || entry.coolDownUntil - now <= 0) continue;
+
+            if (!found || entry.coolDownUntil - earliest < 0) {
+                earliest = entry.coolDownUntil;
+                found = true;
+            }
+        }
+
+        if (!found || (wakeAt != 0 && wakeAt - earliest <= 0)) return;
+
+        long scheduled = earliest;
+        wakeAt = scheduled;
+        CompletableFuture.delayedExecutor(Math.max(0, scheduled - now), TimeUnit.NANOSECONDS).execute(() -> {
+            synchronized (this) {
+                if (wakeAt == scheduled) wakeAt = 0;
+            }
+
+            dispatch();
+        });
+    }
+
+    /**
+     * Record the outcome of a Request and hand its proxy to the next waiting Request.
+     *
+     * @param entry    the proxy.
+     * @param response the response, or null if the Request failed.
+     * @param throwable the failure, or null.
+     * @param nanos    the latency in nanoseconds.
+     */
+    private void release(Entry entry, HttpResponse<byte[]> response, Throwable throwable, long nanos) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+        synchronized (this) {
+            entry.inFlight--;
+
+            if (response != null && (response.statusCode() == 429 || EndpointPolicy.isCaptcha(response))) {
+                entry.throttled++;
+                entry.consecutiveFailures = 0;
+                entry.recordError(1);
+                coolDown(entry, ++entry.consecutiveThrottles, EndpointPolicy.parseRetryAfter(response.headers()));
+            } else if (response != null && response.statusCode() < 500) {
+                entry.successes++;
+                entry.bytes += response.body() == null ? 0 : response.body().length;
+                entry.consecutiveThrottles = 0;
+                entry.consecutiveFailures = 0;
+                entry.recordError(0);
+                entry.latencies.record(nanos);
+            } else if (!(cause instanceof CancellationException)) {
+                entry.failures++;
+                entry.recordError(1);
+
+                if (++entry.consecutiveFailures >= failureThreshold) {
+                    entry.consecutiveFailures = 0;
+                    coolDown(entry, 1, null);
+                }
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Stop using a proxy for a while.
+     *
+     * @param entry      the proxy.
+     * @param times      the amount of consecutive cool-downs, each one doubles the duration.
+     * @param retryAfter the delay the server asked for, used if it is longer, or null.
+     */
+    private void coolDown(Entry entry, int times, Duration retryAfter) {
+        long nanos = coolDown.toNanos() << Math.min(times - 1, 20);
+
+        if (retryAfter != null) {
+            nanos = Math.max(nanos, retryAfter.toNanos());
+        }
+
+        entry.coolDownUntil = System.nanoTime() + Math.min(nanos, maxCoolDown.toNanos());
+    }
+
+    /**
+     * Get the throughput and health of every proxy.
+     *
+     * @return the {@link ProxyStats}, in the order the proxies have been added.
+     */
+    public synchronized List<ProxyStats> getStats() {
+        long now = System.nanoTime();
+        List<ProxyStats> stats = new ArrayList<>();
+
+        for (Entry entry : proxies) {
+            double seconds = entry.firstRequestAt == 0 ? 0 : (now - entry.firstRequestAt) / 1_000_000_000D;
+
+            stats.add(new ProxyStats(entry.address, entry.requests, entry.successes, entry.throttled, entry.failures, entry.bytes,
+                    entry.inFlight, entry.errorRate, entry.latencies.getPercentile(0.5), entry.latencies.getPercentile(0.95),
+                    Duration.ofNanos(Math.max(0, entry.coolDownUntil - now)), seconds <= 0 ? 0 : entry.successes / seconds));
+        }
+
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * Get the amount of Requests waiting for an available proxy.
+     *
+     * @return the amount of waiting Requests.
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * The state of a proxy, guarded by the pool.
+     */
+    private static class Entry {
+
+        final InetSocketAddress address;
+        final LatencyWindow latencies = new LatencyWindow();
+
+        int inFlight;
+        long requests;
+        long successes;
+        long throttled;
+        long failures;
+        long bytes;
+        double errorRate;
+        int consecutiveThrottles;
+        int consecutiveFailures;
+        long coolDownUntil = System.nanoTime();
+        long firstRequestAt;
+
+        Entry(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        void recordError(double sample) {
+            errorRate += ERROR_WEIGHT * (sample - errorRate);
+        }
+
+        /**
+         * The load of the proxy weighted by its median latency and error rate, unknown proxies are tried first.
+         *
+         * @return the score, lower is better.
+         */
+        double getScore() {
+            Duration median = latencies.getPercentile(0.5);
+            double millis = median == null ? 0 : median.toNanos() / 1_000_000D;
+
+            return (inFlight + 1) * (millis + 1) * (1 + 4 * errorRate);
+        }
+    }
+
+    /**
+     * Builder class for a ProxyPool.
+     */
+    public static class ProxyBuilder {
+
+        /**
+         * The addresses of the proxies.
+         */
+        protected final List<InetSocketAddress> proxies = new ArrayList<>();
+
+        /**
+         * The maximum amount of concurrent Requests per proxy.
+         */
+        protected int maxConcurrency = 8;
+
+        /**
+         * The cool-down after the first throttled Request.
+         */
+        protected Duration coolDown = Duration.ofSeconds(30);
+
+        /**
+         * The longest cool-down.
+         */
+        protected Duration maxCoolDown = Duration.ofMinutes(10);
+
+        /**
+         * The amount of consecutive failed Requests after which a proxy cools down.
+         */
+        protected int failureThreshold = 3;
+
+        /**
+         * Add an HTTP proxy.
+         *
+         * @param host the host of the proxy.
+         * @param port the port of the proxy.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder proxy(String host, int port) {
+            return proxy(new InetSocketAddress(host, port));
+        }
+
+        /**
+         * Add an HTTP proxy.
+         *
+         * @param address the address of the proxy.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder proxy(InetSocketAddress address) {
+            proxies.add(address);
+            return this;
+        }
+
+        /**
+         * Add a proxy, the HTTP Client only supports HTTP proxies, other types are rejected instead of being bypassed.
+         *
+         * @param proxy the proxy.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder proxy(Proxy proxy) {
+            SocketAddress address = proxy.address();
+
+            if (proxy.type() != Proxy.Type.HTTP || !(address instanceof InetSocketAddress)) {
+                throw new IllegalArgumentException("Only HTTP proxies are supported by the HTTP Client, got " + proxy + "!");
+            }
+
+            return proxy((InetSocketAddress) address);
+        }
+
+        /**
+         * Change the maximum amount of concurrent Requests per proxy.
+         *
+         * @param maxConcurrency the new maximum.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Change the cool-down after the first throttled Request, it doubles with every consecutive one.
+         *
+         * @param coolDown the new cool-down.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder coolDown(Duration coolDown) {
+            this.coolDown = coolDown;
+            return this;
+        }
+
+        /**
+         * Change the longest cool-down.
+         *
+         * @param maxCoolDown the new maximum.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder maxCoolDown(Duration maxCoolDown) {
+            this.maxCoolDown = maxCoolDown;
+            return this;
+        }
+
+        /**
+         * Change the amount of consecutive failed Requests after which a proxy cools down.
+         *
+         * @param failureThreshold the new amount.
+         * @return the ProxyBuilder.
+         */
+        public ProxyBuilder failureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Build the ProxyPool.
+         *
+         * @return the ProxyPool.
+         */
+        public ProxyPool build() {
+            if (proxies.isEmpty()) {
+                throw new IllegalStateException("A ProxyPool needs at least one proxy!");
+            }
+
+            if (maxConcurrency < 1 || failureThreshold < 1) {
+                throw new IllegalStateException("The concurrency and failure threshold have to be at least 1!");
+            }
+
+            if (coolDown == null || maxCoolDown == null || coolDown.isNegative() || maxCoolDown.compareTo(coolDown) < 0) {
+                throw new IllegalStateException("The maximum cool-down has to be at least the cool-down!");
+            }
+
+            return new ProxyPool(this);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+/**
+ * The throughput and health of a proxy of a {@link ProxyPool}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProxyStats {
+
+    /**
+     * The address of the proxy.
+     */
+    InetSocketAddress address;
+
+    /**
+     * The amount of Requests sent through the proxy.
+     */
+    long requests;
+
+    /**
+     * The amount of Requests answered successfully.
+     */
+    long successes;
+
+    /**
+     * The amount of Requests answered with the status 429 or a captcha page.
+     */
+    long throttled;
+
+    /**
+     * The amount of Requests which failed or were answered with a server error.
+     */
+    long failures;
+
+    /**
+     * The amount of response bytes received through the proxy.
+     */
+    long bytes;
+
+    /**
+     * The amount of Requests currently sent through the proxy.
+     */
+    int inFlight;
+
+    /**
+     * The recent error rate, between 0 and 1, throttled Requests count as errors.
+     */
+    double errorRate;
+
+    /**
+     * The median latency of the recent successful Requests, or null if there were none.
+     */
+    Duration p50;
+
+    /**
+     * The 95th percentile latency of the recent successful Requests, or null if there were none.
+     */
+    Duration p95;
+
+    /**
+     * The time left until the proxy is used again, zero if it is not cooling down.
+     */
+    Duration coolDown;
+
+    /**
+     * The successful Requests per second since the first Request through the proxy.
+     */
+    double throughput;
+}
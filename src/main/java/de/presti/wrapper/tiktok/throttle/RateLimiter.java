@@ -0,0 +1,231 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * An adaptive token bucket which delays Requests without blocking any Thread.
+ * The rate is halved whenever the server throttles and recovers step by step with every successful Request,
+ * so the limiter settles just below the rate the server accepts.
+ */
+public class RateLimiter {
+
+    /**
+     * The fraction of the maximum rate added back after every successful Request.
+     */
+    private static final double RECOVERY_STEP = 0.05;
+
+    /**
+     * The maximum rate, in permits per second.
+     */
+    private final double maxRate;
+
+    /**
+     * The lowest rate the limiter backs off to, in permits per second.
+     */
+    private final double minRate;
+
+    /**
+     * The maximum amount of permits which can be used at once after an idle period.
+     */
+    private final double burst;
+
+    /**
+     * The source of the current time, in nanoseconds.
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * The current rate, in permits per second.
+     */
+    private double rate;
+
+    /**
+     * The available permits, negative if permits are reserved in advance.
+     */
+    private double permits;
+
+    /**
+     * The time the permits were last refilled at, in the future while the limiter is paused.
+     */
+    private long refilledAt;
+
+    private long acquired;
+    private long delayed;
+    private long waitNanos;
+    private long maxWaitNanos;
+    private long throttled;
+
+    /**
+     * Create a new Limiter.
+     *
+     * @param permitsPerSecond the maximum rate.
+     * @param burst            the maximum amount of permits which can be used at once after an idle period.
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * Create a new Limiter.
+     *
+     * @param permitsPerSecond the maximum rate.
+     * @param burst            the maximum amount of permits which can be used at once after an idle period.
+     * @param ticker           the source of the current time, in nanoseconds.
+     */
+    public RateLimiter(double permitsPerSecond, int burst, LongSupplier ticker) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate must be positive and the burst at least 1!");
+        }
+
+        this.maxRate = permitsPerSecond;
+        this.minRate = permitsPerSecond / 64;
+        this.burst = burst;
+        this.ticker = ticker;
+        this.rate = permitsPerSecond;
+        this.permits = burst;
+        this.refilledAt = ticker.getAsLong();
+    }
+
+    /**
+     * Wait for a permit.
+     *
+     * @return a future completing once the permit is available.
+     */
+    public CompletableFuture<Void> acquire() {
+        long wait = reserve();
+
+        if (wait <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, Runnable::run));
+    }
+
+    /**
+     * Reserve a permit.
+     *
+     * @return the time until the permit is available, in nanoseconds.
+     */
+    public synchronized long reserve() {
+        long now = ticker.getAsLong();
+        refill(now);
+
+        permits -= 1;
+
+        long wait = Math.max(0, refilledAt - now);
+        if (permits < 0) {
+            wait += (long) (-permits / rate * 1_000_000_000L);
+        }
+
+        acquired++;
+
+        if (wait > 0) {
+            delayed++;
+            waitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+        }
+
+        return wait;
+    }
+
+    /**
+     * Stop handing out permits for a while, e.g. because of a Retry-After header.
+     *
+     * @param duration the time to pause.
+     */
+    public synchronized void pause(Duration duration) {
+        long now = ticker.getAsLong();
+        refill(now);
+
+        long until = now + duration.toNanos();
+
+        if (until - refilledAt > 0) {
+            permits = Math.min(permits, 0);
+            refilledAt = until;
+        }
+    }
+
+    /**
+     * Report that the server throttled a Request, the rate is halved.
+     */
+    public synchronized void onThrottled() {
+        refill(ticker.getAsLong());
+        rate = Math.max(minRate, rate / 2);
+        throttled++;
+    }
+
+    /**
+     * Report a successful Request, the rate recovers towards the maximum.
+     */
+    public synchronized void onSuccess() {
+        if (rate < maxRate) {
+            refill(ticker.getAsLong());
+            rate = Math.min(maxRate, rate + maxRate * RECOVERY_STEP);
+        }
+    }
+
+    /**
+     * Get the current rate.
+     *
+     * @return the rate, in permits per second.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Get the amount of permits acquired so far.
+     *
+     * @return the amount of permits.
+     */
+    synchronized long getAcquired() {
+        return acquired;
+    }
+
+    /**
+     * Get the amount of permits which had to wait.
+     *
+     * @return the amount of delayed permits.
+     */
+    synchronized long getDelayed() {
+        return delayed;
+    }
+
+    /**
+     * Get the summed up time permits waited.
+     *
+     * @return the time, in nanoseconds.
+     */
+    synchronized long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * Get the longest time a permit waited.
+     *
+     * @return the time, in nanoseconds.
+     */
+    synchronized long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * Get the amount of throttled Requests reported.
+     *
+     * @return the amount of throttled Requests.
+     */
+    synchronized long getThrottled() {
+        return throttled;
+    }
+
+    private void refill(long now) {
+        if (now - refilledAt > 0) {
+            permits = Math.min(burst, permits + (now - refilledAt) * rate / 1_000_000_000L);
+            refilledAt = now;
+        }
+    }
+}
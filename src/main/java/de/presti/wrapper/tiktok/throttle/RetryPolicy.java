@@ -0,0 +1,161 @@
+package de.presti.wrapper.tiktok.throttle;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides if and when a failed Request is sent again.
+ * Delays grow exponentially with full jitter, a Retry-After of the server is never undercut.
+ */
+@Getter
+public class RetryPolicy {
+
+    /**
+     * The maximum amount of attempts, including the first one.
+     */
+    private final int maxAttempts;
+
+    /**
+     * The delay before the first retry, doubled for every following one.
+     */
+    private final Duration baseDelay;
+
+    /**
+     * The maximum delay, a server asking for a longer pause is not retried.
+     */
+    private final Duration maxDelay;
+
+    /**
+     * The status codes which are retried.
+     */
+    private final Set<Integer> retryStatuses;
+
+    private RetryPolicy(RetryBuilder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.retryStatuses = Collections.unmodifiableSet(new HashSet<>(builder.retryStatuses));
+    }
+
+    /**
+     * Create a new RetryPolicy builder.
+     *
+     * @return a new RetryPolicy builder.
+     */
+    public static RetryBuilder builder() {
+        return new RetryBuilder();
+    }
+
+    /**
+     * Check if a status code is retried.
+     *
+     * @param status the status code.
+     * @return true, if the status is retried.
+     */
+    public boolean isRetryable(int status) {
+        return retryStatuses.contains(status);
+    }
+
+    /**
+     * Calculate the delay before the next attempt.
+     *
+     * @param attempt    the attempt which failed, starting at 1.
+     * @param retryAfter the pause the server asked for, or null.
+     * @return the delay, or null if no further attempt should be made.
+     */
+    public Duration nextDelay(int attempt, Duration retryAfter) {
+        if (attempt >= maxAttempts) return null;
+
+        if (retryAfter != null && retryAfter.compareTo(maxDelay) > 0) return null;
+
+        long ceiling = Math.min(maxDelay.toNanos(), baseDelay.toNanos() << Math.min(attempt - 1, 30));
+        Duration backoff = Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+
+        return retryAfter != null && retryAfter.compareTo(backoff) > 0 ? retryAfter : backoff;
+    }
+
+    /**
+     * Builder class for a RetryPolicy.
+     */
+    public static class RetryBuilder {
+
+        /**
+         * The maximum amount of attempts, including the first one.
+         */
+        protected int maxAttempts = 3;
+
+        /**
+         * The delay before the first retry.
+         */
+        protected Duration baseDelay = Duration.ofMillis(500);
+
+        /**
+         * The maximum delay.
+         */
+        protected Duration maxDelay = Duration.ofSeconds(30);
+
+        /**
+         * The status codes which are retried.
+         */
+        protected Set<Integer> retryStatuses = new HashSet<>(Arrays.asList(429, 500, 502, 503, 504));
+
+        /**
+         * Change the maximum amount of attempts.
+         *
+         * @param maxAttempts the new maximum, 1 disables retries.
+         * @return the RetryBuilder.
+         */
+        public RetryBuilder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Change the delay before the first retry.
+         *
+         * @param baseDelay the new delay.
+         * @return the RetryBuilder.
+         */
+        public RetryBuilder baseDelay(Duration baseDelay) {
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * Change the maximum delay.
+         *
+         * @param maxDelay the new maximum.
+         * @return the RetryBuilder.
+         */
+        public RetryBuilder maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Change the status codes which are retried.
+         *
+         * @param retryStatuses the new status codes.
+         * @return the RetryBuilder.
+         */
+        public RetryBuilder retryStatuses(Integer... retryStatuses) {
+            this.retryStatuses = new HashSet<>(Arrays.asList(retryStatuses));
+            return this;
+        }
+
+        /**
+         * Build the RetryPolicy.
+         *
+         * @return the RetryPolicy.
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package de.presti.wrapper.tiktok.utility;
+
+import de.presti.wrapper.tiktok.entities.BatchResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Utility used to run many lookups with a bounded parallelism.
+ */
+public class BatchUtility {
+
+    /**
+     * The parallelism used if none is given.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    /**
+     * Run a lookup for every key, with at most the given amount of lookups in flight.
+     * A failing lookup does not affect the others, its failure is stored in the result of its key.
+     *
+     * @param keys           the keys, duplicates are only looked up once.
+     * @param lookup         the lookup for a single key.
+     * @param maxParallelism the maximum amount of lookups in flight.
+     * @param <K>            the type of the keys.
+     * @param <V>            the type of the values.
+     * @return a future with the results keyed by input, in the order of the input.
+     */
+    public static <K, V> CompletableFuture<Map<K, BatchResult<V>>> run(Collection<K> keys, Function<K, CompletableFuture<V>> lookup, int maxParallelism) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(maxParallelism);
+        Map<K, CompletableFuture<BatchResult<V>>> futures = new LinkedHashMap<>();
+
+        for (K key : new LinkedHashSet<>(keys)) {
+            futures.put(key, limiter.submit(() -> lookup.apply(key))
+                    .handle((value, throwable) -> throwable == null ? BatchResult.success(value) : BatchResult.failure(unwrap(throwable))));
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(unused -> {
+            Map<K, BatchResult<V>> results = new LinkedHashMap<>();
+            futures.forEach((key, future) -> results.put(key, future.join()));
+            return Collections.unmodifiableMap(results);
+        });
+    }
+
+    /**
+     * Run a lookup for every key, with at most the given amount of lookups in flight, and hand every result to the
+     * consumer as soon as its lookup completed, in the order of completion.
+     * The consumer is never called concurrently, so it does not need to be thread-safe.
+     *
+     * @param keys           the keys, duplicates are only looked up once.
+     * @param lookup         the lookup for a single key.
+     * @param maxParallelism the maximum amount of lookups in flight.
+     * @param consumer       receives the result of every key.
+     * @param <K>            the type of the keys.
+     * @param <V>            the type of the values.
+     * @return a future completing once every result has been handed to the consumer.
+     */
+    public static <K, V> CompletableFuture<Void> forEach(Collection<K> keys, Function<K, CompletableFuture<V>> lookup, int maxParallelism,
+                                                       BiConsumer<K, BatchResult<V>> consumer) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(maxParallelism);
+        // A lock instead of a monitor, a consumer blocking on I/O would otherwise pin the carrier of a virtual Thread.
+        ReentrantLock consumerLock = new ReentrantLock();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (K key : new LinkedHashSet<>(keys)) {
+            futures.add(limiter.submit(() -> lookup.apply(key))
+                    .handle((value, throwable) -> throwable == null ? BatchResult.success(value) : BatchResult.<V>failure(unwrap(throwable)))
+                    .thenAccept(result -> {
+                        consumerLock.lock();
+                        try {
+                            consumer.accept(key, result);
+                        } finally {
+                            consumerLock.unlock();
+                        }
+                    }));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Remove the {@link CompletionException} added by the futures.
+     *
+     * @param throwable the failure.
+     * @return the actual cause.
+     */
+    static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+}
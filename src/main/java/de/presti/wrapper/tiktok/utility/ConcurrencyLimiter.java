@@ -0,0 +1,156 @@
+package de.presti.wrapper.tiktok.utility;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Limits the amount of asynchronous tasks running at the same time, without blocking any Thread.
+ * Tasks exceeding the limit are queued and started once a running task completes.
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * The maximum amount of tasks running at the same time.
+     */
+    @Getter
+    private final int limit;
+
+    /**
+     * The amount of tasks currently running.
+     */
+    private int running;
+
+    /**
+     * Marks Threads which are currently starting queued tasks.
+     */
+    private final ThreadLocal<Boolean> draining = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Tasks waiting for a free slot.
+     */
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+
+    /**
+     * Create a new Limiter.
+     *
+     * @param limit the maximum amount of tasks running at the same time.
+     */
+    public ConcurrencyLimiter(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be at least 1!");
+        }
+
+        this.limit = limit;
+    }
+
+    /**
+     * Submit a task, it is started right away if a slot is free or queued otherwise.
+     * Cancelling the returned future cancels the future of the task, or removes it from the queue if it did not start yet.
+     *
+     * @param task the task creating the future.
+     * @param <T>  the type of the result.
+     * @return a future completing with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Runnable start = () -> {
+            // A task cancelled while queued is never started.
+            if (result.isDone()) {
+                release();
+                return;
+            }
+
+            CompletableFuture<T> future;
+
+            try {
+                future = task.get();
+            } catch (Throwable throwable) {
+                future = CompletableFuture.failedFuture(throwable);
+            }
+
+            CompletableFuture<T> started = future;
+            result.whenComplete((value, throwable) -> {
+                if (result.isCancelled()) started.cancel(true);
+            });
+
+            future.whenComplete((value, throwable) -> {
+                release();
+
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        synchronized (this) {
+            queue.add(start);
+        }
+
+        drain();
+
+        return result;
+    }
+
+    /**
+     * Release a slot and start the next queued tasks.
+     */
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+
+        drain();
+    }
+
+    /**
+     * Start queued tasks while slots are free.
+     * Tasks completing synchronously would otherwise recurse through {@link #release()}, so nested calls on the
+     * same Thread leave the work to the outer loop.
+     */
+    private void drain() {
+        if (draining.get()) return;
+
+        draining.set(true);
+        try {
+            while (true) {
+                Runnable next;
+
+                synchronized (this) {
+                    if (running >= limit || queue.isEmpty()) return;
+
+                    running++;
+                    next = queue.poll();
+                }
+
+                next.run();
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Get the amount of tasks currently running.
+     *
+     * @return the amount of running tasks.
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Get the amount of tasks waiting for a free slot.
+     *
+     * @return the amount of queued tasks.
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,189 @@
+package de.presti.wrapper.tiktok.utility;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility used to extract the embedded JSON data out of a raw TikTok page, without building a DOM.
+ */
+public class ExtractionUtility {
+
+    /**
+     * The Key of the Scope which contains all the page information.
+     */
+    public static final String DEFAULT_SCOPE = "__DEFAULT_SCOPE__";
+
+    /**
+     * Closing tag of the script element, the JSON payload never contains it unescaped.
+     */
+    private static final byte[] SCRIPT_END = "</script>".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Locate the JSON payload of a script element inside the raw page.
+     *
+     * @param page      the raw bytes of the page.
+     * @param elementId the ID of the script element.
+     * @return an array containing the start (inclusive) and end (exclusive) offset of the payload, or null if the element is missing.
+     */
+    public static int[] locate(byte[] page, String elementId) {
+        if (page == null) return null;
+
+        int idIndex = indexOf(page, ("id=\"" + elementId + "\"").getBytes(StandardCharsets.US_ASCII), 0);
+
+        if (idIndex == -1) {
+            idIndex = indexOf(page, ("id='" + elementId + "'").getBytes(StandardCharsets.US_ASCII), 0);
+        }
+
+        if (idIndex == -1) return null;
+
+        int start = -1;
+        for (int i = idIndex; i < page.length; i++) {
+            if (page[i] == '>') {
+                start = i + 1;
+                break;
+            }
+        }
+
+        if (start == -1) return null;
+
+        int end = indexOf(page, SCRIPT_END, start);
+
+        if (end == -1) return null;
+
+        return new int[]{start, end};
+    }
+
+    /**
+     * Open a {@link JsonReader} on the JSON payload of a script element inside the raw page.
+     *
+     * @param page      the raw bytes of the page.
+     * @param elementId the ID of the script element.
+     * @return the {@link JsonReader} or null if the element is missing.
+     */
+    public static JsonReader openReader(byte[] page, String elementId) {
+        int[] range = locate(page, elementId);
+
+        if (range == null) return null;
+
+        return new JsonReader(new InputStreamReader(new ByteArrayInputStream(page, range[0], range[1] - range[0]), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copy a single key of the {@link #DEFAULT_SCOPE} out of the raw page into a compact payload.
+     * The value is copied token by token, so no JSON tree is built and every other key is skipped.
+     * The payload is an object containing only the key, which can be read the same way as the full page data.
+     *
+     * @param page      the raw bytes of the page.
+     * @param elementId the ID of the script element.
+     * @param key       the key of the scope to copy.
+     * @return the payload or null if the element is missing.
+     * @throws IOException if the page data is not valid JSON.
+     */
+    public static byte[] extractPayload(byte[] page, String elementId, String key) throws IOException {
+        try (JsonReader reader = openReader(page, elementId)) {
+            if (reader == null) return null;
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+                writer.beginObject();
+
+                if (JsonUtility.moveToScopeKey(reader, key)) {
+                    writer.name(key);
+                    copy(reader, writer);
+                }
+
+                writer.endObject();
+            }
+
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Open a {@link JsonReader} on a payload returned by {@link #extractPayload(byte[], String, String)}.
+     *
+     * @param payload the payload.
+     * @return the {@link JsonReader}.
+     */
+    public static JsonReader openPayload(byte[] payload) {
+        return new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copy the next value of the reader into the writer.
+     *
+     * @param reader the reader.
+     * @param writer the writer.
+     * @throws IOException if the data is not valid JSON.
+     */
+    static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new IllegalStateException("Unexpected token " + reader.peek());
+        }
+    }
+
+    /**
+     * Search for the first occurrence of the needle.
+     *
+     * @param haystack the bytes to search in.
+     * @param needle   the bytes to search for.
+     * @param from     the offset to start at.
+     * @return the offset of the needle or -1 if not found.
+     */
+    static int indexOf(byte[] haystack, byte[] needle, int from) {
+        byte first = needle[0];
+        int max = haystack.length - needle.length;
+
+        for (int i = from; i <= max; i++) {
+            if (haystack[i] != first) continue;
+
+            int j = 1;
+            while (j < needle.length && haystack[i + j] == needle[j]) j++;
+
+            if (j == needle.length) return i;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,168 @@
+package de.presti.wrapper.tiktok.utility;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * The configuration of the HTTP Client used by a {@link HttpTransport}.
+ * Connections are kept alive and reused, HTTP/2 connections multiplex all Requests to a host over one connection.
+ * The size of the connection pool and the keep alive timeout are JVM wide properties of the JDK, an application which
+ * needs other values sets jdk.httpclient.connectionPoolSize and jdk.httpclient.keepalive.timeout at startup.
+ */
+@Getter
+@ToString
+public class HttpClientConfig {
+
+    /**
+     * The preferred HTTP version, HTTP/1.1 is used if the server does not support HTTP/2.
+     */
+    private final HttpClient.Version version;
+
+    /**
+     * The timeout for establishing a connection.
+     */
+    private final Duration connectTimeout;
+
+    /**
+     * The timeout for receiving the response of a Request.
+     */
+    private final Duration readTimeout;
+
+    /**
+     * If compressed responses should be requested and decoded.
+     */
+    private final boolean compression;
+
+    /**
+     * The Executor the HTTP Client completes the Requests on, or null for the default cached Thread pool of the JDK.
+     */
+    private final Executor executor;
+
+    private HttpClientConfig(ConfigBuilder builder) {
+        this.version = builder.version;
+        this.connectTimeout = builder.connectTimeout;
+        this.readTimeout = builder.readTimeout;
+        this.compression = builder.compression;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * Create a new Config builder.
+     *
+     * @return a new Config builder.
+     */
+    public static ConfigBuilder builder() {
+        return new ConfigBuilder();
+    }
+
+    /**
+     * Create a new Config builder with the values of this Config.
+     *
+     * @return a new Config builder.
+     */
+    public ConfigBuilder toBuilder() {
+        return builder().version(version).connectTimeout(connectTimeout).readTimeout(readTimeout).compression(compression)
+                .executor(executor);
+    }
+
+    /**
+     * Builder class for a HttpClientConfig.
+     */
+    public static class ConfigBuilder {
+
+        /**
+         * The preferred HTTP version.
+         */
+        protected HttpClient.Version version = HttpClient.Version.HTTP_2;
+
+        /**
+         * The timeout for establishing a connection.
+         */
+        protected Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * The timeout for receiving the response of a Request.
+         */
+        protected Duration readTimeout = Duration.ofSeconds(30);
+
+        /**
+         * If compressed responses should be requested and decoded.
+         */
+        protected boolean compression = true;
+
+        /**
+         * The Executor the HTTP Client completes the Requests on.
+         */
+        protected Executor executor;
+
+        /**
+         * Change the preferred HTTP version.
+         *
+         * @param version the new version.
+         * @return the ConfigBuilder.
+         */
+        public ConfigBuilder version(HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Change the timeout for establishing a connection.
+         *
+         * @param connectTimeout the new timeout.
+         * @return the ConfigBuilder.
+         */
+        public ConfigBuilder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Change the timeout for receiving the response of a Request.
+         *
+         * @param readTimeout the new timeout.
+         * @return the ConfigBuilder.
+         */
+        public ConfigBuilder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Change if compressed responses should be requested and decoded.
+         *
+         * @param compression true, to request gzip and deflate encoded responses.
+         * @return the ConfigBuilder.
+         */
+        public ConfigBuilder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Change the Executor the HTTP Client completes the Requests on.
+         * The default pool of the JDK creates a new Thread whenever all of its Threads are busy, a bounded pool or virtual Threads
+         * keep the amount of platform Threads flat under many concurrent Requests.
+         *
+         * @param executor the new Executor, null for the default of the JDK.
+         * @return the ConfigBuilder.
+         */
+        public ConfigBuilder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Build the Config.
+         *
+         * @return the Config.
+         */
+        public HttpClientConfig build() {
+            return new HttpClientConfig(this);
+        }
+    }
+}
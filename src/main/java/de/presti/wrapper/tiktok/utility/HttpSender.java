@@ -0,0 +1,23 @@
+package de.presti.wrapper.tiktok.utility;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends a single prepared Request for a {@link HttpTransport}, which handles the throttling, retries, proxies and decoding around it.
+ * The default sends over the JDK HTTP Client, replacing it allows recording, replaying or simulating the responses.
+ */
+@FunctionalInterface
+public interface HttpSender {
+
+    /**
+     * Send a Request, a response with an error status completes the future normally.
+     *
+     * @param request the Request.
+     * @param proxy   the address of the proxy to send it through, or null to send it directly.
+     * @return a future with the response, failing with an {@link java.io.IOException} if the Request couldn't be sent.
+     */
+    CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, InetSocketAddress proxy);
+}
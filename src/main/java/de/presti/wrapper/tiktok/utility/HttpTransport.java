@@ -0,0 +1,446 @@
+package de.presti.wrapper.tiktok.utility;
+
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.metrics.Stage;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.throttle.ProxyPool;
+import de.presti.wrapper.tiktok.throttle.RateLimiter;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Sends the Requests of a client over its own HTTP Client, with its own concurrency limits, throttling policies and proxies.
+ * Clients using different transports do not share their rate limits, connections or quota.
+ */
+public class HttpTransport {
+
+    /**
+     * User-Agent for all the Requests.
+     */
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+
+    /**
+     * The configuration of the HTTP Client.
+     */
+    @Getter
+    private volatile HttpClientConfig clientConfig;
+
+    /**
+     * The non-blocking HTTP Client used for all Requests, created on the first Request.
+     */
+    private volatile HttpClient httpClient;
+
+    /**
+     * The Limiters bounding the concurrent Requests per host.
+     */
+    private final Map<String, ConcurrencyLimiter> hostLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * The throttling policies keyed by endpoint, a host optionally followed by a path prefix.
+     */
+    private final Map<String, EndpointPolicy> endpointPolicies = new ConcurrentHashMap<>();
+
+    /**
+     * The proxies the Requests to a host are spread over, keyed by host.
+     */
+    private final Map<String, ProxyPool> proxyPools = new ConcurrentHashMap<>();
+
+    /**
+     * The HTTP Clients sending through a proxy, keyed by the address of the proxy.
+     */
+    private final Map<InetSocketAddress, HttpClient> proxyClients = new ConcurrentHashMap<>();
+
+    /**
+     * Sends the Requests over the HTTP Clients above.
+     */
+    private final HttpSender clientSender = this::sendWithClient;
+
+    /**
+     * Sends the prepared Requests, the HTTP Clients of this Transport unless replaced.
+     */
+    @Getter
+    private volatile HttpSender sender = clientSender;
+
+    /**
+     * Receives the timings and sizes of the Requests and of the parsing of their responses.
+     */
+    @Getter
+    private volatile Instrumentation instrumentation = Instrumentation.NOOP;
+
+    /**
+     * Create a new Transport with the default configuration.
+     */
+    public HttpTransport() {
+        this(HttpClientConfig.builder().build());
+    }
+
+    /**
+     * Create a new Transport, www.tiktok.com and open.tiktokapis.com are limited to 10 Requests per second and retried.
+     *
+     * @param config the configuration of the HTTP Client.
+     */
+    public HttpTransport(HttpClientConfig config) {
+        this.clientConfig = config;
+        endpointPolicies.put("www.tiktok.com", EndpointPolicy.builder().rateLimiter(new RateLimiter(10, 10)).build());
+        endpointPolicies.put("open.tiktokapis.com", EndpointPolicy.builder().rateLimiter(new RateLimiter(10, 10)).build());
+    }
+
+    /**
+     * Replace the configuration of the HTTP Client, Requests in flight complete on the previous Client.
+     *
+     * @param config the new configuration.
+     */
+    public synchronized void configure(HttpClientConfig config) {
+        clientConfig = config;
+        httpClient = null;
+        proxyClients.clear();
+    }
+
+    /**
+     * Get the HTTP Client and create it if needed.
+     *
+     * @return the {@link HttpClient}.
+     */
+    private HttpClient getHttpClient() {
+        HttpClient client = httpClient;
+
+        if (client != null) return client;
+
+        synchronized (this) {
+            if (httpClient == null) {
+                httpClient = newClientBuilder(clientConfig).build();
+            }
+
+            return httpClient;
+        }
+    }
+
+    /**
+     * Get the HTTP Client sending through a proxy and create it if needed.
+     *
+     * @param proxy the address of the proxy.
+     * @return the {@link HttpClient}.
+     */
+    private HttpClient getHttpClient(InetSocketAddress proxy) {
+        return proxyClients.computeIfAbsent(proxy, address -> newClientBuilder(clientConfig).proxy(ProxySelector.of(address)).build());
+    }
+
+    /**
+     * Send a Request over the HTTP Client, the time until the headers and the download are recorded separately.
+     *
+     * @param request the Request.
+     * @param proxy   the address of the proxy, or null.
+     * @return a future with the response.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendWithClient(HttpRequest request, InetSocketAddress proxy) {
+        HttpClient client = proxy == null ? getHttpClient() : getHttpClient(proxy);
+        Instrumentation recorder = instrumentation;
+
+        if (recorder == Instrumentation.NOOP) {
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        String host = request.uri().getHost();
+        long start = System.nanoTime();
+
+        return client.sendAsync(request, responseInfo -> {
+            long headers = System.nanoTime();
+            recorder.recordStage(Stage.FIRST_BYTE, host, headers - start);
+
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), body -> {
+                recorder.recordStage(Stage.DOWNLOAD, host, System.nanoTime() - headers);
+                return body;
+            });
+        });
+    }
+
+    /**
+     * Create a builder of a HTTP Client with the given configuration.
+     *
+     * @param config the configuration.
+     * @return the {@link HttpClient.Builder}.
+     */
+    private static HttpClient.Builder newClientBuilder(HttpClientConfig config) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(config.getVersion())
+                .connectTimeout(config.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL);
+
+        if (config.getExecutor() != null) {
+            builder.executor(config.getExecutor());
+        }
+
+        return builder;
+    }
+
+    /**
+     * Replace how the prepared Requests are sent, e.g. by a {@link de.presti.wrapper.tiktok.replay.ReplaySender} to serve recorded responses.
+     * Throttling, retries, proxies and decoding still apply to every Request.
+     *
+     * @param sender the new sender, null to send over the HTTP Clients of this Transport again.
+     */
+    public void setSender(HttpSender sender) {
+        this.sender = sender == null ? clientSender : sender;
+    }
+
+    /**
+     * Change the Instrumentation receiving the timings and sizes of the Requests and of the parsing of their responses.
+     *
+     * @param instrumentation the new Instrumentation, null to record nothing.
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation == null ? Instrumentation.NOOP : instrumentation;
+    }
+
+    /**
+     * Spread the Requests to a host over a pool of proxies, each one with its own concurrency limit and cool-down.
+     *
+     * @param host the host, e.g. www.tiktok.com.
+     * @param pool the pool, null to send the Requests directly.
+     */
+    public void setProxyPool(String host, ProxyPool pool) {
+        if (pool == null) {
+            proxyPools.remove(host);
+        } else {
+            proxyPools.put(host, pool);
+        }
+    }
+
+    /**
+     * Get the proxies the Requests to a host are spread over.
+     *
+     * @param host the host, as passed to {@link #setProxyPool(String, ProxyPool)}.
+     * @return the {@link ProxyPool} or null.
+     */
+    public ProxyPool getProxyPool(String host) {
+        return proxyPools.get(host);
+    }
+
+    /**
+     * Limit the amount of concurrent Requests to a host, Requests exceeding it are queued without blocking.
+     *
+     * @param host  the host, e.g. www.tiktok.com.
+     * @param limit the maximum amount of concurrent Requests, 0 or less to remove the limit.
+     */
+    public void setHostConcurrencyLimit(String host, int limit) {
+        if (limit <= 0) {
+            hostLimiters.remove(host);
+        } else {
+            hostLimiters.put(host, new ConcurrencyLimiter(limit));
+        }
+    }
+
+    /**
+     * Change the throttling of an endpoint, the policy with the longest matching endpoint is used for a Request.
+     *
+     * @param endpoint the endpoint, e.g. www.tiktok.com or open.tiktokapis.com/v2/research/video/query.
+     * @param policy   the new policy, null to remove it.
+     */
+    public void setEndpointPolicy(String endpoint, EndpointPolicy policy) {
+        if (policy == null) {
+            endpointPolicies.remove(endpoint);
+        } else {
+            endpointPolicies.put(endpoint, policy);
+        }
+    }
+
+    /**
+     * Get the throttling of an endpoint.
+     *
+     * @param endpoint the endpoint, as passed to {@link #setEndpointPolicy(String, EndpointPolicy)}.
+     * @return the {@link EndpointPolicy} or null.
+     */
+    public EndpointPolicy getEndpointPolicy(String endpoint) {
+        return endpointPolicies.get(endpoint);
+    }
+
+    /**
+     * Find the policy with the longest endpoint matching a URI.
+     *
+     * @param uri the URI of the Request.
+     * @return the {@link EndpointPolicy} or null.
+     */
+    public EndpointPolicy resolvePolicy(URI uri) {
+        String target = uri.getHost() + (uri.getPath() == null ? "" : uri.getPath());
+        String bestMatch = null;
+
+        for (String endpoint : endpointPolicies.keySet()) {
+            boolean matches = target.startsWith(endpoint) && (target.length() == endpoint.length()
+                    || endpoint.endsWith("/") || target.charAt(endpoint.length()) == '/');
+
+            if (matches && (bestMatch == null || endpoint.length() > bestMatch.length())) {
+                bestMatch = endpoint;
+            }
+        }
+
+        return bestMatch == null ? null : endpointPolicies.get(bestMatch);
+    }
+
+    /**
+     * Send a Request throttled by the policy of its endpoint.
+     * The future fails with an {@link IOException} if the Request couldn't be sent or the status is not successful.
+     *
+     * @param request the Request.
+     * @return a future with the body as bytes.
+     */
+    public CompletableFuture<byte[]> requestBytesAsync(RequestUtility.Request request) {
+        return requestBytesAsync(request, null);
+    }
+
+    /**
+     * Send a Request throttled by the given policy, e.g. the one of the credential it is sent with.
+     * The future fails with an {@link IOException} if the Request couldn't be sent or the status is not successful.
+     *
+     * @param request the Request.
+     * @param policy  the policy, null to use the policy of its endpoint.
+     * @return a future with the body as bytes.
+     */
+    public CompletableFuture<byte[]> requestBytesAsync(RequestUtility.Request request, EndpointPolicy policy) {
+        HttpRequest httpRequest;
+
+        try {
+            httpRequest = createHttpRequest(request);
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(new IOException("Invalid Request to " + request.getUrl(), ex));
+        }
+
+        ConcurrencyLimiter limiter = hostLimiters.get(httpRequest.uri().getHost());
+        ProxyPool proxyPool = proxyPools.get(httpRequest.uri().getHost());
+        EndpointPolicy endpointPolicy = policy == null ? resolvePolicy(httpRequest.uri()) : policy;
+
+        // Every attempt chooses its proxy again, so a retry after a throttled response uses another one.
+        HttpSender httpSender = sender;
+        Supplier<CompletableFuture<HttpResponse<byte[]>>> exchange = () -> proxyPool == null ?
+                httpSender.send(httpRequest, null) : proxyPool.execute(proxy -> httpSender.send(httpRequest, proxy));
+
+        Supplier<CompletableFuture<HttpResponse<byte[]>>> sender = () -> limiter == null ? exchange.get() : limiter.submit(exchange);
+
+        CompletableFuture<HttpResponse<byte[]>> responseFuture = endpointPolicy == null ? sender.get() : endpointPolicy.execute(sender);
+
+        return responseFuture
+                .thenApply(response -> {
+                    Instrumentation recorder = instrumentation;
+                    recorder.recordBytes(httpRequest.uri().getHost(), response.body() == null ? 0 : response.body().length);
+
+                    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                        throw new CompletionException(new IOException("HTTP error fetching URL. Status=" + response.statusCode() + ", URL=" + request.getUrl()));
+                    }
+
+                    try {
+                        return decode(response, recorder);
+                    } catch (IOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                });
+    }
+
+    /**
+     * Decode the body of a Response according to its Content-Encoding.
+     *
+     * @param response        the Response.
+     * @param instrumentation receives the time spent decompressing.
+     * @return the decoded body.
+     * @throws IOException if the body couldn't be decoded.
+     */
+    private static byte[] decode(HttpResponse<byte[]> response, Instrumentation instrumentation) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+
+        if (encoding.equals("identity") || encoding.isEmpty()) {
+            return response.body();
+        }
+
+        long start = System.nanoTime();
+        byte[] body = decompress(encoding, response);
+        instrumentation.recordStage(Stage.DECOMPRESSION, response.uri().getHost(), System.nanoTime() - start);
+        return body;
+    }
+
+    /**
+     * Decompress the body of a Response.
+     *
+     * @param encoding the Content-Encoding of the Response.
+     * @param response the Response.
+     * @return the decompressed body.
+     * @throws IOException if the body couldn't be decompressed.
+     */
+    private static byte[] decompress(String encoding, HttpResponse<byte[]> response) throws IOException {
+        byte[] body = response.body();
+
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    return inputStream.readAllBytes();
+                }
+
+            case "deflate":
+                // Some servers send raw deflate data instead of the zlib format the specification asks for.
+                try (InputStream inputStream = new InflaterInputStream(new ByteArrayInputStream(body))) {
+                    return inputStream.readAllBytes();
+                } catch (ZipException ex) {
+                    try (InputStream inputStream = new InflaterInputStream(new ByteArrayInputStream(body), new Inflater(true))) {
+                        return inputStream.readAllBytes();
+                    }
+                }
+
+            default:
+                throw new IOException("Unsupported Content-Encoding " + encoding + ", URL=" + response.uri());
+        }
+    }
+
+    /**
+     * Create the HttpRequest for the Request.
+     *
+     * @param request the Request.
+     * @return the {@link HttpRequest}.
+     */
+    private HttpRequest createHttpRequest(RequestUtility.Request request) {
+        HttpClientConfig config = clientConfig;
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+                .timeout(config.getReadTimeout())
+                .header("User-Agent", USER_AGENT);
+
+        if (config.isCompression()) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+
+        if (!request.getHeaders().isEmpty()) {
+            for (String[] header : request.getHeaders()) {
+                if (header.length == 2) {
+                    builder.setHeader(header[0], header[1]);
+                }
+            }
+        }
+
+        if (request.getBearerAuth() != null) {
+            builder.setHeader("Authorization", "bearer " + request.getBearerAuth());
+        }
+
+        if (request.getMethod() == RequestUtility.Method.GET) {
+            builder.GET();
+        } else {
+            builder.POST(request.getBody() == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(request.getBody()));
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,23 @@
+package de.presti.wrapper.tiktok.utility;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Binds an entity directly from a JSON token stream, without materializing a tree.
+ *
+ * @param <T> the type of the entity.
+ */
+@FunctionalInterface
+public interface JsonBinder<T> {
+
+    /**
+     * Read the entity.
+     *
+     * @param reader the reader positioned before the root value.
+     * @return the entity.
+     * @throws IOException if the data is not valid JSON.
+     */
+    T bind(JsonReader reader) throws IOException;
+}
@@ -0,0 +1,139 @@
+package de.presti.wrapper.tiktok.utility;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility used to read values from a {@link JsonReader} as lenient as the {@link com.google.gson.JsonPrimitive} getters.
+ */
+public class JsonUtility {
+
+    /**
+     * Open a lenient reader on a raw UTF-8 JSON body, without copying it into a String first.
+     *
+     * @param body the body.
+     * @return the reader.
+     */
+    public static JsonReader openReader(byte[] body) {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Read the first value of a raw UTF-8 JSON body.
+     *
+     * @param body the body.
+     * @return the {@link JsonElement} or null, if the body is empty.
+     * @throws IOException if the body is not valid JSON.
+     */
+    public static JsonElement readJson(byte[] body) throws IOException {
+        try (JsonReader reader = openReader(body)) {
+            if (reader.peek() == JsonToken.END_DOCUMENT) return null;
+
+            return JsonParser.parseReader(reader);
+        }
+    }
+
+    /**
+     * Move the reader to the value of a key inside the {@link ExtractionUtility#DEFAULT_SCOPE}.
+     * If the payload has no default scope, the key is searched in the root object.
+     * Everything before the key is skipped without being materialized.
+     *
+     * @param reader the reader positioned before the root object.
+     * @param key    the key to search for.
+     * @return true if the reader is positioned at the value of the key.
+     * @throws IOException if the payload is not valid JSON.
+     */
+    public static boolean moveToScopeKey(JsonReader reader, String key) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (name.equals(ExtractionUtility.DEFAULT_SCOPE) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals(key)) {
+                        return true;
+                    }
+
+                    reader.skipValue();
+                }
+                reader.endObject();
+            } else if (name.equals(key)) {
+                return true;
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Read the next value as String.
+     *
+     * @param reader       the reader.
+     * @param defaultValue the value used if the next value is null or not a primitive.
+     * @return the String.
+     * @throws IOException if the payload is not valid JSON.
+     */
+    public static String readString(JsonReader reader, String defaultValue) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            default:
+                reader.skipValue();
+                return defaultValue;
+        }
+    }
+
+    /**
+     * Read the next value as long, numbers stored as Strings are supported.
+     *
+     * @param reader       the reader.
+     * @param defaultValue the value used if the next value is null or not a number.
+     * @return the long.
+     * @throws IOException if the payload is not valid JSON.
+     */
+    public static long readLong(JsonReader reader, long defaultValue) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextLong();
+            default:
+                reader.skipValue();
+                return defaultValue;
+        }
+    }
+
+    /**
+     * Read the next value as boolean, booleans stored as Strings are supported.
+     *
+     * @param reader the reader.
+     * @return the boolean.
+     * @throws IOException if the payload is not valid JSON.
+     */
+    public static boolean readBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case STRING:
+            case NUMBER:
+                return Boolean.parseBoolean(reader.nextString());
+            default:
+                reader.skipValue();
+                return false;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de.presti.wrapper.tiktok.utility;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets growing with the latency, unlike the {@link LatencyWindow} every sample is kept.
+ * Latencies are recorded in microseconds, every power of two is split into 16 buckets, so percentiles are at most 6.25% too high.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The amount of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 16;
+
+    /**
+     * The amount of samples per bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+
+    /**
+     * The amount of samples.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * The sum of all samples in microseconds.
+     */
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * The largest sample in microseconds.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Add a sample.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+
+        buckets.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Get the bucket of a latency.
+     *
+     * @param micros the latency in microseconds.
+     * @return the index of the bucket.
+     */
+    private static int index(long micros) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - 4);
+        return shift * SUB_BUCKETS + (int) (micros >>> shift);
+    }
+
+    /**
+     * Get the largest latency counted in a bucket.
+     *
+     * @param index the index of the bucket.
+     * @return the latency in microseconds.
+     */
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Get a percentile of all samples.
+     *
+     * @param percentile the percentile, between 0 and 1.
+     * @return the latency, or null if nothing was recorded.
+     */
+    public Duration getPercentile(double percentile) {
+        long total = count.get();
+
+        if (total == 0) return null;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 1) * total));
+        long seen = 0;
+
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.min(upperBound(i), max.get()) * 1000);
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Get the amount of samples.
+     *
+     * @return the amount of samples.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the mean of all samples.
+     *
+     * @return the mean, or null if nothing was recorded.
+     */
+    public Duration getMean() {
+        long total = count.get();
+        return total == 0 ? null : Duration.ofNanos(sum.get() * 1000 / total);
+    }
+
+    /**
+     * Get the largest sample.
+     *
+     * @return the largest latency, or null if nothing was recorded.
+     */
+    public Duration getMax() {
+        return count.get() == 0 ? null : Duration.ofNanos(max.get() * 1000);
+    }
+
+    /**
+     * Get the amount of samples of every used bucket.
+     *
+     * @return the amounts keyed by the largest latency of their bucket, in ascending order.
+     */
+    public SortedMap<Duration, Long> getBuckets() {
+        SortedMap<Duration, Long> result = new TreeMap<>();
+
+        for (int i = 0; i < buckets.length(); i++) {
+            long samples = buckets.get(i);
+            if (samples > 0) {
+                result.put(Duration.ofNanos(upperBound(i) * 1000), samples);
+            }
+        }
+
+        return Collections.unmodifiableSortedMap(result);
+    }
+}
@@ -0,0 +1,91 @@
+package de.presti.wrapper.tiktok.utility;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latencies of a call, to derive percentiles from them.
+ * Older samples are overwritten once the window is full, so the percentiles follow changes quickly.
+ */
+public class LatencyWindow {
+
+    /**
+     * The amount of samples kept if none is given.
+     */
+    public static final int DEFAULT_SIZE = 256;
+
+    /**
+     * The samples in nanoseconds, used as a ring buffer.
+     */
+    private final long[] samples;
+
+    /**
+     * The index the next sample is written to.
+     */
+    private int next;
+
+    /**
+     * The amount of samples in the window.
+     */
+    private int count;
+
+    /**
+     * Create a new Window keeping {@link #DEFAULT_SIZE} samples.
+     */
+    public LatencyWindow() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Create a new Window.
+     *
+     * @param size the amount of samples kept.
+     */
+    public LatencyWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The size must be at least 1!");
+        }
+
+        this.samples = new long[size];
+    }
+
+    /**
+     * Add a sample.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * Get a percentile of the samples in the window.
+     *
+     * @param percentile the percentile, between 0 and 1.
+     * @return the latency, or null if the window is empty.
+     */
+    public Duration getPercentile(double percentile) {
+        long[] sorted;
+
+        synchronized (this) {
+            if (count == 0) return null;
+
+            sorted = Arrays.copyOf(samples, count);
+        }
+
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(Math.min(Math.max(percentile, 0), 1) * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(index, 0)]);
+    }
+
+    /**
+     * Get the amount of samples in the window.
+     *
+     * @return the amount of samples.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+}
@@ -2,16 +2,23 @@ package de.presti.wrapper.tiktok.utility;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonStreamParser;
+import com.google.gson.stream.JsonReader;
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.throttle.ProxyPool;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Utility used to work with HTTP Requests.
@@ -20,9 +27,105 @@ import java.util.List;
 public class RequestUtility {
 
     /**
-     * User-Agent for all the Requests.
+     * The Transport used by the static methods and the static Wrappers.
      */
-    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final HttpTransport TRANSPORT = new HttpTransport();
+
+    /**
+     * Get the Transport used by the static methods and the static Wrappers.
+     *
+     * @return the {@link HttpTransport}.
+     */
+    public static HttpTransport getTransport() {
+        return TRANSPORT;
+    }
+
+    /**
+     * Get the configuration of the shared HTTP Client.
+     *
+     * @return the {@link HttpClientConfig}.
+     */
+    public static HttpClientConfig getClientConfig() {
+        return TRANSPORT.getClientConfig();
+    }
+
+    /**
+     * Replace the configuration of the shared HTTP Client, Requests in flight complete on the previous Client.
+     *
+     * @param config the new configuration.
+     */
+    public static void configure(HttpClientConfig config) {
+        TRANSPORT.configure(config);
+    }
+
+    /**
+     * Limit the amount of concurrent Requests to a host, Requests exceeding it are queued without blocking.
+     *
+     * @param host  the host, e.g. www.tiktok.com.
+     * @param limit the maximum amount of concurrent Requests, 0 or less to remove the limit.
+     */
+    public static void setHostConcurrencyLimit(String host, int limit) {
+        TRANSPORT.setHostConcurrencyLimit(host, limit);
+    }
+
+    /**
+     * Spread the Requests to a host over a pool of proxies, each one with its own concurrency limit and cool-down.
+     *
+     * @param host the host, e.g. www.tiktok.com.
+     * @param pool the pool, null to send the Requests directly.
+     */
+    public static void setProxyPool(String host, ProxyPool pool) {
+        TRANSPORT.setProxyPool(host, pool);
+    }
+
+    /**
+     * Replace how the prepared Requests of the shared Transport are sent, e.g. to replay recorded responses.
+     *
+     * @param sender the new sender, null to send over the shared HTTP Client again.
+     */
+    public static void setSender(HttpSender sender) {
+        TRANSPORT.setSender(sender);
+    }
+
+    /**
+     * Change the Instrumentation of the shared Transport, it receives the timings of the static Wrappers.
+     *
+     * @param instrumentation the new Instrumentation, null to record nothing.
+     */
+    public static void setInstrumentation(Instrumentation instrumentation) {
+        TRANSPORT.setInstrumentation(instrumentation);
+    }
+
+    /**
+     * Change the throttling of an endpoint, the policy with the longest matching endpoint is used for a Request.
+     * By default www.tiktok.com and open.tiktokapis.com are limited to 10 Requests per second and retried.
+     *
+     * @param endpoint the endpoint, e.g. www.tiktok.com or open.tiktokapis.com/v2/research/video/query.
+     * @param policy   the new policy, null to remove it.
+     */
+    public static void setEndpointPolicy(String endpoint, EndpointPolicy policy) {
+        TRANSPORT.setEndpointPolicy(endpoint, policy);
+    }
+
+    /**
+     * Get the throttling of an endpoint.
+     *
+     * @param endpoint the endpoint, as passed to {@link #setEndpointPolicy(String, EndpointPolicy)}.
+     * @return the {@link EndpointPolicy} or null.
+     */
+    public static EndpointPolicy getEndpointPolicy(String endpoint) {
+        return TRANSPORT.getEndpointPolicy(endpoint);
+    }
+
+    /**
+     * Find the policy with the longest endpoint matching a URI.
+     *
+     * @param uri the URI of the Request.
+     * @return the {@link EndpointPolicy} or null.
+     */
+    public static EndpointPolicy resolvePolicy(URI uri) {
+        return TRANSPORT.resolvePolicy(uri);
+    }
 
     /**
      * Send a Request.
@@ -31,39 +134,42 @@ public class RequestUtility {
      * @return an {@link Document}.
      */
     public static Document request(Request request) {
-        Connection connection = Jsoup.connect(request.getUrl())
-                .ignoreContentType(true)
-                .userAgent(USER_AGENT);
-
-        if (!request.getHeaders().isEmpty()) {
-            for (String[] header : request.getHeaders()) {
-                if (header.length == 2) {
-                    connection.header(header[0], header[1]);
-                }
-            }
-        }
+        byte[] body = requestBytes(request);
 
-        if (request.bearerAuth != null) {
-            connection.header("Authorization", "bearer " + request.getBearerAuth());
+        if (body == null) {
+            return null;
         }
 
-        Document document;
-        try {
-
-            if (request.getMethod() == Method.GET) {
-                document = connection.get();
-            } else {
-                document = connection.requestBody(request.getBody()).post();
-            }
+        return Jsoup.parse(new String(body, StandardCharsets.UTF_8), request.getUrl());
+    }
 
-            return document;
-        } catch (Exception ex) {
-            log.error("Couldn't send a Request!", ex);
+    /**
+     * Send a Request and return the raw body without parsing it.
+     *
+     * @param request the Request.
+     * @return the body as bytes.
+     */
+    public static byte[] requestBytes(Request request) {
+        try {
+            return requestBytesAsync(request).join();
+        } catch (CompletionException ex) {
+            log.error("Couldn't send a Request!", ex.getCause());
         }
 
         return null;
     }
 
+    /**
+     * Send a Request without blocking the calling Thread.
+     * The future fails with an {@link IOException} if the Request couldn't be sent or the status is not successful.
+     *
+     * @param request the Request.
+     * @return a future with the body as bytes.
+     */
+    public static CompletableFuture<byte[]> requestBytesAsync(Request request) {
+        return TRANSPORT.requestBytesAsync(request);
+    }
+
     /**
      * Send a Request.
      *
@@ -71,40 +177,122 @@ public class RequestUtility {
      * @return an {@link JsonElement}.
      */
     public static JsonElement requestJson(Request request) {
-        JsonElement jsonObject = new JsonObject();
+        if (request.getHeaders().isEmpty()) {
+            request.getHeaders().add(new String[]{"Content-Type", "application/json"});
+        }
+
+        return parseJson(requestBytes(request), request);
+    }
+
+    /**
+     * Send a Request without blocking the calling Thread.
+     * Failures are reported the same way as {@link #requestJson(Request)} does, with a success property set to false.
+     *
+     * @param request the Request.
+     * @return a future with the {@link JsonElement}.
+     */
+    public static CompletableFuture<JsonElement> requestJsonAsync(Request request) {
+        if (request.getHeaders().isEmpty()) {
+            request.getHeaders().add(new String[]{"Content-Type", "application/json"});
+        }
 
+        return requestBytesAsync(request)
+                .handle((body, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Couldn't send a Request!", throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                        return null;
+                    }
 
+                    return body;
+                })
+                .thenApply(body -> parseJson(body, request));
+    }
+
+    /**
+     * Send a Request without blocking the calling Thread and bind the response directly from the raw body.
+     * Unlike {@link #requestJsonAsync(Request)}, failures are not turned into a JSON object but fail the future.
+     *
+     * @param request the Request.
+     * @param binder  the binder reading the entity from the response.
+     * @param <T>     the type of the entity.
+     * @return a future with the entity.
+     */
+    public static <T> CompletableFuture<T> requestJsonAsync(Request request, JsonBinder<T> binder) {
         if (request.getHeaders().isEmpty()) {
             request.getHeaders().add(new String[]{"Content-Type", "application/json"});
         }
 
-        Document doc = request(request);
+        return requestBytesAsync(request).thenApply(body -> {
+            try (JsonReader reader = JsonUtility.openReader(body)) {
+                return binder.bind(reader);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    /**
+     * Parse the body of a Request into a {@link JsonElement}.
+     * The raw bytes are read by the JSON reader directly, the body is never treated as markup.
+     *
+     * @param body    the body.
+     * @param request the Request.
+     * @return the {@link JsonElement}.
+     */
+    private static JsonElement parseJson(byte[] body, Request request) {
+        JsonElement jsonObject = new JsonObject();
 
-        if (doc == null) {
+        if (body == null) {
             jsonObject.getAsJsonObject().addProperty("success", false);
             return jsonObject;
         }
 
-        String content = doc.body().text();
-
         try {
-            JsonStreamParser jsonStreamParser = new JsonStreamParser(content);
+            JsonElement jsonElement = JsonUtility.readJson(body);
 
-            if (jsonStreamParser.hasNext()) {
-                jsonObject = jsonStreamParser.next();
-            } else {
-                jsonObject.getAsJsonObject().addProperty("success", false);
+            if (jsonElement != null) {
+                return jsonElement;
             }
 
-            return jsonObject;
+            jsonObject.getAsJsonObject().addProperty("success", false);
         } catch (Exception ex) {
-            log.error("Couldn't send a Request!", ex);
-            log.error("Content: {}", content);
+            log.error("Couldn't parse the response of {}!", request.getUrl(), ex);
+            log.error("Content: {}", new String(body, StandardCharsets.UTF_8));
         }
 
         return jsonObject;
     }
 
+    /**
+     * Wait for a future and unwrap its failure.
+     *
+     * @param future the future.
+     * @param <T>    the type of the result.
+     * @return the result.
+     * @throws IOException if the future failed with an {@link IOException}.
+     */
+    public static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException ex) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
     /**
      * Utility class for Requests.
      */
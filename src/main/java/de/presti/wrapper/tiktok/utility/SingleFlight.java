@@ -0,0 +1,118 @@
+package de.presti.wrapper.tiktok.utility;
+
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.metrics.Outcome;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates identical calls which are in flight at the same time, so they share a single execution and result.
+ * Nothing is kept once the execution completed, this is not a cache.
+ *
+ * @param <K> the type of the keys identifying identical calls.
+ * @param <V> the type of the results.
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * The executions currently in flight.
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The amount of calls.
+     */
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * The amount of calls which joined an execution already in flight.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Execute a call or join the identical call already in flight.
+     * Every caller receives its own future, cancelling it does not affect the other callers.
+     *
+     * @param key      the key identifying identical calls.
+     * @param executor the execution, only invoked if no identical call is in flight.
+     * @return a future with the shared result.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> executor) {
+        return execute(key, executor, Instrumentation.NOOP, null);
+    }
+
+    /**
+     * Execute a call or join the identical call already in flight, and record which of both happened.
+     *
+     * @param key             the key identifying identical calls.
+     * @param executor        the execution, only invoked if no identical call is in flight.
+     * @param instrumentation receives if the call was executed or coalesced.
+     * @param source          the name of the calls, e.g. scraper.user.
+     * @return a future with the shared result.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> executor, Instrumentation instrumentation, String source) {
+        calls.incrementAndGet();
+
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            instrumentation.recordOutcome(Outcome.COALESCED, source);
+            return existing.copy();
+        }
+
+        instrumentation.recordOutcome(Outcome.EXECUTED, source);
+
+        CompletableFuture<V> future;
+
+        try {
+            future = executor.get();
+        } catch (Throwable throwable) {
+            future = CompletableFuture.failedFuture(throwable);
+        }
+
+        future.whenComplete((value, throwable) -> {
+            inFlight.remove(key, created);
+
+            if (throwable != null) {
+                created.completeExceptionally(throwable);
+            } else {
+                created.complete(value);
+            }
+        });
+
+        return created.copy();
+    }
+
+    /**
+     * Get the amount of calls.
+     *
+     * @return the amount of calls.
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Get the amount of calls which joined an execution already in flight instead of executing.
+     *
+     * @return the amount of coalesced calls.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Get the amount of executions currently in flight.
+     *
+     * @return the amount of executions.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,63 @@
+package de.presti.wrapper.tiktok.utility;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Utility used to run the Wrapper on virtual Threads.
+ * The Wrapper is compiled for Java 11, therefore virtual Threads are looked up at runtime and only used on Java 21 or newer.
+ */
+public class ThreadUtility {
+
+    /**
+     * Creates an Executor starting a virtual Thread per task, or null if the runtime has no virtual Threads.
+     */
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    /**
+     * Look up {@code Executors.newVirtualThreadPerTaskExecutor()}, it is a preview API before Java 21.
+     *
+     * @return the handle or null, if virtual Threads are not available.
+     */
+    private static MethodHandle findVirtualThreadExecutor() {
+        if (Runtime.version().feature() < 21) return null;
+
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the runtime supports virtual Threads.
+     *
+     * @return true, if the runtime is Java 21 or newer.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Create an Executor starting a new virtual Thread for every task.
+     * A virtual Thread blocked on I/O releases its carrier Thread, so blocking calls like the video list of the Scrapper
+     * do not occupy a platform Thread.
+     *
+     * @return the Executor.
+     * @throws IllegalStateException if the runtime is older than Java 21.
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new IllegalStateException("Virtual Threads require Java 21 or newer!");
+        }
+
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invokeExact();
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Could not create a virtual Thread Executor!", throwable);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import de.presti.wrapper.tiktok.TikTokAsyncWrapper;
+import de.presti.wrapper.tiktok.TikTokWrapper;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.repo.TikTokResearchAPI;
+import de.presti.wrapper.tiktok.routing.BackendRouter;
+import de.presti.wrapper.tiktok.routing.ScraperBackend;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncWrapperTests {
+
+    private StubServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        byte[] profile = ExtractionTests.fixture("user-profile.html");
+        byte[] notFound = ExtractionTests.fixture("user-not-found.html");
+        byte[] video = ExtractionTests.fixture("video.html");
+
+        server = new StubServer();
+        server.handle("/api/post/item_list/", exchange -> StubServer.respond(exchange, "{\"itemList\":[],\"hasMore\":false}"));
+        server.handle("/share/video/", exchange -> StubServer.respond(exchange, "text/html", video));
+        server.handle("/@missing", exchange -> StubServer.respond(exchange, "text/html", notFound));
+        server.handle("/", exchange -> StubServer.respond(exchange, "text/html", profile)).start();
+
+        ScraperBackend scraper = ScraperBackend.builder().baseUrl(server.url("/")).transport(new HttpTransport()).build();
+        TikTokWrapper.setBackendRouter(BackendRouter.builder().backend(scraper).build());
+    }
+
+    @AfterEach
+    void stopServer() {
+        TikTokWrapper.setBackendRouter(null);
+        TikTokWrapper.setTikTokResearchAPI(null);
+        server.close();
+    }
+
+    @Test
+    void responsesAreParsedOnTheExecutor() throws InterruptedException {
+        // The tasks are only run by the test, so nothing is parsed unless it was handed to the Executor.
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        TikTokAsyncWrapper wrapper = new TikTokAsyncWrapper(tasks::add);
+
+        CompletableFuture<TikTokUser> user = wrapper.getUser("ree6bot", false);
+        CompletableFuture<TikTokVideo> video = wrapper.getVideo("7152957515582426373");
+        int handOffs = 0;
+
+        while (!user.isDone() || !video.isDone()) {
+            Runnable task = tasks.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(task, "The lookups should hand their responses to the Executor");
+            task.run();
+            handOffs++;
+        }
+
+        Assertions.assertTrue(handOffs >= 2, "Both responses should be parsed on the Executor");
+
+        Assertions.assertEquals("ree6bot", user.join().getName());
+        Assertions.assertEquals("7152957515582426373", video.join().getId());
+    }
+
+    @Test
+    void blockingLookupKeepsMissingDataInfoException() {
+        MissingDataInfoException exception = Assertions.assertThrows(MissingDataInfoException.class, () -> TikTokWrapper.getUser("missing", false));
+        Assertions.assertNull(exception.getCause(), "A missing User is not a connection failure");
+    }
+
+    @Test
+    void blockingLookupReportsConnectionFailure() {
+        server.close();
+
+        MissingDataInfoException exception = Assertions.assertThrows(MissingDataInfoException.class, () -> TikTokWrapper.getUser("ree6bot", false));
+        Assertions.assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    void blockingResearchLookupKeepsIOException() {
+        TikTokResearchAPI api = new TikTokResearchAPI("key", "secret", "client_credentials");
+        api.setApiUrl(server.url("/v2"));
+        server.close();
+
+        TikTokWrapper.setBackendRouter(null);
+        TikTokWrapper.setTikTokResearchAPI(api);
+
+        Assertions.assertThrows(IOException.class, () -> TikTokWrapper.getUser("ree6bot", false));
+    }
+}
@@ -0,0 +1,61 @@
+import de.presti.wrapper.tiktok.entities.BatchResult;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.BatchUtility;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchTests {
+
+    @Test
+    void boundedParallelismAndPerItemFailures() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Executor delayed = CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS);
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            keys.add("user" + i);
+        }
+        keys.add("user0");
+
+        Map<String, BatchResult<String>> results = BatchUtility.run(keys, key -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+            return CompletableFuture.supplyAsync(() -> {
+                running.decrementAndGet();
+
+                if (key.endsWith("7")) {
+                    throw new MissingDataInfoException("User not found");
+                }
+
+                return key.toUpperCase();
+            }, delayed);
+        }, 8).join();
+
+        Assertions.assertEquals(200, results.size());
+        Assertions.assertTrue(maxRunning.get() <= 8, "Parallelism exceeded: " + maxRunning.get());
+        Assertions.assertEquals("USER1", results.get("user1").getValue());
+        Assertions.assertFalse(results.get("user17").isSuccess());
+        Assertions.assertInstanceOf(MissingDataInfoException.class, results.get("user17").getError());
+    }
+
+    @Test
+    void synchronousTasksDoNotOverflow() {
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            keys.add(i);
+        }
+
+        Map<Integer, BatchResult<Integer>> results = BatchUtility.run(keys, CompletableFuture::completedFuture, 1).join();
+
+        Assertions.assertEquals(100_000, results.size());
+    }
+}
@@ -0,0 +1,78 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+public class BindingTests {
+
+    private static final String ELEMENT_ID = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+    /**
+     * Parse the whole scope into a JSON tree, as the Scrapper did before binding from the token stream.
+     */
+    private static JsonObject tree(byte[] page) {
+        return JsonParser.parseReader(ExtractionUtility.openReader(page, ELEMENT_ID)).getAsJsonObject()
+                .getAsJsonObject(ExtractionUtility.DEFAULT_SCOPE);
+    }
+
+    @Test
+    void userStreamMatchesTree() throws IOException {
+        byte[] page = ExtractionTests.fixture("user-profile.html");
+
+        for (boolean parseVideos : new boolean[]{true, false}) {
+            TikTokUser expected = TikTokUser.fromScraper(tree(page), parseVideos);
+            TikTokUser actual = TikTokUser.fromScraper(ExtractionUtility.openReader(page, ELEMENT_ID), parseVideos);
+
+            Assertions.assertEquals(expected.toString(), actual.toString());
+            Assertions.assertEquals(parseVideos ? 30 : 0, actual.getPosts().size());
+        }
+
+        TikTokUser user = TikTokUser.fromScraper(ExtractionUtility.openReader(page, ELEMENT_ID), true);
+        Assertions.assertEquals("ree6bot", user.getName());
+        Assertions.assertEquals("7229111091085708549", user.getPosts().get(0).getId());
+        Assertions.assertEquals("ree6bot", user.getPosts().get(0).getAuthor());
+    }
+
+    @Test
+    void videoStreamMatchesTree() throws IOException {
+        byte[] page = ExtractionTests.fixture("video.html");
+
+        TikTokVideo expected = TikTokVideo.fromScraper(tree(page));
+        TikTokVideo actual = TikTokVideo.fromScraper(ExtractionUtility.openReader(page, ELEMENT_ID));
+
+        Assertions.assertEquals(expected.toString(), actual.toString());
+        Assertions.assertEquals("7152957515582426373", actual.getId());
+        Assertions.assertNotNull(actual.getCover());
+    }
+
+    @Test
+    void compactPayloadMatchesPage() throws IOException {
+        byte[] userPage = ExtractionTests.fixture("user-profile.html");
+        byte[] userPayload = ExtractionUtility.extractPayload(userPage, ELEMENT_ID, "webapp.user-detail");
+
+        Assertions.assertEquals(TikTokUser.fromScraper(ExtractionUtility.openReader(userPage, ELEMENT_ID), true).toString(),
+                TikTokUser.fromScraper(ExtractionUtility.openPayload(userPayload), true).toString());
+
+        byte[] videoPage = ExtractionTests.fixture("video.html");
+        byte[] videoPayload = ExtractionUtility.extractPayload(videoPage, ELEMENT_ID, "webapp.video-detail");
+
+        Assertions.assertTrue(videoPayload.length < videoPage.length / 4);
+
+        Assertions.assertEquals(TikTokVideo.fromScraper(ExtractionUtility.openReader(videoPage, ELEMENT_ID)).toString(),
+                TikTokVideo.fromScraper(ExtractionUtility.openPayload(videoPayload)).toString());
+    }
+
+    @Test
+    void missingUser() throws IOException {
+        byte[] page = ExtractionTests.fixture("user-not-found.html");
+
+        Assertions.assertThrows(MissingDataInfoException.class, () -> TikTokUser.fromScraper(tree(page), true));
+        Assertions.assertThrows(MissingDataInfoException.class, () -> TikTokUser.fromScraper(ExtractionUtility.openReader(page, ELEMENT_ID), true));
+    }
+}
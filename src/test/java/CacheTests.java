@@ -0,0 +1,122 @@
+import de.presti.wrapper.tiktok.cache.CacheStats;
+import de.presti.wrapper.tiktok.cache.LruResponseCache;
+import de.presti.wrapper.tiktok.cache.ResponseCache;
+import de.presti.wrapper.tiktok.utility.SingleFlight;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CacheTests {
+
+    @Test
+    void separateTimeToLive() {
+        AtomicLong time = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        ResponseCache cache = LruResponseCache.builder()
+                .userTtl(Duration.ofSeconds(10))
+                .videoTtl(Duration.ofSeconds(60))
+                .ticker(time::get)
+                .build();
+
+        cache.get("@ree6bot", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[]{(byte) loads.incrementAndGet()})).join();
+        cache.get("share/video/1", ResponseCache.Kind.VIDEO, () -> CompletableFuture.completedFuture(new byte[]{(byte) loads.incrementAndGet()})).join();
+        Assertions.assertEquals(2, loads.get());
+
+        time.set(Duration.ofSeconds(30).toNanos());
+        cache.get("@ree6bot", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[]{(byte) loads.incrementAndGet()})).join();
+        cache.get("share/video/1", ResponseCache.Kind.VIDEO, () -> CompletableFuture.completedFuture(new byte[]{(byte) loads.incrementAndGet()})).join();
+        Assertions.assertEquals(3, loads.get());
+
+        CacheStats stats = cache.getStats();
+        Assertions.assertEquals(1, stats.getHits());
+        Assertions.assertEquals(3, stats.getMisses());
+        Assertions.assertEquals(1, stats.getExpirations());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByWeight() {
+        ResponseCache cache = LruResponseCache.builder().maxWeight(300).build();
+
+        for (String path : new String[]{"@a", "@b", "@c"}) {
+            cache.get(path, ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[100])).join();
+        }
+
+        cache.get("@a", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[100])).join();
+        cache.get("@d", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[100])).join();
+
+        CacheStats stats = cache.getStats();
+        Assertions.assertEquals(1, stats.getEvictions());
+        Assertions.assertEquals(300, stats.getWeight());
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("@a", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[loads.incrementAndGet()])).join();
+        cache.get("@b", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[loads.incrementAndGet()])).join();
+        Assertions.assertEquals(1, loads.get(), "Only the least recently used entry should have been evicted");
+    }
+
+    @Test
+    void concurrentMissesCollapse() {
+        ResponseCache cache = LruResponseCache.builder().build();
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(cache.get("@hot", ResponseCache.Kind.USER, () -> {
+                loads.incrementAndGet();
+                return load;
+            }));
+        }
+
+        load.complete(new byte[]{1});
+        futures.forEach(future -> Assertions.assertArrayEquals(new byte[]{1}, future.join()));
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(49, cache.getStats().getCollapsed());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        ResponseCache cache = LruResponseCache.builder().build();
+
+        Assertions.assertThrows(Exception.class, () -> cache.get("@a", ResponseCache.Kind.USER, () -> CompletableFuture.failedFuture(new IllegalStateException())).join());
+        Assertions.assertArrayEquals(new byte[]{2}, cache.get("@a", ResponseCache.Kind.USER, () -> CompletableFuture.completedFuture(new byte[]{2})).join());
+    }
+
+    @Test
+    void singleFlightCoalescesOnlyInFlightCalls() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> fetch = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<String> first = flight.execute("share/video/1", () -> {
+            executions.incrementAndGet();
+            return fetch;
+        });
+        CompletableFuture<String> second = flight.execute("share/video/1", () -> {
+            executions.incrementAndGet();
+            return fetch;
+        });
+
+        second.cancel(true);
+        fetch.complete("video");
+
+        Assertions.assertEquals("video", first.join());
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertEquals(1, flight.getCoalesced());
+        Assertions.assertEquals(0, flight.getInFlight());
+
+        flight.execute("share/video/1", () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture("video");
+        }).join();
+
+        Assertions.assertEquals(2, executions.get(), "Completed calls must not be reused");
+    }
+}
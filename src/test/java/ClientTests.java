@@ -0,0 +1,245 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.presti.wrapper.tiktok.TikTokClient;
+import de.presti.wrapper.tiktok.cache.LruResponseCache;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.repo.TikTokScrapper;
+import de.presti.wrapper.tiktok.research.VideoQuery;
+import de.presti.wrapper.tiktok.research.VideoQueryIterator;
+import de.presti.wrapper.tiktok.routing.ResearchBackend;
+import de.presti.wrapper.tiktok.routing.ResearchPool;
+import de.presti.wrapper.tiktok.throttle.ProxyPool;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClientTests {
+
+    private StubServer server;
+
+    /**
+     * The user/info Requests keyed by the client key of their Access Token.
+     */
+    private final Map<String, AtomicInteger> userRequests = new ConcurrentHashMap<>();
+
+    /**
+     * The Website Requests keyed by their first path segment.
+     */
+    private final Map<String, AtomicInteger> pageRequests = new ConcurrentHashMap<>();
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    /**
+     * The Video query pages whose search id was started with another credential.
+     */
+    private final List<String> foreignPages = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        byte[] profile = ExtractionTests.fixture("user-profile.html");
+
+        server = new StubServer(Executors.newFixedThreadPool(8), 0);
+        server.handle("/v2/oauth/token/", exchange -> {
+            String body = StubServer.body(exchange);
+            String key = body.substring(body.indexOf("client_key=") + 11, body.indexOf('&'));
+            tokenRequests.incrementAndGet();
+
+            StubServer.respond(exchange, StubServer.tokenResponse("token-" + key));
+        });
+        server.handle("/v2/research/user/info/", exchange -> {
+            String username = StubServer.username(exchange);
+            String key = exchange.getRequestHeaders().getFirst("Authorization").substring("bearer token-".length());
+            userRequests.computeIfAbsent(key, ignored -> new AtomicInteger()).incrementAndGet();
+
+            if (key.equals("slow")) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            exchange.getResponseHeaders().add("x-ratelimit-remaining", key.equals("exhausted") ? "0" : "100");
+            StubServer.respond(exchange, StubServer.userResponse(username));
+        });
+        server.handle("/v2/research/video/query/", exchange -> {
+            JsonObject query = JsonParser.parseString(StubServer.body(exchange)).getAsJsonObject();
+            String key = exchange.getRequestHeaders().getFirst("Authorization").substring("bearer token-".length());
+            long cursor = query.get("cursor").getAsLong();
+
+            if (query.has("search_id") && !query.get("search_id").getAsString().equals("search-" + key)) {
+                foreignPages.add(query.get("search_id").getAsString() + " -> " + key);
+            }
+
+            JsonArray videos = new JsonArray();
+            JsonObject video = new JsonObject();
+            video.addProperty("id", cursor);
+            videos.add(video);
+
+            JsonObject data = new JsonObject();
+            data.add("videos", videos);
+            data.addProperty("cursor", cursor + 1);
+            data.addProperty("has_more", cursor + 1 < 3);
+            data.addProperty("search_id", "search-" + key);
+
+            JsonObject response = new JsonObject();
+            response.add("data", data);
+            StubServer.respond(exchange, response.toString());
+        });
+        server.handle("/", exchange -> {
+            String segment = exchange.getRequestURI().getPath().split("/")[1];
+            pageRequests.computeIfAbsent(segment, ignored -> new AtomicInteger()).incrementAndGet();
+
+            StubServer.respond(exchange, "text/html", profile);
+        }).start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private String url(String path) {
+        return server.url(path);
+    }
+
+    private int userRequests(String key) {
+        AtomicInteger requests = userRequests.get(key);
+        return requests == null ? 0 : requests.get();
+    }
+
+    private TikTokClient.ClientBuilder researchClient(String... keys) {
+        TikTokClient.ClientBuilder builder = TikTokClient.builder().apiUrl(url("/v2")).scraper(false);
+
+        for (String key : keys) {
+            builder.credential(key, "secret");
+        }
+
+        return builder;
+    }
+
+    @Test
+    void credentialsAreUsedInTurn() {
+        TikTokClient client = researchClient("a", "b", "c").build();
+
+        for (int i = 0; i < 9; i++) {
+            Assertions.assertEquals("user" + i, client.getUser("user" + i, false).join().getName());
+        }
+
+        Assertions.assertEquals(3, userRequests("a"));
+        Assertions.assertEquals(3, userRequests("b"));
+        Assertions.assertEquals(3, userRequests("c"));
+        Assertions.assertEquals(3, tokenRequests.get(), "Every credential should request its own Access Token once");
+        Assertions.assertEquals(List.of(3L, 3L, 3L), new ArrayList<>(client.getResearchPool().getCalls().values()));
+    }
+
+    @Test
+    void queryPagesStayOnTheirCredential() {
+        TikTokClient client = researchClient("a", "b").build();
+        VideoQuery query = VideoQuery.byUsername("ree6bot", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 30));
+
+        try (VideoQueryIterator first = client.queryVideos(query); VideoQueryIterator second = client.queryVideos(query)) {
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(String.valueOf(i), first.next().getId());
+                client.getUser("user" + i, false).join();
+                Assertions.assertEquals(String.valueOf(i), second.next().getId());
+            }
+
+            Assertions.assertFalse(first.hasNext());
+            Assertions.assertFalse(second.hasNext());
+        }
+
+        Assertions.assertTrue(foreignPages.isEmpty(), foreignPages.toString());
+    }
+
+    @Test
+    void leastLoadedAvoidsBusyCredential() throws IOException, InterruptedException {
+        TikTokClient client = researchClient("slow", "fast").distribution(ResearchPool.Distribution.LEAST_LOADED).build();
+        List<CompletableFuture<TikTokUser>> lookups = new ArrayList<>();
+
+        for (ResearchBackend member : client.getResearchPool().getMembers()) {
+            member.getApi().requestAccessToken();
+        }
+
+        for (int i = 0; i < 10; i++) {
+            lookups.add(client.getUser("user" + i, false));
+            Thread.sleep(30);
+        }
+
+        lookups.forEach(CompletableFuture::join);
+
+        Assertions.assertTrue(userRequests("slow") <= 2, userRequests.toString());
+        Assertions.assertEquals(10, userRequests("slow") + userRequests("fast"));
+    }
+
+    @Test
+    void exhaustedCredentialIsSkipped() {
+        TikTokClient client = researchClient("exhausted", "a").build();
+
+        for (int i = 0; i < 6; i++) {
+            client.getUser("user" + i, false).join();
+        }
+
+        // Only the first call used the credential, its response reported that no quota is left.
+        Assertions.assertEquals(1, userRequests("exhausted"));
+        Assertions.assertEquals(5, userRequests("a"));
+        Assertions.assertEquals(0, client.getResearchPool().getMembers().get(0).getRemainingQuota());
+        Assertions.assertEquals(100, client.getResearchPool().getMembers().get(1).getRemainingQuota());
+    }
+
+    @Test
+    void clientsAreIsolated() {
+        TikTokClient first = TikTokClient.builder().websiteUrl(url("/a/")).responseCache(LruResponseCache.builder().build()).build();
+        TikTokClient second = TikTokClient.builder().websiteUrl(url("/b/")).responseCache(LruResponseCache.builder().build()).build();
+
+        TikTokUser user = first.getUser("ree6bot", false).join();
+        first.getUser("ree6bot", false).join();
+        Assertions.assertEquals(user.toString(), second.getUser("ree6bot", false).join().toString());
+
+        Assertions.assertEquals(1, pageRequests.get("a").get(), "The second lookup should be answered by the Cache of the first client");
+        Assertions.assertEquals(1, pageRequests.get("b").get());
+        Assertions.assertNotSame(first.getTransport(), second.getTransport());
+        Assertions.assertNull(TikTokScrapper.getResponseCache());
+    }
+
+    @Test
+    void sharedTransportKeepsItsSettings() {
+        HttpTransport transport = new HttpTransport();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> TikTokClient.builder().transport(transport).instrumentation(Instrumentation.NOOP).build());
+        Assertions.assertThrows(IllegalStateException.class, () -> TikTokClient.builder().transport(transport).websiteUrl(url("/a/"))
+                .proxyPool(ProxyPool.builder().proxy("127.0.0.1", 1).build()).build());
+
+        TikTokClient first = TikTokClient.builder().transport(transport).websiteUrl(url("/a/")).build();
+        TikTokClient second = TikTokClient.builder().transport(transport).websiteUrl(url("/b/")).build();
+        Assertions.assertSame(first.getTransport(), second.getTransport());
+    }
+
+    @Test
+    void closeKeepsGivenExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (TikTokClient client = TikTokClient.builder().websiteUrl(url("/a/")).executor(executor).build()) {
+            client.getUser("ree6bot", false).join();
+        }
+
+        Assertions.assertFalse(executor.isShutdown(), "An Executor given to the builder may be shared");
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,62 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExtractionTests {
+
+    private static final String ELEMENT_ID = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+    private static final List<String> KEYS = Arrays.asList("webapp.user-detail", "webapp.video-detail");
+
+    static byte[] fixture(String name) throws IOException {
+        try (InputStream inputStream = ExtractionTests.class.getResourceAsStream("/fixtures/" + name)) {
+            Assertions.assertNotNull(inputStream, "Missing fixture " + name);
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+
+            return outputStream.toByteArray();
+        }
+    }
+
+    @Test
+    void streamingMatchesDocumentExtraction() throws IOException {
+        for (String name : new String[]{"user-profile.html", "video.html", "user-not-found.html"}) {
+            byte[] page = fixture(name);
+
+            JsonObject scope = JsonParser.parseString(Jsoup.parse(new String(page, StandardCharsets.UTF_8))
+                    .getElementById(ELEMENT_ID).data()).getAsJsonObject().getAsJsonObject(ExtractionUtility.DEFAULT_SCOPE);
+
+            for (String key : KEYS) {
+                JsonObject expected = new JsonObject();
+                if (scope.has(key)) {
+                    expected.add(key, scope.get(key));
+                }
+
+                byte[] payload = ExtractionUtility.extractPayload(page, ELEMENT_ID, key);
+                Assertions.assertEquals(expected, JsonParser.parseReader(ExtractionUtility.openPayload(payload)), name + " " + key);
+            }
+        }
+    }
+
+    @Test
+    void missingElement() throws IOException {
+        byte[] page = "<html><body><script id=\"SIGI_STATE\">{}</script></body></html>".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertNull(ExtractionUtility.openReader(page, ELEMENT_ID));
+        Assertions.assertNull(ExtractionUtility.extractPayload(page, ELEMENT_ID, KEYS.get(0)));
+    }
+}
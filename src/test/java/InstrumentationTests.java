@@ -0,0 +1,185 @@
+import de.presti.wrapper.tiktok.TikTokClient;
+import de.presti.wrapper.tiktok.cache.LruResponseCache;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokUserStats;
+import de.presti.wrapper.tiktok.metrics.Instrumentation;
+import de.presti.wrapper.tiktok.metrics.MicrometerInstrumentation;
+import de.presti.wrapper.tiktok.metrics.Outcome;
+import de.presti.wrapper.tiktok.metrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+public class InstrumentationTests {
+
+    private StubServer server;
+
+    private byte[] compressed;
+
+    /**
+     * Counts the recorded stages, bytes and outcomes.
+     */
+    private static class CountingInstrumentation implements Instrumentation {
+
+        final Map<String, AtomicLong> stages = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+        final AtomicLong bytes = new AtomicLong();
+
+        @Override
+        public void recordStage(Stage stage, String source, long nanos) {
+            Assertions.assertTrue(nanos >= 0);
+            stages.computeIfAbsent(stage + " " + source, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        @Override
+        public void recordBytes(String host, long bytes) {
+            this.bytes.addAndGet(bytes);
+        }
+
+        @Override
+        public void recordOutcome(Outcome outcome, String source) {
+            outcomes.computeIfAbsent(outcome + " " + source, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        long stage(Stage stage, String source) {
+            AtomicLong count = stages.get(stage + " " + source);
+            return count == null ? 0 : count.get();
+        }
+
+        long outcome(Outcome outcome, String source) {
+            AtomicLong count = outcomes.get(outcome + " " + source);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(buffer)) {
+            outputStream.write(ExtractionTests.fixture("user-profile.html"));
+        }
+        compressed = buffer.toByteArray();
+
+        server = new StubServer();
+        server.handle("/", exchange -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            StubServer.respond(exchange, "text/html", compressed);
+        }).start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private TikTokClient.ClientBuilder client(Instrumentation instrumentation) {
+        return TikTokClient.builder().websiteUrl(server.url("/")).instrumentation(instrumentation);
+    }
+
+    @Test
+    void everyStageIsRecorded() {
+        CountingInstrumentation instrumentation = new CountingInstrumentation();
+        TikTokClient client = client(instrumentation).build();
+
+        client.getUser("ree6bot", false).join();
+
+        for (Stage stage : new Stage[]{Stage.FIRST_BYTE, Stage.DOWNLOAD, Stage.DECOMPRESSION}) {
+            Assertions.assertEquals(1, instrumentation.stage(stage, "127.0.0.1"), instrumentation.stages.toString());
+        }
+
+        Assertions.assertEquals(1, instrumentation.stage(Stage.EXTRACTION, "scraper"));
+        Assertions.assertEquals(1, instrumentation.stage(Stage.BINDING, "scraper"));
+        Assertions.assertEquals(compressed.length, instrumentation.bytes.get(), "The bytes should be counted as received");
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.EXECUTED, "scraper.user"));
+    }
+
+    @Test
+    void cacheAndCoalescingOutcomesAreRecorded() {
+        CountingInstrumentation instrumentation = new CountingInstrumentation();
+        TikTokClient client = client(instrumentation).responseCache(LruResponseCache.builder().build()).build();
+
+        CompletableFuture<TikTokUser> first = client.getUser("ree6bot", false);
+        CompletableFuture<TikTokUser> second = client.getUser("ree6bot", false);
+        first.join();
+        second.join();
+        client.getUser("ree6bot", false).join();
+
+        Assertions.assertEquals(2, instrumentation.outcome(Outcome.EXECUTED, "scraper.user"));
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.COALESCED, "scraper.user"));
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.CACHE_MISS, "scraper.user"));
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.CACHE_HIT, "scraper.user"));
+        Assertions.assertEquals(2, instrumentation.stage(Stage.BINDING, "scraper"), "Both executions bind the payload");
+        Assertions.assertEquals(1, instrumentation.stage(Stage.EXTRACTION, "scraper"), "Only the loaded page is extracted");
+    }
+
+    @Test
+    void callsJoiningACacheLoadAreCoalesced() {
+        CountingInstrumentation instrumentation = new CountingInstrumentation();
+        TikTokClient client = client(instrumentation).responseCache(LruResponseCache.builder().build()).build();
+
+        // Both lookups need the same page, but are different calls, so only the cache can share the load.
+        CompletableFuture<TikTokUser> first = client.getUser("ree6bot", false);
+        CompletableFuture<TikTokUserStats> second = client.getScraper().getUserStats("ree6bot", false, Runnable::run);
+        first.join();
+        second.join();
+
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.EXECUTED, "scraper.user"));
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.EXECUTED, "scraper.stats"));
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.CACHE_MISS, "scraper.user"));
+        Assertions.assertEquals(1, instrumentation.outcome(Outcome.COALESCED, "scraper.user"));
+        Assertions.assertEquals(0, instrumentation.outcome(Outcome.CACHE_HIT, "scraper.user"));
+    }
+
+    @Test
+    void micrometerMetersAreRegistered() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TikTokClient client = client(new MicrometerInstrumentation(registry)).build();
+
+        client.getUser("ree6bot", false).join();
+        client.getUser("ree6bot", false).join();
+
+        Assertions.assertEquals(2, registry.get("tiktok.stage").tag("stage", "binding").tag("source", "scraper").timer().count());
+        Assertions.assertTrue(registry.get("tiktok.stage").tag("stage", "first_byte").timer().totalTime(TimeUnit.MILLISECONDS) >= 150);
+        Assertions.assertEquals(2.0 * compressed.length, registry.get("tiktok.received").tag("host", "127.0.0.1").counter().count());
+        Assertions.assertEquals(2.0, registry.get("tiktok.outcome").tag("outcome", "executed").counter().count());
+    }
+
+    @Test
+    void noopDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Instrumentation instrumentation = Instrumentation.NOOP;
+        long id = Thread.currentThread().getId();
+
+        // Warm up the allocation counter itself.
+        threads.getThreadAllocatedBytes(id);
+        long before = threads.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 100_000; i++) {
+            instrumentation.recordStage(Stage.BINDING, "scraper", i);
+            instrumentation.recordBytes("www.tiktok.com", i);
+            instrumentation.recordOutcome(Outcome.CACHE_HIT, "scraper.user");
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        Assertions.assertTrue(allocated < 1024, allocated + " bytes were allocated");
+    }
+}
@@ -0,0 +1,166 @@
+import de.presti.wrapper.tiktok.TikTokClient;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.utility.HttpClientConfig;
+import de.presti.wrapper.tiktok.utility.ThreadUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoadTests {
+
+    private static final int LOOKUPS = 10_000;
+
+    /**
+     * The platform Threads a load may add, the Threads of the HTTP Client, the carriers of the virtual Threads and Threads
+     * the JVM starts on its own. Without a bounded Executor the HTTP Client adds well over a hundred.
+     */
+    private static final int MAX_ADDED_THREADS = 16;
+
+    private StubServer server;
+
+    private final AtomicInteger userRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        ThreadPoolExecutor serverExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+        serverExecutor.prestartAllCoreThreads();
+
+        server = new StubServer(serverExecutor, 1024).handleToken("/v2", "token");
+        server.handle("/v2/research/user/info/", exchange -> {
+            String username = StubServer.username(exchange);
+            userRequests.incrementAndGet();
+
+            StubServer.respond(exchange, StubServer.userResponse(username));
+        }).start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private TikTokClient.ClientBuilder client() {
+        return TikTokClient.builder().apiUrl(server.url("/v2")).scraper(false)
+                .credential("key", "secret").credentialPolicy(() -> EndpointPolicy.builder().build());
+    }
+
+    /**
+     * Warm up the client, so its Access Token, connections and the Threads of its HTTP Client exist before the load.
+     *
+     * @param client the client.
+     */
+    private static void warmUp(TikTokClient client) {
+        client.getTransport().setHostConcurrencyLimit("127.0.0.1", 64);
+
+        for (int i = 0; i < 64; i++) {
+            client.getUser("warmup", false).join();
+        }
+    }
+
+    /**
+     * Wait until no Thread has been started or stopped for half a second, so the Threads of earlier tests which are still
+     * winding down, e.g. their pools or delayed tasks, are not counted as Threads added by the load.
+     *
+     * @param threads the Thread bean.
+     * @return the amount of live Threads.
+     * @throws InterruptedException if the wait was interrupted.
+     */
+    private static int awaitQuietThreadCount(ThreadMXBean threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        long started = threads.getTotalStartedThreadCount();
+        int count = threads.getThreadCount();
+
+        for (int quiet = 0; quiet < 5 && System.nanoTime() < deadline; ) {
+            Thread.sleep(100);
+
+            if (threads.getTotalStartedThreadCount() == started && threads.getThreadCount() == count) {
+                quiet++;
+            } else {
+                quiet = 0;
+                started = threads.getTotalStartedThreadCount();
+                count = threads.getThreadCount();
+            }
+        }
+
+        return count;
+    }
+
+    private static int addedThreads(ThreadMXBean threads, int baseline) {
+        return threads.getPeakThreadCount() - baseline;
+    }
+
+    @Test
+    void concurrentLookupsKeepThreadCountFlat() throws InterruptedException {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+        executor.prestartAllCoreThreads();
+        TikTokClient client = client().executor(executor)
+                .clientConfig(HttpClientConfig.builder().version(HttpClient.Version.HTTP_1_1).executor(executor).build()).build();
+        warmUp(client);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int baseline = awaitQuietThreadCount(threads);
+        threads.resetPeakThreadCount();
+
+        List<CompletableFuture<TikTokUser>> lookups = new ArrayList<>();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups.add(client.getUser("user" + i, false));
+        }
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            Assertions.assertEquals("user" + i, lookups.get(i).join().getName());
+        }
+
+        Assertions.assertTrue(addedThreads(threads, baseline) <= MAX_ADDED_THREADS,
+                "The lookups should not need a Thread each, " + addedThreads(threads, baseline) + " Threads were added");
+        executor.shutdownNow();
+    }
+
+    @Test
+    void blockingLookupsOnVirtualThreads() throws Exception {
+        Assumptions.assumeTrue(ThreadUtility.isVirtualThreadSupported(), "Virtual Threads require Java 21 or newer");
+
+        TikTokClient client = client().virtualThreads(true)
+                .clientConfig(HttpClientConfig.builder().version(HttpClient.Version.HTTP_1_1).build()).build();
+        warmUp(client);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int baseline = awaitQuietThreadCount(threads);
+        threads.resetPeakThreadCount();
+
+        ExecutorService callers = ThreadUtility.newVirtualThreadExecutor();
+        List<Future<String>> lookups = new ArrayList<>();
+        for (int i = 0; i < LOOKUPS; i++) {
+            String name = "user" + i;
+            // Every caller blocks its own Thread until the lookup completed.
+            lookups.add(callers.submit(() -> client.getUser(name, false).join().getName()));
+        }
+        callers.shutdown();
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            Assertions.assertEquals("user" + i, lookups.get(i).get());
+        }
+
+        Assertions.assertTrue(addedThreads(threads, baseline) <= MAX_ADDED_THREADS + Runtime.getRuntime().availableProcessors(),
+                "The blocked callers should not occupy platform Threads, " + addedThreads(threads, baseline) + " Threads were added");
+
+        client.close();
+        Assertions.assertTrue(((ExecutorService) client.getExecutor()).isShutdown(), "Closing should shut down the own Executor");
+    }
+}
@@ -0,0 +1,198 @@
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.routing.ScraperBackend;
+import de.presti.wrapper.tiktok.scraper.PostIterator;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class PostTests {
+
+    /**
+     * The amount of pages of the item list after the profile.
+     */
+    private static final int PAGES = 4;
+
+    private static final int PAGE_SIZE = 35;
+
+    /**
+     * The creation time of the oldest Video in the profile fixture.
+     */
+    private static final long OLDEST = 1660490251L;
+
+    private StubServer server;
+
+    private ScraperBackend scraper;
+
+    /**
+     * The cursors of the item_list Requests, in the order they arrived.
+     */
+    private final List<String> cursors = new CopyOnWriteArrayList<>();
+
+    private volatile boolean emptyItemList;
+
+    /**
+     * The profile served for every User.
+     */
+    private volatile byte[] profile;
+
+    /**
+     * Build a page of the item list, the cursor of a page is the creation time of its last Video in milliseconds.
+     */
+    private static String itemList(long cursor) {
+        int page = (int) ((OLDEST * 1000 - cursor) / (PAGE_SIZE * 1000L));
+        StringBuilder builder = new StringBuilder("{\"statusCode\":0,\"itemList\":[");
+        long createTime = cursor / 1000;
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            createTime--;
+            builder.append(i == 0 ? "" : ",").append("{\"id\":\"").append(page * PAGE_SIZE + i).append("\",\"desc\":\"Post\",\"createTime\":")
+                    .append(createTime).append(",\"author\":{\"uniqueId\":\"ree6bot\",\"id\":\"1\"},\"stats\":{\"playCount\":").append(i).append("}}");
+        }
+
+        return builder.append("],\"cursor\":\"").append(createTime * 1000).append("\",\"hasMore\":").append(page + 1 < PAGES).append('}').toString();
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        profile = ExtractionTests.fixture("user-profile.html");
+
+        server = new StubServer();
+        server.handle("/api/post/item_list/", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            String cursor = query.replaceAll(".*cursor=([0-9]+).*", "$1");
+            cursors.add(cursor);
+
+            Assertions.assertTrue(query.contains("secUid=MS4wLjABAAAAfd_9uu-6gtnwahjkz86jEzvQAxin8jivmqjV2woramI3LSvKCuVB0VBYDWObQAdp"), query);
+            StubServer.respond(exchange, "application/json", emptyItemList ? new byte[0] : itemList(Long.parseLong(cursor)).getBytes(StandardCharsets.UTF_8));
+        });
+        server.handle("/", exchange -> StubServer.respond(exchange, "text/html", profile)).start();
+
+        scraper = ScraperBackend.builder().baseUrl(server.url("/"))
+                .transport(new HttpTransport()).postPageSize(PAGE_SIZE).build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void everyPageIsWalked() {
+        List<TikTokVideo> videos;
+
+        try (Stream<TikTokVideo> stream = scraper.streamVideos("ree6bot", Runnable::run)) {
+            videos = stream.collect(Collectors.toList());
+        }
+
+        Assertions.assertEquals(30 + PAGES * PAGE_SIZE, videos.size());
+        Assertions.assertEquals(PAGES, cursors.size());
+        Assertions.assertEquals(String.valueOf(OLDEST * 1000), cursors.get(0), "The first cursor should follow the profile");
+        Assertions.assertEquals("0", videos.get(30).getId());
+        Assertions.assertEquals(String.valueOf(PAGES * PAGE_SIZE - 1), videos.get(videos.size() - 1).getId());
+
+        List<TikTokVideo> collected = scraper.getVideos("ree6bot", Runnable::run).join();
+        Assertions.assertEquals(videos.size(), collected.size());
+    }
+
+    @Test
+    void userHoldsEveryPost() {
+        TikTokUser user = scraper.getUser("ree6bot", true, Runnable::run).join();
+
+        Assertions.assertEquals("ree6bot", user.getName());
+        Assertions.assertEquals(30 + PAGES * PAGE_SIZE, user.getPosts().size());
+        Assertions.assertEquals(PAGES, cursors.size());
+        Assertions.assertEquals(String.valueOf(PAGES * PAGE_SIZE - 1), user.getPosts().get(user.getPosts().size() - 1).getId());
+
+        Assertions.assertTrue(scraper.getUser("ree6bot", false, Runnable::run).join().getPosts().isEmpty());
+        Assertions.assertEquals(PAGES, cursors.size(), "A User without Videos should not walk the item list");
+    }
+
+    @Test
+    void nextPageIsPrefetched() throws InterruptedException {
+        PostIterator iterator = scraper.iterateVideos("@ree6bot", Runnable::run);
+
+        Assertions.assertTrue(iterator.hasNext());
+        Assertions.assertEquals(1, iterator.getPages());
+
+        // Only the profile has been consumed, the first page of the item list is already in flight.
+        for (int i = 0; i < 100 && cursors.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, cursors.size());
+
+        for (int i = 0; i < 31; i++) {
+            iterator.next();
+        }
+
+        iterator.close();
+        Assertions.assertFalse(iterator.hasNext());
+        Assertions.assertTrue(cursors.size() <= 2, "Closing should stop the walk " + cursors);
+    }
+
+    @Test
+    void refusedDerivedCursorTruncates() {
+        emptyItemList = true;
+
+        List<TikTokVideo> videos = scraper.getVideos("ree6bot", Runnable::run).join();
+        Assertions.assertEquals(30, videos.size(), "The Videos of the profile should be kept");
+
+        PostIterator iterator = scraper.iterateVideos("ree6bot", Runnable::run);
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        Assertions.assertEquals(30, count);
+        Assertions.assertTrue(iterator.isTruncated());
+    }
+
+    @Test
+    void emptyPageAfterWebsiteCursorFails() {
+        emptyItemList = true;
+        profile = withPaging(profile, String.valueOf(OLDEST * 1000));
+
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, () -> scraper.getVideos("ree6bot", Runnable::run).join());
+        Assertions.assertInstanceOf(MissingDataInfoException.class, exception.getCause());
+    }
+
+    @Test
+    void websiteCursorIsFollowed() {
+        profile = withPaging(profile, String.valueOf((OLDEST - 10) * 1000));
+
+        PostIterator iterator = scraper.iterateVideos("ree6bot", Runnable::run);
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        Assertions.assertFalse(iterator.isTruncated());
+        Assertions.assertEquals(String.valueOf((OLDEST - 10) * 1000), cursors.get(0));
+        Assertions.assertEquals(30 + PAGES * PAGE_SIZE, count);
+    }
+
+    /**
+     * Add the "user-post" paging entry of the ItemList to a profile, as the Website sends it for some profiles.
+     */
+    private static byte[] withPaging(byte[] profile, String cursor) {
+        String html = new String(profile, StandardCharsets.UTF_8);
+        String scope = "\"__DEFAULT_SCOPE__\":{";
+        Assertions.assertTrue(html.contains(scope));
+
+        return html.replace(scope, scope + "\"ItemList\":{\"user-post\":{\"cursor\":\"" + cursor + "\",\"hasMore\":true}},")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,171 @@
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.throttle.ProxyPool;
+import de.presti.wrapper.tiktok.throttle.ProxyStats;
+import de.presti.wrapper.tiktok.throttle.RetryPolicy;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProxyTests {
+
+    /**
+     * The origin is never resolved, only the proxies know how to answer it.
+     */
+    private static final String ORIGIN = "http://origin.test/";
+
+    private final List<StubProxy> proxies = new ArrayList<>();
+
+    /**
+     * A local proxy answering every Request itself, counting the Requests it received.
+     */
+    private static class StubProxy {
+
+        final StubServer server;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        /**
+         * The status and body of the answer to a Request, by the number of the Request.
+         */
+        interface Answer {
+            Object[] answer(int request);
+        }
+
+        StubProxy(long delayMillis, Answer answer) throws IOException {
+            server = new StubServer(Executors.newFixedThreadPool(8), 0);
+            server.handle("/", exchange -> {
+                int request = requests.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+
+                inFlight.decrementAndGet();
+                Object[] response = answer.answer(request);
+                StubServer.respond(exchange, (Integer) response[0], "text/html", ((String) response[1]).getBytes(StandardCharsets.UTF_8));
+            }).start();
+        }
+
+        InetSocketAddress getAddress() {
+            return server.getAddress();
+        }
+    }
+
+    private StubProxy proxy(long delayMillis, StubProxy.Answer answer) throws IOException {
+        StubProxy proxy = new StubProxy(delayMillis, answer);
+        proxies.add(proxy);
+        return proxy;
+    }
+
+    @AfterEach
+    void stopProxies() {
+        for (StubProxy proxy : proxies) {
+            proxy.server.close();
+        }
+    }
+
+    private static CompletableFuture<byte[]> get(HttpTransport transport, String path) {
+        return transport.requestBytesAsync(RequestUtility.Request.builder().url(ORIGIN + path).build());
+    }
+
+    @Test
+    void requestsAreSpreadOverProxies() throws IOException {
+        List<StubProxy> stubs = new ArrayList<>();
+        ProxyPool.ProxyBuilder builder = ProxyPool.builder().maxConcurrency(2);
+
+        for (int i = 0; i < 3; i++) {
+            String body = "<html>profile " + i + "</html>";
+            StubProxy stub = proxy(30, request -> new Object[]{200, body});
+            stubs.add(stub);
+            builder.proxy(stub.getAddress());
+        }
+
+        ProxyPool pool = builder.build();
+        HttpTransport transport = new HttpTransport();
+        transport.setProxyPool("origin.test", pool);
+
+        List<CompletableFuture<byte[]>> requests = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            requests.add(get(transport, "page?i=" + i));
+        }
+        requests.forEach(CompletableFuture::join);
+
+        long successes = 0;
+        for (int i = 0; i < stubs.size(); i++) {
+            StubProxy stub = stubs.get(i);
+            ProxyStats stats = pool.getStats().get(i);
+
+            Assertions.assertTrue(stub.maxInFlight.get() <= 2, "The concurrency of a proxy should be capped");
+            Assertions.assertTrue(stub.requests.get() >= 4, "Every proxy should receive a share of the Requests " + pool.getStats());
+            Assertions.assertEquals(stub.requests.get(), stats.getSuccesses());
+            Assertions.assertTrue(stats.getBytes() > 0 && stats.getThroughput() > 0, stats.toString());
+            Assertions.assertNotNull(stats.getP50());
+            successes += stats.getSuccesses();
+        }
+
+        Assertions.assertEquals(24, successes);
+        Assertions.assertEquals(0, pool.getWaiting());
+    }
+
+    @Test
+    void throttledProxiesCoolDown() throws IOException {
+        StubProxy limited = proxy(1, request -> new Object[]{429, "Too Many Requests"});
+        StubProxy captcha = proxy(1, request -> new Object[]{200, "<html>Please solve the captcha</html>"});
+        StubProxy healthy = proxy(1, request -> new Object[]{200, "<html>profile</html>"});
+
+        ProxyPool pool = ProxyPool.builder().proxy(limited.getAddress()).proxy(captcha.getAddress()).proxy(healthy.getAddress())
+                .coolDown(Duration.ofSeconds(30)).build();
+        HttpTransport transport = new HttpTransport();
+        transport.setProxyPool("origin.test", pool);
+        transport.setEndpointPolicy("origin.test", EndpointPolicy.builder()
+                .retryPolicy(RetryPolicy.builder().maxAttempts(4).baseDelay(Duration.ofMillis(10)).build()).build());
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("<html>profile</html>", new String(get(transport, "page?i=" + i).join(), StandardCharsets.UTF_8));
+        }
+
+        // Each throttled proxy is tried at most once, the retry is sent through another proxy.
+        Assertions.assertTrue(limited.requests.get() <= 1 && captcha.requests.get() <= 1);
+        Assertions.assertEquals(10, healthy.requests.get());
+
+        List<ProxyStats> stats = pool.getStats();
+        Assertions.assertEquals(limited.requests.get(), stats.get(0).getThrottled());
+        Assertions.assertEquals(captcha.requests.get(), stats.get(1).getThrottled());
+        Assertions.assertTrue(limited.requests.get() == 0 || stats.get(0).getCoolDown().compareTo(Duration.ofSeconds(20)) > 0, stats.toString());
+    }
+
+    @Test
+    void requestsWaitForTheCoolDown() throws IOException {
+        StubProxy proxy = proxy(1, request -> request == 1 ? new Object[]{429, "Too Many Requests"} : new Object[]{200, "<html>profile</html>"});
+
+        ProxyPool pool = ProxyPool.builder().proxy(proxy.getAddress()).coolDown(Duration.ofMillis(300)).build();
+        HttpTransport transport = new HttpTransport();
+        transport.setProxyPool("origin.test", pool);
+        transport.setEndpointPolicy("origin.test", EndpointPolicy.builder()
+                .retryPolicy(RetryPolicy.builder().baseDelay(Duration.ofMillis(10)).build()).build());
+
+        long start = System.nanoTime();
+        Assertions.assertEquals("<html>profile</html>", new String(get(transport, "page").join(), StandardCharsets.UTF_8));
+
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250, "The retry should wait for the cool-down");
+        Assertions.assertEquals(2, proxy.requests.get());
+        Assertions.assertEquals(0, pool.getWaiting());
+    }
+}
@@ -0,0 +1,137 @@
+import de.presti.wrapper.tiktok.TikTokClient;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokUserDelta;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.entities.TikTokVideoStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RefreshTests {
+
+    private StubServer server;
+
+    /**
+     * The page currently served for every profile.
+     */
+    private volatile byte[] page;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private TikTokClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        page = ExtractionTests.fixture("user-profile.html");
+
+        server = new StubServer();
+        server.handle("/api/post/item_list/", exchange -> StubServer.respond(exchange, "{\"itemList\":[],\"hasMore\":false}"));
+        server.handle("/", exchange -> {
+            requests.incrementAndGet();
+            StubServer.respond(exchange, "text/html", page);
+        }).start();
+
+        client = TikTokClient.builder().websiteUrl(server.url("/")).build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private void changePage(String target, String replacement) throws IOException {
+        String html = new String(ExtractionTests.fixture("user-profile.html"), StandardCharsets.UTF_8);
+        Assertions.assertTrue(html.contains(target));
+        page = html.replaceFirst(target, replacement).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void unchangedUserIsKept() {
+        TikTokUser previous = client.getUser("ree6bot", true).join();
+        TikTokUserDelta delta = client.refreshUser(previous, true).join();
+
+        Assertions.assertFalse(delta.isChanged(), delta.toString());
+        Assertions.assertSame(previous, delta.apply());
+        Assertions.assertEquals(previous.getFollowers(), delta.getStats().getFollowers());
+        Assertions.assertEquals(previous.getPosts().size(), delta.getStats().getPosts().size());
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    void changedCountersAreReported() throws IOException {
+        TikTokUser previous = client.getUser("ree6bot", true).join();
+        TikTokVideo first = previous.getPosts().get(0);
+
+        changePage("\"followerCount\":16", "\"followerCount\":20");
+        TikTokUserDelta delta = client.refreshUser(previous).join();
+
+        Assertions.assertTrue(delta.isChanged());
+        Assertions.assertEquals(4, delta.getFollowersChange());
+        Assertions.assertEquals(0, delta.getLikesChange());
+        Assertions.assertTrue(delta.getStats().getPosts().isEmpty(), "The Videos should be skipped unless requested");
+
+        TikTokUser updated = delta.apply();
+        Assertions.assertEquals(20, updated.getFollowers());
+        Assertions.assertEquals(previous.getBio(), updated.getBio());
+        Assertions.assertSame(previous.getPosts(), updated.getPosts());
+
+        changePage("\"playCount\":" + first.getPlayCount(), "\"playCount\":" + (first.getPlayCount() + 60));
+        delta = client.refreshUser(previous, true).join();
+
+        Assertions.assertEquals(0, delta.getFollowersChange());
+        Assertions.assertEquals(1, delta.getChangedPosts().size(), delta.toString());
+        Assertions.assertTrue(delta.getNewPosts().isEmpty());
+
+        TikTokVideoStats changed = delta.getChangedPosts().get(0);
+        Assertions.assertEquals(first.getId(), changed.getId());
+        Assertions.assertEquals(first.getPlayCount() + 60, changed.getPlayCount());
+
+        updated = delta.apply();
+        Assertions.assertEquals(first.getPlayCount() + 60, updated.getPosts().get(0).getPlayCount());
+        Assertions.assertEquals(first.getDescription(), updated.getPosts().get(0).getDescription());
+        Assertions.assertSame(previous.getPosts().get(1), updated.getPosts().get(1));
+    }
+
+    @Test
+    void newPostsAreReportedOnce() {
+        TikTokUser previous = client.getUser("ree6bot", false).join();
+        TikTokUserDelta delta = client.refreshUser(previous, true).join();
+
+        Assertions.assertTrue(delta.isChanged());
+        Assertions.assertEquals(delta.getStats().getPosts(), delta.getNewPosts());
+
+        TikTokUser updated = delta.apply();
+        Assertions.assertEquals(delta.getNewPosts().size(), updated.getPosts().size());
+        Assertions.assertEquals(delta.getNewPosts().get(0).getId(), updated.getPosts().get(0).getId());
+        Assertions.assertEquals(delta.getNewPosts().get(0).getPlayCount(), updated.getPosts().get(0).getPlayCount());
+
+        delta = client.refreshUser(updated, true).join();
+        Assertions.assertFalse(delta.isChanged(), delta.toString());
+        Assertions.assertSame(updated, delta.apply());
+    }
+
+    @Test
+    void newPostIsMergedInFront() throws IOException {
+        TikTokUser previous = client.getUser("ree6bot", true).join();
+        TikTokVideo first = previous.getPosts().get(0);
+
+        changePage("\"id\":\"" + first.getId() + "\"", "\"id\":\"1\"");
+        TikTokUserDelta delta = client.refreshUser(previous, true).join();
+
+        Assertions.assertEquals(1, delta.getNewPosts().size(), delta.toString());
+        Assertions.assertEquals("1", delta.getNewPosts().get(0).getId());
+
+        TikTokUser updated = delta.apply();
+        Assertions.assertEquals(previous.getPosts().size() + 1, updated.getPosts().size());
+        Assertions.assertEquals("1", updated.getPosts().get(0).getId());
+        Assertions.assertSame(first, updated.getPosts().get(1));
+
+        delta = client.refreshUser(updated, true).join();
+        Assertions.assertFalse(delta.isChanged(), delta.toString());
+    }
+}
@@ -0,0 +1,131 @@
+import de.presti.wrapper.tiktok.TikTokClient;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.load.LoadGenerator;
+import de.presti.wrapper.tiktok.load.LoadReport;
+import de.presti.wrapper.tiktok.replay.Recording;
+import de.presti.wrapper.tiktok.replay.RecordingSender;
+import de.presti.wrapper.tiktok.replay.ReplaySender;
+import de.presti.wrapper.tiktok.routing.ScraperBackend;
+import de.presti.wrapper.tiktok.utility.HttpTransport;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class ReplayTests {
+
+    private static final String ORIGIN = "http://replay.test/";
+
+    private static CompletableFuture<byte[]> get(HttpTransport transport, String url) {
+        return transport.requestBytesAsync(RequestUtility.Request.builder().url(url).build());
+    }
+
+    private static String post(HttpTransport transport, String url, String body) {
+        return new String(transport.requestBytesAsync(RequestUtility.Request.builder().url(url).POST().body(body).build()).join(), StandardCharsets.UTF_8);
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, future::join);
+        return exception.getCause();
+    }
+
+    @Test
+    void recordedResponsesAreReplayedOffline(@TempDir Path directory) throws IOException {
+        byte[] profile = ExtractionTests.fixture("user-profile.html");
+        TikTokUser recorded;
+        String baseUrl;
+
+        try (StubServer server = new StubServer()) {
+            server.handle("/@ree6bot", exchange -> StubServer.respond(exchange, "text/html", profile));
+            server.handle("/research", exchange -> StubServer.respond(exchange, "{\"echo\":" + StubServer.body(exchange) + "}")).start();
+            baseUrl = server.url("/");
+
+            Recording recording = new Recording();
+            HttpTransport transport = new HttpTransport();
+            transport.setSender(new RecordingSender(transport.getSender(), recording));
+
+            recorded = ScraperBackend.builder().baseUrl(baseUrl).transport(transport).build().getUser("ree6bot", false, Runnable::run).join();
+            post(transport, baseUrl + "research", "{\"username\":\"a\"}");
+            post(transport, baseUrl + "research", "{\"username\":\"b\"}");
+
+            Assertions.assertEquals(3, recording.getEntries().size());
+            recording.save(directory);
+        }
+
+        Assertions.assertFalse(new String(Files.readAllBytes(directory.resolve(Recording.INDEX_FILE)), StandardCharsets.UTF_8).contains("username"),
+                "Only the hash of a Request body should be stored");
+
+        ReplaySender replay = ReplaySender.builder().recording(Recording.load(directory)).build();
+        HttpTransport transport = new HttpTransport();
+        transport.setSender(replay);
+
+        TikTokUser replayed = ScraperBackend.builder().baseUrl(baseUrl).transport(transport).build().getUser("ree6bot", false, Runnable::run).join();
+        Assertions.assertEquals(recorded.toString(), replayed.toString());
+        Assertions.assertEquals("{\"echo\":{\"username\":\"b\"}}", post(transport, baseUrl + "research", "{\"username\":\"b\"}"));
+        Assertions.assertEquals("{\"echo\":{\"username\":\"a\"}}", post(transport, baseUrl + "research", "{\"username\":\"a\"}"));
+
+        Throwable missing = failure(get(transport, baseUrl + "@unknown"));
+        Assertions.assertTrue(missing instanceof IOException && missing.getMessage().contains("Status=404"), missing.toString());
+        Assertions.assertEquals(3, replay.getReplayed());
+        Assertions.assertEquals(1, replay.getMissed());
+    }
+
+    @Test
+    void latencyAndErrorsAreInjected() {
+        Recording recording = new Recording();
+        recording.add(ORIGIN + "page", "text/html", "<html>page</html>".getBytes(StandardCharsets.UTF_8));
+
+        HttpTransport transport = new HttpTransport();
+        transport.setSender(ReplaySender.builder().recording(recording).latency(Duration.ofMillis(100)).build());
+
+        long start = System.nanoTime();
+        Assertions.assertEquals("<html>page</html>", new String(get(transport, ORIGIN + "page").join(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+
+        transport.setSender(ReplaySender.builder().recording(recording).errorRate(1).build());
+        Throwable connection = failure(get(transport, ORIGIN + "page"));
+        Assertions.assertTrue(connection instanceof IOException && connection.getMessage().startsWith("Injected"), connection.toString());
+
+        transport.setSender(ReplaySender.builder().recording(recording).statusRate(503, 1).build());
+        Throwable status = failure(get(transport, ORIGIN + "page"));
+        Assertions.assertTrue(status.getMessage().contains("Status=503"), status.toString());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> ReplaySender.builder().recording(recording).errorRate(0.6).statusRate(429, 0.6).build());
+    }
+
+    @Test
+    void loadGeneratorReportsThroughputAndLatency() throws IOException {
+        byte[] profile = ExtractionTests.fixture("user-profile.html");
+        Recording recording = new Recording();
+        for (int i = 0; i < 50; i++) {
+            recording.add(ORIGIN + "@user" + i + "?lang=en", "text/html", profile);
+        }
+
+        HttpTransport transport = new HttpTransport();
+        ReplaySender replay = ReplaySender.builder().recording(recording).latency(Duration.ofMillis(20), Duration.ofMillis(40))
+                .statusRate(503, 0.2).seed(42).build();
+        transport.setSender(replay);
+        TikTokClient client = TikTokClient.builder().transport(transport).websiteUrl(ORIGIN).build();
+
+        LoadReport report = LoadGenerator.builder().qps(50).duration(Duration.ofSeconds(1))
+                .call(i -> client.getUser("user" + i, false)).build().run();
+
+        Assertions.assertEquals(50, report.getSent(), report.toString());
+        Assertions.assertEquals(50, report.getSucceeded() + report.getFailed());
+        Assertions.assertEquals(replay.getInjected(), report.getFailed());
+        Assertions.assertTrue(report.getFailed() > 0 && report.getErrors().containsKey("MissingDataInfoException"), report.toString());
+        Assertions.assertEquals(report.getSucceeded(), report.getHistogram().getCount());
+        Assertions.assertTrue(report.getP50().toMillis() >= 20 && report.getP50().compareTo(report.getP99()) <= 0, report.toString());
+        Assertions.assertTrue(report.getThroughput() > 0 && report.getElapsed().toMillis() >= 980, report.toString());
+        Assertions.assertEquals(report.getSucceeded(), report.getHistogram().getBuckets().values().stream().mapToLong(Long::longValue).sum());
+    }
+}
@@ -0,0 +1,88 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+public class RequestTests {
+
+    private static final String DESCRIPTION = "<b>bold</b> &amp; <script>alert(1)</script>\n  spaced";
+
+    private static final String JSON = "{\"data\":{\"description\":" + new Gson().toJson(DESCRIPTION) + "}}";
+
+    private StubServer server;
+
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StubServer();
+        server.handle("/plain", exchange -> {
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+            StubServer.respond(exchange, 200, null, "plain".getBytes(StandardCharsets.UTF_8));
+        });
+        server.handle("/gzip", exchange -> {
+            Assertions.assertTrue(exchange.getRequestHeaders().getFirst("Accept-Encoding").contains("gzip"));
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream outputStream = new GZIPOutputStream(compressed)) {
+                outputStream.write("compressed".getBytes(StandardCharsets.UTF_8));
+            }
+
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            StubServer.respond(exchange, 200, null, compressed.toByteArray());
+        });
+        server.handle("/json", exchange -> StubServer.respond(exchange, JSON)).start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private String url(String path) {
+        return server.url(path);
+    }
+
+    @Test
+    void connectionsAreReused() {
+        for (int i = 0; i < 20; i++) {
+            byte[] body = RequestUtility.requestBytesAsync(RequestUtility.Request.builder().url(url("/plain")).build()).join();
+            Assertions.assertEquals("plain", new String(body, StandardCharsets.UTF_8));
+        }
+
+        Assertions.assertEquals(1, remotePorts.size(), "Every Request should have used the same connection");
+    }
+
+    @Test
+    void compressedResponsesAreDecoded() {
+        byte[] body = RequestUtility.requestBytesAsync(RequestUtility.Request.builder().url(url("/gzip")).build()).join();
+        Assertions.assertEquals("compressed", new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void jsonIsNotTreatedAsMarkup() {
+        JsonElement jsonElement = RequestUtility.requestJson(RequestUtility.Request.builder().url(url("/json")).build());
+        Assertions.assertEquals(DESCRIPTION, jsonElement.getAsJsonObject().getAsJsonObject("data").get("description").getAsString());
+
+        String description = RequestUtility.requestJsonAsync(RequestUtility.Request.builder().url(url("/json")).build(), reader -> {
+            reader.beginObject();
+            reader.nextName();
+            reader.beginObject();
+            reader.nextName();
+            return JsonUtility.readString(reader, null);
+        }).join();
+        Assertions.assertEquals(DESCRIPTION, description);
+    }
+}
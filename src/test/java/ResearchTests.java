@@ -0,0 +1,388 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.presti.wrapper.tiktok.entities.BatchResult;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.repo.TikTokResearchAPI;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.research.AccessTokenManager;
+import de.presti.wrapper.tiktok.research.ShardConfig;
+import de.presti.wrapper.tiktok.research.ShardedVideoIterator;
+import de.presti.wrapper.tiktok.research.VideoQuery;
+import de.presti.wrapper.tiktok.research.VideoQueryPage;
+import de.presti.wrapper.tiktok.utility.JsonUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ResearchTests {
+
+    private static final int PAGES = 3;
+
+    private StubServer server;
+
+    private TikTokResearchAPI api;
+
+    private final List<JsonObject> queries = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    private final AtomicInteger userRequests = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * Serve Videos depending on the date range instead of a fixed amount of pages.
+     */
+    private boolean byDate;
+
+    /**
+     * Create the Videos of a date range, the 10th of January is dense and every range contains the same extra Video.
+     */
+    private static List<String> videosBetween(LocalDate start, LocalDate end) {
+        List<String> ids = new ArrayList<>();
+        ids.add("duplicate");
+
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            int count = day.getDayOfMonth() == 10 ? 250 : 30;
+            for (int i = 0; i < count; i++) {
+                ids.add(DateTimeFormatter.BASIC_ISO_DATE.format(day) + "-" + (1000 + i));
+            }
+        }
+
+        return ids;
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StubServer(Executors.newFixedThreadPool(8), 0);
+        server.handle("/v2/oauth/token/", exchange -> {
+            String body = StubServer.body(exchange);
+            int number = tokenRequests.incrementAndGet();
+
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!body.contains("client_secret=secret")) {
+                StubServer.respond(exchange, "{\"error\":\"invalid_client\",\"error_description\":\"Client secret is invalid.\"}");
+                return;
+            }
+
+            StubServer.respond(exchange, StubServer.tokenResponse("token-" + number));
+        });
+        server.handle("/v2/research/user/info/", exchange -> {
+            String username = StubServer.username(exchange);
+            userRequests.incrementAndGet();
+
+            if (username.equals("missing")) {
+                StubServer.respond(exchange, "{\"data\":{},\"error\":{\"code\":\"invalid_params\",\"message\":\"User does not exist\",\"log_id\":\"1\"}}");
+                return;
+            }
+
+            StubServer.respond(exchange, StubServer.userResponse(username.toUpperCase()));
+        });
+        server.handle("/v2/research/video/query/", exchange -> {
+            JsonObject query = JsonParser.parseString(StubServer.body(exchange)).getAsJsonObject();
+            queries.add(query);
+
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+            long cursor = query.get("cursor").getAsLong();
+            JsonArray videos = new JsonArray();
+            JsonObject data = new JsonObject();
+
+            JsonObject condition = query.getAsJsonObject("query").getAsJsonArray("and").get(0).getAsJsonObject();
+
+            if (condition.get("field_name").getAsString().equals("video_id")) {
+                JsonObject video = new JsonObject();
+                video.addProperty("id", condition.getAsJsonArray("field_values").get(0).getAsString());
+                video.addProperty("video_description", "Found by id");
+                videos.add(video);
+
+                data.addProperty("cursor", 1);
+                data.addProperty("has_more", false);
+            } else if (byDate) {
+                List<String> ids = videosBetween(LocalDate.parse(query.get("start_date").getAsString(), DateTimeFormatter.BASIC_ISO_DATE),
+                        LocalDate.parse(query.get("end_date").getAsString(), DateTimeFormatter.BASIC_ISO_DATE));
+                int end = (int) Math.min(ids.size(), cursor + query.get("max_count").getAsInt());
+
+                for (String id : ids.subList((int) cursor, end)) {
+                    JsonObject video = new JsonObject();
+                    video.addProperty("id", id);
+                    videos.add(video);
+                }
+
+                data.addProperty("cursor", end);
+                data.addProperty("has_more", end < ids.size());
+
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                for (long id = cursor; id < cursor + 100; id++) {
+                    JsonObject video = new JsonObject();
+                    video.addProperty("id", id);
+                    video.addProperty("username", "ree6bot");
+                    video.addProperty("view_count", id * 10);
+                    videos.add(video);
+                }
+
+                data.addProperty("cursor", cursor + 100);
+                data.addProperty("has_more", cursor + 100 < PAGES * 100);
+            }
+
+            data.add("videos", videos);
+            data.addProperty("search_id", "search");
+            inFlight.decrementAndGet();
+
+            JsonObject response = new JsonObject();
+            response.add("data", data);
+            StubServer.respond(exchange, response.toString());
+        }).start();
+
+        api = new TikTokResearchAPI("key", "secret", "client_credentials");
+        api.setApiUrl(server.url("/v2"));
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void pageBindsFromFixture() throws IOException {
+        VideoQueryPage page = VideoQueryPage.fromResearch(JsonUtility.openReader(ExtractionTests.fixture("video-query.json")));
+
+        Assertions.assertEquals(100, page.getVideos().size());
+        Assertions.assertEquals(100, page.getCursor());
+        Assertions.assertTrue(page.isHasMore());
+        Assertions.assertEquals("7201388084622443526", page.getSearchId());
+        Assertions.assertEquals("7229111091085708549", page.getVideos().get(0).getId());
+        Assertions.assertTrue(page.getVideos().get(0).getPlayCount() > 0);
+    }
+
+    @Test
+    void queryFollowsCursor() {
+        VideoQuery query = VideoQuery.byUsername("ree6bot", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 30));
+
+        try (Stream<TikTokVideo> videos = api.streamVideos(query)) {
+            List<String> ids = videos.map(TikTokVideo::getId).collect(Collectors.toList());
+
+            Assertions.assertEquals(PAGES * 100, ids.size());
+            Assertions.assertEquals("299", ids.get(299));
+        }
+
+        Assertions.assertEquals(PAGES, queries.size());
+
+        JsonObject first = queries.get(0);
+        Assertions.assertFalse(first.has("search_id"));
+        Assertions.assertEquals("20230101", first.get("start_date").getAsString());
+        Assertions.assertEquals("username", first.getAsJsonObject("query").getAsJsonArray("and").get(0).getAsJsonObject().get("field_name").getAsString());
+        Assertions.assertEquals("ree6bot", first.getAsJsonObject("query").getAsJsonArray("and").get(0).getAsJsonObject().getAsJsonArray("field_values").get(0).getAsString());
+
+        Assertions.assertEquals("search", queries.get(1).get("search_id").getAsString());
+        Assertions.assertEquals(100, queries.get(1).get("cursor").getAsLong());
+    }
+
+    @Test
+    void pagesArePulledLazily() {
+        VideoQuery query = VideoQuery.byUsername("ree6bot", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 30));
+
+        try (Stream<TikTokVideo> videos = api.streamVideos(query)) {
+            Assertions.assertEquals(5, videos.limit(5).count());
+        }
+
+        Assertions.assertTrue(queries.size() <= 2, "Only the first page and the prefetched next page may be requested");
+    }
+
+    @Test
+    void shardsAreWalkedInParallelAndInOrder() {
+        byDate = true;
+        VideoQuery query = VideoQuery.byUsername("ree6bot", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 30));
+        ShardConfig config = ShardConfig.builder().windowDays(7).parallelism(4).build();
+
+        List<String> ids = new ArrayList<>();
+        ShardedVideoIterator iterator = api.queryVideos(query, config);
+        iterator.forEachRemaining(video -> ids.add(video.getId()));
+
+        Assertions.assertEquals(29 * 30 + 250 + 1, ids.size());
+        Assertions.assertEquals(ids.size(), new HashSet<>(ids).size());
+        Assertions.assertTrue(iterator.getDuplicates() > 0);
+        Assertions.assertTrue(iterator.getSplits() > 0, "Dense windows should be split");
+        Assertions.assertTrue(maxInFlight.get() > 1 && maxInFlight.get() <= 4, "Pages in flight: " + maxInFlight.get());
+
+        String previous = "";
+        for (String id : ids) {
+            if (id.equals("duplicate")) continue;
+
+            Assertions.assertTrue(id.compareTo(previous) > 0, id + " came after " + previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void sparseWindowsAreNotSplit() {
+        byDate = true;
+        VideoQuery query = VideoQuery.byUsername("ree6bot", LocalDate.of(2023, 1, 15), LocalDate.of(2023, 1, 28));
+
+        ShardedVideoIterator iterator = api.queryVideos(query, ShardConfig.builder().windowDays(7).build());
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        // Two windows of 211 Videos, three pages each, the duplicate is returned once.
+        Assertions.assertEquals(14 * 30 + 1, count);
+        Assertions.assertEquals(0, iterator.getSplits());
+        Assertions.assertEquals(6, queries.size());
+    }
+
+    @Test
+    void unorderedShardsReturnTheSameVideos() {
+        byDate = true;
+        VideoQuery query = VideoQuery.byUsername("ree6bot", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 30));
+
+        Set<String> ordered;
+        try (Stream<TikTokVideo> videos = api.streamVideos(query, ShardConfig.builder().build())) {
+            ordered = videos.map(TikTokVideo::getId).collect(Collectors.toSet());
+        }
+
+        List<String> unordered;
+        try (Stream<TikTokVideo> videos = api.streamVideos(query, ShardConfig.builder().ordered(false).adaptive(false).windowDays(3).build())) {
+            unordered = videos.map(TikTokVideo::getId).collect(Collectors.toList());
+        }
+
+        Assertions.assertEquals(unordered.size(), new HashSet<>(unordered).size());
+        Assertions.assertEquals(ordered, new HashSet<>(unordered));
+    }
+
+    @Test
+    void concurrentCallersShareOneTokenRequest() {
+        List<CompletableFuture<String>> tokens = new ArrayList<>();
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+
+        try {
+            for (int i = 0; i < 64; i++) {
+                tokens.add(CompletableFuture.supplyAsync(() -> api.getTokenManager().getTokenAsync().join(), callers));
+            }
+
+            tokens.forEach(token -> Assertions.assertEquals("token-1", token.join()));
+        } finally {
+            callers.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, tokenRequests.get());
+        Assertions.assertEquals("token-1", api.getAccess_token());
+    }
+
+    @Test
+    void tokenIsRefreshedAheadOfExpiry() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        AccessTokenManager manager = new AccessTokenManager(api::fetchAccessToken, Duration.ofMinutes(5), clock::get);
+
+        Assertions.assertEquals("token-1", manager.getTokenAsync().join());
+
+        // Inside the refresh window the old Token is still returned right away, the refresh runs in the background.
+        clock.addAndGet(Duration.ofMinutes(116).toMillis());
+        CompletableFuture<String> early = manager.getTokenAsync();
+        Assertions.assertTrue(early.isDone());
+        Assertions.assertEquals("token-1", early.join());
+
+        for (int i = 0; i < 100 && manager.getRefreshes() < 2; i++) {
+            Thread.sleep(20);
+        }
+
+        Assertions.assertEquals(2, tokenRequests.get());
+        Assertions.assertEquals("token-2", manager.getTokenAsync().join());
+
+        // An expired Token is never handed out.
+        clock.addAndGet(Duration.ofHours(3).toMillis());
+        Assertions.assertEquals("token-3", manager.getTokenAsync().join());
+        Assertions.assertEquals(3, manager.getRefreshes());
+    }
+
+    @Test
+    void rejectedCredentialsFailTheRequest() {
+        TikTokResearchAPI rejected = new TikTokResearchAPI("key", "wrong", "client_credentials");
+        rejected.setApiUrl(api.getApiUrl());
+
+        Assertions.assertThrows(MissingDataInfoException.class, rejected::requestAccessToken);
+        Assertions.assertNull(rejected.getAccess_token());
+    }
+
+    @Test
+    void userInfoIsMapped() throws IOException {
+        TikTokUser user = api.getUser("ree6bot");
+
+        Assertions.assertEquals("ree6bot", user.getName());
+        Assertions.assertEquals("REE6BOT", user.getDisplayName());
+        Assertions.assertEquals("Bio", user.getBio());
+        Assertions.assertEquals("https://example.com/a.jpeg", user.getAvatar().getLargeUrl());
+        Assertions.assertTrue(user.isVerified());
+        Assertions.assertEquals(1200, user.getFollowers());
+        Assertions.assertEquals(3, user.getFollowing());
+        Assertions.assertEquals(45000, user.getLikes());
+
+        Assertions.assertThrows(MissingDataInfoException.class, () -> api.getUser("missing"));
+    }
+
+    @Test
+    void usersAreStreamedAsTheyComplete() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            names.add("user" + i);
+        }
+        names.add("missing");
+
+        Map<String, BatchResult<TikTokUser>> results = new LinkedHashMap<>();
+        api.getUsersAsync(names, 4, Runnable::run, results::put).join();
+
+        Assertions.assertEquals(41, results.size());
+        Assertions.assertEquals(41, userRequests.get());
+        Assertions.assertEquals("USER7", results.get("user7").getValue().getDisplayName());
+        Assertions.assertInstanceOf(MissingDataInfoException.class, results.get("missing").getError());
+    }
+
+    @Test
+    void videoIsQueriedOnItsCreationDay() throws IOException {
+        TikTokVideo video = api.getVideo("7229111091085708549");
+
+        Assertions.assertEquals("7229111091085708549", video.getId());
+        Assertions.assertEquals("Found by id", video.getDescription());
+
+        JsonObject query = queries.get(0);
+        Assertions.assertEquals("20230503", query.get("start_date").getAsString());
+        Assertions.assertEquals("20230505", query.get("end_date").getAsString());
+
+        Assertions.assertThrows(MissingDataInfoException.class, () -> api.getVideo("not-an-id"));
+    }
+}
@@ -0,0 +1,240 @@
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.routing.Backend;
+import de.presti.wrapper.tiktok.routing.BackendRouter;
+import de.presti.wrapper.tiktok.routing.BackendStats;
+import de.presti.wrapper.tiktok.throttle.HedgeBudget;
+import de.presti.wrapper.tiktok.throttle.HedgeStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RoutingTests {
+
+    /**
+     * A local backend answering every User lookup after a delay, or failing.
+     */
+    private static class StubBackend implements Backend {
+
+        final String name;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger cancelled = new AtomicInteger();
+        volatile long delayMillis;
+        volatile Throwable failure;
+        volatile long quota = -1;
+
+        StubBackend(String name, long delayMillis) {
+            this.name = name;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public CompletableFuture<TikTokUser> getUser(String userName, boolean parseVideos, Executor executor) {
+            calls.incrementAndGet();
+            Executor delayed = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+
+            CompletableFuture<TikTokUser> future = CompletableFuture.supplyAsync(() -> {
+                if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+                if (failure != null) throw new CompletionException(failure);
+
+                return new TikTokUser(name, "", userName, 0, 0, 0, "", null, false, "", false, "", Collections.emptyList());
+            }, delayed);
+
+            future.whenComplete((value, throwable) -> {
+                if (future.isCancelled()) cancelled.incrementAndGet();
+            });
+
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<TikTokUser> getUser(long id, boolean parseVideos, Executor executor) {
+            return getUser(String.valueOf(id), parseVideos, executor);
+        }
+
+        @Override
+        public CompletableFuture<TikTokVideo> getVideo(String id, Executor executor) {
+            return CompletableFuture.failedFuture(new IOException("Not supported"));
+        }
+
+        @Override
+        public CompletableFuture<List<TikTokVideo>> getVideos(String username, Executor executor) {
+            return CompletableFuture.failedFuture(new IOException("Not supported"));
+        }
+
+        @Override
+        public CompletableFuture<List<TikTokVideo>> getVideos(long id, Executor executor) {
+            return CompletableFuture.failedFuture(new IOException("Not supported"));
+        }
+
+        @Override
+        public long getRemainingQuota() {
+            return quota;
+        }
+    }
+
+    private static TikTokUser lookup(BackendRouter router) {
+        return router.execute(backend -> backend.getUser("ree6bot", false, Runnable::run)).join();
+    }
+
+    @Test
+    void failsOverOnMissingDataAndTransportErrors() {
+        StubBackend research = new StubBackend("research", 1);
+        StubBackend scraper = new StubBackend("scraper", 1);
+        BackendRouter router = BackendRouter.builder().backend(research).backend(scraper).build();
+
+        research.failure = new MissingDataInfoException("Couldn't get the User!");
+        Assertions.assertEquals("scraper", lookup(router).getId());
+
+        research.failure = new IOException("Connection reset");
+        scraper.failure = new IOException("Connection reset");
+        CompletableFuture<TikTokUser> failed = router.execute(backend -> backend.getUser("ree6bot", false, Runnable::run));
+        Assertions.assertThrows(Exception.class, failed::join);
+
+        // Other failures are bugs of the call, not of the backend, they are not retried elsewhere.
+        AtomicInteger invocations = new AtomicInteger();
+        CompletableFuture<Object> bug = router.execute(backend -> {
+            invocations.incrementAndGet();
+            throw new IllegalArgumentException("Bug");
+        });
+        Assertions.assertThrows(Exception.class, bug::join);
+        Assertions.assertEquals(1, invocations.get());
+
+        Assertions.assertEquals(2, router.getFailovers());
+    }
+
+    @Test
+    void healthiestBackendIsPreferred() {
+        StubBackend slow = new StubBackend("slow", 40);
+        StubBackend fast = new StubBackend("fast", 1);
+        BackendRouter router = BackendRouter.builder().backend(slow).backend(fast).build();
+
+        // Both are unknown at first, so both receive calls until their latency is known.
+        for (int i = 0; i < 20; i++) {
+            lookup(router);
+        }
+
+        Assertions.assertEquals("fast", router.getRanking().get(0).getName());
+
+        fast.failure = new IOException("Connection reset");
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("slow", lookup(router).getId());
+        }
+
+        Assertions.assertEquals("slow", router.getRanking().get(0).getName());
+
+        BackendStats fastStats = router.getStats().get(1);
+        Assertions.assertTrue(fastStats.getErrorRate() > 0.05, fastStats.toString());
+        Assertions.assertNotNull(router.getStats().get(0).getP95());
+    }
+
+    @Test
+    void exhaustedQuotaIsTriedLast() {
+        StubBackend research = new StubBackend("research", 1);
+        StubBackend scraper = new StubBackend("scraper", 30);
+        BackendRouter router = BackendRouter.builder().backend(research).backend(scraper).build();
+
+        research.quota = 0;
+        Assertions.assertEquals("scraper", lookup(router).getId());
+        Assertions.assertEquals(0, research.calls.get());
+
+        research.quota = 100;
+        Assertions.assertEquals("research", lookup(router).getId());
+    }
+
+    @Test
+    void slowCallsAreHedged() {
+        StubBackend primary = new StubBackend("primary", 2);
+        StubBackend secondary = new StubBackend("secondary", 5);
+        BackendRouter router = BackendRouter.builder().backend(primary).backend(secondary)
+                .hedgePercentile(0.95).hedgeMinSamples(10).hedgeMaxRatio(1).build();
+
+        for (int i = 0; i < 30; i++) {
+            lookup(router);
+        }
+
+        Assertions.assertEquals("primary", router.getRanking().get(0).getName());
+
+        long hedges = router.getHedges();
+        long hedgeWins = router.getHedgeWins();
+        int cancelled = primary.cancelled.get();
+        primary.delayMillis = 2_000;
+        long start = System.nanoTime();
+        Assertions.assertEquals("secondary", lookup(router).getId());
+
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        Assertions.assertEquals(hedges + 1, router.getHedges());
+        Assertions.assertEquals(hedgeWins + 1, router.getHedgeWins());
+        Assertions.assertEquals(cancelled + 1, primary.cancelled.get());
+    }
+
+    @Test
+    void hedgesStayWithinBudget() {
+        StubBackend primary = new StubBackend("primary", 2);
+        StubBackend secondary = new StubBackend("secondary", 5);
+        // Hedging after the median would hedge every slow call if the budget allowed it.
+        BackendRouter router = BackendRouter.builder().backend(primary).backend(secondary)
+                .hedgePercentile(0.5).hedgeMinSamples(10).hedgeMaxRatio(0.05).hedgeMaxBurst(1).build();
+
+        for (int i = 0; i < 100; i++) {
+            lookup(router);
+        }
+
+        Assertions.assertEquals("primary", router.getRanking().get(0).getName());
+        HedgeStats before = router.getHedgeStats();
+        primary.delayMillis = 100;
+
+        for (int i = 0; i < 10; i++) {
+            lookup(router);
+        }
+
+        // Ten calls add half a hedge to a budget holding at most one.
+        HedgeStats after = router.getHedgeStats();
+        Assertions.assertTrue(after.getHedges() - before.getHedges() <= 1, after.toString());
+        Assertions.assertTrue(after.getOverBudget() - before.getOverBudget() >= 9, after.toString());
+        Assertions.assertTrue(after.getHedgeRate() <= 0.05 + 1.0 / after.getRequests(), after.toString());
+    }
+
+    @Test
+    void unsentHedgeReturnsItsToken() throws InterruptedException {
+        HedgeBudget budget = new HedgeBudget(0.5, 1);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> result;
+
+        budget.execute(() -> CompletableFuture.completedFuture("first"), null, null, null);
+
+        // Holding the budget stops the hedge timer before it takes the token, meanwhile the failed first call is retried.
+        synchronized (budget) {
+            result = budget.execute(() -> first, Duration.ofMillis(1),
+                    throwable -> throwable instanceof IOException, () -> CompletableFuture.completedFuture("retry"));
+            Thread.sleep(50);
+            first.completeExceptionally(new IOException("Failed"));
+        }
+
+        Assertions.assertEquals("retry", result.join());
+        Thread.sleep(50);
+
+        // The timer took the token but did not send its hedge, so the next slow call can still be hedged.
+        CompletableFuture<String> hedged = budget.execute(CompletableFuture::new, Duration.ofMillis(1),
+                null, () -> CompletableFuture.completedFuture("hedge"));
+
+        Assertions.assertEquals("hedge", hedged.orTimeout(1, TimeUnit.SECONDS).join());
+        Assertions.assertEquals(1, budget.getStats().getHedges());
+        Assertions.assertEquals(0, budget.getStats().getOverBudget());
+    }
+}
@@ -0,0 +1,171 @@
+import com.google.gson.stream.JsonReader;
+import de.presti.wrapper.tiktok.TikTokClient;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.exceptions.MissingDataInfoException;
+import de.presti.wrapper.tiktok.store.Snapshot;
+import de.presti.wrapper.tiktok.store.SnapshotStore;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SnapshotStoreTests {
+
+    private static final String ELEMENT_ID = "__UNIVERSAL_DATA_FOR_REHYDRATION__";
+
+    private static TikTokUser user() throws IOException {
+        return TikTokUser.fromScraper(ExtractionUtility.openReader(ExtractionTests.fixture("user-profile.html"), ELEMENT_ID), true);
+    }
+
+    private static TikTokUser researchUser(String name, long followers) throws IOException {
+        String response = "{\"data\":{\"display_name\":\"" + name + "\",\"follower_count\":" + followers + "},\"error\":{\"code\":\"ok\"}}";
+        return TikTokUser.fromResearch(new JsonReader(new StringReader(response)), name);
+    }
+
+    private static TikTokVideo video(String id, long playCount) {
+        return new TikTokVideo(id, "description", "ree6bot", 1665000000L, true, false, false, false, false,
+                true, true, true, "DE", playCount, 2, 3, 4, 15, "720p", null);
+    }
+
+    @Test
+    void snapshotsSurviveReopen(@TempDir Path directory) throws IOException {
+        TikTokUser user = user();
+        TikTokVideo video = user.getPosts().get(0);
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            store.put(user);
+            store.put(video);
+        }
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            Snapshot<TikTokUser> snapshot = store.getUser(user.getId());
+
+            Assertions.assertNotNull(snapshot);
+            Assertions.assertEquals(user.toString(), snapshot.getValue().toString());
+            Assertions.assertEquals(user.toString(), store.getUserBySecUID(user.getSecUID()).getValue().toString());
+            Assertions.assertEquals(user.toString(), store.getUserByName(user.getName().toUpperCase()).getValue().toString());
+            Assertions.assertEquals(video.toString(), store.getVideo(video.getId()).getValue().toString());
+            Assertions.assertNull(store.getVideo("1"));
+            Assertions.assertNull(store.getUserByName("unknown"));
+        }
+    }
+
+    @Test
+    void researchUsersAreKeyedByName(@TempDir Path directory) throws IOException {
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            store.put(researchUser("ree6bot", 10));
+            store.put(researchUser("presti", 20));
+            store.put(researchUser("ree6bot", 30));
+
+            Assertions.assertNull(store.getUser(""));
+            Assertions.assertNull(store.getUserBySecUID(""));
+            Assertions.assertEquals(30, store.getUserByName("ree6bot").getValue().getFollowers());
+            Assertions.assertEquals(20, store.getUserByName("presti").getValue().getFollowers());
+
+            store.compact();
+        }
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            Assertions.assertEquals(2, store.getUsers().size());
+            Assertions.assertEquals(30, store.getUserByName("REE6BOT").getValue().getFollowers());
+            Assertions.assertEquals(20, store.getUserByName("presti").getValue().getFollowers());
+        }
+    }
+
+    @Test
+    void incompleteRecordsAreCutOff(@TempDir Path directory) throws IOException {
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            store.put(video("1", 10));
+            store.put(video("2", 20));
+        }
+
+        Path log = directory.resolve("snapshots.log");
+        long size = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            Assertions.assertEquals(size, store.getLogSize());
+            Assertions.assertEquals(2, store.getVideos().size());
+            store.put(video("3", 30));
+        }
+
+        Files.delete(directory.resolve("snapshots.idx"));
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            Assertions.assertEquals(30, store.getVideo("3").getValue().getPlayCount());
+            Assertions.assertEquals(3, store.getVideos().size());
+        }
+    }
+
+    @Test
+    void compactionKeepsLatestSnapshots(@TempDir Path directory) throws IOException {
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            for (int round = 1; round <= 5; round++) {
+                for (int id = 0; id < 1000; id++) {
+                    store.put(video(String.valueOf(id), round));
+                }
+            }
+
+            long size = store.getLogSize();
+            store.compact();
+
+            Assertions.assertTrue(store.getLogSize() * 4 < size);
+            Assertions.assertEquals(5, store.getVideo("999").getValue().getPlayCount());
+
+            store.put(video("0", 6));
+        }
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            List<Snapshot<TikTokVideo>> videos = store.getVideos();
+
+            Assertions.assertEquals(1000, videos.size());
+            Assertions.assertEquals(6, store.getVideo("0").getValue().getPlayCount());
+            Assertions.assertEquals(5, store.getVideo("500").getValue().getPlayCount());
+        }
+    }
+
+    @Test
+    void storedSnapshotIsReturnedWhenOffline(@TempDir Path directory) throws IOException {
+        byte[] profile = ExtractionTests.fixture("user-profile.html");
+        byte[] videoPage = ExtractionTests.fixture("video.html");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (SnapshotStore store = SnapshotStore.open(directory)) {
+            TikTokClient client;
+            TikTokUser user;
+            TikTokVideo video;
+
+            try (StubServer server = new StubServer()) {
+                server.handle("/share/video/", exchange -> StubServer.respond(exchange, "text/html", videoPage));
+                server.handle("/", exchange -> StubServer.respond(exchange, "text/html", profile)).start();
+
+                client = TikTokClient.builder().websiteUrl(server.url("/")).executor(executor).snapshotStore(store).build();
+                user = client.getUser("ree6bot", false).join();
+                video = client.getVideo("7152957515582426373").join();
+
+                Assertions.assertEquals(user.toString(), store.getUserByName("ree6bot").getValue().toString());
+            }
+
+            // The server is gone, every Request fails with a refused connection.
+            Assertions.assertEquals(user.toString(), client.getUser("@ree6bot", false).join().toString());
+            Assertions.assertEquals(video.toString(), client.getVideo(video.getId()).join().toString());
+
+            CompletionException exception = Assertions.assertThrows(CompletionException.class, () -> client.getUser("unknown", false).join());
+            Assertions.assertInstanceOf(MissingDataInfoException.class, exception.getCause());
+            Assertions.assertInstanceOf(IOException.class, exception.getCause().getCause(), "Without a snapshot the failure should be kept");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
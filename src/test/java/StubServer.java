@@ -0,0 +1,188 @@
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A local HTTP server on a free port of the loopback address, standing in for the Website, the Research API or a proxy.
+ */
+public class StubServer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    /**
+     * The Executor the exchanges are handled on, or null for the Thread of the server.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Create a new server handling one exchange at a time.
+     */
+    public StubServer() throws IOException {
+        this(null, 0);
+    }
+
+    /**
+     * Create a new server.
+     *
+     * @param executor the Executor the exchanges are handled on, it is shut down with the server. Null for the Thread of the server.
+     * @param backlog  the amount of queued connections, 0 for the default of the system.
+     */
+    public StubServer(ExecutorService executor, int backlog) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), backlog);
+        this.executor = executor;
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Answer the Requests below a path.
+     *
+     * @param path    the path.
+     * @param handler the handler.
+     * @return the StubServer.
+     */
+    public StubServer handle(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * Answer the Access Token Requests of the Research API below a base path, with the same Access Token.
+     *
+     * @param basePath the base path, e.g. "/v2".
+     * @param token    the Access Token.
+     * @return the StubServer.
+     */
+    public StubServer handleToken(String basePath, String token) {
+        return handle(basePath + "/oauth/token/", exchange -> respond(exchange, tokenResponse(token)));
+    }
+
+    /**
+     * Start the server.
+     *
+     * @return the StubServer.
+     */
+    public StubServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Get the address of the server, e.g. to use it as proxy.
+     *
+     * @return the address.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Get the Url of a path on this server.
+     *
+     * @param path the path, starting with a slash.
+     * @return the Url.
+     */
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * Stop the server right away and shut down its Executor.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Answer an exchange, an empty body is sent without content.
+     *
+     * @param exchange    the exchange.
+     * @param status      the status code.
+     * @param contentType the Content-Type, or null to send none.
+     * @param body        the body.
+     */
+    public static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+        }
+
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    /**
+     * Answer an exchange with a 200.
+     *
+     * @param exchange    the exchange.
+     * @param contentType the Content-Type.
+     * @param body        the body.
+     */
+    public static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        respond(exchange, 200, contentType, body);
+    }
+
+    /**
+     * Answer an exchange with a 200 and a JSON body.
+     *
+     * @param exchange the exchange.
+     * @param json     the body.
+     */
+    public static void respond(HttpExchange exchange, String json) throws IOException {
+        respond(exchange, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read the body of a Request.
+     *
+     * @param exchange the exchange.
+     * @return the body as UTF-8 text.
+     */
+    public static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the username a user/info Request of the Research API asks for.
+     *
+     * @param exchange the exchange.
+     * @return the username.
+     */
+    public static String username(HttpExchange exchange) throws IOException {
+        return JsonParser.parseString(body(exchange)).getAsJsonObject().get("username").getAsString();
+    }
+
+    /**
+     * Create the answer of the Research API to an Access Token Request.
+     *
+     * @param token the Access Token, valid for two hours.
+     * @return the JSON body.
+     */
+    public static String tokenResponse(String token) {
+        return "{\"access_token\":\"" + token + "\",\"expires_in\":7200,\"token_type\":\"Bearer\"}";
+    }
+
+    /**
+     * Create the answer of the Research API to a user/info Request.
+     *
+     * @param displayName the display name of the User.
+     * @return the JSON body.
+     */
+    public static String userResponse(String displayName) {
+        return "{\"data\":{\"display_name\":\"" + displayName + "\",\"bio_description\":\"Bio\",\"avatar_url\":\"https://example.com/a.jpeg\","
+                + "\"is_verified\":true,\"follower_count\":1200,\"following_count\":3,\"likes_count\":45000,\"video_count\":17},"
+                + "\"error\":{\"code\":\"ok\",\"message\":\"\",\"log_id\":\"1\"}}";
+    }
+}
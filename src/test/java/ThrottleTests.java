@@ -0,0 +1,189 @@
+import de.presti.wrapper.tiktok.throttle.CircuitBreaker;
+import de.presti.wrapper.tiktok.throttle.EndpointPolicy;
+import de.presti.wrapper.tiktok.throttle.EndpointStats;
+import de.presti.wrapper.tiktok.throttle.HedgePolicy;
+import de.presti.wrapper.tiktok.throttle.HedgeStats;
+import de.presti.wrapper.tiktok.throttle.RateLimiter;
+import de.presti.wrapper.tiktok.throttle.RetryPolicy;
+import de.presti.wrapper.tiktok.utility.RequestUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ThrottleTests {
+
+    private StubServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final Set<Integer> slowSeen = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StubServer(Executors.newFixedThreadPool(16), 0);
+        server.handle("/throttled", exchange -> {
+            boolean throttled = requests.incrementAndGet() <= 2;
+
+            if (throttled) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+
+            StubServer.respond(exchange, throttled ? 429 : 200, null, (throttled ? "slow down" : "ok").getBytes(StandardCharsets.UTF_8));
+        });
+        server.handle("/captcha", exchange -> {
+            requests.incrementAndGet();
+            StubServer.respond(exchange, "text/html; charset=utf-8",
+                    "<html><body><div id=\"captcha-verify-container\"></div></body></html>".getBytes(StandardCharsets.UTF_8));
+        });
+        server.handle("/slow", exchange -> {
+            // Every tenth Request is slow the first time it is sent, its duplicate is answered right away.
+            String query = exchange.getRequestURI().getQuery();
+            int index = Integer.parseInt(query.substring(query.indexOf('=') + 1));
+
+            try {
+                Thread.sleep(index % 10 == 5 && slowSeen.add(index) ? 1500 : 5);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            StubServer.respond(exchange, 200, null, "ok".getBytes(StandardCharsets.UTF_8));
+        }).start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+        RequestUtility.setEndpointPolicy("127.0.0.1", null);
+    }
+
+    private String url(String path) {
+        return server.url(path);
+    }
+
+    @Test
+    void rateLimiterReservesAheadAndAdapts() {
+        AtomicLong time = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(10, 2, time::get);
+
+        Assertions.assertEquals(0, limiter.reserve());
+        Assertions.assertEquals(0, limiter.reserve());
+        Assertions.assertEquals(Duration.ofMillis(100).toNanos(), limiter.reserve());
+        Assertions.assertEquals(Duration.ofMillis(200).toNanos(), limiter.reserve());
+
+        time.set(Duration.ofSeconds(10).toNanos());
+        limiter.pause(Duration.ofSeconds(1));
+        Assertions.assertEquals(Duration.ofMillis(1100).toNanos(), limiter.reserve());
+
+        limiter.onThrottled();
+        Assertions.assertEquals(5, limiter.getRate());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        Assertions.assertEquals(10, limiter.getRate());
+    }
+
+    @Test
+    void circuitBreakerOpensAndRecovers() {
+        AtomicLong time = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(30), time::get);
+
+        breaker.onFailure();
+        Assertions.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertFalse(breaker.tryAcquire());
+
+        time.set(Duration.ofSeconds(30).toNanos());
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.tryAcquire(), "Only a single trial Request may be sent");
+
+        breaker.onSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void throttledRequestsAreRetried() {
+        EndpointPolicy policy = EndpointPolicy.builder()
+                .rateLimiter(new RateLimiter(1000, 10))
+                .retryPolicy(RetryPolicy.builder().baseDelay(Duration.ofMillis(10)).build())
+                .build();
+        RequestUtility.setEndpointPolicy("127.0.0.1", policy);
+
+        byte[] body = RequestUtility.requestBytesAsync(RequestUtility.Request.builder().url(url("/throttled")).build()).join();
+        Assertions.assertEquals("ok", new String(body, StandardCharsets.UTF_8));
+
+        EndpointStats stats = policy.getStats();
+        Assertions.assertEquals(3, stats.getAttempts());
+        Assertions.assertEquals(2, stats.getRetries());
+        Assertions.assertEquals(2, stats.getThrottled());
+        Assertions.assertTrue(stats.getRate() < 1000);
+    }
+
+    @Test
+    void captchaPagesFailAfterRetries() {
+        EndpointPolicy policy = EndpointPolicy.builder()
+                .retryPolicy(RetryPolicy.builder().maxAttempts(2).baseDelay(Duration.ofMillis(10)).build())
+                .circuitBreaker(new CircuitBreaker(2, Duration.ofMinutes(1)))
+                .build();
+        RequestUtility.setEndpointPolicy("127.0.0.1/captcha", policy);
+
+        try {
+            CompletionException exception = Assertions.assertThrows(CompletionException.class,
+                    () -> RequestUtility.requestBytesAsync(RequestUtility.Request.builder().url(url("/captcha")).build()).join());
+            Assertions.assertInstanceOf(IOException.class, exception.getCause());
+            Assertions.assertEquals(2, requests.get());
+
+            Assertions.assertEquals(CircuitBreaker.State.OPEN, policy.getCircuitBreaker().getState());
+            Assertions.assertThrows(CompletionException.class,
+                    () -> RequestUtility.requestBytesAsync(RequestUtility.Request.builder().url(url("/captcha")).build()).join());
+            Assertions.assertEquals(2, requests.get(), "The open breaker must not send the Request");
+            Assertions.assertEquals(1, policy.getStats().getRejected());
+        } finally {
+            RequestUtility.setEndpointPolicy("127.0.0.1/captcha", null);
+        }
+    }
+
+    @Test
+    void slowRequestsAreHedgedWithinBudget() {
+        HedgePolicy hedgePolicy = HedgePolicy.builder().percentile(0.9).minSamples(10).maxRatio(0.5).maxBurst(5).build();
+        EndpointPolicy policy = EndpointPolicy.builder().retryPolicy(null).hedgePolicy(hedgePolicy).build();
+        RequestUtility.setEndpointPolicy("127.0.0.1/slow", policy);
+
+        try {
+            long slowest = 0;
+
+            for (int i = 0; i < 60; i++) {
+                long start = System.nanoTime();
+                byte[] body = RequestUtility.requestBytesAsync(RequestUtility.Request.builder().url(url("/slow?i=" + i)).build()).join();
+                Assertions.assertEquals("ok", new String(body, StandardCharsets.UTF_8));
+
+                // The first slow Request comes before enough samples are known.
+                if (i > 10) {
+                    slowest = Math.max(slowest, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            }
+
+            HedgeStats stats = hedgePolicy.getStats();
+            Assertions.assertTrue(slowest < 1000, "Slowest hedged Request took " + slowest + " ms");
+            Assertions.assertTrue(stats.getWins() >= 5, stats.toString());
+            Assertions.assertTrue(stats.getHedgeRate() <= 0.5, stats.toString());
+            Assertions.assertTrue(stats.getMeanWinnerLatency().toMillis() < 1000, stats.toString());
+            Assertions.assertEquals(60 + stats.getHedges(), policy.getStats().getAttempts());
+        } finally {
+            RequestUtility.setEndpointPolicy("127.0.0.1/slow", null);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import de.presti.wrapper.tiktok.entities.TikTokThumbnail;
+import de.presti.wrapper.tiktok.entities.TikTokUser;
+import de.presti.wrapper.tiktok.entities.TikTokVideo;
+import de.presti.wrapper.tiktok.entities.TikTokVideoBatch;
+import de.presti.wrapper.tiktok.utility.ExtractionUtility;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class VideoBatchTests {
+
+    private static List<TikTokVideo> fixturePosts() throws IOException {
+        byte[] page = ExtractionTests.fixture("user-profile.html");
+        return TikTokUser.fromScraper(ExtractionUtility.openReader(page, "__UNIVERSAL_DATA_FOR_REHYDRATION__"), true).getPosts();
+    }
+
+    @Test
+    void videosSurviveTheColumns() throws IOException {
+        List<TikTokVideo> posts = fixturePosts();
+        TikTokVideoBatch batch = TikTokVideoBatch.of(posts);
+
+        Assertions.assertEquals(posts.size(), batch.size());
+        long distinct = posts.stream().flatMap(video -> Stream.of(video.getAuthor(), video.getLocation(), video.getResolution())).distinct().count();
+        Assertions.assertEquals(distinct, batch.getDictionarySize(), "The author, location and resolution should be shared");
+
+        List<TikTokVideo> restored = batch.toVideos();
+        for (int i = 0; i < posts.size(); i++) {
+            Assertions.assertEquals(posts.get(i).toString(), restored.get(i).toString());
+        }
+
+        batch.trimToSize();
+        Assertions.assertEquals(posts.get(posts.size() - 1).toString(), batch.toVideo(posts.size() - 1).toString());
+    }
+
+    @Test
+    void rowsReadTheColumns() throws IOException {
+        List<TikTokVideo> posts = fixturePosts();
+        TikTokVideoBatch batch = new TikTokVideoBatch(1);
+
+        // A small capacity makes every column grow.
+        for (int i = 0; i < 10; i++) {
+            batch.addAll(posts);
+        }
+
+        long plays = 0;
+        for (TikTokVideoBatch.Row row : batch) {
+            plays += row.getPlayCount();
+        }
+
+        Assertions.assertEquals(10 * posts.stream().mapToLong(TikTokVideo::getPlayCount).sum(), plays);
+
+        TikTokVideo video = posts.get(1);
+        TikTokVideoBatch.Row row = batch.get(posts.size() + 1);
+        Assertions.assertEquals(video.getId(), row.getId());
+        Assertions.assertEquals(Long.parseLong(video.getId()), row.getIdAsLong());
+        Assertions.assertEquals(video.getAuthor(), row.getAuthor());
+        Assertions.assertEquals(video.getDescription(), row.getDescription());
+        Assertions.assertEquals(video.isCanDuet(), row.isCanDuet());
+        Assertions.assertEquals(video.isCanShare(), row.isCanShare());
+        Assertions.assertEquals(video.getCover().getLargeUrl(), row.getCover().getLargeUrl());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> batch.get(batch.size()));
+    }
+
+    @Test
+    void irregularValuesAreKept() {
+        String[] ids = {"", null, "0123", "9223372036854775807", "9223372036854775808", "abc"};
+        List<TikTokVideo> videos = new ArrayList<>();
+
+        for (int i = 0; i < ids.length; i++) {
+            boolean flag = i % 2 == 0;
+            videos.add(new TikTokVideo(ids[i], null, "author", i, flag, !flag, flag, !flag, flag, !flag, flag, !flag,
+                    null, -i, i, i, i, i, "", i == 0 ? new TikTokThumbnail("small", null, "large") : null));
+        }
+
+        TikTokVideoBatch batch = TikTokVideoBatch.of(videos);
+
+        for (int i = 0; i < ids.length; i++) {
+            Assertions.assertEquals(videos.get(i).toString(), batch.toVideo(i).toString());
+        }
+
+        Assertions.assertEquals(Long.MAX_VALUE, batch.get(3).getIdAsLong());
+        Assertions.assertEquals(0, batch.get(4).getIdAsLong(), "An ID overflowing a long is not a number");
+    }
+
+    @Test
+    void textsSpanChunks() {
+        List<TikTokVideo> videos = new ArrayList<>();
+
+        // 300 KiB descriptions cross the 1 MiB chunk boundaries at different offsets, one is longer than a chunk.
+        for (int i = 0; i < 12; i++) {
+            String description = String.valueOf((char) ('a' + i)).repeat(i == 5 ? 3 << 20 : 300 << 10) + "\u00e4";
+            videos.add(new TikTokVideo(String.valueOf(i), description, "author", i, true, false, false, false, false,
+                    true, true, true, null, i, i, i, i, i, "720p", new TikTokThumbnail("small" + i, "medium" + i, "large" + i)));
+        }
+
+        TikTokVideoBatch batch = new TikTokVideoBatch(1);
+        batch.addAll(videos);
+
+        for (int i = 0; i < videos.size(); i++) {
+            Assertions.assertEquals(videos.get(i).toString(), batch.toVideo(i).toString());
+        }
+
+        batch.trimToSize();
+        Assertions.assertEquals(videos.get(11).getDescription(), batch.get(11).getDescription());
+        Assertions.assertEquals("large11", batch.get(11).getCover().getLargeUrl());
+    }
+
+    @Test
+    void capacityIsChecked() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TikTokVideoBatch(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TikTokVideoBatch(Integer.MAX_VALUE));
+    }
+}